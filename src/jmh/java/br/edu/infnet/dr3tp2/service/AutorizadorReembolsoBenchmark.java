@@ -0,0 +1,66 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks da autorização de reembolso
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutorizadorReembolsoBenchmark {
+
+    private AutorizadorReembolso autorizador;
+    private Consulta consultaAutorizada;
+    private Consulta consultaNegada;
+    private Paciente paciente;
+
+    @Setup
+    public void setUp() {
+        autorizador = new AutorizadorReembolsoImpl();
+        consultaAutorizada = new Consulta(new BigDecimal("1500.00"), new BigDecimal("0.70"));
+        consultaNegada = new Consulta(new BigDecimal("2500.00"), new BigDecimal("0.70"));
+        paciente = new Paciente("Dummy", "000.000.000-00");
+    }
+
+    @Benchmark
+    public boolean autorizada() {
+        return autorizador.isAutorizado(consultaAutorizada, paciente);
+    }
+
+    @Benchmark
+    public boolean negada() {
+        return autorizador.isAutorizado(consultaNegada, paciente);
+    }
+
+    @Benchmark
+    public DecisaoAutorizacao avaliarNegada() {
+        return autorizador.avaliar(consultaNegada, paciente);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DecisaoAutorizacao avaliarNegada4Threads() {
+        return autorizador.avaliar(consultaNegada, paciente);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean autorizada4Threads() {
+        return autorizador.isAutorizado(consultaAutorizada, paciente);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean negada4Threads() {
+        return autorizador.isAutorizado(consultaNegada, paciente);
+    }
+}
@@ -0,0 +1,69 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks do cálculo de reembolso (ponto fixo x BigDecimal)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculadoraReembolsoBenchmark {
+
+    @Param({"true", "false"})
+    boolean pontoFixo;
+
+    private CalculadoraReembolso calculadora;
+    private Consulta consulta;
+    private Consulta consultaAcimaDoTeto;
+    private Consulta consultaPlano;
+    private Paciente paciente;
+    private PlanoSaude plano;
+
+    @Setup
+    public void setUp() {
+        calculadora = new CalculadoraReembolso();
+        calculadora.pontoFixoHabilitado = pontoFixo;
+
+        consulta = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+        consultaAcimaDoTeto = new Consulta(new BigDecimal("1500.00"), new BigDecimal("0.80"));
+        consultaPlano = new Consulta(new BigDecimal("200.00"), null);
+        paciente = new Paciente("Dummy", "000.000.000-00");
+        plano = new PlanoSaudeStubBasico();
+    }
+
+    @Benchmark
+    public BigDecimal calcular() {
+        return calculadora.calcular(consulta, paciente);
+    }
+
+    @Benchmark
+    public BigDecimal calcularAcimaDoTeto() {
+        return calculadora.calcular(consultaAcimaDoTeto, paciente);
+    }
+
+    @Benchmark
+    public BigDecimal calcularComPlano() {
+        return calculadora.calcularComPlano(consultaPlano, plano);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal calcular4Threads() {
+        return calculadora.calcular(consulta, paciente);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal calcularComPlano4Threads() {
+        return calculadora.calcularComPlano(consultaPlano, plano);
+    }
+}
@@ -0,0 +1,121 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.Dr3Tp2Application;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teste de carga de GET /api/reembolso/historico: sobe a aplicação na pilha
+ * servlet e depois na reativa, com o mesmo histórico, e mede vazão e p99
+ * com N requisições concorrentes sustentadas.
+ *
+ * Argumentos: [concorrencia=64] [segundos=20]
+ */
+public class CargaHistoricoComparativo {
+
+    private static final int REGISTROS_HISTORICO = 100;
+    private static final int MAX_AMOSTRAS = 4_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int concorrencia = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        for (WebApplicationType tipo : new WebApplicationType[]{WebApplicationType.SERVLET, WebApplicationType.REACTIVE}) {
+            try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(Dr3Tp2Application.class)
+                    .web(tipo)
+                    .properties("server.port=0", "reembolso.auditoria.habilitada=false", "logging.level.root=WARN",
+                            "logging.level.org.springframework.web=WARN")
+                    .run()) {
+                popularHistorico(contexto.getBean(HistoricoConsultasComReembolso.class));
+                int porta = Integer.parseInt(contexto.getEnvironment().getProperty("local.server.port"));
+                URI uri = URI.create("http://localhost:" + porta + "/api/reembolso/historico");
+
+                executar(uri, concorrencia, Math.max(2, segundos / 4));
+                Resultado resultado = executar(uri, concorrencia, segundos);
+                System.out.printf("%-9s concorrencia=%d vazao=%.0f req/s p50=%.2f ms p99=%.2f ms erros=%d%n",
+                        tipo, concorrencia, resultado.vazao(), resultado.p50Ms(), resultado.p99Ms(), resultado.erros());
+            }
+        }
+    }
+
+    private static void popularHistorico(HistoricoConsultasComReembolso historico) {
+        for (int i = 0; i < REGISTROS_HISTORICO; i++) {
+            BigDecimal valor = BigDecimal.valueOf(100 + i);
+            historico.salvarComReembolso(new Consulta(valor, new BigDecimal("0.70")),
+                    new Paciente("Paciente " + (i % 10), "000.000.000-0" + (i % 10)),
+                    valor.multiply(new BigDecimal("0.70")));
+        }
+    }
+
+    /**
+     * Mantém {@code concorrencia} requisições em voo: cada resposta dispara a próxima
+     * até o prazo acabar.
+     */
+    private static Resultado executar(URI uri, int concorrencia, int segundos) throws Exception {
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest requisicao = HttpRequest.newBuilder(uri).header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(30)).GET().build();
+        long[] latencias = new long[MAX_AMOSTRAS];
+        AtomicLong amostras = new AtomicLong();
+        AtomicLong erros = new AtomicLong();
+        long inicio = System.nanoTime();
+        long prazo = inicio + Duration.ofSeconds(segundos).toNanos();
+
+        CompletableFuture<?>[] trabalhadores = new CompletableFuture<?>[concorrencia];
+        for (int i = 0; i < concorrencia; i++) {
+            trabalhadores[i] = disparar(cliente, requisicao, prazo, latencias, amostras, erros);
+        }
+        CompletableFuture.allOf(trabalhadores).join();
+        double decorrido = (System.nanoTime() - inicio) / 1e9;
+
+        int total = (int) Math.min(amostras.get(), MAX_AMOSTRAS);
+        long[] ordenadas = Arrays.copyOf(latencias, total);
+        Arrays.sort(ordenadas);
+        return new Resultado(amostras.get() / decorrido, percentil(ordenadas, 0.50), percentil(ordenadas, 0.99), erros.get());
+    }
+
+    private static CompletableFuture<Void> disparar(HttpClient cliente, HttpRequest requisicao, long prazo,
+                                                    long[] latencias, AtomicLong amostras, AtomicLong erros) {
+        if (System.nanoTime() >= prazo) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long t0 = System.nanoTime();
+        return cliente.sendAsync(requisicao, HttpResponse.BodyHandlers.discarding())
+                .handle((resposta, falha) -> {
+                    if (falha != null || resposta.statusCode() != 200) {
+                        erros.incrementAndGet();
+                    } else {
+                        long indice = amostras.getAndIncrement();
+                        if (indice < MAX_AMOSTRAS) {
+                            latencias[(int) indice] = System.nanoTime() - t0;
+                        }
+                    }
+                    return null;
+                })
+                .thenCompose(ignorado -> disparar(cliente, requisicao, prazo, latencias, amostras, erros));
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return Double.NaN;
+        }
+        int indice = (int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1);
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+
+    private record Resultado(double vazao, double p50Ms, double p99Ms, long erros) {
+    }
+}
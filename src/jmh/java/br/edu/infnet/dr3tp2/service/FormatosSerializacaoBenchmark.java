@@ -0,0 +1,91 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tamanho e custo de serialização de uma página de histórico em JSON, CBOR e Smile
+ *
+ * A página tem o tamanho máximo da API (1000 itens). O tamanho do payload,
+ * puro e com gzip, é impresso no setup de cada formato; os benchmarks medem
+ * escrita e leitura da página inteira.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatosSerializacaoBenchmark {
+
+    private static final int ITENS = 1_000;
+    private static final int PACIENTES = 50;
+
+    @Param({"json", "cbor", "smile"})
+    String formato;
+
+    private List<HistoricoResponse> pagina;
+    private ObjectWriter escritor;
+    private ObjectReader leitor;
+    private byte[] serializado;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        ObjectMapper mapper = switch (formato) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new JsonMapper();
+        };
+
+        Paciente[] pacientes = new Paciente[PACIENTES];
+        for (int i = 0; i < PACIENTES; i++) {
+            pacientes[i] = new Paciente("Paciente " + i, String.format("%03d.%03d.%03d-%02d", i, i, i, i % 100));
+        }
+        pagina = new ArrayList<>(ITENS);
+        for (int i = 0; i < ITENS; i++) {
+            BigDecimal valor = BigDecimal.valueOf(5_000 + i * 37L % 195_000, 2);
+            BigDecimal percentual = BigDecimal.valueOf(50 + i % 50, 2);
+            BigDecimal reembolso = CalculoPontoFixo.paraReais(CalculoPontoFixo.calcularCentavos(
+                    CalculoPontoFixo.paraCentavos(valor), CalculoPontoFixo.paraPontosBase(percentual)));
+            pagina.add(new HistoricoResponse(new ReembolsoResponse(valor, percentual, reembolso, "sucesso"),
+                    pacientes[i % PACIENTES]));
+        }
+
+        escritor = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, HistoricoResponse.class));
+        leitor = mapper.readerFor(HistoricoResponse[].class);
+        serializado = escritor.writeValueAsBytes(pagina);
+
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido)) {
+            gzip.write(serializado);
+        }
+        System.out.printf("%n%-6s itens=%d bytes=%d bytes/item=%.1f gzip=%d%n",
+                formato, ITENS, serializado.length, (double) serializado.length / ITENS, comprimido.size());
+    }
+
+    @Benchmark
+    public byte[] serializar() throws IOException {
+        return escritor.writeValueAsBytes(pagina);
+    }
+
+    @Benchmark
+    public HistoricoResponse[] desserializar() throws IOException {
+        return leitor.readValue(serializado);
+    }
+}
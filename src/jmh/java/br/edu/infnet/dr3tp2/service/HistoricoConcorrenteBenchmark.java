@@ -0,0 +1,90 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de escrita concorrente no HistoricoConsultasConcorrente
+ *
+ * Mede gravações com 1, 4 e 8 threads em CPFs distintos e um cenário misto
+ * com leitores e escritores simultâneos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class HistoricoConcorrenteBenchmark {
+
+    private static final int PACIENTES = 10_000;
+
+    private HistoricoConsultasConcorrente historico;
+    private Paciente[] pacientes;
+    private BigDecimal valor;
+    private BigDecimal percentual;
+    private BigDecimal reembolso;
+
+    @Setup(Level.Trial)
+    public void criarPacientes() {
+        pacientes = new Paciente[PACIENTES];
+        for (int i = 0; i < PACIENTES; i++) {
+            pacientes[i] = new Paciente("Paciente " + i, String.format("%011d", i));
+        }
+        valor = new BigDecimal("200.00");
+        percentual = new BigDecimal("0.70");
+        reembolso = new BigDecimal("140.00");
+    }
+
+    // Histórico recriado a cada iteração para não crescer durante a medição
+    @Setup(Level.Iteration)
+    public void recriar() {
+        historico = new HistoricoConsultasConcorrente();
+        for (int i = 0; i < 100_000; i++) {
+            historico.salvarComReembolso(new Consulta(valor, percentual), pacientes[i % PACIENTES], reembolso);
+        }
+    }
+
+    private void salvarEmPacienteAleatorio() {
+        Paciente paciente = pacientes[ThreadLocalRandom.current().nextInt(PACIENTES)];
+        historico.salvarComReembolso(new Consulta(valor, percentual), paciente, reembolso);
+    }
+
+    @Benchmark
+    public void salvar() {
+        salvarEmPacienteAleatorio();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void salvar4Threads() {
+        salvarEmPacienteAleatorio();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void salvar8Threads() {
+        salvarEmPacienteAleatorio();
+    }
+
+    @Benchmark
+    @Group("misto")
+    @GroupThreads(3)
+    public void mistoEscrita() {
+        salvarEmPacienteAleatorio();
+    }
+
+    @Benchmark
+    @Group("misto")
+    @GroupThreads(1)
+    public List<HistoricoResponse> mistoLeituraPorPaciente() {
+        return historico.buscarHistoricoPorPaciente(pacientes[ThreadLocalRandom.current().nextInt(PACIENTES)].getCpf());
+    }
+}
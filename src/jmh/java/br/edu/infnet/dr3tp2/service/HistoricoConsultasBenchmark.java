@@ -0,0 +1,102 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks do histórico de consultas com 1 mil, 100 mil e 1 milhão de registros
+ *
+ * Leitura em múltiplas threads é segura aqui pois nenhuma escrita ocorre
+ * durante a medição. Escritas concorrentes ficam em HistoricoConcorrenteBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class HistoricoConsultasBenchmark {
+
+    private static final int PACIENTES = 1_000;
+
+    @Param({"1000", "100000", "1000000"})
+    int tamanho;
+
+    @Param({"fake", "concorrente"})
+    String implementacao;
+
+    private HistoricoConsultasComReembolso historico;
+    private Paciente[] pacientes;
+    private Consulta consultaNova;
+    private BigDecimal reembolsoNovo;
+    private String cpfConsultado;
+
+    @Setup(Level.Trial)
+    public void preencher() {
+        pacientes = new Paciente[PACIENTES];
+        for (int i = 0; i < PACIENTES; i++) {
+            pacientes[i] = new Paciente("Paciente " + i, String.format("%011d", i));
+        }
+        cpfConsultado = pacientes[PACIENTES / 2].getCpf();
+
+        historico = criarHistorico(tamanho);
+        consultaNova = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+        reembolsoNovo = new BigDecimal("140.00");
+    }
+
+    HistoricoConsultasComReembolso criarHistorico(int registros) {
+        HistoricoConsultasComReembolso novo = "fake".equals(implementacao)
+                ? new HistoricoConsultasFake()
+                : new HistoricoConsultasConcorrente();
+        for (int i = 0; i < registros; i++) {
+            Consulta consulta = new Consulta(BigDecimal.valueOf(10_000 + i % 50_000, 2), new BigDecimal("0.70"));
+            novo.salvarComReembolso(consulta, pacientes[i % PACIENTES], new BigDecimal("70.00"));
+        }
+        return novo;
+    }
+
+    /**
+     * Estado separado para escrita: o histórico é recriado a cada iteração
+     * para que o tamanho não cresça indefinidamente durante a medição.
+     */
+    @State(Scope.Benchmark)
+    public static class Escrita {
+
+        HistoricoConsultasComReembolso historico;
+
+        @Setup(Level.Iteration)
+        public void recriar(HistoricoConsultasBenchmark benchmark) {
+            historico = benchmark.criarHistorico(benchmark.tamanho);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void salvar(Escrita escrita) {
+        // Nova instância de Consulta: o fake indexa consultas por identidade
+        Consulta consulta = new Consulta(consultaNova.getValor(), consultaNova.getPercentualCobertura());
+        escrita.historico.salvarComReembolso(consulta, pacientes[0], reembolsoNovo);
+    }
+
+    @Benchmark
+    public List<HistoricoResponse> buscarHistorico() {
+        return historico.buscarHistorico();
+    }
+
+    @Benchmark
+    public List<HistoricoResponse> buscarHistoricoPorPaciente() {
+        return historico.buscarHistoricoPorPaciente(cpfConsultado);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<HistoricoResponse> buscarHistoricoPorPaciente4Threads() {
+        return historico.buscarHistoricoPorPaciente(cpfConsultado);
+    }
+}
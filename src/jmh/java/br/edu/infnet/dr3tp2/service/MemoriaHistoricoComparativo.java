@@ -0,0 +1,99 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Heap retido por cada implementação do histórico depois de N consultas
+ *
+ * Cada consulta chega como no serviço: Consulta, BigDecimal e Paciente novos
+ * a cada gravação (o que o histórico guarda fica retido; o resto vira lixo).
+ * A medida é a diferença de heap usado após GC completo, antes e depois de
+ * popular o histórico.
+ *
+ * O particionado usa limite de 16 MB para a camada quente; a manutenção
+ * (selagem) roda antes da medida.
+ *
+ * Argumentos: [consultas=1000000] [pacientes=50000]
+ */
+public class MemoriaHistoricoComparativo {
+
+    public static void main(String[] args) {
+        int consultas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int pacientes = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        medir("fake", HistoricoConsultasFake::new, consultas, pacientes);
+        medir("concorrente", HistoricoConsultasConcorrente::new, consultas, pacientes);
+        medir("colunar", HistoricoConsultasColunar::new, consultas, pacientes);
+        medir("particionado", MemoriaHistoricoComparativo::particionado, consultas, pacientes);
+    }
+
+    private static void medir(String nome, Supplier<HistoricoConsultasComReembolso> fabrica,
+                              int consultas, int pacientes) {
+        String[] cpfs = new String[pacientes];
+        String[] nomes = new String[pacientes];
+        for (int i = 0; i < pacientes; i++) {
+            cpfs[i] = String.format("%03d.%03d.%03d-%02d", i / 1_000_000 % 1000, i / 1000 % 1000, i % 1000, i % 100);
+            nomes[i] = "Paciente " + i;
+        }
+
+        long antes = heapUsadoAposGc();
+        HistoricoConsultasComReembolso historico = fabrica.get();
+        for (int i = 0; i < consultas; i++) {
+            int paciente = i % pacientes;
+            BigDecimal valor = BigDecimal.valueOf(10_000 + i % 90_000, 2);
+            BigDecimal percentual = BigDecimal.valueOf(50 + i % 50, 2);
+            historico.salvarComReembolso(new Consulta(valor, percentual),
+                    new Paciente(nomes[paciente], cpfs[paciente]),
+                    CalculoPontoFixo.paraReais(CalculoPontoFixo.calcularCentavos(
+                            CalculoPontoFixo.paraCentavos(valor), CalculoPontoFixo.paraPontosBase(percentual))));
+        }
+        if (historico instanceof HistoricoConsultasParticionado particionado) {
+            particionado.manutencao();
+        }
+        long depois = heapUsadoAposGc();
+
+        double bytesPorConsulta = (double) (depois - antes) / consultas;
+        System.out.printf("%-12s consultas=%d pacientes=%d heap=%.1f MB bytes/consulta=%.1f MB/milhao=%.1f registros=%d%n",
+                nome, consultas, pacientes, (depois - antes) / 1048576.0, bytesPorConsulta,
+                bytesPorConsulta * 1_000_000 / 1048576.0, historico.contarRegistros());
+        Reference.reachabilityFence(historico);
+        Reference.reachabilityFence(cpfs);
+        Reference.reachabilityFence(nomes);
+    }
+
+    private static HistoricoConsultasParticionado particionado() {
+        try {
+            HistoricoConsultasParticionado historico = new HistoricoConsultasParticionado(
+                    Files.createTempDirectory("historico-particionado"), Duration.ofDays(1), 2,
+                    DataSize.ofMegabytes(16), Duration.ofDays(365), 4, Duration.ZERO);
+            historico.abrir();
+            return historico;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long heapUsadoAposGc() {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        long usado = Long.MAX_VALUE;
+        // Alguns ciclos até o heap estabilizar (finalização/referências fracas)
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            usado = Math.min(usado, memoria.getHeapMemoryUsage().getUsed());
+        }
+        return usado;
+    }
+}
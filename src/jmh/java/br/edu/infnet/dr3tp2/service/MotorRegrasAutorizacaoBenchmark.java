@@ -0,0 +1,79 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks do motor de regras de autorização com uma cadeia grande
+ *
+ * "autorizada" percorre todas as regras (pior caso); "negadaNaUltima" nega
+ * apenas na última regra; "negadaNaPrimeira" mostra o curto-circuito.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MotorRegrasAutorizacaoBenchmark {
+
+    @Param({"128"})
+    private int quantidadeRegras;
+
+    private MotorRegrasAutorizacao motor;
+    private Consulta consultaAutorizada;
+    private Consulta consultaNegadaNaUltima;
+    private Paciente paciente;
+    private Paciente pacienteBloqueado;
+    private PlanoConfigurado plano;
+
+    @Setup
+    public void setUp() {
+        List<RegraAutorizacao> regras = new ArrayList<>(quantidadeRegras);
+        regras.add(RegraAutorizacao.cpfsBloqueados(List.of("999.999.999-99")));
+        for (int i = 1; i < quantidadeRegras - 1; i++) {
+            switch (i % 4) {
+                // Limites de outros planos: pulados pelo código do plano
+                case 0 -> regras.add(RegraAutorizacao.limiteValor("plano" + i, new BigDecimal("100.00")));
+                case 1 -> regras.add(RegraAutorizacao.limiteValor(null, BigDecimal.valueOf(5000 + i)));
+                case 2 -> regras.add(RegraAutorizacao.cobertura(null, new BigDecimal("0.05"), new BigDecimal("0.95")));
+                default -> {
+                    List<String> cpfs = new ArrayList<>();
+                    for (int c = 0; c < 50; c++) {
+                        cpfs.add(String.format("%03d.%03d.000-%02d", i, c, c));
+                    }
+                    regras.add(RegraAutorizacao.cpfsBloqueados(cpfs));
+                }
+            }
+        }
+        regras.add(RegraAutorizacao.limiteValor("premium", new BigDecimal("2000.00")));
+
+        motor = new MotorRegrasAutorizacao(regras);
+        plano = new PlanoConfigurado("premium", "Plano Premium", new BigDecimal("0.80"));
+        consultaAutorizada = new Consulta(new BigDecimal("1500.00"), null);
+        consultaNegadaNaUltima = new Consulta(new BigDecimal("2500.00"), null);
+        paciente = new Paciente("Dummy", "000.000.000-00");
+        pacienteBloqueado = new Paciente("Bloqueado", "999.999.999-99");
+    }
+
+    @Benchmark
+    public DecisaoAutorizacao autorizada() {
+        return motor.avaliar(consultaAutorizada, paciente, plano);
+    }
+
+    @Benchmark
+    public DecisaoAutorizacao negadaNaUltima() {
+        return motor.avaliar(consultaNegadaNaUltima, paciente, plano);
+    }
+
+    @Benchmark
+    public DecisaoAutorizacao negadaNaPrimeira() {
+        return motor.avaliar(consultaAutorizada, pacienteBloqueado, plano);
+    }
+}
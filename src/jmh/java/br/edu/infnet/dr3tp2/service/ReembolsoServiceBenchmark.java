@@ -0,0 +1,75 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark do fluxo completo do ReembolsoService
+ * (autorização, auditoria, cálculo e histórico)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReembolsoServiceBenchmark {
+
+    private ReembolsoService reembolsoService;
+    private BigDecimal valor;
+    private BigDecimal percentual;
+    private BigDecimal percentualInvalido;
+    private PlanoSaude plano;
+
+    // Histórico recriado a cada iteração para não crescer durante a medição
+    @Setup(Level.Iteration)
+    public void setUp() {
+        reembolsoService = new ReembolsoService();
+        ReflectionTestUtils.setField(reembolsoService, "calculadoraReembolso", new CalculadoraReembolso());
+        ReflectionTestUtils.setField(reembolsoService, "historicoConsultas", new HistoricoConsultasConcorrente());
+        reembolsoService.autorizadorReembolso = new AutorizadorReembolsoImpl();
+
+        valor = new BigDecimal("200.00");
+        percentual = new BigDecimal("0.70");
+        percentualInvalido = new BigDecimal("1.50");
+        plano = new PlanoSaudeStubBasico();
+    }
+
+    @Benchmark
+    public BigDecimal calcularReembolso() {
+        // Nova instância de Consulta por chamada, como em uma requisição real
+        return reembolsoService.calcularReembolso(new Consulta(valor, percentual));
+    }
+
+    @Benchmark
+    public BigDecimal calcularReembolsoComPlano() {
+        return reembolsoService.calcularReembolsoComPlano(new Consulta(valor, null), plano);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal calcularReembolso4Threads() {
+        return reembolsoService.calcularReembolso(new Consulta(valor, percentual));
+    }
+
+    // Rejeição de consulta inválida: exceção (com pilha) contra resultado pré-alocado
+
+    @Benchmark
+    public String rejeitarComExcecao() {
+        try {
+            reembolsoService.calcularReembolso(new Consulta(valor, percentualInvalido));
+            return null;
+        } catch (IllegalArgumentException | SecurityException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String rejeitarSemExcecao() {
+        return reembolsoService.tentarCalcularReembolso(new Consulta(valor, percentualInvalido)).getMensagem();
+    }
+}
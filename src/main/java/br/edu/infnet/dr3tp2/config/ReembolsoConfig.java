@@ -0,0 +1,123 @@
+package br.edu.infnet.dr3tp2.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Configuração de infraestrutura do cálculo de reembolsos
+ */
+@Configuration
+public class ReembolsoConfig {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    /**
+     * Pool limitado usado no processamento de lotes de consultas
+     *
+     * @param paralelismo Quantidade de threads (0 usa o número de processadores)
+     * @return Pool fork-join dedicado aos lotes
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool poolReembolsoLote(@Value("${reembolso.lote.paralelismo:0}") int paralelismo) {
+        int threads = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+
+    /**
+     * Conversor application/cbor com a mesma configuração do ObjectMapper JSON
+     *
+     * BigDecimal vai como fração decimal (tag 4 do CBOR: expoente e mantissa
+     * inteiros), então valores monetários mantêm a escala sem virar texto.
+     *
+     * @param builder Builder do Jackson já com as customizações do Spring Boot
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter conversorCbor(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Conversor application/x-jackson-smile com a mesma configuração do ObjectMapper JSON
+     *
+     * BigDecimal vai como escala e mantissa binária; nomes de campo repetidos
+     * (listas de histórico) são referenciados em vez de repetidos.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter conversorSmile(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Codecs CBOR e Smile do WebFlux, com a mesma configuração dos conversores MVC
+     *
+     * O WebFlux já traz Smile entre os codecs padrão (só troca o ObjectMapper),
+     * mas não CBOR. Codecs customizados ficam antes dos padrão, então o JSON
+     * é registrado de novo antes do CBOR para continuar sendo o formato
+     * escolhido quando o cliente aceita qualquer um.
+     *
+     * @param json ObjectMapper JSON do Spring Boot
+     * @param builder Builder do Jackson já com as customizações do Spring Boot
+     */
+    @Bean
+    public CodecCustomizer codecsBinarios(ObjectMapper json, Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper cbor = builder.factory(new CBORFactory()).build();
+        ObjectMapper smile = builder.factory(new SmileFactory()).build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile, SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile, SMILE));
+            // JSON de novo à frente, para Accept: */* continuar negociando JSON
+            configurer.customCodecs().register(new Jackson2JsonEncoder(json));
+            configurer.customCodecs().register(new Jackson2JsonDecoder(json));
+            configurer.customCodecs().register(new EncoderCbor(cbor));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+        };
+    }
+
+    /**
+     * Encoder CBOR que escreve respostas de valor único
+     *
+     * O writer do WebFlux sempre chama encode, até para Mono, e o
+     * Jackson2CborEncoder só implementa encodeValue. Flux continua sem
+     * suporte: o controlador reativo junta o histórico numa lista.
+     */
+    static final class EncoderCbor extends Jackson2CborEncoder {
+
+        EncoderCbor(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> entrada, DataBufferFactory fabrica, ResolvableType tipo,
+                                       MimeType mimeType, Map<String, Object> dicas) {
+            if (entrada instanceof Mono<?> valor) {
+                return valor.map(item -> encodeValue(item, fabrica, tipo, mimeType, dicas)).flux();
+            }
+            return super.encode(entrada, fabrica, tipo, mimeType, dicas);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package br.edu.infnet.dr3tp2.controller;
+
+import br.edu.infnet.dr3tp2.dto.RastroLentoResponse;
+import br.edu.infnet.dr3tp2.service.ExportadorRastrosLentos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Endpoint /actuator/rastros com os traces retidos pela amostragem de cauda
+ */
+@Component
+@Endpoint(id = "rastros")
+public class RastrosLentosEndpoint {
+
+    @Autowired
+    private ExportadorRastrosLentos exportador;
+
+    @ReadOperation
+    public List<RastroLentoResponse> rastros() {
+        return exportador.getRastrosRetidos();
+    }
+}
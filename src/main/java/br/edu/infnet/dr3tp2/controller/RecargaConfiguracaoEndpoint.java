@@ -0,0 +1,52 @@
+package br.edu.infnet.dr3tp2.controller;
+
+import br.edu.infnet.dr3tp2.service.MotorRegrasAutorizacao;
+import br.edu.infnet.dr3tp2.service.RegistroPlanosSaude;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint /actuator/recarga (POST) que relê do Environment os planos de
+ * saúde e, com o motor de regras ativo, as regras de autorização
+ *
+ * Serve para aplicar mudanças nas fontes de configuração vivas (propriedades
+ * de sistema, variáveis de ambiente ou fontes adicionadas em tempo de
+ * execução) sem reiniciar. Cada componente troca sua tabela de uma vez: uma
+ * configuração inválida responde 400 e mantém a tabela atual daquele componente.
+ */
+@Component
+@Endpoint(id = "recarga")
+public class RecargaConfiguracaoEndpoint {
+
+    @Autowired
+    private RegistroPlanosSaude registroPlanosSaude;
+
+    // Ausente com reembolso.autorizacao.motor=padrao
+    @Autowired(required = false)
+    private MotorRegrasAutorizacao motorRegras;
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> recarregar() {
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        try {
+            registroPlanosSaude.recarregar();
+            resposta.put("planos", registroPlanosSaude.getPlanos().size());
+            if (motorRegras != null) {
+                motorRegras.recarregar();
+                resposta.put("regras", motorRegras.getQuantidadeRegras());
+            }
+        } catch (IllegalArgumentException e) {
+            resposta.put("erro", e.getMessage());
+            resposta.put("status", "erro");
+            return new WebEndpointResponse<>(resposta, WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        resposta.put("status", "sucesso");
+        return new WebEndpointResponse<>(resposta);
+    }
+}
@@ -1,56 +1,160 @@
 package br.edu.infnet.dr3tp2.controller;
 
+import br.edu.infnet.dr3tp2.dto.EstatisticasIdempotenciaResponse;
 import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ItemLoteResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
 import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
 import br.edu.infnet.dr3tp2.dto.StatusResponse;
 import br.edu.infnet.dr3tp2.model.Consulta;
-import br.edu.infnet.dr3tp2.service.PlanoSaudeStubBasico;
-import br.edu.infnet.dr3tp2.service.PlanoSaudeStubPremium;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import br.edu.infnet.dr3tp2.service.CacheIdempotencia;
+import br.edu.infnet.dr3tp2.service.CodigoErro;
+import br.edu.infnet.dr3tp2.service.IdempotenciaConflitanteException;
 import br.edu.infnet.dr3tp2.service.PlanoSaude;
+import br.edu.infnet.dr3tp2.service.ReembolsoNaoAutorizadoException;
+import br.edu.infnet.dr3tp2.service.ReembolsoLoteService;
 import br.edu.infnet.dr3tp2.service.ReembolsoService;
+import br.edu.infnet.dr3tp2.service.ResultadoReembolso;
+import br.edu.infnet.dr3tp2.service.RegistroPlanosSaude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Controlador REST para operações de reembolso
+ *
+ * Além de JSON, todos os endpoints aceitam e produzem application/cbor e
+ * application/x-jackson-smile (Content-Type e Accept). Os endpoints comuns
+ * usam os conversores registrados em ReembolsoConfig; os de streaming (lote e
+ * exportação) escolhem o formato pelo Accept e escrevem um array binário
+ * de tamanho indefinido no lugar do array JSON / NDJSON.
  */
 @RestController
 @RequestMapping("/api/reembolso")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ReembolsoController {
 
+    static final int LIMITE_PADRAO_PAGINA = 100;
+    static final int LIMITE_MAXIMO_PAGINA = 1000;
+    static final String HEADER_PROXIMO_CURSOR = "X-Proximo-Cursor";
+    private static final int TAMANHO_BUFFER_GZIP = 8192;
+    static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    static final String HEADER_IDEMPOTENCIA = "Idempotency-Key";
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+    private static final ResponseEntity<Map<String, String>> RESPOSTA_CHAVE_INVALIDA =
+            ResponseEntity.badRequest().body(Map.of(
+                    "erro", "Idempotency-Key deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres",
+                    "status", "erro"
+            ));
+
+    private static final ResponseEntity<Map<String, String>> RESPOSTA_CHAVE_CONFLITANTE =
+            ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of(
+                    "erro", "Idempotency-Key já usada com outra requisição",
+                    "status", "erro"
+            ));
+
+    // Resposta pronta para cada falha pré-alocada de ResultadoReembolso
+    private static final Map<ResultadoReembolso, ResponseEntity<Map<String, String>>> RESPOSTAS_FALHA = criarRespostasFalha();
+
     @Autowired
     private ReembolsoService reembolsoService;
 
+    @Autowired
+    private ReembolsoLoteService reembolsoLoteService;
+
+    @Autowired
+    private RegistroPlanosSaude registroPlanosSaude;
+
+    @Autowired
+    private CacheIdempotencia cacheIdempotencia;
+
+    private final Formato json;
+    private final Formato cbor;
+    private final Formato smile;
+
+    public ReembolsoController(ObjectMapper objectMapper,
+                               MappingJackson2CborHttpMessageConverter conversorCbor,
+                               MappingJackson2SmileHttpMessageConverter conversorSmile) {
+        this.json = new Formato(MediaType.APPLICATION_JSON, objectMapper);
+        this.cbor = new Formato(MediaType.APPLICATION_CBOR, conversorCbor.getObjectMapper());
+        this.smile = new Formato(APPLICATION_SMILE, conversorSmile.getObjectMapper());
+    }
+
+    /**
+     * Formato de um corpo escrito em streaming, com os escritores pré-configurados
+     */
+    private record Formato(MediaType tipo, ObjectMapper mapper,
+                           ObjectWriter escritorItemLote, ObjectWriter escritorHistorico) {
+
+        Formato(MediaType tipo, ObjectMapper mapper) {
+            // Sem flush por item: o buffer do gerador decide quando enviar cada bloco
+            this(tipo, mapper,
+                    mapper.writerFor(ItemLoteResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE),
+                    mapper.writerFor(HistoricoResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+        }
+    }
+
     /**
      * Endpoint para calcular reembolso de uma consulta
      *
+     * Com o header Idempotency-Key, repetições da mesma requisição recebem a
+     * resposta já calculada, sem recalcular, auditar ou gravar de novo. A mesma
+     * chave com outro corpo responde 422.
+     *
      * @param consulta Dados da consulta médica
+     * @param chaveIdempotencia Chave de idempotência opcional
      * @return Valor do reembolso calculado usando ReembolsoResponse Record
      */
     @PostMapping("/calcular")
-    public ResponseEntity<?> calcularReembolso(@RequestBody Consulta consulta) {
-        try {
-            BigDecimal valorReembolso = reembolsoService.calcularReembolso(consulta);
+    public ResponseEntity<?> calcularReembolso(
+            @RequestBody Consulta consulta,
+            @RequestHeader(value = HEADER_IDEMPOTENCIA, required = false) String chaveIdempotencia) {
+        if (!isChaveIdempotenciaValida(chaveIdempotencia)) {
+            return RESPOSTA_CHAVE_INVALIDA;
+        }
 
-            ReembolsoResponse response = new ReembolsoResponse(
-                    consulta.getValor(),
-                    consulta.getPercentualCobertura(),
-                    valorReembolso,
-                    "sucesso"
-            );
+        return executarIdempotente(chaveCache("calcular", chaveIdempotencia), consulta, null, () -> {
+            try {
+                ResultadoReembolso resultado = reembolsoService.tentarCalcularReembolso(consulta);
+                if (!resultado.isSucesso()) {
+                    return respostaFalha(resultado);
+                }
 
-            return ResponseEntity.ok(response);
-        } catch (IllegalArgumentException | SecurityException e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "erro", e.getMessage(),
-                    "status", "erro"
-            ));
-        }
+                ReembolsoResponse response = new ReembolsoResponse(
+                        consulta.getValor(),
+                        consulta.getPercentualCobertura(),
+                        resultado.getValor(),
+                        "sucesso"
+                );
+
+                return ResponseEntity.ok(response);
+            } catch (IllegalArgumentException | SecurityException e) {
+                return respostaErro(e);
+            }
+        });
     }
 
     /**
@@ -58,63 +162,368 @@ public class ReembolsoController {
      *
      * @param consulta Dados da consulta médica
      * @param tipoPlano Tipo do plano (basico ou premium)
+     * @param chaveIdempotencia Chave de idempotência opcional
      * @return Valor do reembolso calculado usando plano
      */
     @PostMapping("/calcular-com-plano")
     public ResponseEntity<?> calcularReembolsoComPlano(
             @RequestBody Consulta consulta,
-            @RequestParam String tipoPlano) {
+            @RequestParam String tipoPlano,
+            @RequestHeader(value = HEADER_IDEMPOTENCIA, required = false) String chaveIdempotencia) {
+        if (!isChaveIdempotenciaValida(chaveIdempotencia)) {
+            return RESPOSTA_CHAVE_INVALIDA;
+        }
+
+        return executarIdempotente(chaveCache("calcular-com-plano", chaveIdempotencia), consulta, tipoPlano, () -> {
+            try {
+                // Planos configurados, resolvidos sem criar objetos por requisição
+                PlanoSaude plano = registroPlanosSaude.resolver(tipoPlano);
+                if (plano == null) {
+                    return respostaPlanoInvalido(tipoPlano);
+                }
+
+                ResultadoReembolso resultado = reembolsoService.tentarCalcularReembolsoComPlano(consulta, plano);
+                if (!resultado.isSucesso()) {
+                    return respostaFalha(resultado);
+                }
+
+                ReembolsoResponse response = new ReembolsoResponse(
+                        consulta.getValor(),
+                        plano.getPercentualCobertura(),
+                        resultado.getValor(),
+                        "sucesso"
+                );
+
+                return ResponseEntity.ok(response);
+            } catch (IllegalArgumentException | SecurityException e) {
+                return respostaErro(e);
+            }
+        });
+    }
+
+    /**
+     * Endpoint com as estatísticas do cache de idempotência
+     */
+    @GetMapping("/idempotencia/estatisticas")
+    public ResponseEntity<EstatisticasIdempotenciaResponse> estatisticasIdempotencia() {
+        return ResponseEntity.ok(new EstatisticasIdempotenciaResponse(
+                cacheIdempotencia.getTamanho(),
+                cacheIdempotencia.getAcertos(),
+                cacheIdempotencia.getFalhas(),
+                cacheIdempotencia.getTaxaAcerto()
+        ));
+    }
+
+    private static boolean isChaveIdempotenciaValida(String chave) {
+        return chave == null || (!chave.isBlank() && chave.length() <= TAMANHO_MAXIMO_CHAVE);
+    }
+
+    // A mesma chave em endpoints diferentes não compartilha a resposta
+    private static String chaveCache(String endpoint, String chaveIdempotencia) {
+        return chaveIdempotencia == null ? null : endpoint + ':' + chaveIdempotencia;
+    }
+
+    private ResponseEntity<?> executarIdempotente(String chave, Consulta consulta, String tipoPlano,
+                                                  Supplier<ResponseEntity<?>> calculo) {
+        if (chave == null) {
+            return calculo.get();
+        }
+        try {
+            return cacheIdempotencia.executar(chave, impressao(consulta, tipoPlano), calculo);
+        } catch (IdempotenciaConflitanteException e) {
+            return RESPOSTA_CHAVE_CONFLITANTE;
+        }
+    }
+
+    // Impressão da requisição: campos do corpo e o plano, só para requisições com chave
+    private static String impressao(Consulta consulta, String tipoPlano) {
+        if (consulta == null) {
+            return tipoPlano;
+        }
+        Paciente paciente = consulta.getPaciente();
+        return consulta.getValor() + "|" + consulta.getPercentualCobertura()
+                + "|" + (paciente != null ? paciente.getCpf() + "|" + paciente.getNome() : "")
+                + "|" + tipoPlano;
+    }
+
+    /**
+     * Endpoint para calcular reembolso de um lote de consultas
+     *
+     * Os itens são processados em paralelo e a resposta é escrita de forma
+     * incremental, na ordem de entrada. Itens inválidos retornam status "erro"
+     * sem interromper o restante do lote.
+     *
+     * @param consultas Lista de consultas médicas
+     * @return Array JSON com o resultado de cada item
+     */
+    @PostMapping("/calcular/lote")
+    public ResponseEntity<StreamingResponseBody> calcularReembolsoLote(
+            @RequestBody List<Consulta> consultas,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String aceita) {
+        Formato formato = formatoAceito(aceita);
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator gerador = formato.mapper().getFactory().createGenerator(saida)) {
+                gerador.writeStartArray();
+                reembolsoLoteService.calcularLote(consultas, item -> escrever(gerador, formato.escritorItemLote(), item));
+                gerador.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(formato.tipo())
+                .body(corpo);
+    }
+
+    private static void escrever(JsonGenerator gerador, ObjectWriter escritor, Object item) {
         try {
-            // Factory para criar stubs
-            PlanoSaude plano = criarPlano(tipoPlano);
+            escritor.writeValue(gerador, item);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            BigDecimal valorReembolso = reembolsoService.calcularReembolsoComPlano(consulta, plano);
+    // Formato suportado de maior q-value no Accept (empate: o primeiro listado), ignorando q=0;
+    // JSON quando ausente, curinga ou inválido
+    private Formato formatoAceito(String aceita) {
+        if (aceita == null) {
+            return json;
+        }
+        Formato melhor = null;
+        double melhorQualidade = 0;
+        try {
+            for (MediaType tipo : MediaType.parseMediaTypes(aceita)) {
+                double qualidade = tipo.getQualityValue();
+                Formato formato = formatoDo(tipo);
+                if (formato != null && qualidade > melhorQualidade) {
+                    melhor = formato;
+                    melhorQualidade = qualidade;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return json;
+        }
+        return melhor != null ? melhor : json;
+    }
 
-            ReembolsoResponse response = new ReembolsoResponse(
-                    consulta.getValor(),
-                    plano.getPercentualCobertura(),
-                    valorReembolso,
-                    "sucesso"
-            );
+    private Formato formatoDo(MediaType tipo) {
+        if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(tipo)) {
+            return cbor;
+        }
+        if (APPLICATION_SMILE.equalsTypeAndSubtype(tipo)) {
+            return smile;
+        }
+        if (tipo.isWildcardType() || tipo.getSubtype().contains("json")) {
+            return json;
+        }
+        return null;
+    }
 
-            return ResponseEntity.ok(response);
-        } catch (IllegalArgumentException | SecurityException e) {
+    // EX8 - Negações de autorização incluem o código estável do motivo
+    private ResponseEntity<Map<String, String>> respostaErro(RuntimeException e) {
+        if (e instanceof ReembolsoNaoAutorizadoException naoAutorizado) {
             return ResponseEntity.badRequest().body(Map.of(
                     "erro", e.getMessage(),
+                    "codigo", naoAutorizado.getMotivo().getCodigo(),
                     "status", "erro"
             ));
         }
+
+        return ResponseEntity.badRequest().body(Map.of(
+                "erro", e.getMessage(),
+                "status", "erro"
+        ));
     }
 
-    private PlanoSaude criarPlano(String tipoPlano) {
-        return switch (tipoPlano.toLowerCase()) {
-            case "basico" -> new PlanoSaudeStubBasico();
-            case "premium" -> new PlanoSaudeStubPremium();
-            default -> throw new IllegalArgumentException("Tipo de plano inválido: " + tipoPlano);
-        };
+    // Falhas do caminho sem exceções: corpo pré-montado, sem concatenar mensagens
+    private static ResponseEntity<Map<String, String>> respostaFalha(ResultadoReembolso resultado) {
+        return RESPOSTAS_FALHA.get(resultado);
+    }
+
+    // Plano desconhecido: a mensagem cita o plano recebido, então é montada aqui
+    private static ResponseEntity<Map<String, String>> respostaPlanoInvalido(String tipoPlano) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "erro", CodigoErro.PLANO_INVALIDO.mensagemCom(tipoPlano),
+                "codigo", CodigoErro.PLANO_INVALIDO.getCodigo(),
+                "status", "erro"
+        ));
+    }
+
+    private static Map<ResultadoReembolso, ResponseEntity<Map<String, String>>> criarRespostasFalha() {
+        Map<ResultadoReembolso, ResponseEntity<Map<String, String>>> respostas = new HashMap<>();
+        for (ResultadoReembolso falha : ResultadoReembolso.falhas()) {
+            respostas.put(falha, ResponseEntity.badRequest().body(Map.of(
+                    "erro", falha.getMensagem(),
+                    "codigo", falha.getCodigo(),
+                    "status", "erro"
+            )));
+        }
+        return Map.copyOf(respostas);
     }
 
     /**
      * Endpoint para consultar histórico com dados dos pacientes
      *
-     * @return Lista de histórico completo
+     * Sem limit e sem after devolve a lista completa. Com qualquer um dos dois
+     * a resposta é uma página por cursor: o corpo traz os itens e o
+     * proximoCursor a ser enviado em "after" (null na última página), repetido
+     * no header X-Proximo-Cursor.
+     *
+     * @param limit Quantidade máxima de itens da página
+     * @param after Cursor da página anterior (ausente na primeira página)
+     * @return Histórico completo ou uma página dele
      */
     @GetMapping("/historico")
-    public ResponseEntity<List<HistoricoResponse>> consultarHistorico() {
-        List<HistoricoResponse> historico = reembolsoService.buscarHistorico();
-        return ResponseEntity.ok(historico);
+    public ResponseEntity<?> consultarHistorico(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long after) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(reembolsoService.buscarHistorico());
+        }
+        try {
+            int limite = validarPaginacao(limit, after);
+            return respostaPagina(reembolsoService.buscarHistorico(after == null ? 0 : after, limite));
+        } catch (IllegalArgumentException e) {
+            return respostaErro(e);
+        }
     }
 
     /**
      * Endpoint para consultar histórico por CPF do paciente
      *
      * @param cpf CPF do paciente
-     * @return Lista de histórico do paciente
+     * @param limit Quantidade máxima de itens da página
+     * @param after Cursor da página anterior (ausente na primeira página)
+     * @return Histórico completo do paciente ou uma página dele
      */
     @GetMapping("/historico/paciente/{cpf}")
-    public ResponseEntity<List<HistoricoResponse>> consultarHistoricoPorPaciente(@PathVariable String cpf) {
-        List<HistoricoResponse> historico = reembolsoService.buscarHistoricoPorPaciente(cpf);
-        return ResponseEntity.ok(historico);
+    public ResponseEntity<?> consultarHistoricoPorPaciente(
+            @PathVariable String cpf,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long after) {
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(reembolsoService.buscarHistoricoPorPaciente(cpf));
+        }
+        try {
+            int limite = validarPaginacao(limit, after);
+            return respostaPagina(reembolsoService.buscarHistoricoPorPaciente(cpf, after == null ? 0 : after, limite));
+        } catch (IllegalArgumentException e) {
+            return respostaErro(e);
+        }
+    }
+
+    /**
+     * Endpoint para consultar o resumo de reembolsos de um paciente
+     *
+     * Os totais são mantidos pelo histórico a cada gravação, sem percorrer
+     * as consultas do paciente.
+     *
+     * @param cpf CPF do paciente
+     * @return Quantidade de consultas, totais e consultas que atingiram o teto
+     */
+    @GetMapping("/historico/paciente/{cpf}/resumo")
+    public ResponseEntity<ResumoPacienteResponse> consultarResumoPorPaciente(@PathVariable String cpf) {
+        return ResponseEntity.ok(reembolsoService.buscarResumoPorPaciente(cpf));
+    }
+
+    /**
+     * Endpoint para exportar o histórico completo em NDJSON
+     *
+     * Cada item é escrito em uma linha assim que lido do histórico, com
+     * transferência chunked, então a memória usada não depende do tamanho do
+     * histórico. Se o cliente aceitar gzip, a resposta é comprimida. Com
+     * Accept CBOR ou Smile, os itens vão em um único array de tamanho
+     * indefinido, também escrito item a item.
+     *
+     * @param aceitaCodificacao Header Accept-Encoding da requisição
+     * @param aceita Header Accept da requisição
+     * @return Um objeto JSON por linha, ou um array CBOR/Smile
+     */
+    @GetMapping("/historico/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarHistorico(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceitaCodificacao,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String aceita) {
+        boolean gzip = aceitaGzip(aceitaCodificacao);
+        Formato formato = formatoAceito(aceita);
+
+        StreamingResponseBody corpo = saida -> {
+            OutputStream destino = gzip ? new GZIPOutputStream(saida, TAMANHO_BUFFER_GZIP) : saida;
+            try (JsonGenerator gerador = formato.mapper().getFactory().createGenerator(destino)) {
+                if (formato == json) {
+                    reembolsoService.exportarHistorico(item -> escreverLinha(gerador, item));
+                } else {
+                    gerador.writeStartArray();
+                    reembolsoService.exportarHistorico(item -> escrever(gerador, formato.escritorHistorico(), item));
+                    gerador.writeEndArray();
+                }
+            }
+        };
+
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .contentType(formato == json ? MediaType.APPLICATION_NDJSON : formato.tipo())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING + ", " + HttpHeaders.ACCEPT);
+        if (gzip) {
+            resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return resposta.body(corpo);
+    }
+
+    // Accept-Encoding com q-values: gzip (ou x-gzip) explícito prevalece sobre o curinga; q=0 recusa
+    static boolean aceitaGzip(String aceitaCodificacao) {
+        if (aceitaCodificacao == null) {
+            return false;
+        }
+        float gzip = -1;
+        float curinga = -1;
+        for (String item : aceitaCodificacao.split(",")) {
+            String[] partes = item.split(";");
+            String codificacao = partes[0].trim();
+            float qualidade = 1;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        qualidade = Float.parseFloat(parametro.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        qualidade = 0;
+                    }
+                }
+            }
+            if (codificacao.equalsIgnoreCase("gzip") || codificacao.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, qualidade);
+            } else if (codificacao.equals("*")) {
+                curinga = Math.max(curinga, qualidade);
+            }
+        }
+        return gzip >= 0 ? gzip > 0 : curinga > 0;
+    }
+
+    private void escreverLinha(JsonGenerator gerador, HistoricoResponse item) {
+        try {
+            json.escritorHistorico().writeValue(gerador, item);
+            gerador.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Limite efetivo da página; LIMITE_PADRAO_PAGINA quando só o cursor é informado
+    private int validarPaginacao(Integer limit, Long after) {
+        int limite = limit == null ? LIMITE_PADRAO_PAGINA : limit;
+        if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("Parâmetro limit deve estar entre 1 e " + LIMITE_MAXIMO_PAGINA);
+        }
+        if (after != null && after < 0) {
+            throw new IllegalArgumentException("Parâmetro after não pode ser negativo");
+        }
+        return limite;
+    }
+
+    private ResponseEntity<PaginaHistoricoResponse> respostaPagina(PaginaHistoricoResponse pagina) {
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok();
+        if (pagina.proximoCursor() != null) {
+            resposta.header(HEADER_PROXIMO_CURSOR, pagina.proximoCursor().toString());
+        }
+        return resposta.body(pagina);
     }
 
     /**
@@ -0,0 +1,228 @@
+package br.edu.infnet.dr3tp2.controller;
+
+import br.edu.infnet.dr3tp2.grpc.ConsultaRequest;
+import br.edu.infnet.dr3tp2.grpc.Decimal;
+import br.edu.infnet.dr3tp2.grpc.ReembolsoGrpc;
+import br.edu.infnet.dr3tp2.grpc.ReembolsoReply;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import br.edu.infnet.dr3tp2.service.CodigoErro;
+import br.edu.infnet.dr3tp2.service.PlanoSaude;
+import br.edu.infnet.dr3tp2.service.ReembolsoService;
+import br.edu.infnet.dr3tp2.service.RegistroPlanosSaude;
+import br.edu.infnet.dr3tp2.service.ResultadoReembolso;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Serviço gRPC de cálculo de reembolsos em fluxo bidirecional
+ *
+ * Cada consulta recebida passa pelo mesmo fluxo do ReembolsoController
+ * (ReembolsoService: autorização, auditoria, cálculo e histórico), em
+ * paralelo no pool de lotes, e a resposta é enviada assim que fica pronta,
+ * identificada pela sequência informada pelo cliente.
+ *
+ * Controle de fluxo: o pedido automático de mensagens fica desligado e o
+ * serviço pede ao cliente no máximo "janela" consultas sem resposta. Cada
+ * resposta enviada devolve uma vaga, mas só é pedida a próxima consulta
+ * se o cliente estiver lendo (isReady); caso contrário a vaga espera o
+ * onReady. Assim nem o pool nem o buffer de saída crescem com um cliente
+ * que envia mais rápido do que lê.
+ */
+@Component
+public class ReembolsoGrpcService extends ReembolsoGrpc.ReembolsoImplBase {
+
+    static final String SUCESSO = "sucesso";
+    static final String ERRO = "erro";
+    static final String ERRO_INTERNO = "ERRO_INTERNO";
+    // Detalhes de falhas internas ficam no log do servidor, não vão ao cliente
+    static final String MENSAGEM_ERRO_INTERNO = "Erro interno ao calcular o reembolso";
+
+    private static final Logger log = LoggerFactory.getLogger(ReembolsoGrpcService.class);
+
+    @Autowired
+    ReembolsoService reembolsoService;
+
+    @Autowired
+    RegistroPlanosSaude registroPlanosSaude;
+
+    @Autowired
+    @Qualifier("poolReembolsoLote")
+    Executor executor;
+
+    // Quantidade máxima de consultas recebidas e ainda sem resposta, por chamada
+    @Value("${reembolso.grpc.janela:256}")
+    int janela = 256;
+
+    @Override
+    public StreamObserver<ConsultaRequest> calcularFluxo(StreamObserver<ReembolsoReply> observador) {
+        ServerCallStreamObserver<ReembolsoReply> saida = (ServerCallStreamObserver<ReembolsoReply>) observador;
+        saida.disableAutoRequest();
+
+        Fluxo fluxo = new Fluxo(saida);
+        saida.setOnReadyHandler(fluxo::liberarVagas);
+        saida.setOnCancelHandler(fluxo::encerrar);
+        saida.request(janela);
+        return fluxo;
+    }
+
+    /**
+     * Calcula uma consulta do fluxo; falhas viram resposta de erro, sem encerrar a chamada
+     */
+    ReembolsoReply calcular(ConsultaRequest requisicao) {
+        long sequencia = requisicao.getSequencia();
+        try {
+            Consulta consulta = paraConsulta(requisicao);
+            ResultadoReembolso resultado;
+            if (requisicao.getPlano().isEmpty()) {
+                resultado = reembolsoService.tentarCalcularReembolso(consulta);
+            } else {
+                PlanoSaude plano = registroPlanosSaude.resolver(requisicao.getPlano());
+                if (plano == null) {
+                    return erro(sequencia, CodigoErro.PLANO_INVALIDO.getCodigo(),
+                            CodigoErro.PLANO_INVALIDO.mensagemCom(requisicao.getPlano()));
+                }
+                resultado = reembolsoService.tentarCalcularReembolsoComPlano(consulta, plano);
+            }
+
+            if (!resultado.isSucesso()) {
+                return erro(sequencia, resultado.getCodigo(), resultado.getMensagem());
+            }
+            return ReembolsoReply.newBuilder()
+                    .setSequencia(sequencia)
+                    .setStatus(SUCESSO)
+                    .setValorReembolso(paraDecimal(resultado.getValor()))
+                    .build();
+        } catch (RuntimeException e) {
+            log.error("Falha ao calcular o reembolso da sequência {}", sequencia, e);
+            return erro(sequencia, ERRO_INTERNO, MENSAGEM_ERRO_INTERNO);
+        }
+    }
+
+    static BigDecimal paraBigDecimal(Decimal decimal) {
+        return BigDecimal.valueOf(decimal.getUnscaled(), decimal.getScale());
+    }
+
+    /**
+     * @throws ArithmeticException se o valor não couber em 64 bits sem escala
+     */
+    static Decimal paraDecimal(BigDecimal valor) {
+        BigInteger semEscala = valor.unscaledValue();
+        return Decimal.newBuilder()
+                .setUnscaled(semEscala.longValueExact())
+                .setScale(valor.scale())
+                .build();
+    }
+
+    private static Consulta paraConsulta(ConsultaRequest requisicao) {
+        Consulta consulta = new Consulta(
+                requisicao.hasValor() ? paraBigDecimal(requisicao.getValor()) : null,
+                requisicao.hasPercentualCobertura() ? paraBigDecimal(requisicao.getPercentualCobertura()) : null);
+        if (requisicao.hasPaciente()) {
+            consulta.setPaciente(new Paciente(requisicao.getPaciente().getNome(), requisicao.getPaciente().getCpf()));
+        }
+        return consulta;
+    }
+
+    private static ReembolsoReply erro(long sequencia, String codigo, String mensagem) {
+        ReembolsoReply.Builder resposta = ReembolsoReply.newBuilder()
+                .setSequencia(sequencia)
+                .setStatus(ERRO)
+                .setCodigo(codigo);
+        if (mensagem != null) {
+            resposta.setErro(mensagem);
+        }
+        return resposta.build();
+    }
+
+    /**
+     * Estado de uma chamada CalcularFluxo
+     *
+     * As respostas são calculadas em threads do pool e enviadas sob o lock do
+     * fluxo, porque o StreamObserver de saída não aceita chamadas concorrentes.
+     */
+    private final class Fluxo implements StreamObserver<ConsultaRequest> {
+
+        private final ServerCallStreamObserver<ReembolsoReply> saida;
+
+        private int emProcessamento;
+        // Vagas devolvidas enquanto o cliente não estava lendo
+        private int vagasRetidas;
+        private boolean entradaConcluida;
+        private boolean encerrado;
+
+        Fluxo(ServerCallStreamObserver<ReembolsoReply> saida) {
+            this.saida = saida;
+        }
+
+        @Override
+        public void onNext(ConsultaRequest requisicao) {
+            synchronized (this) {
+                if (encerrado) {
+                    return;
+                }
+                emProcessamento++;
+            }
+            try {
+                executor.execute(() -> responder(calcular(requisicao)));
+            } catch (RejectedExecutionException e) {
+                // Pool encerrado (aplicação parando)
+                responder(erro(requisicao.getSequencia(), ERRO_INTERNO, "Serviço indisponível"));
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable erro) {
+            encerrado = true;
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            entradaConcluida = true;
+            concluirSeTerminou();
+        }
+
+        synchronized void liberarVagas() {
+            if (!encerrado && vagasRetidas > 0) {
+                saida.request(vagasRetidas);
+                vagasRetidas = 0;
+            }
+        }
+
+        synchronized void encerrar() {
+            encerrado = true;
+        }
+
+        private synchronized void responder(ReembolsoReply resposta) {
+            emProcessamento--;
+            if (encerrado) {
+                return;
+            }
+            saida.onNext(resposta);
+            if (saida.isReady()) {
+                saida.request(1);
+            } else {
+                vagasRetidas++;
+            }
+            concluirSeTerminou();
+        }
+
+        private void concluirSeTerminou() {
+            if (entradaConcluida && emProcessamento == 0 && !encerrado) {
+                encerrado = true;
+                saida.onCompleted();
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package br.edu.infnet.dr3tp2.controller;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.dto.StatusResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.service.CodigoErro;
+import br.edu.infnet.dr3tp2.service.PlanoSaude;
+import br.edu.infnet.dr3tp2.service.ReembolsoNaoAutorizadoException;
+import br.edu.infnet.dr3tp2.service.ReembolsoReativoService;
+import br.edu.infnet.dr3tp2.service.RegistroPlanosSaude;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controlador REST reativo para operações de reembolso
+ *
+ * Ativo apenas com spring.main.web-application-type=reactive, no lugar do
+ * ReembolsoController. O histórico é emitido como Flux: JSON array por
+ * padrão ou NDJSON com Accept: application/x-ndjson. Em application/cbor e
+ * application/x-jackson-smile o histórico é juntado numa lista antes de
+ * codificar, porque esses encoders não emitem Flux.
+ */
+@RestController
+@RequestMapping("/api/reembolso")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReembolsoReativoController {
+
+    private static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Autowired
+    private ReembolsoReativoService reembolsoService;
+
+    @Autowired
+    private RegistroPlanosSaude registroPlanosSaude;
+
+    /**
+     * Endpoint para calcular reembolso de uma consulta
+     *
+     * @param consulta Dados da consulta médica
+     * @return Valor do reembolso calculado usando ReembolsoResponse Record
+     */
+    @PostMapping("/calcular")
+    public Mono<ResponseEntity<?>> calcularReembolso(@RequestBody Consulta consulta) {
+        return reembolsoService.calcularReembolso(consulta)
+                .<ResponseEntity<?>>map(valorReembolso -> ResponseEntity.ok(new ReembolsoResponse(
+                        consulta.getValor(),
+                        consulta.getPercentualCobertura(),
+                        valorReembolso,
+                        "sucesso"
+                )))
+                .onErrorResume(ReembolsoReativoController::isErroDoCliente, e -> Mono.just(respostaErro(e)));
+    }
+
+    /**
+     * Endpoint para calcular reembolso com plano de saúde
+     *
+     * @param consulta Dados da consulta médica
+     * @param tipoPlano Código do plano configurado
+     * @return Valor do reembolso calculado usando plano
+     */
+    @PostMapping("/calcular-com-plano")
+    public Mono<ResponseEntity<?>> calcularReembolsoComPlano(
+            @RequestBody Consulta consulta,
+            @RequestParam String tipoPlano) {
+        PlanoSaude plano = registroPlanosSaude.resolver(tipoPlano);
+        if (plano == null) {
+            // Plano desconhecido: sem exceção; só este caminho monta a mensagem
+            return Mono.just(ResponseEntity.badRequest().body(Map.of(
+                    "erro", CodigoErro.PLANO_INVALIDO.mensagemCom(tipoPlano),
+                    "codigo", CodigoErro.PLANO_INVALIDO.getCodigo(),
+                    "status", "erro"
+            )));
+        }
+
+        return reembolsoService.calcularReembolsoComPlano(consulta, plano)
+                .<ResponseEntity<?>>map(valorReembolso -> ResponseEntity.ok(new ReembolsoResponse(
+                        consulta.getValor(),
+                        plano.getPercentualCobertura(),
+                        valorReembolso,
+                        "sucesso"
+                )))
+                .onErrorResume(ReembolsoReativoController::isErroDoCliente, e -> Mono.just(respostaErro(e)));
+    }
+
+    /**
+     * Endpoint para consultar histórico completo, emitido sob demanda
+     *
+     * @return Fluxo com o histórico completo
+     */
+    @GetMapping(value = "/historico", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<HistoricoResponse> consultarHistorico() {
+        return reembolsoService.buscarHistorico();
+    }
+
+    /**
+     * Histórico completo em CBOR ou Smile
+     *
+     * @return Lista com o histórico completo
+     */
+    @GetMapping(value = "/historico", produces = {MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<List<HistoricoResponse>> consultarHistoricoBinario() {
+        return reembolsoService.buscarHistorico().collectList();
+    }
+
+    /**
+     * Endpoint para consultar histórico por CPF do paciente
+     *
+     * @param cpf CPF do paciente
+     * @return Fluxo com o histórico do paciente
+     */
+    @GetMapping(value = "/historico/paciente/{cpf}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<HistoricoResponse> consultarHistoricoPorPaciente(@PathVariable String cpf) {
+        return reembolsoService.buscarHistoricoPorPaciente(cpf);
+    }
+
+    /**
+     * Histórico por CPF do paciente em CBOR ou Smile
+     *
+     * @param cpf CPF do paciente
+     * @return Lista com o histórico do paciente
+     */
+    @GetMapping(value = "/historico/paciente/{cpf}", produces = {MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<List<HistoricoResponse>> consultarHistoricoPorPacienteBinario(@PathVariable String cpf) {
+        return reembolsoService.buscarHistoricoPorPaciente(cpf).collectList();
+    }
+
+    /**
+     * Endpoint para consultar o resumo de reembolsos de um paciente
+     *
+     * @param cpf CPF do paciente
+     * @return Quantidade de consultas, totais e consultas que atingiram o teto
+     */
+    @GetMapping("/historico/paciente/{cpf}/resumo")
+    public Mono<ResumoPacienteResponse> consultarResumoPorPaciente(@PathVariable String cpf) {
+        return reembolsoService.buscarResumoPorPaciente(cpf);
+    }
+
+    /**
+     * Endpoint de teste para verificar se a API está funcionando
+     */
+    @GetMapping("/status")
+    public Mono<StatusResponse> status() {
+        return Mono.just(new StatusResponse("API funcionando", "1.0.0"));
+    }
+
+    private static boolean isErroDoCliente(Throwable e) {
+        return e instanceof IllegalArgumentException || e instanceof SecurityException;
+    }
+
+    private static ResponseEntity<?> respostaErro(Throwable e) {
+        if (e instanceof ReembolsoNaoAutorizadoException naoAutorizado) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "erro", e.getMessage(),
+                    "codigo", naoAutorizado.getMotivo().getCodigo(),
+                    "status", "erro"
+            ));
+        }
+
+        return ResponseEntity.badRequest().body(Map.of(
+                "erro", e.getMessage(),
+                "status", "erro"
+        ));
+    }
+}
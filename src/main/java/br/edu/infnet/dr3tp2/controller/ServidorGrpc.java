@@ -0,0 +1,87 @@
+package br.edu.infnet.dr3tp2.controller;
+
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servidor gRPC embutido na aplicação, em porta própria (reembolso.grpc.porta)
+ *
+ * Sobe depois do contexto pronto e, no desligamento, para de aceitar
+ * chamadas novas e espera as em andamento por até reembolso.grpc.espera-desligamento.
+ * Porta 0 escolhe uma porta livre (getPorta informa qual).
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.grpc.habilitado", havingValue = "true", matchIfMissing = true)
+public class ServidorGrpc implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ServidorGrpc.class);
+
+    private final ReembolsoGrpcService servico;
+    private final int porta;
+    private final long esperaDesligamentoMs;
+
+    private volatile Server servidor;
+
+    public ServidorGrpc(ReembolsoGrpcService servico,
+                        @Value("${reembolso.grpc.porta:9090}") int porta,
+                        @Value("${reembolso.grpc.espera-desligamento:5s}") Duration esperaDesligamento) {
+        this.servico = servico;
+        this.porta = porta;
+        this.esperaDesligamentoMs = esperaDesligamento.toMillis();
+    }
+
+    @Override
+    public void start() {
+        try {
+            servidor = NettyServerBuilder.forPort(porta)
+                    .addService(servico)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir a porta gRPC " + porta, e);
+        }
+        log.info("Servidor gRPC escutando na porta {}", servidor.getPort());
+    }
+
+    @Override
+    public void stop() {
+        Server atual = servidor;
+        if (atual == null) {
+            return;
+        }
+        atual.shutdown();
+        try {
+            if (!atual.awaitTermination(esperaDesligamentoMs, TimeUnit.MILLISECONDS)) {
+                atual.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            atual.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        servidor = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return servidor != null;
+    }
+
+    /**
+     * Porta efetivamente aberta, ou -1 se o servidor não estiver rodando
+     */
+    public int getPorta() {
+        Server atual = servidor;
+        return atual == null ? -1 : atual.getPort();
+    }
+}
@@ -0,0 +1,11 @@
+package br.edu.infnet.dr3tp2.dto;
+
+/**
+ * Record DTO com as estatísticas do cache de idempotência
+ */
+public record EstatisticasIdempotenciaResponse(
+        int tamanho,
+        long acertos,
+        long falhas,
+        double taxaAcerto
+) {}
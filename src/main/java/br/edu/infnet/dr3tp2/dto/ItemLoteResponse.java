@@ -0,0 +1,11 @@
+package br.edu.infnet.dr3tp2.dto;
+
+/**
+ * Record DTO para o resultado de um item do cálculo em lote
+ */
+public record ItemLoteResponse(
+        int indice,
+        ReembolsoResponse reembolso,
+        String erro,
+        String status
+) {}
@@ -0,0 +1,14 @@
+package br.edu.infnet.dr3tp2.dto;
+
+import java.util.List;
+
+/**
+ * Record DTO para uma página do histórico de consultas
+ *
+ * @param itens Itens da página, em ordem de gravação
+ * @param proximoCursor Cursor para a próxima página (null na última página)
+ */
+public record PaginaHistoricoResponse(
+        List<HistoricoResponse> itens,
+        Long proximoCursor
+) {}
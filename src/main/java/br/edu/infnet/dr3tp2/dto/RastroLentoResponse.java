@@ -0,0 +1,14 @@
+package br.edu.infnet.dr3tp2.dto;
+
+import java.util.List;
+
+/**
+ * Record DTO para um rastro retido pela amostragem de cauda (requisição lenta ou com erro)
+ */
+public record RastroLentoResponse(
+        String traceId,
+        String nome,
+        long duracaoMicros,
+        boolean erro,
+        List<TrechoRastroResponse> trechos
+) {}
@@ -0,0 +1,14 @@
+package br.edu.infnet.dr3tp2.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Record DTO para o resumo de reembolsos de um paciente
+ */
+public record ResumoPacienteResponse(
+        String cpf,
+        long quantidadeConsultas,
+        BigDecimal totalValorConsultas,
+        BigDecimal totalReembolsado,
+        long reembolsosNoTeto
+) {}
@@ -0,0 +1,16 @@
+package br.edu.infnet.dr3tp2.dto;
+
+import java.util.Map;
+
+/**
+ * Record DTO para um span de um rastro retido (início relativo ao span raiz)
+ */
+public record TrechoRastroResponse(
+        String spanId,
+        String spanPai,
+        String nome,
+        long inicioMicros,
+        long duracaoMicros,
+        boolean erro,
+        Map<String, String> atributos
+) {}
@@ -10,6 +10,9 @@ public class Consulta {
     private BigDecimal valor;
     private BigDecimal percentualCobertura;
 
+    // Opcional: sem paciente a consulta é atribuída ao paciente anônimo
+    private Paciente paciente;
+
     public Consulta() {}
 
     public Consulta(BigDecimal valor, BigDecimal percentualCobertura) {
@@ -17,6 +20,11 @@ public class Consulta {
         this.percentualCobertura = percentualCobertura;
     }
 
+    public Consulta(BigDecimal valor, BigDecimal percentualCobertura, Paciente paciente) {
+        this(valor, percentualCobertura);
+        this.paciente = paciente;
+    }
+
     public BigDecimal getValor() {
         return valor;
     }
@@ -32,4 +40,12 @@ public class Consulta {
     public void setPercentualCobertura(BigDecimal percentualCobertura) {
         this.percentualCobertura = percentualCobertura;
     }
+
+    public Paciente getPaciente() {
+        return paciente;
+    }
+
+    public void setPaciente(Paciente paciente) {
+        this.paciente = paciente;
+    }
 }
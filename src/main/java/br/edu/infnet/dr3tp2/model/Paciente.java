@@ -1,16 +1,21 @@
 package br.edu.infnet.dr3tp2.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Representa um paciente a ser reembolsado
+ *
+ * Imutável: o RegistroPacientes mantém uma única instância por CPF,
+ * compartilhada por todas as consultas do paciente.
  */
 public class Paciente {
 
-    private String nome;
-    private String cpf;
-
-    public Paciente() {}
+    private final String nome;
+    private final String cpf;
 
-    public Paciente(String nome, String cpf) {
+    @JsonCreator
+    public Paciente(@JsonProperty("nome") String nome, @JsonProperty("cpf") String cpf) {
         this.nome = nome;
         this.cpf = cpf;
     }
@@ -19,15 +24,7 @@ public class Paciente {
         return nome;
     }
 
-    public void setNome(String nome) {
-        this.nome = nome;
-    }
-
     public String getCpf() {
         return cpf;
     }
-
-    public void setCpf(String cpf) {
-        this.cpf = cpf;
-    }
 }
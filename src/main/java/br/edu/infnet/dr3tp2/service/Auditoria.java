@@ -13,4 +13,14 @@ public interface Auditoria {
      * @param consulta Consulta a ser auditada
      */
     void registrarConsulta(Consulta consulta);
+
+    /**
+     * Indica se registrarConsulta pode bloquear a thread chamadora
+     *
+     * Usado pela pilha reativa para decidir se a chamada precisa sair do
+     * event loop.
+     */
+    default boolean isBloqueante() {
+        return true;
+    }
 }
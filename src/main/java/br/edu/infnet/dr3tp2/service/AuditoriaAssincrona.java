@@ -0,0 +1,275 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Auditoria de produção assíncrona e em lotes - EX7
+ *
+ * A requisição apenas insere o registro em um buffer circular sem locks. Uma
+ * única thread consumidora agrupa os registros e os grava em um arquivo
+ * append-only, com um fsync por lote. Os arquivos são rotacionados ao atingir
+ * o tamanho máximo. Ao encerrar, todos os registros pendentes são gravados
+ * e os registros que chegarem depois são rejeitados.
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.auditoria.habilitada", havingValue = "true", matchIfMissing = true)
+public class AuditoriaAssincrona implements Auditoria {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditoriaAssincrona.class);
+
+    private static final long ESPERA_OCIOSA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long ESPERA_BUFFER_CHEIO_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long TEMPO_MAXIMO_ENCERRAMENTO_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Path diretorio;
+    private final int tamanhoLote;
+    private final long tamanhoMaximoArquivo;
+    private final PoliticaBufferCheio politica;
+    private final BufferCircular<RegistroAuditoria> buffer;
+
+    private final LongAdder gravados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder rejeitados = new LongAdder();
+    private final LongAdder falhasGravacao = new LongAdder();
+
+    private volatile boolean ativa;
+    // Marcada antes de ativa cair: inserções vistas antes dela ainda são gravadas
+    private volatile boolean encerrada;
+    private Thread consumidor;
+
+    // Estado do arquivo atual, acessado apenas pela thread consumidora
+    private FileChannel arquivo;
+    private long tamanhoArquivo;
+    private int sequenciaArquivo;
+
+    @Autowired
+    public AuditoriaAssincrona(
+            @Value("${reembolso.auditoria.diretorio:data/auditoria}") Path diretorio,
+            @Value("${reembolso.auditoria.capacidade:8192}") int capacidade,
+            @Value("${reembolso.auditoria.tamanho-lote:512}") int tamanhoLote,
+            @Value("${reembolso.auditoria.tamanho-maximo-arquivo:67108864}") long tamanhoMaximoArquivo,
+            @Value("${reembolso.auditoria.politica-buffer-cheio:BLOQUEAR}") PoliticaBufferCheio politica) {
+        this.diretorio = diretorio;
+        this.tamanhoLote = tamanhoLote;
+        this.tamanhoMaximoArquivo = tamanhoMaximoArquivo;
+        this.politica = politica;
+        this.buffer = new BufferCircular<>(capacidade);
+    }
+
+    /**
+     * Inicia a thread consumidora
+     */
+    @PostConstruct
+    public synchronized void iniciar() {
+        if (ativa) {
+            return;
+        }
+        encerrada = false;
+        ativa = true;
+        consumidor = new Thread(this::consumir, "auditoria-consumidor");
+        consumidor.setDaemon(true);
+        consumidor.start();
+    }
+
+    /**
+     * Encerra a auditoria gravando todos os registros pendentes
+     */
+    @PreDestroy
+    public synchronized void encerrar() {
+        if (!ativa) {
+            return;
+        }
+        encerrada = true;
+        ativa = false;
+        LockSupport.unpark(consumidor);
+
+        try {
+            consumidor.join(TEMPO_MAXIMO_ENCERRAMENTO_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (consumidor.isAlive()) {
+            log.warn("Auditoria encerrada com {} registros pendentes", buffer.tamanho());
+        }
+    }
+
+    /**
+     * Registra a consulta para gravação assíncrona
+     *
+     * @param consulta Consulta a ser auditada
+     * @throws AuditoriaIndisponivelException se a auditoria estiver encerrada ou
+     *         se a política for FALHAR e o buffer estiver cheio
+     */
+    @Override
+    public void registrarConsulta(Consulta consulta) {
+        if (encerrada) {
+            rejeitados.increment();
+            throw new AuditoriaIndisponivelException("Auditoria encerrada");
+        }
+
+        RegistroAuditoria registro = new RegistroAuditoria(
+                System.currentTimeMillis(),
+                consulta != null ? consulta.getValor() : null,
+                consulta != null ? consulta.getPercentualCobertura() : null
+        );
+
+        if (buffer.oferecer(registro)) {
+            confirmarGravacao();
+            return;
+        }
+
+        switch (politica) {
+            case BLOQUEAR -> aguardarEspaco(registro);
+            case DESCARTAR -> descartados.increment();
+            case FALHAR -> {
+                rejeitados.increment();
+                throw new AuditoriaIndisponivelException("Buffer de auditoria cheio");
+            }
+        }
+    }
+
+    private void aguardarEspaco(RegistroAuditoria registro) {
+        while (!buffer.oferecer(registro)) {
+            if (!ativa) {
+                rejeitados.increment();
+                throw new AuditoriaIndisponivelException("Auditoria encerrada");
+            }
+            LockSupport.unpark(consumidor);
+            LockSupport.parkNanos(ESPERA_BUFFER_CHEIO_NANOS);
+        }
+        confirmarGravacao();
+    }
+
+    // Se a auditoria não estava encerrada depois da inserção, o consumidor só
+    // termina após esvaziar o buffer e o registro será gravado. Caso contrário
+    // o consumidor pode já ter feito a última leitura: não há garantia de gravação
+    private void confirmarGravacao() {
+        if (encerrada) {
+            rejeitados.increment();
+            throw new AuditoriaIndisponivelException("Auditoria encerrada");
+        }
+    }
+
+    private void consumir() {
+        List<RegistroAuditoria> lote = new ArrayList<>(tamanhoLote);
+        StringBuilder linhas = new StringBuilder(tamanhoLote * 64);
+
+        // Após encerrar() continua até esvaziar o buffer
+        while (ativa || !buffer.isVazio()) {
+            if (buffer.drenar(lote, tamanhoLote) == 0) {
+                LockSupport.parkNanos(ESPERA_OCIOSA_NANOS);
+                continue;
+            }
+
+            gravarLote(lote, linhas);
+            lote.clear();
+            linhas.setLength(0);
+        }
+
+        fecharArquivo();
+    }
+
+    private void gravarLote(List<RegistroAuditoria> lote, StringBuilder linhas) {
+        for (RegistroAuditoria registro : lote) {
+            linhas.append(Instant.ofEpochMilli(registro.instante())).append(';')
+                    .append(registro.valor()).append(';')
+                    .append(registro.percentualCobertura()).append('\n');
+        }
+        byte[] bytes = linhas.toString().getBytes(StandardCharsets.UTF_8);
+
+        try {
+            if (arquivo == null || tamanhoArquivo + bytes.length > tamanhoMaximoArquivo) {
+                rotacionarArquivo();
+            }
+
+            ByteBuffer conteudo = ByteBuffer.wrap(bytes);
+            while (conteudo.hasRemaining()) {
+                arquivo.write(conteudo);
+            }
+            // Um único fsync para todo o lote
+            arquivo.force(false);
+
+            tamanhoArquivo += bytes.length;
+            gravados.add(lote.size());
+        } catch (IOException e) {
+            falhasGravacao.add(lote.size());
+            log.error("Falha ao gravar {} registros de auditoria", lote.size(), e);
+        }
+    }
+
+    private void rotacionarArquivo() throws IOException {
+        fecharArquivo();
+        Files.createDirectories(diretorio);
+
+        Path novo = diretorio.resolve(String.format("auditoria-%d-%04d.log", System.currentTimeMillis(), sequenciaArquivo++));
+        arquivo = FileChannel.open(novo, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        tamanhoArquivo = 0;
+    }
+
+    private void fecharArquivo() {
+        if (arquivo == null) {
+            return;
+        }
+        try {
+            arquivo.force(true);
+            arquivo.close();
+        } catch (IOException e) {
+            log.error("Falha ao fechar arquivo de auditoria", e);
+        }
+        arquivo = null;
+    }
+
+    /**
+     * Apenas a política BLOQUEAR espera por espaço no buffer
+     */
+    @Override
+    public boolean isBloqueante() {
+        return politica == PoliticaBufferCheio.BLOQUEAR;
+    }
+
+    public long getGravados() {
+        return gravados.sum();
+    }
+
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    public long getRejeitados() {
+        return rejeitados.sum();
+    }
+
+    public long getFalhasGravacao() {
+        return falhasGravacao.sum();
+    }
+
+    public int getPendentes() {
+        return buffer.tamanho();
+    }
+
+    private record RegistroAuditoria(long instante, BigDecimal valor, BigDecimal percentualCobertura) {}
+}
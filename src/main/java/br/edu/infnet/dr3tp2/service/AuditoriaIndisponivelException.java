@@ -0,0 +1,15 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exceção lançada quando a auditoria não consegue aceitar novos registros
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AuditoriaIndisponivelException extends RuntimeException {
+
+    public AuditoriaIndisponivelException(String mensagem) {
+        super(mensagem);
+    }
+}
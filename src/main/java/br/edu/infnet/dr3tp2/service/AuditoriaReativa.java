@@ -0,0 +1,39 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Adaptador não bloqueante da Auditoria para a pilha reativa
+ *
+ * Sem auditoria configurada, retorna um Mono vazio. Auditorias que podem
+ * bloquear rodam no scheduler boundedElastic, fora do event loop.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class AuditoriaReativa {
+
+    private final Auditoria auditoria;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public AuditoriaReativa(@Autowired(required = false) Auditoria auditoria) {
+        this.auditoria = auditoria;
+        this.scheduler = auditoria != null && auditoria.isBloqueante() ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+
+    /**
+     * Registra a consulta na auditoria
+     */
+    public Mono<Void> registrarConsulta(Consulta consulta) {
+        if (auditoria == null) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> auditoria.registrarConsulta(consulta)).subscribeOn(scheduler);
+    }
+}
@@ -5,9 +5,23 @@ import br.edu.infnet.dr3tp2.model.Paciente;
 
 /**
  * Interface para autorização de reembolsos - EX8
+ *
+ * A decisão e o motivo da negação são retornados juntos em uma única
+ * chamada. Implementações que contam consultas autorizadas (regra de
+ * frequência) devolvem a contagem em liberar quando o reembolso não chega a
+ * ser pago, como a reserva do TetoAnualPaciente.
  */
 public interface AutorizadorReembolso {
 
+    /**
+     * Avalia se uma consulta está autorizada para reembolso
+     *
+     * @param consulta Consulta a ser verificada
+     * @param paciente Paciente da consulta
+     * @return Decisão com o motivo da negação, se houver
+     */
+    DecisaoAutorizacao avaliar(Consulta consulta, Paciente paciente);
+
     /**
      * Verifica se uma consulta está autorizada para reembolso
      *
@@ -15,12 +29,21 @@ public interface AutorizadorReembolso {
      * @param paciente Paciente da consulta
      * @return true se autorizada, false caso contrário
      */
-    boolean isAutorizado(Consulta consulta, Paciente paciente);
+    default boolean isAutorizado(Consulta consulta, Paciente paciente) {
+        return avaliar(consulta, paciente).isAutorizado();
+    }
 
     /**
-     * Obtém motivo da negação (sendo opcional)
+     * Devolve o que uma avaliação autorizada consumiu, quando uma etapa
+     * posterior (validação, teto, auditoria, histórico) falha
      *
-     * @return Motivo da última negação ou null se autorizada com sucesso
+     * A implementação padrão não faz nada: autorizadores sem estado não
+     * consomem nada ao autorizar.
+     *
+     * @param consulta Consulta autorizada
+     * @param paciente Paciente da consulta
+     * @param planoSaude Plano usado na avaliação (null quando a cobertura vem da consulta)
      */
-    String getMotivoNegacao();
+    default void liberar(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+    }
 }
@@ -0,0 +1,20 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+
+/**
+ * Autorizador que também considera o plano de saúde da consulta
+ */
+public interface AutorizadorReembolsoComPlano extends AutorizadorReembolso {
+
+    /**
+     * Avalia se uma consulta está autorizada para reembolso em um plano
+     *
+     * @param consulta Consulta a ser verificada
+     * @param paciente Paciente da consulta
+     * @param planoSaude Plano usado no cálculo (null quando a cobertura vem da consulta)
+     * @return Decisão com o motivo da negação, se houver
+     */
+    DecisaoAutorizacao avaliar(Consulta consulta, Paciente paciente, PlanoSaude planoSaude);
+}
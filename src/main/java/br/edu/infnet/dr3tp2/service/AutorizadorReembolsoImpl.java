@@ -2,39 +2,35 @@ package br.edu.infnet.dr3tp2.service;
 
 import br.edu.infnet.dr3tp2.model.Consulta;
 import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 
 /**
  * Implementação do autorizador que bloqueia consultas acima de R$ 2.000,00 - EX8
+ *
+ * Sem estado: pode ser usada por várias requisições ao mesmo tempo. Ativa com
+ * reembolso.autorizacao.motor=fixo; o padrão é o MotorRegrasAutorizacao.
  */
 @Component
+@ConditionalOnProperty(name = "reembolso.autorizacao.motor", havingValue = "fixo")
 public class AutorizadorReembolsoImpl implements AutorizadorReembolso {
 
     private static final BigDecimal LIMITE_VALOR = new BigDecimal("2000.00");
-    private String ultimoMotivoNegacao;
 
     @Override
-    public boolean isAutorizado(Consulta consulta, Paciente paciente) {
+    public DecisaoAutorizacao avaliar(Consulta consulta, Paciente paciente) {
         // Validação obrigatória
         if (consulta == null || consulta.getValor() == null) {
-            ultimoMotivoNegacao = "Dados da consulta inválidos";
-            return false;
+            return DecisaoAutorizacao.negada(MotivoNegacao.DADOS_INVALIDOS);
         }
 
         // Bloqueia acima de R$ 2.000,00 para o valor da consulta
         if (consulta.getValor().compareTo(LIMITE_VALOR) > 0) {
-            ultimoMotivoNegacao = "Valor da consulta excede o limite de R$ 2.000,00 para reembolso!";
-            return false;
+            return DecisaoAutorizacao.negada(MotivoNegacao.VALOR_ACIMA_LIMITE);
         }
 
-        ultimoMotivoNegacao = null;
-        return true;
-    }
-
-    @Override
-    public String getMotivoNegacao() {
-        return ultimoMotivoNegacao;
+        return DecisaoAutorizacao.AUTORIZADA;
     }
 }
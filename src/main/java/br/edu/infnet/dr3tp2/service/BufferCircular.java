@@ -0,0 +1,116 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Buffer circular limitado, sem locks, para vários produtores e um consumidor
+ *
+ * Cada posição tem um número de sequência que indica se está livre para o
+ * produtor da volta atual ou pronta para o consumidor. Produtores disputam a
+ * cauda apenas com compare-and-set; o consumidor único avança a cabeça sem
+ * disputa. Quando cheio, oferecer() retorna false em vez de bloquear.
+ *
+ * @param <T> Tipo dos itens
+ */
+final class BufferCircular<T> {
+
+    private final int capacidade;
+    private final int mascara;
+    private final AtomicReferenceArray<T> itens;
+    private final AtomicLongArray sequencias;
+    private final AtomicLong cauda = new AtomicLong();
+
+    // Escrita apenas pelo consumidor; volatile para leitura de tamanho()
+    private volatile long cabeca;
+
+    /**
+     * @param capacidade Capacidade do buffer (potência de 2)
+     */
+    BufferCircular(int capacidade) {
+        if (capacidade < 2 || Integer.bitCount(capacidade) != 1) {
+            throw new IllegalArgumentException("Capacidade do buffer deve ser potência de 2: " + capacidade);
+        }
+
+        this.capacidade = capacidade;
+        this.mascara = capacidade - 1;
+        this.itens = new AtomicReferenceArray<>(capacidade);
+        this.sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    /**
+     * Tenta inserir um item sem bloquear
+     *
+     * @param item Item a ser inserido
+     * @return false se o buffer estiver cheio
+     */
+    boolean oferecer(T item) {
+        long posicao = cauda.get();
+
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    itens.set(indice, item);
+                    // Publica o item para o consumidor
+                    sequencias.set(indice, posicao + 1);
+                    return true;
+                }
+                posicao = cauda.get();
+            } else if (diferenca < 0) {
+                // Posição ainda ocupada pela volta anterior: buffer cheio
+                return false;
+            } else {
+                // Outro produtor já usou esta posição
+                posicao = cauda.get();
+            }
+        }
+    }
+
+    /**
+     * Move para o destino até o máximo de itens disponíveis (apenas consumidor)
+     *
+     * @param destino Lista que recebe os itens
+     * @param maximo Quantidade máxima de itens
+     * @return Quantidade de itens retirados
+     */
+    int drenar(List<T> destino, int maximo) {
+        long posicao = cabeca;
+        int retirados = 0;
+
+        while (retirados < maximo) {
+            int indice = (int) (posicao & mascara);
+            if (sequencias.get(indice) != posicao + 1) {
+                break;
+            }
+
+            destino.add(itens.get(indice));
+            itens.set(indice, null);
+            // Libera a posição para a próxima volta dos produtores
+            sequencias.set(indice, posicao + capacidade);
+            posicao++;
+            retirados++;
+        }
+
+        cabeca = posicao;
+        return retirados;
+    }
+
+    /**
+     * Quantidade aproximada de itens aguardando consumo
+     */
+    int tamanho() {
+        return (int) Math.max(0, cauda.get() - cabeca);
+    }
+
+    boolean isVazio() {
+        return tamanho() == 0;
+    }
+}
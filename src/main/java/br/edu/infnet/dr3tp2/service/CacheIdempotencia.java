@@ -0,0 +1,203 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache de respostas para requisições com chave de idempotência
+ *
+ * A primeira requisição com uma chave executa o cálculo; repetições
+ * concorrentes aguardam o mesmo resultado em vez de recalcular. Respostas
+ * concluídas ficam disponíveis pelo TTL configurado, com limite de entradas
+ * (as mais antigas saem primeiro). Cálculos que lançam exceção não ficam no
+ * cache, para que o cliente possa tentar de novo.
+ *
+ * Cada entrada guarda a impressão da requisição (corpo e parâmetros): a
+ * mesma chave com outra impressão é rejeitada em vez de devolver a resposta
+ * de uma requisição diferente.
+ */
+@Component
+public class CacheIdempotencia {
+
+    private final int maximoEntradas;
+    private final long ttlNanos;
+
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+    // Ordem de inserção, usada para expirar e limitar o cache a partir das mais antigas
+    private final ConcurrentLinkedQueue<Entrada> ordemInsercao = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tamanho = new AtomicInteger();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder conflitos = new LongAdder();
+
+    LongSupplier relogio = System::nanoTime;
+
+    @Autowired
+    public CacheIdempotencia(
+            @Value("${reembolso.idempotencia.maximo-entradas:10000}") int maximoEntradas,
+            @Value("${reembolso.idempotencia.ttl:10m}") Duration ttl) {
+        this.maximoEntradas = maximoEntradas;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Executa o cálculo uma única vez por chave enquanto a resposta estiver no cache
+     *
+     * @param chave Chave de idempotência (null executa sem cache)
+     * @param calculo Cálculo da resposta
+     * @return Resposta calculada agora ou reaproveitada
+     */
+    public <T> T executar(String chave, Supplier<T> calculo) {
+        return executar(chave, null, calculo);
+    }
+
+    /**
+     * Executa o cálculo uma única vez por chave, conferindo a impressão da requisição
+     *
+     * @param chave Chave de idempotência (null executa sem cache)
+     * @param impressao Impressão do corpo e dos parâmetros da requisição
+     * @param calculo Cálculo da resposta
+     * @return Resposta calculada agora ou reaproveitada
+     * @throws IdempotenciaConflitanteException se a chave já foi usada com outra impressão
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String chave, String impressao, Supplier<T> calculo) {
+        if (chave == null) {
+            return calculo.get();
+        }
+
+        while (true) {
+            Entrada existente = entradas.get(chave);
+            if (existente != null) {
+                if (!existente.isExpirada(relogio.getAsLong())) {
+                    if (!Objects.equals(existente.impressao, impressao)) {
+                        conflitos.increment();
+                        throw new IdempotenciaConflitanteException("Idempotency-Key já usada com outra requisição");
+                    }
+                    acertos.increment();
+                    return (T) aguardar(existente.resultado);
+                }
+                remover(existente);
+                continue;
+            }
+
+            Entrada nova = new Entrada(chave, impressao);
+            if (entradas.putIfAbsent(chave, nova) != null) {
+                // Outra requisição com a mesma chave chegou antes
+                continue;
+            }
+
+            falhas.increment();
+            tamanho.incrementAndGet();
+            ordemInsercao.add(nova);
+            return (T) calcular(nova, calculo);
+        }
+    }
+
+    public int getTamanho() {
+        return tamanho.get();
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    public long getConflitos() {
+        return conflitos.sum();
+    }
+
+    /**
+     * Fração das requisições com chave atendidas pelo cache (0 a 1)
+     */
+    public double getTaxaAcerto() {
+        long acertosAtuais = acertos.sum();
+        long total = acertosAtuais + falhas.sum();
+        return total == 0 ? 0.0 : (double) acertosAtuais / total;
+    }
+
+    private Object calcular(Entrada entrada, Supplier<?> calculo) {
+        try {
+            Object resposta = calculo.get();
+            entrada.expiraEm = relogio.getAsLong() + ttlNanos;
+            entrada.resultado.complete(resposta);
+            return resposta;
+        } catch (RuntimeException | Error e) {
+            remover(entrada);
+            entrada.resultado.completeExceptionally(e);
+            throw e;
+        } finally {
+            limpar();
+        }
+    }
+
+    private static Object aguardar(CompletableFuture<Object> resultado) {
+        try {
+            return resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error erro) {
+                throw erro;
+            }
+            throw e;
+        }
+    }
+
+    // Remove entradas expiradas e as mais antigas acima do limite
+    private void limpar() {
+        long agora = relogio.getAsLong();
+        Entrada maisAntiga;
+        while ((maisAntiga = ordemInsercao.peek()) != null) {
+            boolean acimaDoLimite = tamanho.get() > maximoEntradas;
+            if (!acimaDoLimite && !maisAntiga.isExpirada(agora) && !maisAntiga.removida) {
+                break;
+            }
+            if (ordemInsercao.remove(maisAntiga)) {
+                remover(maisAntiga);
+            }
+        }
+    }
+
+    private void remover(Entrada entrada) {
+        if (entradas.remove(entrada.chave, entrada)) {
+            tamanho.decrementAndGet();
+        }
+        entrada.removida = true;
+    }
+
+    private static final class Entrada {
+        private final String chave;
+        private final String impressao;
+        private final CompletableFuture<Object> resultado = new CompletableFuture<>();
+        // Long.MAX_VALUE enquanto o cálculo está em andamento
+        private volatile long expiraEm = Long.MAX_VALUE;
+        private volatile boolean removida;
+
+        Entrada(String chave, String impressao) {
+            this.chave = chave;
+            this.impressao = impressao;
+        }
+
+        boolean isExpirada(long agora) {
+            return expiraEm != Long.MAX_VALUE && agora - expiraEm >= 0;
+        }
+    }
+}
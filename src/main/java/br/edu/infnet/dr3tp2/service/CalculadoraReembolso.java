@@ -2,6 +2,8 @@ package br.edu.infnet.dr3tp2.service;
 
 import br.edu.infnet.dr3tp2.model.Consulta;
 import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -16,6 +18,13 @@ public class CalculadoraReembolso {
     // EX11 - Aplicando o teto máximo de reembolso por consulta de R$ 150.00
     private static final BigDecimal TETO_REEMBOLSO = new BigDecimal("150.00");
 
+    // Usa o motor em ponto fixo e recorre ao BigDecimal apenas quando necessário
+    @Value("${reembolso.calculo.ponto-fixo:true}")
+    boolean pontoFixoHabilitado = true;
+
+    @Autowired(required = false)
+    MetricasReembolso metricas = MetricasReembolso.DESATIVADA;
+
     /**
      * Calcula o valor de reembolso de uma consulta médica
      *
@@ -25,30 +34,50 @@ public class CalculadoraReembolso {
      * @throws IllegalArgumentException para dados inválidos
      */
     public BigDecimal calcular(Consulta consulta, Paciente paciente) {
+        return tentarCalcular(consulta, paciente).obterValor();
+    }
+
+    /**
+     * Calcula o reembolso sem lançar exceção para dados inválidos
+     *
+     * @param consulta Consulta com valor e percentual de cobertura
+     * @param paciente Paciente (dummy object - EX4)
+     * @return Valor calculado ou o erro de validação pré-alocado
+     */
+    public ResultadoReembolso tentarCalcular(Consulta consulta, Paciente paciente) {
+        CodigoErro erro = validar(consulta);
+        if (erro != null) {
+            return ResultadoReembolso.invalido(erro);
+        }
+
+        // Cálculo do reembolso: valor * percentual de cobertura, com teto (EX11)
+        return ResultadoReembolso.sucesso(calcularComTeto(consulta.getValor(), consulta.getPercentualCobertura()));
+    }
+
+    /**
+     * Valida os dados usados por calcular
+     *
+     * @param consulta Consulta com valor e percentual de cobertura
+     * @return null se a consulta for válida, senão o erro encontrado
+     */
+    public CodigoErro validar(Consulta consulta) {
         // Validação obrigatória - consulta não pode ser nula
         if (consulta == null) {
-            throw new IllegalArgumentException("Consulta não pode ser nula");
+            return CodigoErro.CONSULTA_NULA;
         }
 
         // Validação do valor da consulta
         if (consulta.getValor() == null || consulta.getValor().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Valor da consulta deve ser maior ou igual a zero");
+            return CodigoErro.VALOR_INVALIDO;
         }
 
         // Validação do percentual de cobertura
         if (consulta.getPercentualCobertura() == null ||
                 consulta.getPercentualCobertura().compareTo(BigDecimal.ZERO) < 0 ||
                 consulta.getPercentualCobertura().compareTo(BigDecimal.ONE) > 0) {
-            throw new IllegalArgumentException("Percentual de cobertura deve estar entre 0% e 100%");
+            return CodigoErro.PERCENTUAL_INVALIDO;
         }
-
-        // Cálculo do reembolso: valor * percentual de cobertura
-        BigDecimal reembolsoCalculado = consulta.getValor()
-                .multiply(consulta.getPercentualCobertura())
-                .setScale(2, RoundingMode.HALF_UP);
-
-        // EX11 - Aplicar teto de R$ 150,00
-        return aplicarTeto(reembolsoCalculado);
+        return null;
     }
 
     /**
@@ -60,24 +89,83 @@ public class CalculadoraReembolso {
      * @throws IllegalArgumentException para dados inválidos
      */
     public BigDecimal calcularComPlano(Consulta consulta, PlanoSaude planoSaude) {
+        return tentarCalcularComPlano(consulta, planoSaude).obterValor();
+    }
+
+    /**
+     * Calcula o reembolso com plano sem lançar exceção para dados inválidos
+     *
+     * @param consulta Consulta com valor
+     * @param planoSaude Plano que define percentual de cobertura
+     * @return Valor calculado ou o erro de validação pré-alocado
+     */
+    public ResultadoReembolso tentarCalcularComPlano(Consulta consulta, PlanoSaude planoSaude) {
+        CodigoErro erro = validarComPlano(consulta, planoSaude);
+        if (erro != null) {
+            return ResultadoReembolso.invalido(erro);
+        }
+
+        // Cálculo do reembolso usando percentual do plano, com teto (EX11)
+        return ResultadoReembolso.sucesso(calcularComTeto(
+                consulta.getValor(), planoSaude.getPercentualCobertura(), planoSaude.getPontosBaseCobertura()));
+    }
+
+    /**
+     * Valida os dados usados por calcularComPlano
+     *
+     * @return null se consulta e plano forem válidos, senão o erro encontrado
+     */
+    public CodigoErro validarComPlano(Consulta consulta, PlanoSaude planoSaude) {
         // Validações obrigatórias
         if (consulta == null) {
-            throw new IllegalArgumentException("Consulta não pode ser nula");
+            return CodigoErro.CONSULTA_NULA;
         }
         if (planoSaude == null) {
-            throw new IllegalArgumentException("Plano de saúde não pode ser nulo");
+            return CodigoErro.PLANO_NULO;
         }
 
         // Validação do valor da consulta
         if (consulta.getValor() == null || consulta.getValor().compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Valor da consulta deve ser maior ou igual a zero");
+            return CodigoErro.VALOR_INVALIDO;
         }
+        return null;
+    }
+
+    private BigDecimal calcularComTeto(BigDecimal valor, BigDecimal percentual) {
+        return calcularComTeto(valor, percentual, CalculoPontoFixo.paraPontosBase(percentual));
+    }
 
-        BigDecimal percentualPlano = planoSaude.getPercentualCobertura();
+    private BigDecimal calcularComTeto(BigDecimal valor, BigDecimal percentual, int pontosBase) {
+        if (pontoFixoHabilitado) {
+            long centavos = CalculoPontoFixo.paraCentavos(valor);
 
-        // Cálculo do reembolso usando percentual do plano
-        BigDecimal reembolsoCalculado = consulta.getValor()
-                .multiply(percentualPlano)
+            if (centavos != CalculoPontoFixo.NAO_REPRESENTAVEL && pontosBase != CalculoPontoFixo.NAO_REPRESENTAVEL) {
+                long reembolso = CalculoPontoFixo.calcularCentavos(centavos, pontosBase);
+                if (reembolso == CalculoPontoFixo.TETO_CENTAVOS) {
+                    metricas.registrarTetoAtingido();
+                }
+                return CalculoPontoFixo.paraReais(reembolso);
+            }
+        }
+
+        // Valores com mais casas decimais ou grandes demais para o ponto fixo
+        BigDecimal reembolso = calcularComBigDecimal(valor, percentual);
+        if (reembolso.compareTo(TETO_REEMBOLSO) == 0) {
+            metricas.registrarTetoAtingido();
+        }
+        return reembolso;
+    }
+
+    /**
+     * Cálculo original com BigDecimal, usado quando o ponto fixo não se aplica
+     *
+     * @param valor Valor da consulta
+     * @param percentual Percentual de cobertura
+     * @return Valor do reembolso com teto aplicado
+     */
+    BigDecimal calcularComBigDecimal(BigDecimal valor, BigDecimal percentual) {
+        BigDecimal reembolsoCalculado = valor
+                .multiply(percentual)
                 .setScale(2, RoundingMode.HALF_UP);
 
         // EX11 - Aplicar teto de R$ 150,00
@@ -0,0 +1,96 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Motor de cálculo de reembolso em ponto fixo
+ *
+ * Trabalha com valores em centavos (long) e cobertura em pontos-base (int,
+ * 10.000 = 100%), aplicando arredondamento HALF_UP e o teto de R$ 150,00
+ * apenas com aritmética inteira. Os resultados são idênticos aos do cálculo
+ * com BigDecimal sempre que os valores são representáveis.
+ */
+public final class CalculoPontoFixo {
+
+    // Indica valor sem representação exata em ponto fixo (usar BigDecimal)
+    public static final long NAO_REPRESENTAVEL = -1L;
+
+    public static final int PONTOS_BASE_TOTAL = 10_000;
+    public static final long TETO_CENTAVOS = 15_000L;
+
+    // Até 12 dígitos inteiros: centavos * pontos-base nunca estoura um long
+    private static final int MAXIMO_DIGITOS_INTEIROS = 12;
+    private static final long METADE_PONTOS_BASE = PONTOS_BASE_TOTAL / 2;
+
+    // Todo reembolso possível (R$ 0,00 a R$ 150,00) pré-alocado com escala 2
+    private static final BigDecimal[] REAIS_ATE_O_TETO = new BigDecimal[(int) TETO_CENTAVOS + 1];
+
+    static {
+        for (int centavos = 0; centavos <= TETO_CENTAVOS; centavos++) {
+            REAIS_ATE_O_TETO[centavos] = BigDecimal.valueOf(centavos, 2);
+        }
+    }
+
+    private CalculoPontoFixo() {}
+
+    /**
+     * Converte um valor em reais para centavos
+     *
+     * @param valor Valor não negativo
+     * @return Valor em centavos ou NAO_REPRESENTAVEL se houver mais de 2 casas
+     * decimais ou risco de estouro
+     */
+    public static long paraCentavos(BigDecimal valor) {
+        if (valor == null || valor.signum() < 0 || valor.scale() < 0 || valor.scale() > 2
+                || valor.precision() - valor.scale() > MAXIMO_DIGITOS_INTEIROS) {
+            return NAO_REPRESENTAVEL;
+        }
+        // Com no máximo 14 dígitos significativos o double carrega o valor com
+        // erro bem abaixo de meio centavo, então o arredondamento é exato e
+        // evita alocar um novo BigDecimal (movePointRight/unscaledValue)
+        return Math.round(valor.doubleValue() * 100);
+    }
+
+    /**
+     * Converte um percentual (0.0 a 1.0) para pontos-base
+     *
+     * @param percentual Percentual de cobertura
+     * @return Percentual em pontos-base ou NAO_REPRESENTAVEL se estiver fora de
+     * 0% a 100% ou tiver mais de 4 casas decimais
+     */
+    public static int paraPontosBase(BigDecimal percentual) {
+        if (percentual == null || percentual.signum() < 0 || percentual.scale() < 0 || percentual.scale() > 4
+                || percentual.compareTo(BigDecimal.ONE) > 0) {
+            return (int) NAO_REPRESENTAVEL;
+        }
+        return (int) Math.round(percentual.doubleValue() * PONTOS_BASE_TOTAL);
+    }
+
+    /**
+     * Calcula o reembolso em centavos com arredondamento HALF_UP e teto
+     *
+     * @param centavos Valor da consulta em centavos
+     * @param pontosBase Cobertura em pontos-base
+     * @return Reembolso em centavos, limitado a TETO_CENTAVOS
+     */
+    public static long calcularCentavos(long centavos, int pontosBase) {
+        // centavos * pontos-base está na escala de 1e-6 reais; volta para centavos
+        long reembolso = (centavos * pontosBase + METADE_PONTOS_BASE) / PONTOS_BASE_TOTAL;
+        return Math.min(reembolso, TETO_CENTAVOS);
+    }
+
+    /**
+     * Converte centavos para reais com escala 2
+     *
+     * Valores até o teto vêm de uma tabela pré-alocada.
+     *
+     * @param centavos Valor em centavos
+     * @return Valor em reais
+     */
+    public static BigDecimal paraReais(long centavos) {
+        if (centavos >= 0 && centavos <= TETO_CENTAVOS) {
+            return REAIS_ATE_O_TETO[(int) centavos];
+        }
+        return BigDecimal.valueOf(centavos, 2);
+    }
+}
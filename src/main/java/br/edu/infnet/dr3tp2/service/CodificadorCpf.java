@@ -0,0 +1,144 @@
+package br.edu.infnet.dr3tp2.service;
+
+/**
+ * Codificação de CPF em long
+ *
+ * Os 11 dígitos do CPF viram o próprio número decimal (0 a 99.999.999.999,
+ * 37 bits), então dois CPFs são iguais se e só se os longs forem iguais e o
+ * texto formatado pode ser reconstruído a partir do long. Aceita o CPF
+ * formatado ("000.000.000-00") ou só com os dígitos, sem alocar.
+ *
+ * A codificação só confere o formato; os dígitos verificadores são
+ * conferidos à parte por digitosVerificadoresValidos, porque o histórico
+ * precisa guardar também CPFs recebidos antes dessa validação.
+ */
+public final class CodificadorCpf {
+
+    // Indica texto que não está em nenhum dos formatos de CPF aceitos
+    public static final long INVALIDO = -1L;
+
+    public static final long MAXIMO = 99_999_999_999L;
+
+    private static final int DIGITOS = 11;
+    private static final int TAMANHO_FORMATADO = 14;
+
+    private CodificadorCpf() {}
+
+    /**
+     * Converte o CPF para long
+     *
+     * @param cpf CPF formatado ou só com os 11 dígitos
+     * @return CPF codificado ou INVALIDO se o texto não estiver em um dos formatos
+     */
+    public static long codificar(String cpf) {
+        if (cpf == null) {
+            return INVALIDO;
+        }
+        if (cpf.length() == DIGITOS) {
+            return digitos(cpf, 0, DIGITOS, 0L);
+        }
+        if (cpf.length() != TAMANHO_FORMATADO
+                || cpf.charAt(3) != '.' || cpf.charAt(7) != '.' || cpf.charAt(11) != '-') {
+            return INVALIDO;
+        }
+        long codificado = digitos(cpf, 0, 3, 0L);
+        codificado = digitos(cpf, 4, 7, codificado);
+        codificado = digitos(cpf, 8, 11, codificado);
+        return digitos(cpf, 12, 14, codificado);
+    }
+
+    /**
+     * CPF na forma canônica "000.000.000-00", para que as duas grafias aceitas
+     * identifiquem o mesmo paciente
+     *
+     * @param cpf CPF formatado, só com os dígitos ou fora do formato
+     * @return O CPF formatado; o próprio texto se já estiver formatado ou fora
+     * dos formatos aceitos (só aloca para a grafia com os 11 dígitos)
+     */
+    public static String canonico(String cpf) {
+        if (cpf == null || cpf.length() != DIGITOS) {
+            return cpf;
+        }
+        long codificado = codificar(cpf);
+        return codificado == INVALIDO ? cpf : formatar(codificado);
+    }
+
+    /**
+     * CPF codificado de volta no formato "000.000.000-00"
+     */
+    public static String formatar(long cpf) {
+        if (cpf < 0 || cpf > MAXIMO) {
+            throw new IllegalArgumentException("CPF codificado fora da faixa: " + cpf);
+        }
+        char[] texto = new char[TAMANHO_FORMATADO];
+        long restante = cpf;
+        for (int i = TAMANHO_FORMATADO - 1; i >= 0; i--) {
+            if (i == 3 || i == 7) {
+                texto[i] = '.';
+            } else if (i == 11) {
+                texto[i] = '-';
+            } else {
+                texto[i] = (char) ('0' + restante % 10);
+                restante /= 10;
+            }
+        }
+        return new String(texto);
+    }
+
+    /**
+     * Confere os dois dígitos verificadores (módulo 11)
+     *
+     * CPFs com os 11 dígitos iguais passam no cálculo mas não são emitidos
+     * pela Receita, e por isso são recusados.
+     *
+     * @param cpf CPF codificado
+     * @return true se os dígitos verificadores conferem
+     */
+    public static boolean digitosVerificadoresValidos(long cpf) {
+        if (cpf < 0 || cpf > MAXIMO) {
+            return false;
+        }
+        long restante = cpf;
+        int segundo = (int) (restante % 10);
+        restante /= 10;
+        int primeiro = (int) (restante % 10);
+        restante /= 10;
+
+        // Pesos 10..2 para o primeiro verificador e 11..3 (mais o próprio
+        // primeiro verificador com peso 2) para o segundo
+        int soma1 = 0;
+        int soma2 = primeiro * 2;
+        boolean repetido = primeiro == segundo;
+        for (int posicao = 8; posicao >= 0; posicao--) {
+            int digito = (int) (restante % 10);
+            restante /= 10;
+            soma1 += digito * (10 - posicao);
+            soma2 += digito * (11 - posicao);
+            repetido &= digito == segundo;
+        }
+        return !repetido && verificador(soma1) == primeiro && verificador(soma2) == segundo;
+    }
+
+    /**
+     * Atalho para codificar e conferir os dígitos verificadores
+     *
+     * @return CPF codificado ou INVALIDO se o formato ou os verificadores não conferirem
+     */
+    public static long codificarValido(String cpf) {
+        long codificado = codificar(cpf);
+        return codificado != INVALIDO && digitosVerificadoresValidos(codificado) ? codificado : INVALIDO;
+    }
+
+    private static long digitos(String texto, int inicio, int fim, long acumulado) {
+        for (int i = inicio; i < fim && acumulado != INVALIDO; i++) {
+            char c = texto.charAt(i);
+            acumulado = c < '0' || c > '9' ? INVALIDO : acumulado * 10 + (c - '0');
+        }
+        return acumulado;
+    }
+
+    private static int verificador(int soma) {
+        int resto = soma * 10 % 11;
+        return resto == 10 ? 0 : resto;
+    }
+}
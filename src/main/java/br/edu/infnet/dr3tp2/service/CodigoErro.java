@@ -0,0 +1,45 @@
+package br.edu.infnet.dr3tp2.service;
+
+/**
+ * Erros de validação dos dados de uma consulta, com mensagens pré-alocadas
+ *
+ * Usados pelo caminho sem exceções (validar/tentarCalcular): a validação
+ * devolve o código em vez de lançar IllegalArgumentException.
+ */
+public enum CodigoErro {
+
+    CONSULTA_NULA("Consulta não pode ser nula"),
+    PLANO_NULO("Plano de saúde não pode ser nulo"),
+    PLANO_INVALIDO("Tipo de plano inválido"),
+    VALOR_INVALIDO("Valor da consulta deve ser maior ou igual a zero"),
+    PERCENTUAL_INVALIDO("Percentual de cobertura deve estar entre 0% e 100%"),
+    CPF_OBRIGATORIO("CPF do paciente é obrigatório"),
+    CPF_INVALIDO("CPF do paciente inválido"),
+    NOME_MUITO_LONGO("Nome do paciente excede o tamanho máximo");
+
+    private final String mensagem;
+
+    CodigoErro(String mensagem) {
+        this.mensagem = mensagem;
+    }
+
+    /**
+     * Código estável do erro, para uso por clientes da API
+     */
+    public String getCodigo() {
+        return name();
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+
+    /**
+     * Mensagem seguida do valor recusado, como "Tipo de plano inválido: ouro"
+     *
+     * Monta uma String nova: só para os erros cuja resposta cita a entrada.
+     */
+    public String mensagemCom(String valor) {
+        return mensagem + ": " + valor;
+    }
+}
@@ -0,0 +1,168 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contagem de pacientes distintos do HistoricoConsultasParticionado
+ *
+ * Guarda, por CPF, em quantas partições ele aparece: a contagem muda quando
+ * um CPF entra numa partição pela primeira vez ou quando a retenção descarta
+ * uma partição, e ler a quantidade de pacientes não percorre nada. Mesma
+ * tabela de endereçamento aberto do IndiceCpf (chaves long codificadas e
+ * contadores int, cerca de 24 bytes por CPF), com remoção por deslocamento
+ * para trás. CPFs fora do formato ficam num mapa à parte.
+ *
+ * Sem sincronização própria: o histórico só altera sob o lock de gravação;
+ * a quantidade é publicada num campo volátil para leitura sem lock.
+ */
+final class ContagemPacientes {
+
+    private static final long VAZIO = -1L;
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private long[] chaves;
+    private int[] particoes;
+    private int cpfs;
+    private final Map<String, Integer> foraDoFormato = new HashMap<>();
+
+    private volatile int quantidade;
+
+    ContagemPacientes() {
+        alocar(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * Registra que o CPF aparece em mais uma partição
+     */
+    void adicionar(String cpf) {
+        long codificado = CodificadorCpf.codificar(cpf);
+        if (codificado == CodificadorCpf.INVALIDO) {
+            foraDoFormato.merge(cpf, 1, Integer::sum);
+        } else {
+            adicionar(codificado);
+        }
+        publicar();
+    }
+
+    /**
+     * Registra que o CPF codificado aparece em mais uma partição
+     */
+    void adicionar(long codificado) {
+        int slot = slot(codificado);
+        if (chaves[slot] == codificado) {
+            particoes[slot]++;
+        } else {
+            chaves[slot] = codificado;
+            particoes[slot] = 1;
+            if (++cpfs * 2 > chaves.length) {
+                redimensionar();
+            }
+        }
+        publicar();
+    }
+
+    /**
+     * Registra que uma partição com o CPF foi descartada
+     */
+    void remover(String cpf) {
+        long codificado = CodificadorCpf.codificar(cpf);
+        if (codificado == CodificadorCpf.INVALIDO) {
+            foraDoFormato.computeIfPresent(cpf, (chave, total) -> total > 1 ? total - 1 : null);
+        } else {
+            remover(codificado);
+        }
+        publicar();
+    }
+
+    /**
+     * Registra que uma partição com o CPF codificado foi descartada
+     */
+    void remover(long codificado) {
+        int slot = slot(codificado);
+        if (chaves[slot] != codificado) {
+            return;
+        }
+        if (--particoes[slot] == 0) {
+            apagar(slot);
+            cpfs--;
+        }
+        publicar();
+    }
+
+    /**
+     * Quantidade de CPFs distintos em todas as partições
+     */
+    int quantidade() {
+        return quantidade;
+    }
+
+    private void publicar() {
+        quantidade = cpfs + foraDoFormato.size();
+    }
+
+    // Slot da chave ou o primeiro slot vazio da sondagem
+    private int slot(long cpf) {
+        int mascara = chaves.length - 1;
+        int slot = espalhar(cpf) & mascara;
+        while (chaves[slot] != VAZIO && chaves[slot] != cpf) {
+            slot = (slot + 1) & mascara;
+        }
+        return slot;
+    }
+
+    // Remoção da sondagem linear: puxa para o buraco as chaves que não
+    // estariam mais alcançáveis a partir do seu slot ideal
+    private void apagar(int slot) {
+        int mascara = chaves.length - 1;
+        int buraco = slot;
+        int atual = slot;
+        while (true) {
+            atual = (atual + 1) & mascara;
+            if (chaves[atual] == VAZIO) {
+                break;
+            }
+            int ideal = espalhar(chaves[atual]) & mascara;
+            // Move se o slot ideal não estiver no trecho circular (buraco, atual]
+            if (((atual - ideal) & mascara) >= ((atual - buraco) & mascara)) {
+                chaves[buraco] = chaves[atual];
+                particoes[buraco] = particoes[atual];
+                buraco = atual;
+            }
+        }
+        chaves[buraco] = VAZIO;
+        particoes[buraco] = 0;
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        int[] particoesAntigas = particoes;
+
+        alocar(chavesAntigas.length * 2);
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (chavesAntigas[i] != VAZIO) {
+                int slot = slot(chavesAntigas[i]);
+                chaves[slot] = chavesAntigas[i];
+                particoes[slot] = particoesAntigas[i];
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        Arrays.fill(chaves, VAZIO);
+        particoes = new int[capacidade];
+    }
+
+    // Mesmo espalhamento do IndiceCpf (finalizador do MurmurHash3)
+    private static int espalhar(long cpf) {
+        long h = cpf;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
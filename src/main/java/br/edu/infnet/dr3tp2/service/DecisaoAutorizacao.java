@@ -0,0 +1,55 @@
+package br.edu.infnet.dr3tp2.service;
+
+/**
+ * Decisão imutável de autorização de reembolso - EX8
+ *
+ * Todas as decisões possíveis são pré-alocadas: a autorização e uma negação
+ * para cada MotivoNegacao. Avaliar uma consulta não cria objetos.
+ */
+public final class DecisaoAutorizacao {
+
+    public static final DecisaoAutorizacao AUTORIZADA = new DecisaoAutorizacao(null);
+
+    private static final DecisaoAutorizacao[] NEGACOES = criarNegacoes();
+
+    private final MotivoNegacao motivo;
+
+    private DecisaoAutorizacao(MotivoNegacao motivo) {
+        this.motivo = motivo;
+    }
+
+    /**
+     * Obtém a decisão de negação para um motivo
+     *
+     * @param motivo Motivo da negação
+     * @return Decisão pré-alocada
+     */
+    public static DecisaoAutorizacao negada(MotivoNegacao motivo) {
+        return NEGACOES[motivo.ordinal()];
+    }
+
+    public boolean isAutorizado() {
+        return motivo == null;
+    }
+
+    /**
+     * @return Motivo da negação ou null se autorizada
+     */
+    public MotivoNegacao getMotivo() {
+        return motivo;
+    }
+
+    private static DecisaoAutorizacao[] criarNegacoes() {
+        MotivoNegacao[] motivos = MotivoNegacao.values();
+        DecisaoAutorizacao[] negacoes = new DecisaoAutorizacao[motivos.length];
+        for (MotivoNegacao motivo : motivos) {
+            negacoes[motivo.ordinal()] = new DecisaoAutorizacao(motivo);
+        }
+        return negacoes;
+    }
+
+    @Override
+    public String toString() {
+        return isAutorizado() ? "AUTORIZADA" : "NEGADA(" + motivo.getCodigo() + ")";
+    }
+}
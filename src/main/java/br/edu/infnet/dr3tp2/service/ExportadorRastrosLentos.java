@@ -0,0 +1,295 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.RastroLentoResponse;
+import br.edu.infnet.dr3tp2.dto.TrechoRastroResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportador OpenTelemetry com amostragem de cauda (tail sampling)
+ *
+ * Recebe os spans já amostrados na cabeça (management.tracing.sampling.probability)
+ * e segura os spans de cada trace até o span raiz local terminar. Só então
+ * decide: traces com duração acima do limite ou com algum span de erro são
+ * retidos; os demais são descartados. Os retidos ficam num coletor em memória
+ * de tamanho fixo (endpoint /actuator/rastros) e, se configurado, são gravados
+ * em um arquivo JSON Lines no formato OTLP/JSON, uma linha por trace.
+ *
+ * Roda na thread do BatchSpanProcessor, fora do caminho da requisição. Traces
+ * cuja raiz nunca chega (spans órfãos) são descartados pelo limite de pendentes.
+ */
+@Component
+public class ExportadorRastrosLentos implements SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportadorRastrosLentos.class);
+
+    private final long limiteNanos;
+    private final int capacidadeRetidos;
+    private final int maximoPendentes;
+    private final Path arquivo;
+    private final ObjectMapper json = new ObjectMapper();
+
+    // Acessados sob o monitor do exportador
+    private final LinkedHashMap<String, List<SpanData>> pendentes = new LinkedHashMap<>();
+    private final ArrayDeque<RastroLentoResponse> retidos = new ArrayDeque<>();
+    private long avaliados;
+    private long totalRetidos;
+    private long incompletos;
+    private BufferedWriter escritor;
+    private boolean encerrado;
+
+    @Autowired
+    public ExportadorRastrosLentos(
+            @Value("${reembolso.rastreamento.limite-lento:50ms}") Duration limite,
+            @Value("${reembolso.rastreamento.retidos:256}") int capacidadeRetidos,
+            @Value("${reembolso.rastreamento.pendentes:4096}") int maximoPendentes,
+            @Value("${reembolso.rastreamento.arquivo:}") String arquivo) {
+        if (capacidadeRetidos < 1 || maximoPendentes < 1) {
+            throw new IllegalArgumentException("Capacidade do rastreamento inválida");
+        }
+        this.limiteNanos = limite.toNanos();
+        this.capacidadeRetidos = capacidadeRetidos;
+        this.maximoPendentes = maximoPendentes;
+        this.arquivo = arquivo == null || arquivo.isBlank() ? null : Path.of(arquivo);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        if (encerrado) {
+            return CompletableResultCode.ofFailure();
+        }
+
+        boolean gravou = false;
+        try {
+            for (SpanData span : spans) {
+                if (!raizLocal(span)) {
+                    pendentes.computeIfAbsent(span.getTraceId(), traceId -> new ArrayList<>()).add(span);
+                    descartarExcedentes();
+                    continue;
+                }
+
+                List<SpanData> trechos = pendentes.remove(span.getTraceId());
+                if (trechos == null) {
+                    trechos = new ArrayList<>(1);
+                }
+                trechos.add(span);
+                gravou |= avaliar(span, trechos);
+            }
+            if (gravou) {
+                escritor.flush();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("Falha ao gravar rastros em {}: {}", arquivo, e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            if (escritor != null) {
+                escritor.flush();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        encerrado = true;
+        pendentes.clear();
+        try {
+            if (escritor != null) {
+                escritor.close();
+                escritor = null;
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    /**
+     * Traces retidos, do mais antigo para o mais recente
+     */
+    public synchronized List<RastroLentoResponse> getRastrosRetidos() {
+        return new ArrayList<>(retidos);
+    }
+
+    /**
+     * Traces completos avaliados pela amostragem de cauda
+     */
+    public synchronized long getAvaliados() {
+        return avaliados;
+    }
+
+    public synchronized long getTotalRetidos() {
+        return totalRetidos;
+    }
+
+    /**
+     * Traces descartados sem avaliação porque a raiz não chegou a tempo
+     */
+    public synchronized long getIncompletos() {
+        return incompletos;
+    }
+
+    private boolean avaliar(SpanData raiz, List<SpanData> trechos) throws IOException {
+        avaliados++;
+        long duracao = raiz.getEndEpochNanos() - raiz.getStartEpochNanos();
+        boolean erro = false;
+        for (SpanData trecho : trechos) {
+            erro |= trecho.getStatus().getStatusCode() == StatusCode.ERROR;
+        }
+        if (duracao < limiteNanos && !erro) {
+            return false;
+        }
+
+        totalRetidos++;
+        if (retidos.size() == capacidadeRetidos) {
+            retidos.removeFirst();
+        }
+        retidos.addLast(paraResponse(raiz, trechos, duracao, erro));
+
+        if (arquivo == null) {
+            return false;
+        }
+        if (escritor == null) {
+            Path diretorio = arquivo.toAbsolutePath().getParent();
+            if (diretorio != null) {
+                Files.createDirectories(diretorio);
+            }
+            escritor = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        escritor.write(paraOtlpJson(trechos));
+        escritor.newLine();
+        return true;
+    }
+
+    private void descartarExcedentes() {
+        while (pendentes.size() > maximoPendentes) {
+            var maisAntigo = pendentes.entrySet().iterator();
+            maisAntigo.next();
+            maisAntigo.remove();
+            incompletos++;
+        }
+    }
+
+    private static boolean raizLocal(SpanData span) {
+        SpanContext pai = span.getParentSpanContext();
+        return !pai.isValid() || pai.isRemote();
+    }
+
+    private static RastroLentoResponse paraResponse(SpanData raiz, List<SpanData> trechos, long duracao, boolean erro) {
+        List<TrechoRastroResponse> resposta = new ArrayList<>(trechos.size());
+        for (SpanData trecho : trechos) {
+            Map<String, String> atributos = new LinkedHashMap<>();
+            trecho.getAttributes().forEach((chave, valor) -> atributos.put(chave.getKey(), String.valueOf(valor)));
+            resposta.add(new TrechoRastroResponse(
+                    trecho.getSpanId(),
+                    trecho.getParentSpanContext().isValid() ? trecho.getParentSpanId() : null,
+                    trecho.getName(),
+                    (trecho.getStartEpochNanos() - raiz.getStartEpochNanos()) / 1_000,
+                    (trecho.getEndEpochNanos() - trecho.getStartEpochNanos()) / 1_000,
+                    trecho.getStatus().getStatusCode() == StatusCode.ERROR,
+                    atributos));
+        }
+        return new RastroLentoResponse(raiz.getTraceId(), raiz.getName(), duracao / 1_000, erro, resposta);
+    }
+
+    /**
+     * Um trace como ExportTraceServiceRequest do OTLP/JSON (formato do file exporter do Collector)
+     */
+    String paraOtlpJson(List<SpanData> trechos) throws JsonProcessingException {
+        Map<InstrumentationScopeInfo, List<Map<String, Object>>> porEscopo = new LinkedHashMap<>();
+        for (SpanData trecho : trechos) {
+            porEscopo.computeIfAbsent(trecho.getInstrumentationScopeInfo(), escopo -> new ArrayList<>())
+                    .add(spanOtlp(trecho));
+        }
+
+        List<Map<String, Object>> scopeSpans = new ArrayList<>(porEscopo.size());
+        porEscopo.forEach((escopo, spans) -> {
+            Map<String, Object> scope = new LinkedHashMap<>();
+            scope.put("name", escopo.getName());
+            if (escopo.getVersion() != null) {
+                scope.put("version", escopo.getVersion());
+            }
+            scopeSpans.add(Map.of("scope", scope, "spans", spans));
+        });
+
+        Map<String, Object> resourceSpans = new LinkedHashMap<>();
+        resourceSpans.put("resource", Map.of("attributes", atributosOtlp(trechos.get(0).getResource().getAttributes())));
+        resourceSpans.put("scopeSpans", scopeSpans);
+        return json.writeValueAsString(Map.of("resourceSpans", List.of(resourceSpans)));
+    }
+
+    private static Map<String, Object> spanOtlp(SpanData span) {
+        Map<String, Object> otlp = new LinkedHashMap<>();
+        otlp.put("traceId", span.getTraceId());
+        otlp.put("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            otlp.put("parentSpanId", span.getParentSpanId());
+        }
+        otlp.put("name", span.getName());
+        // SpanKind do OTLP começa em 1 (INTERNAL); 0 é UNSPECIFIED
+        otlp.put("kind", span.getKind().ordinal() + 1);
+        otlp.put("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        otlp.put("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+        otlp.put("attributes", atributosOtlp(span.getAttributes()));
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("code", span.getStatus().getStatusCode().ordinal());
+        if (!span.getStatus().getDescription().isEmpty()) {
+            status.put("message", span.getStatus().getDescription());
+        }
+        otlp.put("status", status);
+        return otlp;
+    }
+
+    private static List<Map<String, Object>> atributosOtlp(Attributes atributos) {
+        List<Map<String, Object>> otlp = new ArrayList<>(atributos.size());
+        atributos.forEach((chave, valor) -> otlp.add(Map.of("key", chave.getKey(), "value", valorOtlp(chave, valor))));
+        return otlp;
+    }
+
+    private static Map<String, Object> valorOtlp(AttributeKey<?> chave, Object valor) {
+        return switch (chave.getType()) {
+            case BOOLEAN -> Map.of("boolValue", valor);
+            // int64 vai como string no OTLP/JSON
+            case LONG -> Map.of("intValue", valor.toString());
+            case DOUBLE -> Map.of("doubleValue", valor);
+            default -> Map.of("stringValue", valor.toString());
+        };
+    }
+}
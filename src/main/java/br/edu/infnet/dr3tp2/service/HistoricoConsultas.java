@@ -1,10 +1,13 @@
 package br.edu.infnet.dr3tp2.service;
 
 import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
 import br.edu.infnet.dr3tp2.model.Consulta;
 import br.edu.infnet.dr3tp2.model.Paciente;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface para armazenamento de histórico de consultas
@@ -33,4 +36,112 @@ public interface HistoricoConsultas {
      * @return Lista de histórico do paciente
      */
     List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf);
+
+    /**
+     * Busca uma página do histórico completo (paginação por cursor)
+     *
+     * O cursor é a sequência do último item já lido (0 para a primeira
+     * página). A implementação padrão filtra a lista completa; implementações
+     * com sequência própria devem sobrescrever para servir só a página.
+     *
+     * @param apos Cursor do último item já lido
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico e cursor da próxima página
+     */
+    default PaginaHistoricoResponse buscarHistorico(long apos, int limite) {
+        return paginar(buscarHistorico(), apos, limite);
+    }
+
+    /**
+     * Busca uma página do histórico de um paciente (paginação por cursor)
+     *
+     * @param cpf CPF do paciente
+     * @param apos Cursor do último item já lido
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico do paciente e cursor da próxima página
+     */
+    default PaginaHistoricoResponse buscarHistoricoPorPaciente(String cpf, long apos, int limite) {
+        return paginar(buscarHistoricoPorPaciente(cpf), apos, limite);
+    }
+
+    /**
+     * Percorre o histórico completo entregando um item por vez
+     *
+     * Usado na exportação: o consumidor recebe os itens em ordem de gravação
+     * de um retrato do histórico tirado no início da chamada. A implementação
+     * padrão parte da lista completa; implementações concorrentes devem
+     * sobrescrever para não materializar o histórico inteiro.
+     *
+     * @param consumidor Recebe cada item do histórico
+     */
+    default void percorrerHistorico(Consumer<? super HistoricoResponse> consumidor) {
+        buscarHistorico().forEach(consumidor);
+    }
+
+    /**
+     * Percorre os itens gravados a partir de um instante
+     *
+     * Usado para reconstruir, depois de reiniciar, acumulados que ficam só em
+     * memória (teto anual). A implementação padrão não entrega nada: o
+     * histórico em memória também começa vazio. Implementações persistentes
+     * devem sobrescrever; as que só conhecem o intervalo de tempo de um bloco
+     * de registros podem entregar itens um pouco anteriores ao instante.
+     *
+     * @param instante Início, em epoch millis
+     * @param consumidor Recebe cada item gravado a partir do instante
+     */
+    default void percorrerHistoricoDesde(long instante, Consumer<? super HistoricoResponse> consumidor) {
+    }
+
+    /**
+     * Resumo dos reembolsos de um paciente
+     *
+     * A implementação padrão soma a lista do paciente; implementações que
+     * mantêm os totais a cada gravação devem sobrescrever.
+     *
+     * @param cpf CPF do paciente
+     * @return Quantidade, totais e consultas que atingiram o teto
+     */
+    default ResumoPacienteResponse buscarResumoPorPaciente(String cpf) {
+        ResumoPaciente resumo = new ResumoPaciente();
+        for (HistoricoResponse item : buscarHistoricoPorPaciente(cpf)) {
+            resumo.registrar(item.reembolso().valorConsulta(), item.reembolso().valorReembolso());
+        }
+        return resumo.paraResponse(cpf);
+    }
+
+    /**
+     * Quantidade de consultas gravadas no histórico (métricas)
+     *
+     * A implementação padrão materializa o histórico; implementações com
+     * contadores próprios devem sobrescrever.
+     */
+    default long contarRegistros() {
+        return buscarHistorico().size();
+    }
+
+    /**
+     * Quantidade de CPFs no índice por paciente (métricas)
+     */
+    default long contarPacientes() {
+        return buscarHistorico().stream().map(item -> item.paciente().getCpf()).distinct().count();
+    }
+
+    /**
+     * Indica se as operações podem bloquear a thread chamadora (I/O ou locks
+     * demorados); usado pela pilha reativa para sair do event loop
+     */
+    default boolean isBloqueante() {
+        return true;
+    }
+
+    // Listas append-only: a posição + 1 funciona como sequência monotônica
+    private static PaginaHistoricoResponse paginar(List<HistoricoResponse> historico, long apos, int limite) {
+        int inicio = (int) Math.min(apos, historico.size());
+        int fim = (int) Math.min((long) inicio + limite, historico.size());
+
+        List<HistoricoResponse> itens = List.copyOf(historico.subList(inicio, fim));
+        Long proximoCursor = fim < historico.size() ? (long) fim : null;
+        return new PaginaHistoricoResponse(itens, proximoCursor);
+    }
 }
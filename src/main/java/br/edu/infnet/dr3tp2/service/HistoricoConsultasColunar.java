@@ -0,0 +1,480 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Histórico de consultas em memória organizado em colunas de primitivos
+ *
+ * Em vez de um objeto por consulta (Consulta, três BigDecimal e entradas em
+ * mapas), cada consulta ocupa uma posição em arrays paralelos: valor e
+ * reembolso em centavos (long), cobertura em pontos-base (int), id do
+ * paciente no RegistroPacientes (int) e um byte com as escalas originais,
+ * para devolver os mesmos BigDecimal que foram gravados. São cerca de 25
+ * bytes por consulta mais 4 no índice do paciente. Os HistoricoResponse só
+ * são montados na leitura, com a instância única do paciente.
+ *
+ * Valores que não cabem em ponto fixo (mais casas decimais, nulos) são
+ * raros e ficam num mapa à parte, indexado pela posição.
+ *
+ * Gravações são serializadas por um único lock e publicadas pelo contador
+ * volátil de posições; leituras não bloqueiam e enxergam um prefixo
+ * consistente. Os arrays dobram de tamanho quando enchem: quem está lendo
+ * continua com os arrays antigos, que têm tudo até a posição que leu.
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.historico.armazenamento", havingValue = "colunar")
+public class HistoricoConsultasColunar implements HistoricoConsultasComReembolso {
+
+    private static final int CAPACIDADE_INICIAL = 1024;
+
+    // Marcador de coluna: valor fora do ponto fixo (ver excecoes) ou consulta sem reembolso
+    private static final long FORA_DO_PONTO_FIXO = CalculoPontoFixo.NAO_REPRESENTAVEL;
+    private static final long SEM_REEMBOLSO = -2L;
+
+    // Escalas empacotadas em um byte: valor (2 bits), percentual (3 bits), reembolso (2 bits)
+    private static final int DESLOCAMENTO_PERCENTUAL = 2;
+    private static final int DESLOCAMENTO_REEMBOLSO = 5;
+
+    private volatile Colunas colunas = new Colunas(CAPACIDADE_INICIAL);
+    private volatile int tamanho;
+
+    // Posições de cada paciente, pelo CPF codificado (fora do formato, num mapa à parte)
+    private final IndiceCpfConcorrente<IndicePaciente> indices = new IndiceCpfConcorrente<>();
+    private final ConcurrentHashMap<String, IndicePaciente> indicesForaDoFormato = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    RegistroPacientes registroPacientes = new RegistroPacientes();
+
+    // Posição -> valores originais, para consultas fora do ponto fixo
+    private final ConcurrentHashMap<Integer, RegistroHistorico> excecoes = new ConcurrentHashMap<>();
+
+    /**
+     * Armazena uma consulta no histórico com valor do reembolso
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     * @param valorReembolso Valor do reembolso calculado
+     */
+    @Override
+    public void salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso) {
+        if (consulta == null || paciente == null) {
+            throw new IllegalArgumentException("Consulta e paciente não podem ser nulos");
+        }
+        if (paciente.getCpf() == null) {
+            throw new IllegalArgumentException("CPF do paciente não pode ser nulo");
+        }
+
+        // Conversões e registro do paciente fora do lock
+        int idPaciente = registroPacientes.registrar(paciente);
+        long valor = CalculoPontoFixo.paraCentavos(consulta.getValor());
+        int percentual = CalculoPontoFixo.paraPontosBase(consulta.getPercentualCobertura());
+        long reembolso = valorReembolso == null ? SEM_REEMBOLSO : CalculoPontoFixo.paraCentavos(valorReembolso);
+        boolean foraDoPontoFixo = valor == FORA_DO_PONTO_FIXO || percentual == FORA_DO_PONTO_FIXO
+                || reembolso == FORA_DO_PONTO_FIXO;
+        byte escalas = foraDoPontoFixo ? 0 : empacotarEscalas(consulta.getValor(),
+                consulta.getPercentualCobertura(), valorReembolso);
+
+        synchronized (this) {
+            int posicao = tamanho;
+            if (posicao == Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Capacidade do histórico colunar esgotada");
+            }
+            IndicePaciente indice = indiceDoPaciente(paciente.getCpf());
+
+            Colunas atuais = colunas;
+            if (posicao == atuais.capacidade()) {
+                atuais = atuais.crescer();
+                colunas = atuais;
+            }
+
+            if (foraDoPontoFixo) {
+                excecoes.put(posicao, new RegistroHistorico(posicao + 1L, consulta.getValor(),
+                        consulta.getPercentualCobertura(), valorReembolso, registroPacientes.buscar(idPaciente)));
+                atuais.valorCentavos[posicao] = FORA_DO_PONTO_FIXO;
+                atuais.reembolsoCentavos[posicao] = valorReembolso == null ? SEM_REEMBOLSO : FORA_DO_PONTO_FIXO;
+            } else {
+                atuais.valorCentavos[posicao] = valor;
+                atuais.percentualPontosBase[posicao] = percentual;
+                atuais.reembolsoCentavos[posicao] = reembolso;
+                atuais.escalas[posicao] = escalas;
+            }
+            atuais.paciente[posicao] = idPaciente;
+            indice.adicionar(posicao);
+
+            // Escrita volátil publica a posição (e o índice do paciente) para os leitores
+            tamanho = posicao + 1;
+        }
+    }
+
+    /**
+     * Armazena uma consulta no histórico (sem reembolso, não aparece nas buscas)
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     */
+    @Override
+    public void salvar(Consulta consulta, Paciente paciente) {
+        salvarComReembolso(consulta, paciente, null);
+    }
+
+    /**
+     * Busca histórico completo com dados do paciente
+     *
+     * @return Lista de histórico com paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistorico() {
+        int limite = tamanho;
+        Leitura leitura = new Leitura();
+        List<HistoricoResponse> historico = new ArrayList<>(limite);
+        for (int posicao = 0; posicao < limite; posicao++) {
+            leitura.adicionarSeReembolsado(posicao, historico);
+        }
+        return historico;
+    }
+
+    /**
+     * Busca histórico de um paciente específico
+     *
+     * @param cpf CPF do paciente
+     * @return Lista de histórico do paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
+        IndicePaciente indice = indicePorCpf(cpf);
+        if (indice == null) {
+            return new ArrayList<>();
+        }
+
+        int limite = tamanho;
+        int[] posicoes = indice.posicoes;
+        int quantidade = indice.visiveisAte(posicoes, limite);
+        Leitura leitura = new Leitura();
+        List<HistoricoResponse> historico = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            leitura.adicionarSeReembolsado(posicoes[i], historico);
+        }
+        return historico;
+    }
+
+    /**
+     * Busca uma página do histórico completo
+     *
+     * A sequência é a posição + 1, então a página começa direto no cursor.
+     *
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistorico(long apos, int limite) {
+        int fim = tamanho;
+        Leitura leitura = new Leitura();
+        List<HistoricoResponse> itens = new ArrayList<>(Math.min(limite, 64));
+
+        long posicao = Math.max(apos, 0);
+        int ultima = -1;
+        for (; posicao < fim && itens.size() < limite; posicao++) {
+            if (leitura.adicionarSeReembolsado((int) posicao, itens)) {
+                ultima = (int) posicao;
+            }
+        }
+
+        Long proximoCursor = itens.size() == limite && posicao < tamanho ? ultima + 1L : null;
+        return new PaginaHistoricoResponse(itens, proximoCursor);
+    }
+
+    /**
+     * Busca uma página do histórico de um paciente
+     *
+     * As posições do paciente estão em ordem crescente, então o início da
+     * página é encontrado por busca binária.
+     *
+     * @param cpf CPF do paciente
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico do paciente e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistoricoPorPaciente(String cpf, long apos, int limite) {
+        IndicePaciente indice = indicePorCpf(cpf);
+        if (indice == null) {
+            return new PaginaHistoricoResponse(List.of(), null);
+        }
+
+        int[] posicoes = indice.posicoes;
+        int quantidade = indice.visiveisAte(posicoes, tamanho);
+        long chave = Math.min(Math.max(apos, 0), Integer.MAX_VALUE);
+        // Primeira posição com sequência (posição + 1) maior que o cursor
+        int inicio = Arrays.binarySearch(posicoes, 0, quantidade, (int) chave);
+        inicio = inicio >= 0 ? inicio : -inicio - 1;
+
+        Leitura leitura = new Leitura();
+        List<HistoricoResponse> itens = new ArrayList<>(Math.min(limite, 64));
+        int i = inicio;
+        int ultima = -1;
+        for (; i < quantidade && itens.size() < limite; i++) {
+            if (leitura.adicionarSeReembolsado(posicoes[i], itens)) {
+                ultima = posicoes[i];
+            }
+        }
+
+        Long proximoCursor = itens.size() == limite && i < indice.tamanho ? ultima + 1L : null;
+        return new PaginaHistoricoResponse(itens, proximoCursor);
+    }
+
+    /**
+     * Percorre o histórico montando um item por vez
+     *
+     * @param consumidor Recebe cada item do histórico
+     */
+    @Override
+    public void percorrerHistorico(Consumer<? super HistoricoResponse> consumidor) {
+        int limite = tamanho;
+        Leitura leitura = new Leitura();
+        for (int posicao = 0; posicao < limite; posicao++) {
+            HistoricoResponse item = leitura.montar(posicao);
+            if (item != null) {
+                consumidor.accept(item);
+            }
+        }
+    }
+
+    /**
+     * Resumo dos reembolsos de um paciente, somado direto nas colunas
+     *
+     * @param cpf CPF do paciente
+     * @return Quantidade, totais e consultas que atingiram o teto
+     */
+    @Override
+    public ResumoPacienteResponse buscarResumoPorPaciente(String cpf) {
+        IndicePaciente indice = indicePorCpf(cpf);
+        if (indice == null) {
+            return ResumoPaciente.vazio(cpf);
+        }
+
+        int[] posicoes = indice.posicoes;
+        int quantidade = indice.visiveisAte(posicoes, tamanho);
+        Colunas lidas = colunas;
+
+        ResumoPaciente resumo = new ResumoPaciente();
+        long consultas = 0;
+        long valorCentavos = 0;
+        long reembolsoCentavos = 0;
+        long noTeto = 0;
+        for (int i = 0; i < quantidade; i++) {
+            int posicao = posicoes[i];
+            long reembolso = lidas.reembolsoCentavos[posicao];
+            if (reembolso == SEM_REEMBOLSO) {
+                continue;
+            }
+            if (reembolso == FORA_DO_PONTO_FIXO) {
+                RegistroHistorico registro = excecoes.get(posicao);
+                resumo.registrar(registro.valor(), registro.valorReembolso());
+                continue;
+            }
+            consultas++;
+            valorCentavos += lidas.valorCentavos[posicao];
+            reembolsoCentavos += reembolso;
+            if (reembolso == CalculoPontoFixo.TETO_CENTAVOS) {
+                noTeto++;
+            }
+        }
+
+        ResumoPacienteResponse excecoesDoPaciente = resumo.paraResponse(cpf);
+        return new ResumoPacienteResponse(
+                cpf,
+                consultas + excecoesDoPaciente.quantidadeConsultas(),
+                BigDecimal.valueOf(valorCentavos, 2).add(excecoesDoPaciente.totalValorConsultas()),
+                BigDecimal.valueOf(reembolsoCentavos, 2).add(excecoesDoPaciente.totalReembolsado()),
+                noTeto + excecoesDoPaciente.reembolsosNoTeto()
+        );
+    }
+
+    @Override
+    public long contarRegistros() {
+        return tamanho;
+    }
+
+    @Override
+    public long contarPacientes() {
+        return indices.quantidade() + indicesForaDoFormato.size();
+    }
+
+    /**
+     * Gravações seguram o lock só para preencher uma posição; leituras não bloqueiam
+     */
+    @Override
+    public boolean isBloqueante() {
+        return false;
+    }
+
+    private IndicePaciente indicePorCpf(String cpf) {
+        long codificado = CodificadorCpf.codificar(cpf);
+        if (codificado == CodificadorCpf.INVALIDO) {
+            return cpf == null ? null : indicesForaDoFormato.get(cpf);
+        }
+        return indices.buscar(codificado);
+    }
+
+    // Chamado com o lock do histórico
+    private IndicePaciente indiceDoPaciente(String cpf) {
+        long codificado = CodificadorCpf.codificar(cpf);
+        if (codificado == CodificadorCpf.INVALIDO) {
+            return indicesForaDoFormato.computeIfAbsent(cpf, chave -> new IndicePaciente());
+        }
+        IndicePaciente indice = indices.buscar(codificado);
+        return indice != null ? indice : indices.buscarOuCriar(codificado, IndicePaciente::new);
+    }
+
+    private static byte empacotarEscalas(BigDecimal valor, BigDecimal percentual, BigDecimal reembolso) {
+        int escalaReembolso = reembolso == null ? 0 : reembolso.scale();
+        return (byte) (valor.scale()
+                | percentual.scale() << DESLOCAMENTO_PERCENTUAL
+                | escalaReembolso << DESLOCAMENTO_REEMBOLSO);
+    }
+
+    /**
+     * Retrato das colunas tirado no início de uma leitura
+     */
+    private final class Leitura {
+
+        private final Colunas lidas = colunas;
+
+        // Último paciente montado: consultas seguidas do mesmo CPF reaproveitam a busca
+        private int ultimoId = -1;
+        private Paciente ultimoPaciente;
+
+        boolean adicionarSeReembolsado(int posicao, List<HistoricoResponse> destino) {
+            HistoricoResponse item = montar(posicao);
+            if (item == null) {
+                return false;
+            }
+            destino.add(item);
+            return true;
+        }
+
+        HistoricoResponse montar(int posicao) {
+            long reembolso = lidas.reembolsoCentavos[posicao];
+            if (reembolso == SEM_REEMBOLSO) {
+                return null;
+            }
+            if (reembolso == FORA_DO_PONTO_FIXO || lidas.valorCentavos[posicao] == FORA_DO_PONTO_FIXO) {
+                return excecoes.get(posicao).paraResponse();
+            }
+
+            int escalas = lidas.escalas[posicao];
+            ReembolsoResponse resposta = new ReembolsoResponse(
+                    reais(lidas.valorCentavos[posicao], escalas & 0b11),
+                    percentual(lidas.percentualPontosBase[posicao], (escalas >>> DESLOCAMENTO_PERCENTUAL) & 0b111),
+                    reais(reembolso, (escalas >>> DESLOCAMENTO_REEMBOLSO) & 0b11),
+                    "sucesso"
+            );
+            return new HistoricoResponse(resposta, paciente(lidas.paciente[posicao]));
+        }
+
+        private Paciente paciente(int id) {
+            if (id != ultimoId) {
+                ultimoId = id;
+                ultimoPaciente = registroPacientes.buscar(id);
+            }
+            return ultimoPaciente;
+        }
+
+        private static BigDecimal reais(long centavos, int escala) {
+            BigDecimal reais = CalculoPontoFixo.paraReais(centavos);
+            // Reduzir a escala é exato: as casas removidas eram zeros na gravação
+            return escala == 2 ? reais : reais.setScale(escala);
+        }
+
+        private static BigDecimal percentual(int pontosBase, int escala) {
+            return BigDecimal.valueOf(pontosBase, 4).setScale(escala);
+        }
+    }
+
+    /**
+     * Arrays paralelos com uma posição por consulta
+     */
+    private static final class Colunas {
+
+        final long[] valorCentavos;
+        final int[] percentualPontosBase;
+        final long[] reembolsoCentavos;
+        final int[] paciente;
+        final byte[] escalas;
+
+        Colunas(int capacidade) {
+            this(new long[capacidade], new int[capacidade], new long[capacidade], new int[capacidade],
+                    new byte[capacidade]);
+        }
+
+        private Colunas(long[] valorCentavos, int[] percentualPontosBase, long[] reembolsoCentavos,
+                        int[] paciente, byte[] escalas) {
+            this.valorCentavos = valorCentavos;
+            this.percentualPontosBase = percentualPontosBase;
+            this.reembolsoCentavos = reembolsoCentavos;
+            this.paciente = paciente;
+            this.escalas = escalas;
+        }
+
+        int capacidade() {
+            return paciente.length;
+        }
+
+        Colunas crescer() {
+            int novaCapacidade = (int) Math.min((long) capacidade() * 2, Integer.MAX_VALUE - 8);
+            return new Colunas(
+                    Arrays.copyOf(valorCentavos, novaCapacidade),
+                    Arrays.copyOf(percentualPontosBase, novaCapacidade),
+                    Arrays.copyOf(reembolsoCentavos, novaCapacidade),
+                    Arrays.copyOf(paciente, novaCapacidade),
+                    Arrays.copyOf(escalas, novaCapacidade));
+        }
+    }
+
+    /**
+     * Posições das consultas de um paciente, em ordem crescente
+     */
+    private static final class IndicePaciente {
+
+        volatile int[] posicoes = new int[4];
+        volatile int tamanho;
+
+        // Chamado com o lock do histórico
+        void adicionar(int posicao) {
+            int[] atuais = posicoes;
+            if (tamanho == atuais.length) {
+                atuais = Arrays.copyOf(atuais, atuais.length * 2);
+                posicoes = atuais;
+            }
+            atuais[tamanho] = posicao;
+            tamanho = tamanho + 1;
+        }
+
+        /**
+         * Quantas posições do array lido já estão publicadas (abaixo do limite)
+         */
+        int visiveisAte(int[] lidas, int limite) {
+            int quantidade = Math.min(tamanho, lidas.length);
+            while (quantidade > 0 && lidas[quantidade - 1] >= limite) {
+                quantidade--;
+            }
+            return quantidade;
+        }
+    }
+}
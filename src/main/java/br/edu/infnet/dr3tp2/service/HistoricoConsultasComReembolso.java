@@ -0,0 +1,21 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+
+import java.math.BigDecimal;
+
+/**
+ * Histórico de consultas que também armazena o valor do reembolso calculado
+ */
+public interface HistoricoConsultasComReembolso extends HistoricoConsultas {
+
+    /**
+     * Armazena uma consulta no histórico com valor do reembolso
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     * @param valorReembolso Valor do reembolso calculado
+     */
+    void salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso);
+}
@@ -0,0 +1,304 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Histórico de consultas em memória seguro para acesso concorrente
+ *
+ * Todas as consultas vão para um log global append-only sem locks. Cada CPF
+ * tem o seu próprio log, com lock apenas por paciente: gravações de pacientes
+ * diferentes nunca disputam o mesmo lock. As leituras não bloqueiam e
+ * enxergam um prefixo consistente do histórico.
+ *
+ * Os dados de cada paciente (log e resumo) são achados pelo CPF codificado
+ * em long (IndiceCpfConcorrente), sem hash de String na busca; CPFs fora do
+ * formato, raros, ficam num mapa à parte.
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.historico.armazenamento", havingValue = "memoria", matchIfMissing = true)
+public class HistoricoConsultasConcorrente implements HistoricoConsultasComReembolso {
+
+    private static final int BITS_BLOCO_GLOBAL = 10;
+    private static final int BITS_BLOCO_PACIENTE = 2;
+
+    // Pacote: testes reservam posições para simular gravações em andamento
+    final LogConcorrente<RegistroHistorico> todasConsultas = new LogConcorrente<>(BITS_BLOCO_GLOBAL);
+    private final IndiceCpfConcorrente<DoPaciente> porPaciente = new IndiceCpfConcorrente<>();
+    private final ConcurrentHashMap<String, DoPaciente> foraDoFormato = new ConcurrentHashMap<>();
+
+    // Os registros guardam a instância única do paciente, não a recebida em cada gravação
+    @Autowired(required = false)
+    RegistroPacientes registroPacientes = new RegistroPacientes();
+
+    /**
+     * Armazena uma consulta no histórico com valor do reembolso
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     * @param valorReembolso Valor do reembolso calculado
+     */
+    @Override
+    public void salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso) {
+        if (consulta == null || paciente == null) {
+            throw new IllegalArgumentException("Consulta e paciente não podem ser nulos");
+        }
+        if (paciente.getCpf() == null) {
+            throw new IllegalArgumentException("CPF do paciente não pode ser nulo");
+        }
+
+        Paciente registrado = registroPacientes.resolver(paciente);
+        DoPaciente doPaciente = doPaciente(paciente.getCpf());
+
+        // O lock do paciente mantém o log do CPF ordenado pela sequência global
+        synchronized (doPaciente) {
+            long posicao = todasConsultas.reservar();
+            RegistroHistorico registro = new RegistroHistorico(
+                    posicao + 1,
+                    consulta.getValor(),
+                    consulta.getPercentualCobertura(),
+                    valorReembolso,
+                    registrado
+            );
+
+            todasConsultas.gravar(posicao, registro);
+            doPaciente.consultas.adicionar(registro);
+        }
+
+        if (valorReembolso != null) {
+            doPaciente.resumo.registrar(consulta.getValor(), valorReembolso);
+        }
+    }
+
+    /**
+     * Armazena uma consulta no histórico (sem reembolso, não aparece nas buscas)
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     */
+    @Override
+    public void salvar(Consulta consulta, Paciente paciente) {
+        salvarComReembolso(consulta, paciente, null);
+    }
+
+    /**
+     * Busca histórico completo com dados do paciente
+     *
+     * @return Lista de histórico com paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistorico() {
+        return listar(todasConsultas);
+    }
+
+    /**
+     * Busca histórico de um paciente específico
+     *
+     * @param cpf CPF do paciente
+     * @return Lista de histórico do paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
+        if (cpf == null) {
+            return new ArrayList<>();
+        }
+
+        DoPaciente doPaciente = buscarDoPaciente(cpf);
+        return doPaciente == null ? new ArrayList<>() : listar(doPaciente.consultas);
+    }
+
+    /**
+     * Busca uma página do histórico completo
+     *
+     * A sequência é a posição no log global + 1, então a página começa
+     * direto na posição do cursor, sem percorrer o histórico anterior.
+     *
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistorico(long apos, int limite) {
+        long inicio = Math.max(apos, 0);
+        return paginar(todasConsultas, inicio, inicio, limite);
+    }
+
+    /**
+     * Busca uma página do histórico de um paciente
+     *
+     * O log do paciente é ordenado pela sequência global, então o início da
+     * página é encontrado por busca binária.
+     *
+     * @param cpf CPF do paciente
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico do paciente e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistoricoPorPaciente(String cpf, long apos, int limite) {
+        DoPaciente doPaciente = cpf == null ? null : buscarDoPaciente(cpf);
+        if (doPaciente == null) {
+            return new PaginaHistoricoResponse(List.of(), null);
+        }
+
+        return paginar(doPaciente.consultas, primeiraPosicaoApos(doPaciente.consultas, apos), Math.max(apos, 0), limite);
+    }
+
+    /**
+     * Percorre o histórico completo sem materializar a lista
+     *
+     * O limite é fixado no início: gravações feitas durante a exportação
+     * ficam de fora, e o percurso para na primeira posição ainda não gravada,
+     * então o consumidor sempre recebe um prefixo consistente do log.
+     *
+     * @param consumidor Recebe cada item do histórico
+     */
+    @Override
+    public void percorrerHistorico(Consumer<? super HistoricoResponse> consumidor) {
+        long limite = todasConsultas.reservados();
+
+        for (long posicao = 0; posicao < limite; posicao++) {
+            RegistroHistorico registro = todasConsultas.obter(posicao);
+            if (registro == null) {
+                break;
+            }
+            if (registro.temReembolso()) {
+                consumidor.accept(registro.paraResponse());
+            }
+        }
+    }
+
+    /**
+     * Resumo dos reembolsos de um paciente, mantido a cada gravação
+     *
+     * @param cpf CPF do paciente
+     * @return Quantidade, totais e consultas que atingiram o teto
+     */
+    @Override
+    public ResumoPacienteResponse buscarResumoPorPaciente(String cpf) {
+        DoPaciente doPaciente = cpf == null ? null : buscarDoPaciente(cpf);
+        return doPaciente == null ? ResumoPaciente.vazio(cpf) : doPaciente.resumo.paraResponse(cpf);
+    }
+
+    @Override
+    public long contarRegistros() {
+        return todasConsultas.reservados();
+    }
+
+    @Override
+    public long contarPacientes() {
+        return porPaciente.quantidade() + foraDoFormato.size();
+    }
+
+    /**
+     * Gravações usam apenas o lock do paciente e leituras não bloqueiam
+     */
+    @Override
+    public boolean isBloqueante() {
+        return false;
+    }
+
+    private DoPaciente buscarDoPaciente(String cpf) {
+        long codificado = CodificadorCpf.codificar(cpf);
+        return codificado == CodificadorCpf.INVALIDO ? foraDoFormato.get(cpf) : porPaciente.buscar(codificado);
+    }
+
+    private DoPaciente doPaciente(String cpf) {
+        long codificado = CodificadorCpf.codificar(cpf);
+        if (codificado == CodificadorCpf.INVALIDO) {
+            return foraDoFormato.computeIfAbsent(cpf, chave -> new DoPaciente());
+        }
+        DoPaciente doPaciente = porPaciente.buscar(codificado);
+        return doPaciente != null ? doPaciente : porPaciente.buscarOuCriar(codificado, DoPaciente::new);
+    }
+
+    private static List<HistoricoResponse> listar(LogConcorrente<RegistroHistorico> log) {
+        long limite = log.reservados();
+        List<HistoricoResponse> historico = new ArrayList<>((int) Math.min(limite, Integer.MAX_VALUE - 8));
+
+        for (long posicao = 0; posicao < limite; posicao++) {
+            RegistroHistorico registro = log.obter(posicao);
+            if (registro == null) {
+                // Posição reservada ainda não gravada: fim do prefixo consistente
+                break;
+            }
+            if (registro.temReembolso()) {
+                historico.add(registro.paraResponse());
+            }
+        }
+
+        return historico;
+    }
+
+    private static PaginaHistoricoResponse paginar(LogConcorrente<RegistroHistorico> log, long inicio, long apos,
+                                                   int limite) {
+        long fim = log.reservados();
+        List<HistoricoResponse> itens = new ArrayList<>(Math.min(limite, 64));
+        RegistroHistorico ultimo = null;
+        boolean parouEmLacuna = false;
+
+        long posicao = inicio;
+        for (; posicao < fim && itens.size() < limite; posicao++) {
+            RegistroHistorico registro = log.obter(posicao);
+            if (registro == null) {
+                // Posição reservada ainda não gravada: fim do prefixo consistente
+                parouEmLacuna = true;
+                break;
+            }
+            if (registro.temReembolso()) {
+                itens.add(registro.paraResponse());
+                ultimo = registro;
+            }
+        }
+
+        // Página cheia com mais posições reservadas, ou parada numa gravação
+        // em andamento: há próxima página, a partir do último item entregue
+        Long proximoCursor = null;
+        if (parouEmLacuna) {
+            proximoCursor = ultimo != null ? ultimo.sequencia() : apos;
+        } else if (itens.size() == limite && posicao < log.reservados()) {
+            proximoCursor = ultimo.sequencia();
+        }
+        return new PaginaHistoricoResponse(itens, proximoCursor);
+    }
+
+    // Primeira posição do log cuja sequência é maior que o cursor
+    private static long primeiraPosicaoApos(LogConcorrente<RegistroHistorico> log, long apos) {
+        long inicio = 0;
+        long fim = log.reservados();
+
+        while (inicio < fim) {
+            long meio = (inicio + fim) >>> 1;
+            RegistroHistorico registro = log.obter(meio);
+            // Posições ainda não gravadas só existem no final do log
+            if (registro != null && registro.sequencia() <= apos) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+
+        return inicio;
+    }
+
+    /**
+     * Log e resumo de um paciente; o próprio objeto é o lock das gravações do CPF
+     */
+    private static final class DoPaciente {
+
+        final LogConcorrente<RegistroHistorico> consultas = new LogConcorrente<>(BITS_BLOCO_PACIENTE);
+        final ResumoPaciente resumo = new ResumoPaciente();
+    }
+}
@@ -4,7 +4,6 @@ import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
 import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
 import br.edu.infnet.dr3tp2.model.Consulta;
 import br.edu.infnet.dr3tp2.model.Paciente;
-import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -14,16 +13,23 @@ import java.util.Map;
 
 /**
  * Implementação fake do histórico de consultas para testes - EX5
- * Armazena dados em memória
+ * Armazena dados em memória; os métodos públicos são sincronizados para
+ * aceitar as gravações paralelas do lote (ReembolsoLoteService), mas sem
+ * escalar com muitas threads (em produção é usado o HistoricoConsultasConcorrente)
  */
-@Component
-public class HistoricoConsultasFake implements HistoricoConsultas {
+public class HistoricoConsultasFake implements HistoricoConsultasComReembolso {
 
     private final List<Consulta> todasConsultas = new ArrayList<>();
-    private final Map<String, List<Consulta>> consultasPorPaciente = new HashMap<>();
+    // Posições em todasConsultas por CPF codificado; CPFs fora do formato
+    // (só aparecem em testes) ficam no mapa por String
+    private final IndiceCpf posicoesPorCpf = new IndiceCpf();
+    private final Map<String, List<Consulta>> consultasForaDoFormato = new HashMap<>();
     private final Map<Consulta, Paciente> consultaPaciente = new HashMap<>();
     private final Map<Consulta, BigDecimal> consultaReembolso = new HashMap<>();
 
+    // Uma instância de Paciente por CPF, compartilhada pelas consultas
+    RegistroPacientes registroPacientes = new RegistroPacientes();
+
     /**
      * Armazena uma consulta no histórico com valor do reembolso
      *
@@ -31,7 +37,8 @@ public class HistoricoConsultasFake implements HistoricoConsultas {
      * @param paciente Paciente da consulta
      * @param valorReembolso Valor do reembolso calculado
      */
-    public void salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso) {
+    @Override
+    public synchronized void salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso) {
         salvar(consulta, paciente);
         consultaReembolso.put(consulta, valorReembolso);
     }
@@ -43,20 +50,26 @@ public class HistoricoConsultasFake implements HistoricoConsultas {
      * @param paciente Paciente da consulta
      */
     @Override
-    public void salvar(Consulta consulta, Paciente paciente) {
+    public synchronized void salvar(Consulta consulta, Paciente paciente) {
         if (consulta == null || paciente == null) {
             throw new IllegalArgumentException("Consulta e paciente não podem ser nulos");
         }
 
         // Adiciona na lista geral
+        int posicao = todasConsultas.size();
         todasConsultas.add(consulta);
 
-        // Adiciona na lista do paciente específico
+        // Adiciona no índice do paciente específico
         String cpf = paciente.getCpf();
-        consultasPorPaciente.computeIfAbsent(cpf, k -> new ArrayList<>()).add(consulta);
+        long cpfCodificado = CodificadorCpf.codificar(cpf);
+        if (cpfCodificado == CodificadorCpf.INVALIDO) {
+            consultasForaDoFormato.computeIfAbsent(cpf, k -> new ArrayList<>()).add(consulta);
+        } else {
+            posicoesPorCpf.adicionar(cpfCodificado, posicao);
+        }
 
         // Mapeia consulta
-        consultaPaciente.put(consulta, paciente);
+        consultaPaciente.put(consulta, registroPacientes.resolver(paciente));
     }
 
     /**
@@ -65,7 +78,7 @@ public class HistoricoConsultasFake implements HistoricoConsultas {
      * @return Lista de histórico com paciente
      */
     @Override
-    public List<HistoricoResponse> buscarHistorico() {
+    public synchronized List<HistoricoResponse> buscarHistorico() {
         List<HistoricoResponse> historico = new ArrayList<>();
 
         for (Consulta consulta : todasConsultas) {
@@ -94,30 +107,43 @@ public class HistoricoConsultasFake implements HistoricoConsultas {
      * @return Lista de histórico do paciente
      */
     @Override
-    public List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
+    public synchronized List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
         if (cpf == null) {
             return new ArrayList<>();
         }
 
-        List<HistoricoResponse> historico = new ArrayList<>();
-        List<Consulta> consultasDoPaciente = consultasPorPaciente.getOrDefault(cpf, new ArrayList<>());
-
-        for (Consulta consulta : consultasDoPaciente) {
-            Paciente paciente = consultaPaciente.get(consulta);
-            BigDecimal valorReembolso = consultaReembolso.get(consulta);
-
-            if (paciente != null && valorReembolso != null) {
-                ReembolsoResponse reembolsoResponse = new ReembolsoResponse(
-                        consulta.getValor(),
-                        consulta.getPercentualCobertura(),
-                        valorReembolso,
-                        "sucesso"
-                );
-                HistoricoResponse item = new HistoricoResponse(reembolsoResponse, paciente);
-                historico.add(item);
+        long cpfCodificado = CodificadorCpf.codificar(cpf);
+        if (cpfCodificado == CodificadorCpf.INVALIDO) {
+            List<HistoricoResponse> historico = new ArrayList<>();
+            for (Consulta consulta : consultasForaDoFormato.getOrDefault(cpf, List.of())) {
+                adicionarResposta(historico, consulta);
             }
+            return historico;
+        }
+
+        List<HistoricoResponse> historico = new ArrayList<>(posicoesPorCpf.quantidade(cpfCodificado));
+        for (int posicao = posicoesPorCpf.primeira(cpfCodificado);
+             posicao != IndiceCpf.NENHUMA;
+             posicao = posicoesPorCpf.proxima(posicao)) {
+            adicionarResposta(historico, todasConsultas.get(posicao));
         }
 
         return historico;
     }
+
+    private void adicionarResposta(List<HistoricoResponse> historico, Consulta consulta) {
+        Paciente paciente = consultaPaciente.get(consulta);
+        BigDecimal valorReembolso = consultaReembolso.get(consulta);
+
+        if (paciente != null && valorReembolso != null) {
+            ReembolsoResponse reembolsoResponse = new ReembolsoResponse(
+                    consulta.getValor(),
+                    consulta.getPercentualCobertura(),
+                    valorReembolso,
+                    "sucesso"
+            );
+            HistoricoResponse item = new HistoricoResponse(reembolsoResponse, paciente);
+            historico.add(item);
+        }
+    }
 }
@@ -0,0 +1,569 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Histórico de consultas durável em arquivos mapeados em memória
+ *
+ * Cada consulta vira um registro binário de tamanho fixo (ver
+ * SegmentoHistorico) gravado em segmentos append-only. Em memória fica apenas
+ * o índice de posições por CPF, reconstruído na inicialização varrendo os
+ * segmentos em paralelo. Registros incompletos no final (gravação
+ * interrompida) são detectados pelo checksum e descartados.
+ *
+ * O fsync é feito em lotes: a cada "fsync-lote" gravações e, em segundo
+ * plano, a cada "fsync-intervalo-ms". Com fsync-lote=1 toda gravação é
+ * sincronizada antes de retornar.
+ *
+ * O registro tem espaço fixo para o nome (60 bytes em UTF-8): nomes maiores
+ * são gravados truncados num limite de caractere. O CPF identifica o
+ * paciente e não é truncado; no formato exigido pelo RegistroPacientes ele
+ * sempre cabe nos 16 bytes.
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.historico.armazenamento", havingValue = "mapeado")
+public class HistoricoConsultasMapeado implements HistoricoConsultasComReembolso {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoricoConsultasMapeado.class);
+
+    private static final Pattern NOME_SEGMENTO = Pattern.compile("historico-(\\d{6})\\.seg");
+
+    private final Path diretorio;
+    private final int registrosPorSegmento;
+    private final int fsyncLote;
+    private final long fsyncIntervaloMs;
+
+    private volatile SegmentoHistorico[] segmentos = new SegmentoHistorico[0];
+    private final ConcurrentHashMap<String, IndicePaciente> indicePorPaciente = new ConcurrentHashMap<>();
+
+    // Posições reservadas e posições publicadas em ordem para leitura
+    private final AtomicLong reservados = new AtomicLong();
+    private final AtomicLong publicados = new AtomicLong();
+
+    private final AtomicInteger pendentesFsync = new AtomicInteger();
+    private final Object lockFsync = new Object();
+    private long sincronizadosAte;
+
+    private long registrosRecuperados;
+    private long registrosDescartados;
+    private ScheduledExecutorService sincronizador;
+
+    @Autowired
+    public HistoricoConsultasMapeado(
+            @Value("${reembolso.historico.mapeado.diretorio:data/historico}") Path diretorio,
+            @Value("${reembolso.historico.mapeado.registros-por-segmento:262144}") int registrosPorSegmento,
+            @Value("${reembolso.historico.mapeado.fsync-lote:256}") int fsyncLote,
+            @Value("${reembolso.historico.mapeado.fsync-intervalo-ms:1000}") long fsyncIntervaloMs) {
+        if (registrosPorSegmento < 1 || (long) registrosPorSegmento * SegmentoHistorico.TAMANHO_REGISTRO > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Quantidade de registros por segmento inválida: " + registrosPorSegmento);
+        }
+
+        this.diretorio = diretorio;
+        this.registrosPorSegmento = registrosPorSegmento;
+        this.fsyncLote = fsyncLote;
+        this.fsyncIntervaloMs = fsyncIntervaloMs;
+    }
+
+    /**
+     * Abre os segmentos existentes, recupera o final e reconstrói o índice
+     */
+    @PostConstruct
+    public void abrir() throws IOException {
+        Files.createDirectories(diretorio);
+
+        int quantidade = 0;
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                Matcher nome = NOME_SEGMENTO.matcher(arquivo.getFileName().toString());
+                if (nome.matches()) {
+                    quantidade = Math.max(quantidade, Integer.parseInt(nome.group(1)) + 1);
+                }
+            }
+        }
+
+        SegmentoHistorico[] abertos = new SegmentoHistorico[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            abertos[i] = SegmentoHistorico.abrir(arquivoSegmento(i), registrosPorSegmento);
+        }
+        segmentos = abertos;
+
+        // Cada segmento é varrido de forma independente; o índice é montado em ordem
+        List<Varredura> varreduras = IntStream.range(0, quantidade).parallel()
+                .mapToObj(this::varrer)
+                .toList();
+
+        long fim = 0;
+        for (Varredura varredura : varreduras) {
+            registrosRecuperados += varredura.validos;
+            registrosDescartados += varredura.descartados;
+            if (varredura.ultimaPosicao >= 0) {
+                fim = varredura.ultimaPosicao + 1;
+            }
+            varredura.posicoesPorCpf.forEach((cpf, posicoes) -> {
+                IndicePaciente indice = indicePorPaciente.computeIfAbsent(cpf, chave -> new IndicePaciente());
+                for (int i = 0; i < posicoes.tamanho; i++) {
+                    indice.adicionar(posicoes.posicoes[i]);
+                }
+                indice.resumo.combinar(posicoes.resumo);
+            });
+        }
+
+        reservados.set(fim);
+        publicados.set(fim);
+        sincronizadosAte = fim;
+
+        if (registrosDescartados > 0) {
+            log.warn("Histórico recuperado com {} registros incompletos descartados", registrosDescartados);
+        }
+        log.info("Histórico mapeado aberto em {}: {} registros em {} segmentos", diretorio, registrosRecuperados, quantidade);
+
+        if (fsyncIntervaloMs > 0) {
+            sincronizador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "historico-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sincronizador.scheduleWithFixedDelay(this::sincronizar, fsyncIntervaloMs, fsyncIntervaloMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sincroniza os registros pendentes e fecha os segmentos
+     */
+    @PreDestroy
+    public void fechar() throws IOException {
+        if (sincronizador != null) {
+            sincronizador.shutdown();
+        }
+        sincronizar();
+
+        for (SegmentoHistorico segmento : segmentos) {
+            segmento.close();
+        }
+    }
+
+    /**
+     * Armazena uma consulta no histórico com valor do reembolso
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     * @param valorReembolso Valor do reembolso calculado
+     */
+    @Override
+    public void salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso) {
+        if (consulta == null || paciente == null) {
+            throw new IllegalArgumentException("Consulta e paciente não podem ser nulos");
+        }
+        if (paciente.getCpf() == null) {
+            throw new IllegalArgumentException("CPF do paciente não pode ser nulo");
+        }
+
+        byte[] cpf = paciente.getCpf().getBytes(StandardCharsets.US_ASCII);
+        byte[] nome = truncarNome(paciente.getNome());
+        if (cpf.length > SegmentoHistorico.MAXIMO_BYTES_CPF) {
+            throw new IllegalArgumentException("CPF do paciente excede o tamanho do registro");
+        }
+        if (!SegmentoHistorico.isRepresentavel(consulta.getValor())
+                || !SegmentoHistorico.isRepresentavel(consulta.getPercentualCobertura())
+                || !SegmentoHistorico.isRepresentavel(valorReembolso)) {
+            throw new IllegalArgumentException("Valores da consulta excedem a precisão do registro");
+        }
+
+        IndicePaciente indice = indiceDoPaciente(paciente.getCpf());
+
+        // O lock do paciente mantém o índice do CPF ordenado pela sequência global
+        synchronized (indice) {
+            long posicao = reservados.getAndIncrement();
+            boolean gravado = false;
+            try {
+                segmentoParaGravacao(posicao).gravar(posicaoNoSegmento(posicao), posicao + 1, System.currentTimeMillis(),
+                        consulta.getValor(), consulta.getPercentualCobertura(), valorReembolso, cpf, nome);
+                gravado = true;
+            } finally {
+                // Publica mesmo em caso de falha: a posição fica vazia e é ignorada nas leituras
+                publicar(posicao);
+            }
+            if (gravado) {
+                indice.adicionar(posicao);
+                if (valorReembolso != null) {
+                    indice.resumo.registrar(consulta.getValor(), valorReembolso);
+                }
+            }
+        }
+
+        if (fsyncLote > 0 && pendentesFsync.incrementAndGet() >= fsyncLote) {
+            sincronizar();
+        }
+    }
+
+    /**
+     * Armazena uma consulta no histórico (sem reembolso, não aparece nas buscas)
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     */
+    @Override
+    public void salvar(Consulta consulta, Paciente paciente) {
+        salvarComReembolso(consulta, paciente, null);
+    }
+
+    /**
+     * Busca histórico completo com dados do paciente
+     *
+     * @return Lista de histórico com paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistorico() {
+        List<HistoricoResponse> historico = new ArrayList<>();
+        percorrerHistorico(historico::add);
+        return historico;
+    }
+
+    /**
+     * Busca histórico de um paciente específico
+     *
+     * @param cpf CPF do paciente
+     * @return Lista de histórico do paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
+        IndicePaciente indice = cpf == null ? null : indicePorPaciente.get(cpf);
+        if (indice == null) {
+            return new ArrayList<>();
+        }
+
+        int tamanho = indice.tamanho;
+        long[] posicoes = indice.posicoes;
+        List<HistoricoResponse> historico = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            adicionarSeVisivel(posicoes[i], historico);
+        }
+        return historico;
+    }
+
+    /**
+     * Busca uma página do histórico completo a partir da sequência do cursor
+     *
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistorico(long apos, int limite) {
+        long fim = publicados.get();
+        List<HistoricoResponse> itens = new ArrayList<>(Math.min(limite, 64));
+
+        long posicao = Math.max(apos, 0);
+        for (; posicao < fim && itens.size() < limite; posicao++) {
+            adicionarSeVisivel(posicao, itens);
+        }
+
+        Long proximoCursor = itens.size() == limite && posicao < publicados.get() ? posicao : null;
+        return new PaginaHistoricoResponse(itens, proximoCursor);
+    }
+
+    /**
+     * Busca uma página do histórico de um paciente a partir da sequência do cursor
+     *
+     * @param cpf CPF do paciente
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico do paciente e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistoricoPorPaciente(String cpf, long apos, int limite) {
+        IndicePaciente indice = cpf == null ? null : indicePorPaciente.get(cpf);
+        if (indice == null) {
+            return new PaginaHistoricoResponse(List.of(), null);
+        }
+
+        int tamanho = indice.tamanho;
+        long[] posicoes = indice.posicoes;
+        List<HistoricoResponse> itens = new ArrayList<>(Math.min(limite, 64));
+
+        // Posições em ordem crescente: a sequência de cada uma é posição + 1
+        int i = Arrays.binarySearch(posicoes, 0, tamanho, Math.max(apos, 0));
+        i = i >= 0 ? i : -i - 1;
+        long ultimaPosicao = -1;
+        for (; i < tamanho && itens.size() < limite; i++) {
+            if (adicionarSeVisivel(posicoes[i], itens)) {
+                ultimaPosicao = posicoes[i];
+            }
+        }
+
+        Long proximoCursor = itens.size() == limite && i < indice.tamanho ? ultimaPosicao + 1 : null;
+        return new PaginaHistoricoResponse(itens, proximoCursor);
+    }
+
+    /**
+     * Resumo dos reembolsos de um paciente, mantido a cada gravação
+     *
+     * @param cpf CPF do paciente
+     * @return Quantidade, totais e consultas que atingiram o teto
+     */
+    @Override
+    public ResumoPacienteResponse buscarResumoPorPaciente(String cpf) {
+        IndicePaciente indice = cpf == null ? null : indicePorPaciente.get(cpf);
+        return indice == null ? ResumoPaciente.vazio(cpf) : indice.resumo.paraResponse(cpf);
+    }
+
+    /**
+     * Percorre o histórico completo lendo direto dos segmentos
+     *
+     * @param consumidor Recebe cada item do histórico
+     */
+    @Override
+    public void percorrerHistorico(Consumer<? super HistoricoResponse> consumidor) {
+        long fim = publicados.get();
+        for (long posicao = 0; posicao < fim; posicao++) {
+            SegmentoHistorico segmento = segmentoExistente(posicao);
+            int noSegmento = posicaoNoSegmento(posicao);
+            if (segmento != null && segmento.lerSequencia(noSegmento) == posicao + 1 && segmento.temReembolso(noSegmento)) {
+                consumidor.accept(segmento.ler(noSegmento).paraResponse());
+            }
+        }
+    }
+
+    /**
+     * Percorre os itens gravados a partir do instante (gravado em cada registro)
+     *
+     * @param instante Início, em epoch millis
+     * @param consumidor Recebe cada item gravado a partir do instante
+     */
+    @Override
+    public void percorrerHistoricoDesde(long instante, Consumer<? super HistoricoResponse> consumidor) {
+        long fim = publicados.get();
+        for (long posicao = 0; posicao < fim; posicao++) {
+            SegmentoHistorico segmento = segmentoExistente(posicao);
+            int noSegmento = posicaoNoSegmento(posicao);
+            if (segmento != null && segmento.lerSequencia(noSegmento) == posicao + 1 && segmento.temReembolso(noSegmento)
+                    && segmento.lerInstante(noSegmento) >= instante) {
+                consumidor.accept(segmento.ler(noSegmento).paraResponse());
+            }
+        }
+    }
+
+    /**
+     * Força a gravação em disco dos segmentos com registros ainda não sincronizados
+     */
+    public void sincronizar() {
+        synchronized (lockFsync) {
+            pendentesFsync.set(0);
+            long ate = publicados.get();
+            if (ate == sincronizadosAte) {
+                return;
+            }
+
+            // Só o intervalo gravado desde o último fsync, não o segmento inteiro
+            int primeiro = (int) (sincronizadosAte / registrosPorSegmento);
+            int ultimo = (int) ((ate - 1) / registrosPorSegmento);
+            SegmentoHistorico[] atuais = segmentos;
+            for (int i = primeiro; i <= ultimo && i < atuais.length; i++) {
+                long base = (long) i * registrosPorSegmento;
+                int inicio = (int) (Math.max(sincronizadosAte, base) - base);
+                int fim = (int) (Math.min(ate, base + registrosPorSegmento) - base);
+                atuais[i].forcar(inicio, fim - inicio);
+            }
+            sincronizadosAte = ate;
+        }
+    }
+
+    @Override
+    public long contarRegistros() {
+        return publicados.get();
+    }
+
+    @Override
+    public long contarPacientes() {
+        return indicePorPaciente.size();
+    }
+
+    public long getTotalRegistros() {
+        return publicados.get();
+    }
+
+    public long getRegistrosRecuperados() {
+        return registrosRecuperados;
+    }
+
+    public long getRegistrosDescartados() {
+        return registrosDescartados;
+    }
+
+    private boolean adicionarSeVisivel(long posicao, List<HistoricoResponse> destino) {
+        SegmentoHistorico segmento = segmentoExistente(posicao);
+        int noSegmento = posicaoNoSegmento(posicao);
+        if (segmento == null || segmento.lerSequencia(noSegmento) != posicao + 1 || !segmento.temReembolso(noSegmento)) {
+            return false;
+        }
+        destino.add(segmento.ler(noSegmento).paraResponse());
+        return true;
+    }
+
+    // Publicação em ordem: leitores enxergam tudo abaixo de "publicados"
+    // UTF-8 cortado no início de um caractere (bytes de continuação são 10xxxxxx)
+    static byte[] truncarNome(String nome) {
+        if (nome == null) {
+            return new byte[0];
+        }
+        byte[] bytes = nome.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= SegmentoHistorico.MAXIMO_BYTES_NOME) {
+            return bytes;
+        }
+        int tamanho = SegmentoHistorico.MAXIMO_BYTES_NOME;
+        while (tamanho > 0 && (bytes[tamanho] & 0xC0) == 0x80) {
+            tamanho--;
+        }
+        return Arrays.copyOf(bytes, tamanho);
+    }
+
+    private void publicar(long posicao) {
+        while (publicados.get() != posicao) {
+            Thread.onSpinWait();
+        }
+        publicados.set(posicao + 1);
+    }
+
+    private IndicePaciente indiceDoPaciente(String cpf) {
+        IndicePaciente indice = indicePorPaciente.get(cpf);
+        if (indice == null) {
+            indice = indicePorPaciente.computeIfAbsent(cpf, chave -> new IndicePaciente());
+        }
+        return indice;
+    }
+
+    private int posicaoNoSegmento(long posicao) {
+        return (int) (posicao % registrosPorSegmento);
+    }
+
+    private SegmentoHistorico segmentoExistente(long posicao) {
+        int indice = (int) (posicao / registrosPorSegmento);
+        SegmentoHistorico[] atuais = segmentos;
+        return indice < atuais.length ? atuais[indice] : null;
+    }
+
+    private SegmentoHistorico segmentoParaGravacao(long posicao) {
+        SegmentoHistorico segmento = segmentoExistente(posicao);
+        return segmento != null ? segmento : criarSegmentos((int) (posicao / registrosPorSegmento));
+    }
+
+    private synchronized SegmentoHistorico criarSegmentos(int indice) {
+        SegmentoHistorico[] atuais = segmentos;
+        if (indice < atuais.length) {
+            return atuais[indice];
+        }
+
+        SegmentoHistorico[] novos = Arrays.copyOf(atuais, indice + 1);
+        try {
+            for (int i = atuais.length; i <= indice; i++) {
+                novos[i] = SegmentoHistorico.abrir(arquivoSegmento(i), registrosPorSegmento);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar segmento do histórico", e);
+        }
+        segmentos = novos;
+        return novos[indice];
+    }
+
+    private Path arquivoSegmento(int indice) {
+        return diretorio.resolve(String.format("historico-%06d.seg", indice));
+    }
+
+    /**
+     * Varre um segmento validando cada registro; registros incompletos são zerados
+     */
+    private Varredura varrer(int indiceSegmento) {
+        SegmentoHistorico segmento = segmentos[indiceSegmento];
+        long base = (long) indiceSegmento * registrosPorSegmento;
+        Varredura varredura = new Varredura();
+
+        for (int posicao = 0; posicao < segmento.capacidade(); posicao++) {
+            if (segmento.isVazio(posicao)) {
+                continue;
+            }
+            if (!segmento.isValido(posicao, base + posicao + 1)) {
+                segmento.zerar(posicao);
+                varredura.descartados++;
+                continue;
+            }
+
+            varredura.validos++;
+            varredura.ultimaPosicao = base + posicao;
+            IndicePaciente doPaciente = varredura.posicoesPorCpf
+                    .computeIfAbsent(segmento.lerCpf(posicao), cpf -> new IndicePaciente());
+            doPaciente.adicionar(base + posicao);
+            if (segmento.temReembolso(posicao)) {
+                RegistroHistorico registro = segmento.ler(posicao);
+                doPaciente.resumo.registrar(registro.valor(), registro.valorReembolso());
+            }
+        }
+
+        if (varredura.descartados > 0) {
+            segmento.forcar();
+        }
+        return varredura;
+    }
+
+    private static final class Varredura {
+        private final Map<String, IndicePaciente> posicoesPorCpf = new HashMap<>();
+        private long ultimaPosicao = -1;
+        private long validos;
+        private long descartados;
+    }
+
+    /**
+     * Posições de um paciente em ordem crescente e o resumo dos seus
+     * reembolsos; gravado sob o lock do próprio índice e lido sem lock
+     * (tamanho é publicado por último)
+     */
+    private static final class IndicePaciente {
+        private final ResumoPaciente resumo = new ResumoPaciente();
+        private volatile long[] posicoes = new long[4];
+        private volatile int tamanho;
+
+        void adicionar(long posicao) {
+            long[] atuais = posicoes;
+            if (tamanho == atuais.length) {
+                atuais = Arrays.copyOf(atuais, atuais.length * 2);
+                posicoes = atuais;
+            }
+            atuais[tamanho] = posicao;
+            tamanho = tamanho + 1;
+        }
+    }
+}
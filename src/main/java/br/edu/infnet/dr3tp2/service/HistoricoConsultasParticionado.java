@@ -0,0 +1,666 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Histórico de consultas particionado por tempo, com camadas quente e selada
+ *
+ * Cada consulta vai para a partição do seu intervalo de tempo (balde de
+ * "duracao-particao", um dia por padrão). As partições recentes ficam em
+ * memória (ParticaoHistorico); as mais antigas que "particoes-quentes"
+ * baldes, ou as mais antigas enquanto a memória estimada passar de
+ * "memoria-maxima", são seladas em arquivos gzip imutáveis (ParticaoSelada)
+ * e só voltam à memória quando uma busca precisa delas, num cache pequeno.
+ * Partições que terminaram há mais que "retencao" são descartadas.
+ *
+ * As buscas percorrem as camadas em ordem de sequência (seladas e depois
+ * quentes), então o resultado é o mesmo das outras implementações. A busca
+ * por paciente só abre arquivos que contêm o CPF, e a paginação por cursor
+ * pula partições inteiras pelo intervalo de sequências.
+ *
+ * Gravações são serializadas por um lock e sempre vão para a partição ativa
+ * (a do balde atual); selar e descartar rodam na manutenção, em segundo
+ * plano, sem segurar esse lock durante o I/O. A camada quente não é
+ * persistida a cada gravação: no desligamento normal ela é selada.
+ *
+ * Não há registro global de pacientes: cada partição guarda os seus (a
+ * tabela de pacientes do arquivo selado), então o que a retenção descarta
+ * sai da memória. A quantidade de pacientes distintos é mantida a cada
+ * gravação e descarte (ContagemPacientes), sem percorrer as partições.
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.historico.armazenamento", havingValue = "particionado")
+public class HistoricoConsultasParticionado implements HistoricoConsultasComReembolso {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoricoConsultasParticionado.class);
+
+    private static final String PREFIXO_ARQUIVO = "particao-";
+    private static final String EXTENSAO_ARQUIVO = ".hist.gz";
+
+    private final Path diretorio;
+    private final long duracaoParticaoMs;
+    private final int particoesQuentes;
+    private final long memoriaMaxima;
+    private final long retencaoMs;
+    private final int particoesEmCache;
+    private final long intervaloManutencaoMs;
+
+    // Seladas e quentes em ordem de sequência, trocadas juntas a cada mudança
+    private volatile Camadas camadas = new Camadas(List.of(), List.of());
+
+    private final Object lockGravacao = new Object();
+    private ParticaoHistorico ativa;
+    private long ultimoBalde = Long.MIN_VALUE;
+    private long sequencia;
+
+    private final Object lockManutencao = new Object();
+    private final AtomicBoolean manutencaoAgendada = new AtomicBoolean();
+    private ScheduledExecutorService executorManutencao;
+
+    // Partições seladas lidas recentemente (LRU por acesso)
+    private final Map<ParticaoSelada, ParticaoHistorico> carregadas;
+    private final AtomicLong carregamentos = new AtomicLong();
+    private final AtomicLong falhasSelagem = new AtomicLong();
+
+    // Alterada sob lockGravacao
+    private final ContagemPacientes contagemPacientes = new ContagemPacientes();
+
+    Clock relogio = Clock.systemUTC();
+
+    @Autowired
+    public HistoricoConsultasParticionado(
+            @Value("${reembolso.historico.particionado.diretorio:data/historico-particionado}") Path diretorio,
+            @Value("${reembolso.historico.particionado.duracao-particao:1d}") Duration duracaoParticao,
+            @Value("${reembolso.historico.particionado.particoes-quentes:2}") int particoesQuentes,
+            @Value("${reembolso.historico.particionado.memoria-maxima:64MB}") DataSize memoriaMaxima,
+            @Value("${reembolso.historico.particionado.retencao:365d}") Duration retencao,
+            @Value("${reembolso.historico.particionado.particoes-em-cache:4}") int particoesEmCache,
+            @Value("${reembolso.historico.particionado.intervalo-manutencao:1m}") Duration intervaloManutencao) {
+        if (duracaoParticao.toMillis() <= 0 || retencao.toMillis() <= 0) {
+            throw new IllegalArgumentException("Duração da partição e retenção devem ser positivas");
+        }
+        if (particoesQuentes < 1 || memoriaMaxima.toBytes() <= 0 || particoesEmCache < 0) {
+            throw new IllegalArgumentException("Configuração da camada quente inválida");
+        }
+
+        this.diretorio = diretorio;
+        this.duracaoParticaoMs = duracaoParticao.toMillis();
+        this.particoesQuentes = particoesQuentes;
+        this.memoriaMaxima = memoriaMaxima.toBytes();
+        this.retencaoMs = retencao.toMillis();
+        this.particoesEmCache = particoesEmCache;
+        this.intervaloManutencaoMs = intervaloManutencao.toMillis();
+        this.carregadas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ParticaoSelada, ParticaoHistorico> maisAntiga) {
+                return size() > HistoricoConsultasParticionado.this.particoesEmCache;
+            }
+        };
+    }
+
+    /**
+     * Abre as partições seladas existentes (só os cabeçalhos) e aplica a retenção
+     */
+    @PostConstruct
+    public void abrir() throws IOException {
+        Files.createDirectories(diretorio);
+
+        List<ParticaoSelada> seladas = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                String nome = arquivo.getFileName().toString();
+                if (nome.startsWith(PREFIXO_ARQUIVO) && nome.endsWith(EXTENSAO_ARQUIVO + ".tmp")) {
+                    // Selagem interrompida: a partição ainda estava em memória
+                    Files.delete(arquivo);
+                } else if (nome.startsWith(PREFIXO_ARQUIVO) && nome.endsWith(EXTENSAO_ARQUIVO)) {
+                    try {
+                        seladas.add(ParticaoSelada.abrir(arquivo));
+                    } catch (IOException e) {
+                        log.warn("Partição do histórico ignorada, arquivo ilegível: {}", arquivo, e);
+                    }
+                }
+            }
+        }
+        seladas.sort(Comparator.comparingLong(ParticaoSelada::primeiraSequencia));
+
+        synchronized (lockGravacao) {
+            for (ParticaoSelada selada : seladas) {
+                sequencia = Math.max(sequencia, selada.ultimaSequencia());
+                ultimoBalde = Math.max(ultimoBalde, selada.balde());
+                selada.adicionarPacientes(contagemPacientes);
+            }
+            camadas = new Camadas(List.copyOf(seladas), List.of());
+        }
+        log.info("Histórico particionado aberto em {}: {} partições seladas, {} registros",
+                diretorio, seladas.size(), contarRegistros());
+        manutencao();
+
+        executorManutencao = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "historico-manutencao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervaloManutencaoMs > 0) {
+            executorManutencao.scheduleWithFixedDelay(this::executarManutencao,
+                    intervaloManutencaoMs, intervaloManutencaoMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Para a manutenção e sela as partições em memória
+     */
+    @PreDestroy
+    public void fechar() throws IOException {
+        if (executorManutencao != null) {
+            executorManutencao.shutdown();
+            try {
+                executorManutencao.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (lockManutencao) {
+            for (ParticaoHistorico quente : camadas.quentes()) {
+                try {
+                    selar(quente);
+                } catch (UncheckedIOException e) {
+                    // As demais partições ainda são seladas; esta se perde com o desligamento
+                    falhasSelagem.incrementAndGet();
+                    log.error("Partição {} não selada no desligamento", quente.balde(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Armazena uma consulta no histórico com valor do reembolso
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     * @param valorReembolso Valor do reembolso calculado
+     */
+    @Override
+    public void salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso) {
+        if (consulta == null || paciente == null) {
+            throw new IllegalArgumentException("Consulta e paciente não podem ser nulos");
+        }
+        if (paciente.getCpf() == null) {
+            throw new IllegalArgumentException("CPF do paciente não pode ser nulo");
+        }
+
+        String cpf = CodificadorCpf.canonico(paciente.getCpf());
+        Paciente informado = cpf.equals(paciente.getCpf()) ? paciente : new Paciente(paciente.getNome(), cpf);
+        long balde = baldeDe(relogio.millis());
+
+        synchronized (lockGravacao) {
+            // O relógio pode voltar um pouco; a consulta nunca vai para uma partição anterior
+            balde = Math.max(balde, ultimoBalde);
+            ParticaoHistorico particao = ativa;
+            if (particao == null || particao.balde() != balde) {
+                particao = new ParticaoHistorico(balde);
+                ativa = particao;
+                ultimoBalde = balde;
+                camadas = camadas.comQuente(particao);
+            }
+            boolean novoNaParticao = particao.adicionar(new RegistroHistorico(
+                    ++sequencia,
+                    consulta.getValor(),
+                    consulta.getPercentualCobertura(),
+                    valorReembolso,
+                    particao.paciente(informado)
+            ));
+            if (novoNaParticao) {
+                contagemPacientes.adicionar(cpf);
+            }
+        }
+
+        if (getBytesQuentes() > memoriaMaxima) {
+            agendarManutencao();
+        }
+    }
+
+    /**
+     * Armazena uma consulta no histórico (sem reembolso, não aparece nas buscas)
+     *
+     * @param consulta Consulta a ser armazenada
+     * @param paciente Paciente da consulta
+     */
+    @Override
+    public void salvar(Consulta consulta, Paciente paciente) {
+        salvarComReembolso(consulta, paciente, null);
+    }
+
+    /**
+     * Busca histórico completo com dados do paciente
+     *
+     * @return Lista de histórico com paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistorico() {
+        List<HistoricoResponse> historico = new ArrayList<>();
+        percorrerHistorico(historico::add);
+        return historico;
+    }
+
+    /**
+     * Busca histórico de um paciente em todas as camadas
+     *
+     * @param cpf CPF do paciente
+     * @return Lista de histórico do paciente
+     */
+    @Override
+    public List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
+        List<HistoricoResponse> historico = new ArrayList<>();
+        if (cpf == null) {
+            return historico;
+        }
+
+        coletar(camadas, CodificadorCpf.canonico(cpf), 0, Integer.MAX_VALUE, historico);
+        return historico;
+    }
+
+    /**
+     * Busca uma página do histórico completo a partir da sequência do cursor
+     *
+     * Partições inteiras antes do cursor são puladas sem serem lidas.
+     *
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistorico(long apos, int limite) {
+        Camadas atuais = camadas;
+        List<HistoricoResponse> itens = new ArrayList<>(Math.min(limite, 64));
+        long ultimaLida = coletar(atuais, null, apos, limite, itens);
+
+        boolean haMais = itens.size() == limite && coletar(atuais, null, ultimaLida, 1, new ArrayList<>(1)) > ultimaLida;
+        return new PaginaHistoricoResponse(itens, haMais ? ultimaLida : null);
+    }
+
+    /**
+     * Busca uma página do histórico de um paciente a partir da sequência do cursor
+     *
+     * @param cpf CPF do paciente
+     * @param apos Sequência do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico do paciente e cursor da próxima página
+     */
+    @Override
+    public PaginaHistoricoResponse buscarHistoricoPorPaciente(String cpf, long apos, int limite) {
+        if (cpf == null) {
+            return new PaginaHistoricoResponse(List.of(), null);
+        }
+
+        cpf = CodificadorCpf.canonico(cpf);
+        Camadas atuais = camadas;
+        List<HistoricoResponse> itens = new ArrayList<>(Math.min(limite, 64));
+        long ultimaLida = coletar(atuais, cpf, apos, limite, itens);
+
+        boolean haMais = itens.size() == limite && coletar(atuais, cpf, ultimaLida, 1, new ArrayList<>(1)) > ultimaLida;
+        return new PaginaHistoricoResponse(itens, haMais ? ultimaLida : null);
+    }
+
+    /**
+     * Percorre o histórico completo, partição por partição
+     *
+     * @param consumidor Recebe cada item do histórico
+     */
+    @Override
+    public void percorrerHistorico(Consumer<? super HistoricoResponse> consumidor) {
+        Camadas atuais = camadas;
+        for (ParticaoSelada selada : atuais.seladas()) {
+            percorrer(carregar(selada), consumidor);
+        }
+        for (ParticaoHistorico quente : atuais.quentes()) {
+            percorrer(quente, consumidor);
+        }
+    }
+
+    /**
+     * Percorre as partições cujo intervalo termina depois do instante
+     *
+     * Os registros não guardam o instante, só a partição: a que contém o
+     * instante é entregue inteira, com consultas um pouco anteriores a ele.
+     *
+     * @param instante Início, em epoch millis
+     * @param consumidor Recebe cada item das partições a partir do instante
+     */
+    @Override
+    public void percorrerHistoricoDesde(long instante, Consumer<? super HistoricoResponse> consumidor) {
+        long primeiroBalde = baldeDe(instante);
+        Camadas atuais = camadas;
+        for (ParticaoSelada selada : atuais.seladas()) {
+            if (selada.balde() >= primeiroBalde) {
+                percorrer(carregar(selada), consumidor);
+            }
+        }
+        for (ParticaoHistorico quente : atuais.quentes()) {
+            if (quente.balde() >= primeiroBalde) {
+                percorrer(quente, consumidor);
+            }
+        }
+    }
+
+    @Override
+    public long contarRegistros() {
+        Camadas atuais = camadas;
+        long total = 0;
+        for (ParticaoSelada selada : atuais.seladas()) {
+            total += selada.quantidade();
+        }
+        for (ParticaoHistorico quente : atuais.quentes()) {
+            total += quente.tamanho();
+        }
+        return total;
+    }
+
+    @Override
+    public long contarPacientes() {
+        return contagemPacientes.quantidade();
+    }
+
+    /**
+     * Descarta partições fora da retenção e sela as que saíram da camada quente
+     *
+     * Roda no intervalo configurado e sempre que a memória estimada passa do
+     * limite; pode ser chamada diretamente.
+     *
+     * Se a selagem falhar, a partição continua na camada quente (visível nas
+     * buscas) e é selada de novo na próxima manutenção; a retenção roda antes
+     * e não depende dela. As seguintes esperam, para que as seladas continuem
+     * todas antes das quentes na ordem de sequência.
+     */
+    public void manutencao() {
+        synchronized (lockManutencao) {
+            manutencaoAgendada.set(false);
+            long agora = relogio.millis();
+            descartarExpiradas(agora);
+
+            long primeiroBaldeQuente = baldeDe(agora) - particoesQuentes + 1;
+            while (true) {
+                Camadas atuais = camadas;
+                if (atuais.quentes().isEmpty()) {
+                    return;
+                }
+                ParticaoHistorico maisAntiga = atuais.quentes().get(0);
+                if (maisAntiga.balde() >= primeiroBaldeQuente && bytesQuentes(atuais) <= memoriaMaxima) {
+                    return;
+                }
+                try {
+                    selar(maisAntiga);
+                } catch (UncheckedIOException e) {
+                    falhasSelagem.incrementAndGet();
+                    log.error("Falha ao selar partição do histórico; nova tentativa na próxima manutenção", e);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Memória estimada da camada quente, em bytes
+     */
+    public long getBytesQuentes() {
+        return bytesQuentes(camadas);
+    }
+
+    public int getParticoesQuentes() {
+        return camadas.quentes().size();
+    }
+
+    public int getParticoesSeladas() {
+        return camadas.seladas().size();
+    }
+
+    /**
+     * Quantidade de vezes que uma partição selada foi lida do disco
+     */
+    public long getCarregamentos() {
+        return carregamentos.get();
+    }
+
+    /**
+     * Quantidade de selagens que falharam (partição mantida em memória)
+     */
+    public long getFalhasSelagem() {
+        return falhasSelagem.get();
+    }
+
+    private void executarManutencao() {
+        try {
+            manutencao();
+        } catch (RuntimeException e) {
+            log.error("Falha na manutenção do histórico particionado", e);
+        }
+    }
+
+    private void agendarManutencao() {
+        ScheduledExecutorService executor = executorManutencao;
+        if (executor != null && !executor.isShutdown() && manutencaoAgendada.compareAndSet(false, true)) {
+            executor.execute(this::executarManutencao);
+        }
+    }
+
+    // Chamado com lockManutencao: só a manutenção tira partições da camada quente
+    private void selar(ParticaoHistorico particao) {
+        synchronized (lockGravacao) {
+            // Gravações seguintes abrem outra partição (mesmo balde, se for o atual)
+            if (ativa == particao) {
+                ativa = null;
+            }
+        }
+
+        Path arquivo = diretorio.resolve(String.format("%s%d-%019d%s",
+                PREFIXO_ARQUIVO, particao.balde(), particao.primeiraSequencia(), EXTENSAO_ARQUIVO));
+        ParticaoSelada selada;
+        try {
+            selada = ParticaoSelada.gravar(arquivo, particao);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao selar partição do histórico: " + arquivo, e);
+        }
+
+        synchronized (lockGravacao) {
+            camadas = camadas.selar(particao, selada);
+        }
+        log.debug("Partição {} selada em {} ({} registros)", particao.balde(), arquivo, selada.quantidade());
+    }
+
+    private void descartarExpiradas(long agora) {
+        Camadas atuais = camadas;
+        List<ParticaoSelada> expiradas = atuais.seladas().stream().filter(selada -> expirada(selada.balde(), agora)).toList();
+        List<ParticaoHistorico> quentesExpiradas = atuais.quentes().stream()
+                .filter(quente -> expirada(quente.balde(), agora)).toList();
+        if (expiradas.isEmpty() && quentesExpiradas.isEmpty()) {
+            return;
+        }
+
+        synchronized (lockGravacao) {
+            if (quentesExpiradas.contains(ativa)) {
+                ativa = null;
+            }
+            camadas = camadas.sem(expiradas, quentesExpiradas);
+            for (ParticaoSelada selada : expiradas) {
+                selada.removerPacientes(contagemPacientes);
+            }
+            for (ParticaoHistorico quente : quentesExpiradas) {
+                quente.cpfs().forEach(contagemPacientes::remover);
+            }
+        }
+        synchronized (carregadas) {
+            expiradas.forEach(carregadas::remove);
+        }
+        for (ParticaoSelada selada : expiradas) {
+            try {
+                Files.deleteIfExists(selada.arquivo());
+            } catch (IOException e) {
+                log.warn("Não foi possível remover a partição expirada {}", selada.arquivo(), e);
+            }
+        }
+        log.info("Retenção do histórico: {} partições descartadas", expiradas.size() + quentesExpiradas.size());
+    }
+
+    private boolean expirada(long balde, long agora) {
+        return (balde + 1) * duracaoParticaoMs <= agora - retencaoMs;
+    }
+
+    private ParticaoHistorico carregar(ParticaoSelada selada) {
+        // Leituras de partições seladas são serializadas; a camada quente não passa por aqui
+        synchronized (carregadas) {
+            ParticaoHistorico carregada = carregadas.get(selada);
+            if (carregada != null) {
+                return carregada;
+            }
+            try {
+                carregada = selada.carregar();
+            } catch (NoSuchFileException e) {
+                // Descartada pela retenção depois que a busca começou
+                return new ParticaoHistorico(selada.balde(), 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ler partição do histórico: " + selada.arquivo(), e);
+            }
+            carregamentos.incrementAndGet();
+            if (particoesEmCache > 0) {
+                carregadas.put(selada, carregada);
+            }
+            return carregada;
+        }
+    }
+
+    private long baldeDe(long instante) {
+        return Math.floorDiv(instante, duracaoParticaoMs);
+    }
+
+    private static long bytesQuentes(Camadas atuais) {
+        long total = 0;
+        for (ParticaoHistorico quente : atuais.quentes()) {
+            total += quente.bytesEstimados();
+        }
+        return total;
+    }
+
+    /**
+     * Itens visíveis com sequência maior que "apos", de todos os pacientes (cpf
+     * null) ou de um só, até o limite. Partições seladas que terminam antes do
+     * cursor ou não têm o CPF não são lidas.
+     *
+     * @return Sequência do último item adicionado ("apos" se nenhum)
+     */
+    private long coletar(Camadas atuais, String cpf, long apos, int limite, List<HistoricoResponse> destino) {
+        long ultima = apos;
+        for (ParticaoSelada selada : atuais.seladas()) {
+            if (destino.size() < limite && selada.ultimaSequencia() > apos
+                    && (cpf == null || selada.contemPaciente(cpf))) {
+                ultima = adicionar(carregar(selada), cpf, ultima, limite, destino);
+            }
+        }
+        for (ParticaoHistorico quente : atuais.quentes()) {
+            if (destino.size() < limite) {
+                ultima = adicionar(quente, cpf, ultima, limite, destino);
+            }
+        }
+        return ultima;
+    }
+
+    private static void percorrer(ParticaoHistorico particao, Consumer<? super HistoricoResponse> consumidor) {
+        int tamanho = particao.tamanho();
+        for (int i = 0; i < tamanho; i++) {
+            RegistroHistorico registro = particao.registro(i);
+            if (registro.temReembolso()) {
+                consumidor.accept(registro.paraResponse());
+            }
+        }
+    }
+
+    private static long adicionar(ParticaoHistorico particao, String cpf, long apos, int limite,
+                                  List<HistoricoResponse> destino) {
+        long ultima = apos;
+        if (cpf == null) {
+            int tamanho = particao.tamanho();
+            for (int i = particao.posicaoApos(apos, tamanho); i < tamanho && destino.size() < limite; i++) {
+                ultima = adicionarSeVisivel(particao.registro(i), ultima, destino);
+            }
+            return ultima;
+        }
+
+        ParticaoHistorico.Posicoes posicoes = particao.posicoes(cpf);
+        int tamanho = posicoes == null ? 0 : posicoes.tamanho();
+        for (int i = 0; i < tamanho && destino.size() < limite; i++) {
+            RegistroHistorico registro = particao.registro(posicoes.posicao(i));
+            if (registro.sequencia() > apos) {
+                ultima = adicionarSeVisivel(registro, ultima, destino);
+            }
+        }
+        return ultima;
+    }
+
+    private static long adicionarSeVisivel(RegistroHistorico registro, long ultima, List<HistoricoResponse> destino) {
+        if (!registro.temReembolso()) {
+            return ultima;
+        }
+        destino.add(registro.paraResponse());
+        return registro.sequencia();
+    }
+
+    /**
+     * Retrato das camadas: seladas (mais antigas) e quentes, em ordem de sequência
+     */
+    private record Camadas(List<ParticaoSelada> seladas, List<ParticaoHistorico> quentes) {
+
+        Camadas comQuente(ParticaoHistorico nova) {
+            List<ParticaoHistorico> novas = new ArrayList<>(quentes);
+            novas.add(nova);
+            return new Camadas(seladas, List.copyOf(novas));
+        }
+
+        Camadas selar(ParticaoHistorico quente, ParticaoSelada selada) {
+            List<ParticaoSelada> novasSeladas = new ArrayList<>(seladas);
+            novasSeladas.add(selada);
+            List<ParticaoHistorico> novasQuentes = new ArrayList<>(quentes);
+            novasQuentes.remove(quente);
+            return new Camadas(List.copyOf(novasSeladas), List.copyOf(novasQuentes));
+        }
+
+        Camadas sem(List<ParticaoSelada> seladasRemovidas, List<ParticaoHistorico> quentesRemovidas) {
+            List<ParticaoSelada> novasSeladas = new ArrayList<>(seladas);
+            novasSeladas.removeAll(seladasRemovidas);
+            List<ParticaoHistorico> novasQuentes = new ArrayList<>(quentes);
+            novasQuentes.removeAll(quentesRemovidas);
+            return new Camadas(List.copyOf(novasSeladas), List.copyOf(novasQuentes));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.util.function.LongFunction;
+
+/**
+ * Adaptador não bloqueante do HistoricoConsultas para a pilha reativa
+ *
+ * O histórico completo é emitido página a página, sob demanda do assinante:
+ * uma nova página só é lida quando a anterior foi consumida. Implementações
+ * que podem bloquear (arquivos mapeados, por exemplo) rodam no scheduler
+ * boundedElastic, fora do event loop.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class HistoricoConsultasReativo {
+
+    private final HistoricoConsultas historicoConsultas;
+    private final Scheduler scheduler;
+    private final int tamanhoPagina;
+
+    @Autowired
+    public HistoricoConsultasReativo(
+            HistoricoConsultas historicoConsultas,
+            @Value("${reembolso.reativo.tamanho-pagina:256}") int tamanhoPagina) {
+        this.historicoConsultas = historicoConsultas;
+        this.scheduler = historicoConsultas.isBloqueante() ? Schedulers.boundedElastic() : Schedulers.immediate();
+        this.tamanhoPagina = tamanhoPagina;
+    }
+
+    /**
+     * Armazena a consulta com o valor do reembolso
+     */
+    public Mono<Void> salvarComReembolso(Consulta consulta, Paciente paciente, BigDecimal valorReembolso) {
+        return Mono.<Void>fromRunnable(() -> {
+            if (historicoConsultas instanceof HistoricoConsultasComReembolso historico) {
+                historico.salvarComReembolso(consulta, paciente, valorReembolso);
+            } else {
+                historicoConsultas.salvar(consulta, paciente);
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * Histórico completo emitido em páginas lidas sob demanda
+     */
+    public Flux<HistoricoResponse> buscarHistorico() {
+        return paginas(apos -> historicoConsultas.buscarHistorico(apos, tamanhoPagina));
+    }
+
+    /**
+     * Histórico de um paciente emitido em páginas lidas sob demanda
+     */
+    public Flux<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
+        return paginas(apos -> historicoConsultas.buscarHistoricoPorPaciente(cpf, apos, tamanhoPagina));
+    }
+
+    public Mono<ResumoPacienteResponse> buscarResumoPorPaciente(String cpf) {
+        return Mono.fromSupplier(() -> historicoConsultas.buscarResumoPorPaciente(cpf)).subscribeOn(scheduler);
+    }
+
+    private Flux<HistoricoResponse> paginas(LongFunction<PaginaHistoricoResponse> leitura) {
+        return Mono.fromSupplier(() -> leitura.apply(0))
+                .expand(pagina -> pagina.proximoCursor() == null
+                        ? Mono.empty()
+                        : Mono.fromSupplier(() -> leitura.apply(pagina.proximoCursor())))
+                .subscribeOn(scheduler)
+                .concatMapIterable(PaginaHistoricoResponse::itens);
+    }
+}
@@ -0,0 +1,15 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exceção lançada quando uma chave de idempotência já usada chega com outra requisição
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotenciaConflitanteException extends RuntimeException {
+
+    public IdempotenciaConflitanteException(String mensagem) {
+        super(mensagem);
+    }
+}
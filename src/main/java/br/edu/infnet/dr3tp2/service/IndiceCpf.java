@@ -0,0 +1,155 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.util.Arrays;
+
+/**
+ * Índice de posições do histórico por CPF codificado (CodificadorCpf)
+ *
+ * Tabela de endereçamento aberto (sondagem linear) com chaves long em um
+ * long[] e, por chave, a primeira e a última posição e a quantidade em int[].
+ * As posições de um mesmo CPF formam uma lista encadeada em um único int[]
+ * indexado pela própria posição, então o custo é de 4 bytes por consulta
+ * mais cerca de 40 bytes por CPF (carga máxima de 50%), sem objetos por
+ * paciente nem boxing.
+ *
+ * Buscar e percorrer não alocam. Sem suporte a acesso concorrente, como o
+ * HistoricoConsultasFake que o usa; as posições devem ser adicionadas em
+ * ordem crescente e sem repetição.
+ */
+public class IndiceCpf {
+
+    // Fim da lista de posições de um CPF (e resultado de CPF ausente)
+    public static final int NENHUMA = -1;
+
+    private static final long VAZIO = -1L;
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private long[] chaves;
+    private int[] primeira;
+    private int[] ultima;
+    private int[] quantidade;
+    private int cpfs;
+
+    private int[] proxima = new int[CAPACIDADE_INICIAL];
+
+    public IndiceCpf() {
+        alocar(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * Acrescenta uma posição ao final da lista do CPF
+     *
+     * @param cpf CPF codificado (0 a CodificadorCpf.MAXIMO)
+     * @param posicao Posição no histórico, maior que todas as já adicionadas
+     */
+    public void adicionar(long cpf, int posicao) {
+        if (cpf < 0 || cpf > CodificadorCpf.MAXIMO) {
+            throw new IllegalArgumentException("CPF codificado fora da faixa: " + cpf);
+        }
+        if (posicao >= proxima.length) {
+            proxima = Arrays.copyOf(proxima, Math.max(proxima.length * 2, posicao + 1));
+        }
+        proxima[posicao] = NENHUMA;
+
+        int slot = slot(cpf);
+        if (chaves[slot] == cpf) {
+            proxima[ultima[slot]] = posicao;
+            ultima[slot] = posicao;
+            quantidade[slot]++;
+            return;
+        }
+
+        chaves[slot] = cpf;
+        primeira[slot] = posicao;
+        ultima[slot] = posicao;
+        quantidade[slot] = 1;
+        if (++cpfs * 2 > chaves.length) {
+            redimensionar();
+        }
+    }
+
+    /**
+     * Primeira posição do CPF, para percorrer com proxima
+     *
+     * @return Posição ou NENHUMA se o CPF não tiver consultas
+     */
+    public int primeira(long cpf) {
+        if (cpf < 0) {
+            return NENHUMA;
+        }
+        int slot = slot(cpf);
+        return chaves[slot] == cpf ? primeira[slot] : NENHUMA;
+    }
+
+    /**
+     * Posição seguinte do mesmo CPF
+     *
+     * @return Posição ou NENHUMA no fim da lista
+     */
+    public int proxima(int posicao) {
+        return proxima[posicao];
+    }
+
+    public int quantidade(long cpf) {
+        if (cpf < 0) {
+            return 0;
+        }
+        int slot = slot(cpf);
+        return chaves[slot] == cpf ? quantidade[slot] : 0;
+    }
+
+    /**
+     * Quantidade de CPFs distintos no índice
+     */
+    public int getCpfs() {
+        return cpfs;
+    }
+
+    // Slot da chave ou o primeiro slot vazio da sondagem
+    private int slot(long cpf) {
+        int mascara = chaves.length - 1;
+        int slot = espalhar(cpf) & mascara;
+        while (chaves[slot] != VAZIO && chaves[slot] != cpf) {
+            slot = (slot + 1) & mascara;
+        }
+        return slot;
+    }
+
+    private void redimensionar() {
+        long[] chavesAntigas = chaves;
+        int[] primeiraAntiga = primeira;
+        int[] ultimaAntiga = ultima;
+        int[] quantidadeAntiga = quantidade;
+
+        alocar(chavesAntigas.length * 2);
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (chavesAntigas[i] != VAZIO) {
+                int slot = slot(chavesAntigas[i]);
+                chaves[slot] = chavesAntigas[i];
+                primeira[slot] = primeiraAntiga[i];
+                ultima[slot] = ultimaAntiga[i];
+                quantidade[slot] = quantidadeAntiga[i];
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new long[capacidade];
+        Arrays.fill(chaves, VAZIO);
+        primeira = new int[capacidade];
+        ultima = new int[capacidade];
+        quantidade = new int[capacidade];
+    }
+
+    // CPFs vizinhos diferem nos dígitos baixos; o finalizador do MurmurHash3
+    // espalha essa diferença por todos os bits antes da máscara
+    static int espalhar(long cpf) {
+        long h = cpf;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,125 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Mapa de CPF codificado (CodificadorCpf) para os dados de um paciente, com
+ * leitura sem lock
+ *
+ * Mesma tabela de endereçamento aberto do IndiceCpf: chaves long num long[]
+ * e os valores num array paralelo, sem String nem boxing na busca. Buscar
+ * não bloqueia nem aloca: a chave é gravada com semântica release depois do
+ * valor, então quem enxerga a chave enxerga o valor. Inserções são
+ * serializadas pelo lock da própria tabela (só na primeira consulta de cada
+ * CPF); ao dobrar, a tabela nova é montada inteira e publicada num campo
+ * volátil. Entradas nunca são removidas.
+ */
+final class IndiceCpfConcorrente<V> {
+
+    private static final VarHandle CHAVE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long VAZIO = -1L;
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private volatile Tabela tabela = new Tabela(CAPACIDADE_INICIAL);
+    private volatile int quantidade;
+
+    /**
+     * Valor do CPF codificado
+     *
+     * @return Valor ou null se o CPF não estiver na tabela
+     */
+    V buscar(long cpf) {
+        if (cpf < 0) {
+            return null;
+        }
+        Tabela lida = tabela;
+        int mascara = lida.chaves.length - 1;
+        int slot = IndiceCpf.espalhar(cpf) & mascara;
+        long chave;
+        while ((chave = (long) CHAVE.getAcquire(lida.chaves, slot)) != VAZIO) {
+            if (chave == cpf) {
+                return valor(lida, slot);
+            }
+            slot = (slot + 1) & mascara;
+        }
+        return null;
+    }
+
+    /**
+     * Valor do CPF codificado, criado na primeira vez
+     *
+     * @param cpf CPF codificado (0 a CodificadorCpf.MAXIMO)
+     * @param criar Cria o valor de um CPF ainda ausente
+     * @return Valor já existente ou o recém-criado
+     */
+    synchronized V buscarOuCriar(long cpf, Supplier<? extends V> criar) {
+        if (cpf < 0 || cpf > CodificadorCpf.MAXIMO) {
+            throw new IllegalArgumentException("CPF codificado fora da faixa: " + cpf);
+        }
+        Tabela atual = tabela;
+        int slot = atual.slot(cpf);
+        if (atual.chaves[slot] == cpf) {
+            return valor(atual, slot);
+        }
+
+        V valor = criar.get();
+        atual.valores[slot] = valor;
+        CHAVE.setRelease(atual.chaves, slot, cpf);
+        int novaQuantidade = quantidade + 1;
+        if (novaQuantidade * 2 > atual.chaves.length) {
+            tabela = atual.dobrar();
+        }
+        quantidade = novaQuantidade;
+        return valor;
+    }
+
+    /**
+     * Quantidade de CPFs na tabela
+     */
+    int quantidade() {
+        return quantidade;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valor(Tabela lida, int slot) {
+        return (V) lida.valores[slot];
+    }
+
+    private static final class Tabela {
+
+        final long[] chaves;
+        final Object[] valores;
+
+        Tabela(int capacidade) {
+            chaves = new long[capacidade];
+            Arrays.fill(chaves, VAZIO);
+            valores = new Object[capacidade];
+        }
+
+        // Slot da chave ou o primeiro slot vazio da sondagem (com o lock)
+        int slot(long cpf) {
+            int mascara = chaves.length - 1;
+            int slot = IndiceCpf.espalhar(cpf) & mascara;
+            while (chaves[slot] != VAZIO && chaves[slot] != cpf) {
+                slot = (slot + 1) & mascara;
+            }
+            return slot;
+        }
+
+        // Quem ainda lê a tabela antiga continua vendo tudo que já estava nela
+        Tabela dobrar() {
+            Tabela maior = new Tabela(chaves.length * 2);
+            for (int i = 0; i < chaves.length; i++) {
+                if (chaves[i] != VAZIO) {
+                    int slot = maior.slot(chaves[i]);
+                    maior.chaves[slot] = chaves[i];
+                    maior.valores[slot] = valores[i];
+                }
+            }
+            return maior;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Contador de janela deslizante por CPF, sem locks e com memória limitada
+ *
+ * Cada CPF tem um anel de SUBJANELAS contadores; cada posição guarda, em um
+ * único long, a subjanela a que pertence e a quantidade de registros nela.
+ * Registrar é um CAS na posição atual seguido da soma do anel (custo fixo,
+ * independente do histórico). Um registro conta por no mínimo a janela
+ * inteira e no máximo uma subjanela a mais; requisições simultâneas do mesmo
+ * CPF podem ser negadas juntas, mas nunca passam do máximo.
+ *
+ * Os CPFs ficam em faixas (stripes) de tabelas de endereçamento aberto com
+ * capacidade fixa. Entradas sem registros dentro da janela estão expiradas e
+ * são reaproveitadas por outros CPFs. Com a faixa cheia de CPFs ativos o
+ * registro é aceito sem contagem (getSaturacoes) em vez de crescer a memória.
+ */
+final class JanelaFrequencia {
+
+    static final int SUBJANELAS = 16;
+
+    private static final int MASCARA_ANEL = SUBJANELAS - 1;
+    private static final int BITS_CONTAGEM = 20;
+    private static final long MASCARA_CONTAGEM = (1L << BITS_CONTAGEM) - 1;
+    private static final int BITS_FAIXAS = 4;
+    private static final int MAXIMO_SONDAGENS = 32;
+
+    private final int maximo;
+    private final long duracaoSubjanelaMs;
+    private final AtomicReferenceArray<Contador>[] faixas;
+    private final int mascaraFaixa;
+    private final AtomicLong saturacoes = new AtomicLong();
+
+    LongSupplier relogio = System::currentTimeMillis;
+
+    /**
+     * @param maximo Registros permitidos por CPF dentro da janela
+     * @param janelaMs Duração da janela em milissegundos
+     * @param capacidade Quantidade máxima de CPFs acompanhados ao mesmo tempo
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    JanelaFrequencia(int maximo, long janelaMs, int capacidade) {
+        if (maximo < 1 || maximo > MASCARA_CONTAGEM) {
+            throw new IllegalArgumentException("Máximo de consultas por janela inválido: " + maximo);
+        }
+        if (janelaMs < SUBJANELAS) {
+            throw new IllegalArgumentException("Janela de frequência muito curta: " + janelaMs + " ms");
+        }
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade da janela de frequência inválida: " + capacidade);
+        }
+
+        this.maximo = maximo;
+        // Subjanelas - 1 posições cobrem a janela inteira; a posição restante é a atual
+        this.duracaoSubjanelaMs = (janelaMs + SUBJANELAS - 2) / (SUBJANELAS - 1);
+
+        int quantidadeFaixas = 1 << BITS_FAIXAS;
+        int porFaixa = Integer.highestOneBit(Math.max(capacidade / quantidadeFaixas, 1) * 2 - 1);
+        this.faixas = new AtomicReferenceArray[quantidadeFaixas];
+        for (int i = 0; i < quantidadeFaixas; i++) {
+            faixas[i] = new AtomicReferenceArray<>(porFaixa);
+        }
+        this.mascaraFaixa = porFaixa - 1;
+    }
+
+    /**
+     * Registra um evento para o CPF se ainda couber na janela
+     *
+     * @param cpf CPF do paciente
+     * @param hash Hash do CPF (MotorRegrasAutorizacao.hashCpf), calculado uma vez pelo chamador
+     * @return false se o CPF já atingiu o máximo da janela
+     */
+    boolean registrar(String cpf, int hash) {
+        long subjanela = relogio.getAsLong() / duracaoSubjanelaMs;
+        Contador contador = contadorDe(cpf, hash, subjanela);
+        if (contador == null) {
+            saturacoes.incrementAndGet();
+            return true;
+        }
+
+        int posicao = (int) (subjanela & MASCARA_ANEL);
+        incrementar(contador.aneis, posicao, subjanela);
+        contador.ultimaSubjanela = subjanela;
+
+        // Soma depois de incrementar: sob corrida os dois podem ser negados, nunca os dois aceitos
+        if (somar(contador.aneis, subjanela) > maximo) {
+            decrementar(contador.aneis, posicao, subjanela);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Devolve um registro do CPF (a consulta não chegou a ser paga)
+     *
+     * Desconta da subjanela mais recente que ainda tem registros: para o
+     * limite o efeito é o mesmo de descontar o registro exato.
+     *
+     * @param cpf CPF do paciente
+     * @param hash Hash do CPF (MotorRegrasAutorizacao.hashCpf)
+     */
+    void liberar(String cpf, int hash) {
+        long subjanela = relogio.getAsLong() / duracaoSubjanelaMs;
+        Contador contador = buscar(cpf, hash);
+        if (contador == null) {
+            return;
+        }
+        for (int anterior = 0; anterior < SUBJANELAS; anterior++) {
+            long alvo = subjanela - anterior;
+            if (decrementarExata(contador.aneis, (int) (alvo & MASCARA_ANEL), alvo)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Quantidade de registros do CPF ainda dentro da janela
+     */
+    int contar(String cpf, int hash) {
+        long subjanela = relogio.getAsLong() / duracaoSubjanelaMs;
+        Contador contador = buscar(cpf, hash);
+        return contador == null ? 0 : (int) somar(contador.aneis, subjanela);
+    }
+
+    /**
+     * Registros aceitos sem contagem porque a faixa estava cheia de CPFs ativos
+     */
+    long getSaturacoes() {
+        return saturacoes.get();
+    }
+
+    // Contador do CPF sem ocupar posição
+    private Contador buscar(String cpf, int hash) {
+        AtomicReferenceArray<Contador> faixa = faixas[faixa(hash)];
+        int indice = hash & mascaraFaixa;
+        for (int sondagem = 0; sondagem < MAXIMO_SONDAGENS && sondagem <= mascaraFaixa; sondagem++) {
+            Contador contador = faixa.get(indice);
+            if (contador == null) {
+                return null;
+            }
+            if (contador.cpf.equals(cpf)) {
+                return contador;
+            }
+            indice = (indice + 1) & mascaraFaixa;
+        }
+        return null;
+    }
+
+    private Contador contadorDe(String cpf, int hash, long subjanela) {
+        AtomicReferenceArray<Contador> faixa = faixas[faixa(hash)];
+
+        while (true) {
+            int indice = hash & mascaraFaixa;
+            int livre = -1;
+            Contador esperado = null;
+
+            // Procura o CPF em toda a sondagem antes de ocupar uma posição livre ou expirada
+            for (int sondagem = 0; sondagem < MAXIMO_SONDAGENS && sondagem <= mascaraFaixa; sondagem++) {
+                Contador atual = faixa.get(indice);
+                if (atual == null) {
+                    if (livre < 0) {
+                        livre = indice;
+                    }
+                    break;
+                }
+                if (atual.cpf.equals(cpf)) {
+                    return atual;
+                }
+                if (livre < 0 && subjanela - atual.ultimaSubjanela >= SUBJANELAS) {
+                    livre = indice;
+                    esperado = atual;
+                }
+                indice = (indice + 1) & mascaraFaixa;
+            }
+
+            if (livre < 0) {
+                return null;
+            }
+            Contador novo = new Contador(cpf, subjanela);
+            if (faixa.compareAndSet(livre, esperado, novo)) {
+                return novo;
+            }
+            // Outra thread ocupou a posição: procura de novo (pode ter sido o mesmo CPF)
+        }
+    }
+
+    private int faixa(int hash) {
+        return (hash >>> (32 - BITS_FAIXAS));
+    }
+
+    private static void incrementar(AtomicLongArray anel, int posicao, long subjanela) {
+        while (true) {
+            long atual = anel.get(posicao);
+            long novo = (atual >>> BITS_CONTAGEM) >= subjanela
+                    ? atual + 1
+                    : (subjanela << BITS_CONTAGEM) | 1;
+            if (anel.compareAndSet(posicao, atual, novo)) {
+                return;
+            }
+        }
+    }
+
+    private static void decrementar(AtomicLongArray anel, int posicao, long subjanela) {
+        while (true) {
+            long atual = anel.get(posicao);
+            if ((atual >>> BITS_CONTAGEM) < subjanela || (atual & MASCARA_CONTAGEM) == 0) {
+                return;
+            }
+            if (anel.compareAndSet(posicao, atual, atual - 1)) {
+                return;
+            }
+        }
+    }
+
+    // Desconta só se a posição ainda for da subjanela e tiver registros
+    private static boolean decrementarExata(AtomicLongArray anel, int posicao, long subjanela) {
+        while (true) {
+            long atual = anel.get(posicao);
+            if ((atual >>> BITS_CONTAGEM) != subjanela || (atual & MASCARA_CONTAGEM) == 0) {
+                return false;
+            }
+            if (anel.compareAndSet(posicao, atual, atual - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static long somar(AtomicLongArray anel, long subjanela) {
+        long total = 0;
+        for (int i = 0; i < SUBJANELAS; i++) {
+            long valor = anel.get(i);
+            if (subjanela - (valor >>> BITS_CONTAGEM) < SUBJANELAS) {
+                total += valor & MASCARA_CONTAGEM;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Anel de contadores de um CPF
+     */
+    private static final class Contador {
+
+        final String cpf;
+        final AtomicLongArray aneis = new AtomicLongArray(SUBJANELAS);
+        volatile long ultimaSubjanela;
+
+        Contador(String cpf, long subjanela) {
+            this.cpf = cpf;
+            this.ultimaSubjanela = subjanela;
+        }
+    }
+}
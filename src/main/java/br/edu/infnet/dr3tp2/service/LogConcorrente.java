@@ -0,0 +1,110 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Log append-only seguro para múltiplas threads, sem locks
+ *
+ * As posições são reservadas com um contador atômico e gravadas em blocos
+ * que dobram de tamanho, criados sob demanda. A leitura nunca bloqueia: uma
+ * posição reservada mas ainda não gravada aparece como null, e quem percorre
+ * o log para no primeiro null, enxergando sempre um prefixo consistente.
+ *
+ * @param <T> Tipo dos itens do log
+ */
+final class LogConcorrente<T> {
+
+    // Blocos de até 2^30 posições (limite de um array)
+    private static final int BITS_MAXIMO_BLOCO = 30;
+
+    private final int bitsPrimeiroBloco;
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> blocos;
+    private final AtomicLong reservados = new AtomicLong();
+
+    /**
+     * @param bitsPrimeiroBloco Tamanho do primeiro bloco em potência de 2
+     */
+    LogConcorrente(int bitsPrimeiroBloco) {
+        this.bitsPrimeiroBloco = bitsPrimeiroBloco;
+        this.blocos = new AtomicReferenceArray<>(BITS_MAXIMO_BLOCO - bitsPrimeiroBloco + 1);
+    }
+
+    /**
+     * Reserva e grava o item na próxima posição do log
+     *
+     * @param item Item a ser adicionado
+     * @return Posição do item
+     */
+    long adicionar(T item) {
+        long posicao = reservar();
+        gravar(posicao, item);
+        return posicao;
+    }
+
+    /**
+     * Reserva a próxima posição do log, que deve ser gravada em seguida
+     *
+     * @return Posição reservada
+     */
+    long reservar() {
+        return reservados.getAndIncrement();
+    }
+
+    /**
+     * Grava o item em uma posição previamente reservada
+     *
+     * @param posicao Posição reservada
+     * @param item Item a ser gravado
+     */
+    void gravar(long posicao, T item) {
+        long endereco = posicao + (1L << bitsPrimeiroBloco);
+        int bitMaisAlto = 63 - Long.numberOfLeadingZeros(endereco);
+        int bloco = bitMaisAlto - bitsPrimeiroBloco;
+
+        if (bloco >= blocos.length()) {
+            throw new IllegalStateException("Capacidade do histórico esgotada");
+        }
+
+        blocoOuNovo(bloco, 1 << bitMaisAlto).set((int) (endereco - (1L << bitMaisAlto)), item);
+    }
+
+    /**
+     * Obtém o item de uma posição
+     *
+     * @param posicao Posição do item
+     * @return Item ou null se a posição ainda não foi gravada
+     */
+    T obter(long posicao) {
+        long endereco = posicao + (1L << bitsPrimeiroBloco);
+        int bitMaisAlto = 63 - Long.numberOfLeadingZeros(endereco);
+        int bloco = bitMaisAlto - bitsPrimeiroBloco;
+
+        if (posicao < 0 || bloco >= blocos.length()) {
+            return null;
+        }
+
+        AtomicReferenceArray<T> itens = blocos.get(bloco);
+        return itens == null ? null : itens.get((int) (endereco - (1L << bitMaisAlto)));
+    }
+
+    /**
+     * Quantidade de posições reservadas (gravadas ou não)
+     *
+     * @return Posições reservadas
+     */
+    long reservados() {
+        return reservados.get();
+    }
+
+    private AtomicReferenceArray<T> blocoOuNovo(int bloco, int tamanho) {
+        AtomicReferenceArray<T> atual = blocos.get(bloco);
+        if (atual != null) {
+            return atual;
+        }
+
+        AtomicReferenceArray<T> novo = new AtomicReferenceArray<>(tamanho);
+        atual = blocos.compareAndExchange(bloco, null, novo);
+        return atual != null ? atual : novo;
+    }
+}
@@ -0,0 +1,129 @@
+package br.edu.infnet.dr3tp2.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do fluxo de reembolso (Micrometer)
+ *
+ * Todos os medidores são registrados no construtor e guardados em arrays
+ * indexados pelo ordinal da etapa ou do motivo: no caminho quente gravar uma
+ * medição é só System.nanoTime() e um record/increment, sem tags, lookup no
+ * registro ou objetos Timer.Sample.
+ *
+ * Tempo por endpoint vem do http.server.requests do próprio Spring Boot.
+ */
+@Component
+public class MetricasReembolso {
+
+    // Declarados antes de DESATIVADA, que já os usa na inicialização
+    private static final Etapa[] ETAPAS = Etapa.values();
+    private static final MotivoNegacao[] MOTIVOS = MotivoNegacao.values();
+
+    /**
+     * Instância sem registro (nada é exportado), usada quando o serviço é
+     * criado fora do contexto Spring
+     */
+    public static final MetricasReembolso DESATIVADA = new MetricasReembolso(new CompositeMeterRegistry());
+
+    /**
+     * Etapas cronometradas de um cálculo de reembolso
+     */
+    public enum Etapa {
+        AUTORIZAR("autorizar"),
+        AUDITAR("auditar"),
+        CALCULAR("calcular"),
+        PERSISTIR("persistir");
+
+        private final String tag;
+
+        Etapa(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registro;
+    private final Timer[] tempoPorEtapa = new Timer[ETAPAS.length];
+    private final Counter[] negacoesPorMotivo = new Counter[MOTIVOS.length];
+    private final Counter errosValidacao;
+    private final Counter tetoAtingido;
+
+    public MetricasReembolso(MeterRegistry registro) {
+        this.registro = registro;
+
+        for (Etapa etapa : ETAPAS) {
+            tempoPorEtapa[etapa.ordinal()] = Timer.builder("reembolso.etapa")
+                    .description("Tempo de cada etapa do cálculo de reembolso")
+                    .tag("etapa", etapa.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registro);
+        }
+        for (MotivoNegacao motivo : MOTIVOS) {
+            negacoesPorMotivo[motivo.ordinal()] = Counter.builder("reembolso.negacoes")
+                    .description("Consultas não autorizadas, por motivo")
+                    .tag("motivo", motivo.getCodigo())
+                    .register(registro);
+        }
+        errosValidacao = Counter.builder("reembolso.erros.validacao")
+                .description("Consultas rejeitadas por dados inválidos")
+                .register(registro);
+        tetoAtingido = Counter.builder("reembolso.teto.atingido")
+                .description("Reembolsos limitados ao teto por consulta")
+                .register(registro);
+    }
+
+    @Autowired
+    public MetricasReembolso(MeterRegistry registro, ObjectProvider<HistoricoConsultas> historicoConsultas) {
+        this(registro);
+        historicoConsultas.ifAvailable(this::monitorarHistorico);
+    }
+
+    /**
+     * Registra gauges do tamanho do histórico e do índice por CPF
+     *
+     * @param historico Armazenamento do histórico (lido apenas na coleta)
+     */
+    public void monitorarHistorico(HistoricoConsultas historico) {
+        Gauge.builder("reembolso.historico.registros", historico, HistoricoConsultas::contarRegistros)
+                .description("Consultas gravadas no histórico")
+                .strongReference(true)
+                .register(registro);
+        Gauge.builder("reembolso.historico.pacientes", historico, HistoricoConsultas::contarPacientes)
+                .description("CPFs no índice do histórico por paciente")
+                .strongReference(true)
+                .register(registro);
+    }
+
+    /**
+     * Grava a duração de uma etapa
+     *
+     * @param etapa Etapa medida
+     * @param inicioNanos Valor de System.nanoTime() no início da etapa
+     */
+    public void registrarEtapa(Etapa etapa, long inicioNanos) {
+        tempoPorEtapa[etapa.ordinal()].record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registrarNegacao(MotivoNegacao motivo) {
+        negacoesPorMotivo[motivo.ordinal()].increment();
+    }
+
+    public void registrarErroValidacao() {
+        errosValidacao.increment();
+    }
+
+    public void registrarTetoAtingido() {
+        tetoAtingido.increment();
+    }
+}
@@ -0,0 +1,47 @@
+package br.edu.infnet.dr3tp2.service;
+
+/**
+ * Motivos de negação de reembolso, com mensagens pré-alocadas - EX8
+ *
+ * As mensagens não citam valores configuráveis: o limite de valor vem da
+ * regra (MotorRegrasAutorizacao) e pode ser recarregado em execução.
+ */
+public enum MotivoNegacao {
+
+    DADOS_INVALIDOS("Dados da consulta inválidos"),
+    VALOR_ACIMA_LIMITE("Valor da consulta excede o limite para reembolso"),
+    VALOR_ACIMA_LIMITE_PLANO("Valor da consulta excede o limite do plano para reembolso"),
+    CPF_BLOQUEADO("CPF do paciente bloqueado para reembolso"),
+    COBERTURA_FORA_LIMITES("Percentual de cobertura fora dos limites permitidos"),
+    FREQUENCIA_EXCEDIDA("Limite de consultas no período excedido para o paciente"),
+    TETO_ANUAL_ATINGIDO("Teto anual de reembolso do paciente atingido");
+
+    private final String mensagem;
+    private final String mensagemNegacao;
+
+    MotivoNegacao(String mensagem) {
+        this.mensagem = mensagem;
+        this.mensagemNegacao = "Consulta não autorizada para reembolso: " + mensagem;
+    }
+
+    /**
+     * Código estável do motivo, para uso por clientes da API
+     */
+    public String getCodigo() {
+        return name();
+    }
+
+    /**
+     * Descrição do motivo da negação
+     */
+    public String getMensagem() {
+        return mensagem;
+    }
+
+    /**
+     * Mensagem completa exibida quando a consulta não é autorizada
+     */
+    public String getMensagemNegacao() {
+        return mensagemNegacao;
+    }
+}
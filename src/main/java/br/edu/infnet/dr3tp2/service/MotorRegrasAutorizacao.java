@@ -0,0 +1,423 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Autorizador baseado em regras configuráveis
+ *
+ * As regras são lidas de "reembolso.autorizacao.regras[i]" e compiladas, na
+ * carga, para uma cadeia plana: arrays paralelos com o tipo de cada regra, o
+ * plano como índice inteiro, os limites já convertidos para centavos e
+ * pontos-base e as listas de CPFs em tabelas de hash próprias. A avaliação percorre
+ * a cadeia em ordem e para na primeira regra que nega, sem criar objetos e
+ * sem reflexão. A recarga compila uma cadeia nova e troca a referência de uma
+ * vez, como no RegistroPlanosSaude.
+ *
+ * Regras FREQUENCIA guardam estado (JanelaFrequencia): cada consulta que chega
+ * à regra é contada, por isso convém colocá-las no fim da cadeia. Na recarga,
+ * regras de frequência com a mesma definição mantêm as contagens.
+ *
+ * Sem regras configuradas vale o limite padrão de R$ 2.000,00 (EX8).
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.autorizacao.motor", havingValue = "regras", matchIfMissing = true)
+public class MotorRegrasAutorizacao implements AutorizadorReembolsoComPlano {
+
+    static final String PREFIXO = "reembolso.autorizacao.regras";
+
+    static final List<RegraAutorizacao> REGRAS_PADRAO =
+            List.of(RegraAutorizacao.limiteValor(null, new BigDecimal("2000.00")));
+
+    private static final byte LIMITE_VALOR = 0;
+    private static final byte CPF_BLOQUEADO = 1;
+    private static final byte COBERTURA = 2;
+    private static final byte FREQUENCIA = 3;
+
+    private static final int CAPACIDADE_PADRAO_FREQUENCIA = 65_536;
+
+    private final Environment environment;
+    private volatile CadeiaRegras cadeia;
+
+    LongSupplier relogio = System::currentTimeMillis;
+
+    @Autowired
+    public MotorRegrasAutorizacao(Environment environment) {
+        this.environment = environment;
+        recarregar();
+    }
+
+    public MotorRegrasAutorizacao(List<RegraAutorizacao> regras) {
+        this.environment = null;
+        recarregar(regras);
+    }
+
+    @Override
+    public DecisaoAutorizacao avaliar(Consulta consulta, Paciente paciente) {
+        return avaliar(consulta, paciente, null);
+    }
+
+    @Override
+    public DecisaoAutorizacao avaliar(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+        // Validação obrigatória
+        if (consulta == null || consulta.getValor() == null) {
+            return DecisaoAutorizacao.negada(MotivoNegacao.DADOS_INVALIDOS);
+        }
+        return cadeia.avaliar(consulta, paciente, planoSaude);
+    }
+
+    /**
+     * Devolve às janelas de frequência a consulta contada por uma avaliação autorizada
+     *
+     * @param consulta Consulta autorizada
+     * @param paciente Paciente da consulta
+     * @param planoSaude Plano usado na avaliação
+     */
+    @Override
+    public void liberar(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+        if (consulta == null || consulta.getValor() == null || paciente == null) {
+            return;
+        }
+        cadeia.liberar(paciente, planoSaude);
+    }
+
+    /**
+     * Quantidade de regras na cadeia atual
+     */
+    public int getQuantidadeRegras() {
+        return cadeia.tipos.length;
+    }
+
+    /**
+     * Recarrega as regras a partir da configuração atual do Environment
+     *
+     * @throws IllegalArgumentException se alguma regra for inválida (as regras atuais são mantidas)
+     */
+    public void recarregar() {
+        List<RegraAutorizacao> regras = Binder.get(environment)
+                .bind(PREFIXO, Bindable.listOf(RegraAutorizacao.class))
+                .orElse(List.of());
+        recarregar(regras);
+    }
+
+    /**
+     * Compila e substitui todas as regras de uma vez
+     *
+     * @param regras Regras em ordem de avaliação (vazia usa o limite padrão)
+     * @throws IllegalArgumentException se alguma regra for inválida (as regras atuais são mantidas)
+     */
+    public void recarregar(List<RegraAutorizacao> regras) {
+        cadeia = new CadeiaRegras(regras.isEmpty() ? REGRAS_PADRAO : regras, cadeia, () -> relogio.getAsLong());
+    }
+
+    /**
+     * Hash do CPF usado nas listas de bloqueio e nas janelas de frequência
+     * (String.hashCode fica em cache na própria String)
+     */
+    static int hashCpf(String cpf) {
+        int hash = cpf.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Regras compiladas em arrays paralelos, na ordem de avaliação
+     */
+    private static final class CadeiaRegras {
+
+        private final byte[] tipos;
+        // Índice do plano, ou -1 para regras que valem para todos os planos
+        private final int[] planos;
+        private final List<String> codigosPlanos = new ArrayList<>();
+        private String[] tabelaPlanos;
+        private int[] indicesPlanos;
+        private final long[] minimos;
+        private final long[] maximos;
+        private final BigDecimal[] minimosDecimais;
+        private final BigDecimal[] maximosDecimais;
+        private final ConjuntoCpfs[] cpfs;
+        private final JanelaFrequencia[] janelas;
+        private final String[] chavesJanelas;
+        private final DecisaoAutorizacao[] negacoes;
+        private final LongSupplier relogio;
+        // Só usada durante a compilação, para não encadear todas as versões
+        private CadeiaRegras anterior;
+
+        CadeiaRegras(List<RegraAutorizacao> regras, CadeiaRegras anterior, LongSupplier relogio) {
+            int quantidade = regras.size();
+            tipos = new byte[quantidade];
+            planos = new int[quantidade];
+            minimos = new long[quantidade];
+            maximos = new long[quantidade];
+            minimosDecimais = new BigDecimal[quantidade];
+            maximosDecimais = new BigDecimal[quantidade];
+            cpfs = new ConjuntoCpfs[quantidade];
+            janelas = new JanelaFrequencia[quantidade];
+            chavesJanelas = new String[quantidade];
+            negacoes = new DecisaoAutorizacao[quantidade];
+            this.anterior = anterior;
+            this.relogio = relogio;
+
+            for (int i = 0; i < quantidade; i++) {
+                compilar(i, regras.get(i));
+            }
+            indexarPlanos();
+            this.anterior = null;
+        }
+
+        // Janela com a mesma definição na cadeia anterior, que ainda não foi reaproveitada
+        private JanelaFrequencia janelaAnterior(String chave) {
+            if (anterior != null) {
+                for (int i = 0; i < anterior.chavesJanelas.length; i++) {
+                    if (chave.equals(anterior.chavesJanelas[i]) && !contem(janelas, anterior.janelas[i])) {
+                        return anterior.janelas[i];
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static boolean contem(JanelaFrequencia[] janelas, JanelaFrequencia janela) {
+            for (JanelaFrequencia atual : janelas) {
+                if (atual == janela) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void compilar(int i, RegraAutorizacao regra) {
+            if (regra == null || regra.tipo() == null) {
+                throw new IllegalArgumentException("Regra de autorização " + i + " sem tipo");
+            }
+            planos[i] = indicePlano(regra.plano());
+
+            MotivoNegacao motivo = regra.motivo();
+            switch (regra.tipo()) {
+                case LIMITE_VALOR -> {
+                    BigDecimal valorMaximo = regra.valorMaximo();
+                    if (valorMaximo == null || valorMaximo.signum() < 0) {
+                        throw new IllegalArgumentException("Regra de autorização " + i + ": valor-maximo deve ser maior ou igual a zero");
+                    }
+                    tipos[i] = LIMITE_VALOR;
+                    // Valores em centavos: "maior que o limite" equivale a maior que o piso do limite
+                    long centavos = CalculoPontoFixo.paraCentavos(valorMaximo.setScale(2, RoundingMode.FLOOR));
+                    maximos[i] = centavos == CalculoPontoFixo.NAO_REPRESENTAVEL ? Long.MAX_VALUE : centavos;
+                    maximosDecimais[i] = valorMaximo;
+                    if (motivo == null) {
+                        motivo = planos[i] < 0 ? MotivoNegacao.VALOR_ACIMA_LIMITE : MotivoNegacao.VALOR_ACIMA_LIMITE_PLANO;
+                    }
+                }
+                case CPF_BLOQUEADO -> {
+                    if (regra.cpfs() == null || regra.cpfs().isEmpty()) {
+                        throw new IllegalArgumentException("Regra de autorização " + i + ": lista de cpfs vazia");
+                    }
+                    Set<String> bloqueados = new LinkedHashSet<>();
+                    for (String cpf : regra.cpfs()) {
+                        if (cpf != null && !cpf.isBlank()) {
+                            bloqueados.add(CodificadorCpf.canonico(cpf.trim()));
+                        }
+                    }
+                    tipos[i] = CPF_BLOQUEADO;
+                    cpfs[i] = new ConjuntoCpfs(bloqueados);
+                    if (motivo == null) {
+                        motivo = MotivoNegacao.CPF_BLOQUEADO;
+                    }
+                }
+                case COBERTURA -> {
+                    BigDecimal minima = regra.coberturaMinima() != null ? regra.coberturaMinima() : BigDecimal.ZERO;
+                    BigDecimal maxima = regra.coberturaMaxima() != null ? regra.coberturaMaxima() : BigDecimal.ONE;
+                    if (minima.signum() < 0 || maxima.compareTo(BigDecimal.ONE) > 0 || minima.compareTo(maxima) > 0) {
+                        throw new IllegalArgumentException("Regra de autorização " + i + ": cobertura deve estar entre 0% e 100%, com mínima até a máxima");
+                    }
+                    tipos[i] = COBERTURA;
+                    // Pontos-base são inteiros: arredonda os limites para dentro do intervalo
+                    minimos[i] = CalculoPontoFixo.paraPontosBase(minima.setScale(4, RoundingMode.CEILING));
+                    maximos[i] = CalculoPontoFixo.paraPontosBase(maxima.setScale(4, RoundingMode.FLOOR));
+                    minimosDecimais[i] = minima;
+                    maximosDecimais[i] = maxima;
+                    if (motivo == null) {
+                        motivo = MotivoNegacao.COBERTURA_FORA_LIMITES;
+                    }
+                }
+                case FREQUENCIA -> {
+                    if (regra.maximo() == null || regra.janela() == null) {
+                        throw new IllegalArgumentException("Regra de autorização " + i + ": maximo e janela são obrigatórios");
+                    }
+                    int capacidade = regra.capacidade() != null ? regra.capacidade() : CAPACIDADE_PADRAO_FREQUENCIA;
+                    String chave = regra.maximo() + "/" + regra.janela() + "/" + capacidade + "/" + planos[i];
+                    JanelaFrequencia janela = janelaAnterior(chave);
+                    if (janela == null) {
+                        try {
+                            janela = new JanelaFrequencia(regra.maximo(), regra.janela().toMillis(), capacidade);
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Regra de autorização " + i + ": " + e.getMessage(), e);
+                        }
+                        janela.relogio = relogio;
+                    }
+                    tipos[i] = FREQUENCIA;
+                    janelas[i] = janela;
+                    chavesJanelas[i] = chave;
+                    if (motivo == null) {
+                        motivo = MotivoNegacao.FREQUENCIA_EXCEDIDA;
+                    }
+                }
+            }
+            negacoes[i] = DecisaoAutorizacao.negada(motivo);
+        }
+
+        private int indicePlano(String codigo) {
+            if (codigo == null || codigo.isBlank()) {
+                return -1;
+            }
+            String normalizado = codigo.trim();
+            for (int i = 0; i < codigosPlanos.size(); i++) {
+                if (codigosPlanos.get(i).equalsIgnoreCase(normalizado)) {
+                    return i;
+                }
+            }
+            codigosPlanos.add(normalizado);
+            return codigosPlanos.size() - 1;
+        }
+
+        // Tabela de endereçamento aberto dos códigos de plano usados pelas regras
+        private void indexarPlanos() {
+            int capacidade = Integer.highestOneBit(Math.max(codigosPlanos.size(), 1) * 4 - 1) << 1;
+            tabelaPlanos = new String[capacidade];
+            indicesPlanos = new int[capacidade];
+            for (int i = 0; i < codigosPlanos.size(); i++) {
+                String codigo = codigosPlanos.get(i);
+                int posicao = RegistroPlanosSaude.hashIgnorandoCaixa(codigo) & (capacidade - 1);
+                while (tabelaPlanos[posicao] != null) {
+                    posicao = (posicao + 1) & (capacidade - 1);
+                }
+                tabelaPlanos[posicao] = codigo;
+                indicesPlanos[posicao] = i;
+            }
+        }
+
+        // Resolvido uma vez por avaliação; nas regras o plano é só um int
+        private int buscarPlano(String codigo) {
+            int mascara = tabelaPlanos.length - 1;
+            int posicao = RegistroPlanosSaude.hashIgnorandoCaixa(codigo) & mascara;
+            String atual;
+            while ((atual = tabelaPlanos[posicao]) != null) {
+                if (atual.equalsIgnoreCase(codigo)) {
+                    return indicesPlanos[posicao];
+                }
+                posicao = (posicao + 1) & mascara;
+            }
+            return -1;
+        }
+
+        DecisaoAutorizacao avaliar(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+            BigDecimal valor = consulta.getValor();
+            long centavos = CalculoPontoFixo.paraCentavos(valor);
+
+            BigDecimal percentual;
+            int pontosBase;
+            if (planoSaude != null) {
+                percentual = planoSaude.getPercentualCobertura();
+                pontosBase = planoSaude.getPontosBaseCobertura();
+            } else {
+                percentual = consulta.getPercentualCobertura();
+                pontosBase = CalculoPontoFixo.paraPontosBase(percentual);
+            }
+            // Forma canônica: as duas grafias do CPF contam juntas na janela e no bloqueio
+            String cpf = paciente != null ? CodificadorCpf.canonico(paciente.getCpf()) : null;
+            int hashCpf = cpf != null ? hashCpf(cpf) : 0;
+            int plano = planoSaude instanceof PlanoConfigurado configurado ? buscarPlano(configurado.getCodigo()) : -1;
+
+            for (int i = 0; i < tipos.length; i++) {
+                if (planos[i] >= 0 && planos[i] != plano) {
+                    continue;
+                }
+
+                boolean nega = switch (tipos[i]) {
+                    case LIMITE_VALOR -> centavos != CalculoPontoFixo.NAO_REPRESENTAVEL
+                            ? centavos > maximos[i]
+                            : valor.compareTo(maximosDecimais[i]) > 0;
+                    case CPF_BLOQUEADO -> cpf != null && cpfs[i].contem(cpf, hashCpf);
+                    case COBERTURA -> percentual != null && (pontosBase != CalculoPontoFixo.NAO_REPRESENTAVEL
+                            ? pontosBase < minimos[i] || pontosBase > maximos[i]
+                            : percentual.compareTo(minimosDecimais[i]) < 0 || percentual.compareTo(maximosDecimais[i]) > 0);
+                    default -> cpf != null && !janelas[i].registrar(cpf, hashCpf);
+                };
+                if (nega) {
+                    return negacoes[i];
+                }
+            }
+            return DecisaoAutorizacao.AUTORIZADA;
+        }
+
+        // As janelas são as mesmas depois de recarregar com a mesma regra (chavesJanelas)
+        void liberar(Paciente paciente, PlanoSaude planoSaude) {
+            String cpf = CodificadorCpf.canonico(paciente.getCpf());
+            if (cpf == null) {
+                return;
+            }
+            int hashCpf = hashCpf(cpf);
+            int plano = planoSaude instanceof PlanoConfigurado configurado ? buscarPlano(configurado.getCodigo()) : -1;
+            for (int i = 0; i < tipos.length; i++) {
+                if (janelas[i] != null && (planos[i] < 0 || planos[i] == plano)) {
+                    janelas[i].liberar(cpf, hashCpf);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tabela de hash de endereçamento aberto para CPFs bloqueados
+     *
+     * O hash do CPF é calculado uma vez por avaliação e reaproveitado em todas
+     * as listas; equals só é chamado quando os hashes coincidem.
+     */
+    private static final class ConjuntoCpfs {
+
+        private final int[] hashes;
+        private final String[] valores;
+        private final int mascara;
+
+        ConjuntoCpfs(Set<String> cpfs) {
+            int capacidade = Integer.highestOneBit(Math.max(cpfs.size(), 1) * 4 - 1) << 1;
+            hashes = new int[capacidade];
+            valores = new String[capacidade];
+            mascara = capacidade - 1;
+
+            for (String cpf : cpfs) {
+                int hash = hashCpf(cpf);
+                int indice = hash & mascara;
+                while (valores[indice] != null) {
+                    indice = (indice + 1) & mascara;
+                }
+                hashes[indice] = hash;
+                valores[indice] = cpf;
+            }
+        }
+
+        boolean contem(String cpf, int hash) {
+            int indice = hash & mascara;
+            String valor;
+            while ((valor = valores[indice]) != null) {
+                if (hashes[indice] == hash && valor.equals(cpf)) {
+                    return true;
+                }
+                indice = (indice + 1) & mascara;
+            }
+            return false;
+        }
+    }
+}
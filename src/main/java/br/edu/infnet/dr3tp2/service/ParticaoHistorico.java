@@ -0,0 +1,158 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Paciente;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Partição em memória do HistoricoConsultasParticionado
+ *
+ * Guarda os registros de um intervalo de tempo (balde) em ordem de
+ * sequência, que é contígua dentro da partição, e as posições de cada CPF.
+ * A identidade do paciente também é da partição: os registros de um CPF
+ * compartilham a primeira instância gravada nela, como na tabela de
+ * pacientes da ParticaoSelada, e nada sobrevive ao descarte da partição.
+ * Um único escritor por vez (o lock de gravação do histórico); leituras sem
+ * lock enxergam tudo até o tamanho publicado, como no HistoricoConsultasColunar.
+ *
+ * Também é a forma carregada de uma ParticaoSelada: depois de lida do
+ * arquivo não recebe mais gravações.
+ */
+final class ParticaoHistorico {
+
+    // Estimativas de heap retido, calibradas pelo MemoriaHistoricoComparativo
+    // (RegistroHistorico + três BigDecimal + posições no log e no índice)
+    static final long BYTES_POR_REGISTRO = 160;
+    static final long BYTES_POR_PACIENTE = 120;
+
+    private final long balde;
+
+    private volatile RegistroHistorico[] registros;
+    private volatile int tamanho;
+    private final ConcurrentHashMap<String, Posicoes> porCpf = new ConcurrentHashMap<>();
+
+    ParticaoHistorico(long balde) {
+        this(balde, 64);
+    }
+
+    ParticaoHistorico(long balde, int capacidade) {
+        this.balde = balde;
+        this.registros = new RegistroHistorico[Math.max(capacidade, 1)];
+    }
+
+    /**
+     * Acrescenta um registro; a sequência deve seguir a do último
+     *
+     * @return true se for o primeiro registro do CPF na partição
+     */
+    boolean adicionar(RegistroHistorico registro) {
+        int posicao = tamanho;
+        RegistroHistorico[] atuais = registros;
+        if (posicao == atuais.length) {
+            atuais = Arrays.copyOf(atuais, atuais.length * 2);
+            registros = atuais;
+        }
+        atuais[posicao] = registro;
+        Posicoes posicoes = porCpf.get(registro.paciente().getCpf());
+        boolean novo = posicoes == null;
+        if (novo) {
+            posicoes = new Posicoes(registro.paciente());
+            porCpf.put(registro.paciente().getCpf(), posicoes);
+        }
+        posicoes.adicionar(posicao);
+
+        // Escrita volátil publica o registro e a posição no índice
+        tamanho = posicao + 1;
+        return novo;
+    }
+
+    /**
+     * Instância do paciente já usada na partição para o CPF, ou a informada
+     */
+    Paciente paciente(Paciente informado) {
+        Posicoes posicoes = porCpf.get(informado.getCpf());
+        return posicoes == null ? informado : posicoes.paciente;
+    }
+
+    long balde() {
+        return balde;
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Registro na posição; válido para posições abaixo de um tamanho já lido
+     */
+    RegistroHistorico registro(int posicao) {
+        return registros[posicao];
+    }
+
+    long primeiraSequencia() {
+        return registros[0].sequencia();
+    }
+
+    long ultimaSequencia() {
+        return registros[tamanho - 1].sequencia();
+    }
+
+    /**
+     * Primeira posição com sequência maior que a informada (as sequências são contíguas)
+     */
+    int posicaoApos(long sequencia, int tamanhoLido) {
+        if (tamanhoLido == 0) {
+            return 0;
+        }
+        long posicao = sequencia - registros[0].sequencia() + 1;
+        return (int) Math.max(0, Math.min(posicao, tamanhoLido));
+    }
+
+    /**
+     * Posições do CPF em ordem crescente, ou null se não houver
+     */
+    Posicoes posicoes(String cpf) {
+        return porCpf.get(cpf);
+    }
+
+    Set<String> cpfs() {
+        return porCpf.keySet();
+    }
+
+    long bytesEstimados() {
+        return tamanho * BYTES_POR_REGISTRO + porCpf.size() * BYTES_POR_PACIENTE;
+    }
+
+    /**
+     * Posições de um CPF na partição, lidas sem lock (tamanho é publicado por último)
+     */
+    static final class Posicoes {
+        private final Paciente paciente;
+        private volatile int[] posicoes = new int[4];
+        private volatile int tamanho;
+
+        Posicoes(Paciente paciente) {
+            this.paciente = paciente;
+        }
+
+        void adicionar(int posicao) {
+            int[] atuais = posicoes;
+            if (tamanho == atuais.length) {
+                atuais = Arrays.copyOf(atuais, atuais.length * 2);
+                posicoes = atuais;
+            }
+            atuais[tamanho] = posicao;
+            tamanho = tamanho + 1;
+        }
+
+        int tamanho() {
+            return tamanho;
+        }
+
+        int posicao(int indice) {
+            return posicoes[indice];
+        }
+    }
+}
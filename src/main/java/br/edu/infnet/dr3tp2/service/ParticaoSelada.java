@@ -0,0 +1,329 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Paciente;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Partição do histórico selada em arquivo imutável comprimido (gzip)
+ *
+ * Formato: cabeçalho (balde, quantidade, primeira e última sequência),
+ * tabela de pacientes (CPF e nome, uma vez por arquivo) e os registros, com
+ * o id do paciente na tabela e os valores em ponto fixo (escala e mantissa).
+ * Textos são gravados como tamanho (int) e bytes UTF-8, sem o limite de
+ * 64 KB do writeUTF. O arquivo é gravado num
+ * temporário, sincronizado e renomeado, então um arquivo com o nome final
+ * está sempre completo; se a gravação falhar o temporário é removido.
+ *
+ * Em memória fica só o cabeçalho e os CPFs presentes (ordenados, para
+ * busca binária): uma consulta por paciente só carrega o arquivo se o CPF
+ * estiver nele. Os registros são lidos por carregar, sob demanda.
+ */
+final class ParticaoSelada {
+
+    private static final int MAGICO = 0x48495354; // "HIST"
+    private static final short VERSAO = 2;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private static final byte NULO = 0;
+    private static final byte COMPACTO = 1;
+    private static final byte EXTENSO = 2;
+
+    private final Path arquivo;
+    private final long balde;
+    private final int quantidade;
+    private final long primeiraSequencia;
+    private final long ultimaSequencia;
+
+    // CPFs codificados (CodificadorCpf) e, à parte, os fora do formato
+    private final long[] cpfs;
+    private final String[] cpfsForaDoFormato;
+
+    private ParticaoSelada(Path arquivo, long balde, int quantidade, long primeiraSequencia,
+                           long ultimaSequencia, List<String> cpfsPresentes) {
+        this.arquivo = arquivo;
+        this.balde = balde;
+        this.quantidade = quantidade;
+        this.primeiraSequencia = primeiraSequencia;
+        this.ultimaSequencia = ultimaSequencia;
+
+        long[] codificados = new long[cpfsPresentes.size()];
+        List<String> foraDoFormato = new ArrayList<>();
+        int validos = 0;
+        for (String cpf : cpfsPresentes) {
+            long codificado = CodificadorCpf.codificar(cpf);
+            if (codificado == CodificadorCpf.INVALIDO) {
+                foraDoFormato.add(cpf);
+            } else {
+                codificados[validos++] = codificado;
+            }
+        }
+        this.cpfs = Arrays.copyOf(codificados, validos);
+        Arrays.sort(this.cpfs);
+        this.cpfsForaDoFormato = foraDoFormato.toArray(String[]::new);
+        Arrays.sort(this.cpfsForaDoFormato);
+    }
+
+    /**
+     * Grava a partição (que não pode mais receber gravações) no arquivo
+     *
+     * @param arquivo Caminho final do arquivo
+     * @param particao Partição em memória, não vazia
+     * @return Partição selada
+     */
+    static ParticaoSelada gravar(Path arquivo, ParticaoHistorico particao) throws IOException {
+        int quantidade = particao.tamanho();
+        Map<String, Integer> idPorCpf = new HashMap<>();
+        List<Paciente> pacientes = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            Paciente paciente = particao.registro(i).paciente();
+            if (idPorCpf.putIfAbsent(paciente.getCpf(), pacientes.size()) == null) {
+                pacientes.add(paciente);
+            }
+        }
+
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporario), TAMANHO_BUFFER), TAMANHO_BUFFER))) {
+                saida.writeInt(MAGICO);
+                saida.writeShort(VERSAO);
+                saida.writeLong(particao.balde());
+                saida.writeInt(quantidade);
+                saida.writeLong(particao.primeiraSequencia());
+                saida.writeLong(particao.ultimaSequencia());
+
+                saida.writeInt(pacientes.size());
+                for (Paciente paciente : pacientes) {
+                    gravarTexto(saida, paciente.getCpf());
+                    saida.writeBoolean(paciente.getNome() != null);
+                    if (paciente.getNome() != null) {
+                        gravarTexto(saida, paciente.getNome());
+                    }
+                }
+
+                for (int i = 0; i < quantidade; i++) {
+                    RegistroHistorico registro = particao.registro(i);
+                    saida.writeLong(registro.sequencia());
+                    saida.writeInt(idPorCpf.get(registro.paciente().getCpf()));
+                    gravarDecimal(saida, registro.valor());
+                    gravarDecimal(saida, registro.percentualCobertura());
+                    gravarDecimal(saida, registro.valorReembolso());
+                }
+            }
+            try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+                canal.force(true);
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporario);
+            } catch (IOException remocao) {
+                e.addSuppressed(remocao);
+            }
+            throw e;
+        }
+
+        return new ParticaoSelada(arquivo, particao.balde(), quantidade, particao.primeiraSequencia(),
+                particao.ultimaSequencia(), new ArrayList<>(idPorCpf.keySet()));
+    }
+
+    /**
+     * Abre um arquivo selado lendo só o cabeçalho e a tabela de pacientes
+     *
+     * @throws IOException se o arquivo não for uma partição válida
+     */
+    static ParticaoSelada abrir(Path arquivo) throws IOException {
+        try (DataInputStream entrada = abrirEntrada(arquivo)) {
+            lerVersao(entrada, arquivo);
+            long balde = entrada.readLong();
+            int quantidade = entrada.readInt();
+            long primeira = entrada.readLong();
+            long ultima = entrada.readLong();
+
+            int pacientes = entrada.readInt();
+            List<String> cpfs = new ArrayList<>(pacientes);
+            for (int i = 0; i < pacientes; i++) {
+                cpfs.add(lerTexto(entrada));
+                if (entrada.readBoolean()) {
+                    lerTexto(entrada);
+                }
+            }
+            return new ParticaoSelada(arquivo, balde, quantidade, primeira, ultima, cpfs);
+        }
+    }
+
+    /**
+     * Lê todos os registros do arquivo para uma partição em memória, com uma
+     * instância de Paciente por CPF (a tabela de pacientes do arquivo)
+     */
+    ParticaoHistorico carregar() throws IOException {
+        try (DataInputStream entrada = abrirEntrada(arquivo)) {
+            // Cabeçalho já conhecido
+            lerVersao(entrada, arquivo);
+            entrada.readLong();
+            entrada.readInt();
+            entrada.readLong();
+            entrada.readLong();
+
+            Paciente[] pacientes = new Paciente[entrada.readInt()];
+            for (int i = 0; i < pacientes.length; i++) {
+                String cpf = lerTexto(entrada);
+                String nome = entrada.readBoolean() ? lerTexto(entrada) : null;
+                pacientes[i] = new Paciente(nome, cpf);
+            }
+
+            ParticaoHistorico particao = new ParticaoHistorico(balde, quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                long sequencia = entrada.readLong();
+                Paciente paciente = pacientes[entrada.readInt()];
+                particao.adicionar(new RegistroHistorico(sequencia, lerDecimal(entrada), lerDecimal(entrada),
+                        lerDecimal(entrada), paciente));
+            }
+            return particao;
+        }
+    }
+
+    /**
+     * Indica se o CPF tem consultas na partição, sem ler o arquivo
+     */
+    boolean contemPaciente(String cpf) {
+        long codificado = CodificadorCpf.codificar(cpf);
+        return codificado != CodificadorCpf.INVALIDO
+                ? Arrays.binarySearch(cpfs, codificado) >= 0
+                : cpf != null && Arrays.binarySearch(cpfsForaDoFormato, cpf) >= 0;
+    }
+
+    /**
+     * Conta os CPFs presentes como mais uma partição de cada um
+     */
+    void adicionarPacientes(ContagemPacientes contagem) {
+        for (long cpf : cpfs) {
+            contagem.adicionar(cpf);
+        }
+        for (String cpf : cpfsForaDoFormato) {
+            contagem.adicionar(cpf);
+        }
+    }
+
+    /**
+     * Desconta os CPFs presentes quando a partição é descartada
+     */
+    void removerPacientes(ContagemPacientes contagem) {
+        for (long cpf : cpfs) {
+            contagem.remover(cpf);
+        }
+        for (String cpf : cpfsForaDoFormato) {
+            contagem.remover(cpf);
+        }
+    }
+
+    Path arquivo() {
+        return arquivo;
+    }
+
+    long balde() {
+        return balde;
+    }
+
+    int quantidade() {
+        return quantidade;
+    }
+
+    long primeiraSequencia() {
+        return primeiraSequencia;
+    }
+
+    long ultimaSequencia() {
+        return ultimaSequencia;
+    }
+
+    // Abre o arquivo e confere o número mágico; a versão é lida em seguida por lerVersao
+    private static DataInputStream abrirEntrada(Path arquivo) throws IOException {
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(arquivo), TAMANHO_BUFFER), TAMANHO_BUFFER));
+        try {
+            if (entrada.readInt() != MAGICO) {
+                throw new IOException("Arquivo não é uma partição do histórico: " + arquivo);
+            }
+            return entrada;
+        } catch (IOException e) {
+            entrada.close();
+            throw e;
+        }
+    }
+
+    private static void lerVersao(DataInputStream entrada, Path arquivo) throws IOException {
+        short versao = entrada.readShort();
+        if (versao != VERSAO) {
+            throw new IOException("Versão de partição do histórico não suportada (" + versao + "): " + arquivo);
+        }
+    }
+
+    // Tamanho em bytes e UTF-8: writeUTF não aceita textos acima de 65.535 bytes
+    private static void gravarTexto(DataOutputStream saida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        saida.writeInt(bytes.length);
+        saida.write(bytes);
+    }
+
+    private static String lerTexto(DataInputStream entrada) throws IOException {
+        byte[] bytes = new byte[entrada.readInt()];
+        entrada.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Escala em um byte e mantissa em um long quando cabem; senão escala e bytes da mantissa
+    private static void gravarDecimal(DataOutputStream saida, BigDecimal valor) throws IOException {
+        if (valor == null) {
+            saida.writeByte(NULO);
+            return;
+        }
+        BigInteger mantissa = valor.unscaledValue();
+        if (mantissa.bitLength() < Long.SIZE && valor.scale() >= Byte.MIN_VALUE && valor.scale() <= Byte.MAX_VALUE) {
+            saida.writeByte(COMPACTO);
+            saida.writeByte(valor.scale());
+            saida.writeLong(mantissa.longValue());
+        } else {
+            byte[] bytes = mantissa.toByteArray();
+            saida.writeByte(EXTENSO);
+            saida.writeInt(valor.scale());
+            saida.writeInt(bytes.length);
+            saida.write(bytes);
+        }
+    }
+
+    private static BigDecimal lerDecimal(DataInputStream entrada) throws IOException {
+        byte tipo = entrada.readByte();
+        if (tipo == NULO) {
+            return null;
+        }
+        if (tipo == COMPACTO) {
+            int escala = entrada.readByte();
+            return BigDecimal.valueOf(entrada.readLong(), escala);
+        }
+        int escala = entrada.readInt();
+        byte[] bytes = new byte[entrada.readInt()];
+        entrada.readFully(bytes);
+        return new BigDecimal(new BigInteger(bytes), escala);
+    }
+}
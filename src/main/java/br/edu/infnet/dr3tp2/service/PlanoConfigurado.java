@@ -0,0 +1,57 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Plano de saúde imutável carregado da configuração
+ *
+ * O percentual de cobertura é validado e convertido para pontos-base uma
+ * única vez, na carga do plano.
+ */
+public final class PlanoConfigurado implements PlanoSaude {
+
+    private final String codigo;
+    private final String nome;
+    private final BigDecimal percentualCobertura;
+    private final int pontosBaseCobertura;
+
+    public PlanoConfigurado(String codigo, String nome, BigDecimal percentualCobertura) {
+        if (codigo == null || codigo.isBlank()) {
+            throw new IllegalArgumentException("Código do plano não pode ser vazio");
+        }
+        if (percentualCobertura == null ||
+                percentualCobertura.compareTo(BigDecimal.ZERO) < 0 ||
+                percentualCobertura.compareTo(BigDecimal.ONE) > 0) {
+            throw new IllegalArgumentException("Percentual de cobertura do plano " + codigo + " deve estar entre 0% e 100%");
+        }
+
+        this.codigo = codigo;
+        this.nome = nome != null ? nome : codigo;
+        this.percentualCobertura = percentualCobertura;
+        this.pontosBaseCobertura = CalculoPontoFixo.paraPontosBase(percentualCobertura);
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    @Override
+    public String getNome() {
+        return nome;
+    }
+
+    @Override
+    public BigDecimal getPercentualCobertura() {
+        return percentualCobertura;
+    }
+
+    @Override
+    public int getPontosBaseCobertura() {
+        return pontosBaseCobertura;
+    }
+
+    @Override
+    public String toString() {
+        return codigo + " (" + nome + ", " + percentualCobertura + ")";
+    }
+}
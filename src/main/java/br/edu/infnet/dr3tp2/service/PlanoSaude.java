@@ -20,4 +20,15 @@ public interface PlanoSaude {
      * @return Nome do plano
      */
     String getNome();
+
+    /**
+     * Retorna o percentual de cobertura em pontos-base (10000 = 100%)
+     *
+     * Planos imutáveis devem sobrescrever com o valor pré-calculado.
+     *
+     * @return Pontos-base ou CalculoPontoFixo.NAO_REPRESENTAVEL
+     */
+    default int getPontosBaseCobertura() {
+        return CalculoPontoFixo.paraPontosBase(getPercentualCobertura());
+    }
 }
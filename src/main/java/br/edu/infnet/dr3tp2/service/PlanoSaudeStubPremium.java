@@ -7,9 +7,11 @@ import java.math.BigDecimal;
  */
 public class PlanoSaudeStubPremium implements PlanoSaude {
 
+    private static final BigDecimal PERCENTUAL_COBERTURA = new BigDecimal("0.80"); // 80% de cobertura
+
     @Override
     public BigDecimal getPercentualCobertura() {
-        return new BigDecimal("0.80"); // 80% de cobertura
+        return PERCENTUAL_COBERTURA;
     }
 
     @Override
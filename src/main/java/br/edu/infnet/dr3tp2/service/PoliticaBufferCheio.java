@@ -0,0 +1,16 @@
+package br.edu.infnet.dr3tp2.service;
+
+/**
+ * Comportamento da auditoria quando o buffer de registros está cheio
+ */
+public enum PoliticaBufferCheio {
+
+    /** Aguarda espaço no buffer, atrasando a requisição */
+    BLOQUEAR,
+
+    /** Descarta o registro e contabiliza o descarte */
+    DESCARTAR,
+
+    /** Rejeita a requisição com AuditoriaIndisponivelException */
+    FALHAR
+}
@@ -0,0 +1,108 @@
+package br.edu.infnet.dr3tp2.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trechos (spans) de rastreamento por etapa do cálculo de reembolso
+ *
+ * Cada etapa vira um span filho do span corrente da requisição
+ * (http.server.requests), exportado pelo OpenTelemetry configurado pelo
+ * Spring Boot: o tempo do span da requisição que não está em nenhuma etapa é
+ * binding/serialização do Jackson e o resto do pipeline MVC.
+ *
+ * Sem Tracer (management.tracing.enabled=false), sem span corrente ou com a
+ * requisição fora da amostragem, iniciarEtapa devolve null sem criar objetos
+ * e os demais métodos ignoram o null.
+ */
+@Component
+public class RastreamentoReembolso {
+
+    private static final MetricasReembolso.Etapa[] ETAPAS = MetricasReembolso.Etapa.values();
+
+    /**
+     * Instância sem Tracer, usada quando o serviço é criado fora do contexto
+     * Spring ou com o rastreamento desligado
+     */
+    public static final RastreamentoReembolso DESATIVADO = new RastreamentoReembolso((Tracer) null);
+
+    private final Tracer tracer;
+    private final String[] nomePorEtapa = new String[ETAPAS.length];
+    private final String[] tagPorEtapa = new String[ETAPAS.length];
+    private final ConcurrentHashMap<String, FalhaReembolso> falhas = new ConcurrentHashMap<>();
+
+    public RastreamentoReembolso(Tracer tracer) {
+        this.tracer = tracer;
+        for (MetricasReembolso.Etapa etapa : ETAPAS) {
+            String tag = etapa.name().toLowerCase(Locale.ROOT);
+            tagPorEtapa[etapa.ordinal()] = tag;
+            nomePorEtapa[etapa.ordinal()] = "reembolso." + tag;
+        }
+    }
+
+    @Autowired
+    public RastreamentoReembolso(ObjectProvider<Tracer> tracer) {
+        this(tracer.getIfAvailable());
+    }
+
+    /**
+     * Inicia o span de uma etapa
+     *
+     * @param etapa Etapa rastreada
+     * @return Span iniciado, ou null quando a requisição não está sendo rastreada
+     */
+    public Span iniciarEtapa(MetricasReembolso.Etapa etapa) {
+        if (tracer == null) {
+            return null;
+        }
+        Span atual = tracer.currentSpan();
+        if (atual == null || !Boolean.TRUE.equals(atual.context().sampled())) {
+            return null;
+        }
+        return tracer.nextSpan(atual)
+                .name(nomePorEtapa[etapa.ordinal()])
+                .tag("reembolso.etapa", tagPorEtapa[etapa.ordinal()])
+                .start();
+    }
+
+    /**
+     * Marca o span com o erro que interrompeu a etapa
+     */
+    public void registrarErro(Span span, Throwable erro) {
+        if (span != null) {
+            span.error(erro);
+        }
+    }
+
+    /**
+     * Marca o span com uma falha devolvida sem exceção (validação ou negação)
+     *
+     * O span registra uma exceção sem pilha, criada uma vez por código, para
+     * ficar com status de erro como no caminho com exceções.
+     */
+    public void registrarFalha(Span span, ResultadoReembolso resultado) {
+        if (span != null) {
+            span.tag("reembolso.codigo", resultado.getCodigo());
+            span.error(falhas.computeIfAbsent(resultado.getCodigo(),
+                    codigo -> new FalhaReembolso(resultado.getMensagem())));
+        }
+    }
+
+    public void finalizarEtapa(Span span) {
+        if (span != null) {
+            span.end();
+        }
+    }
+
+    private static final class FalhaReembolso extends RuntimeException {
+        FalhaReembolso(String mensagem) {
+            super(mensagem, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.ItemLoteResponse;
+import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Service responsável pelo cálculo de reembolsos em lote
+ *
+ * Cada consulta do lote passa pelo fluxo completo do ReembolsoService
+ * (autorização, auditoria, cálculo e histórico) em paralelo no pool de lotes.
+ */
+@Service
+public class ReembolsoLoteService {
+
+    @Autowired
+    ReembolsoService reembolsoService;
+
+    @Autowired
+    @Qualifier("poolReembolsoLote")
+    ForkJoinPool poolLote;
+
+    // Quantidade máxima de itens em processamento ao mesmo tempo
+    @Value("${reembolso.lote.janela:256}")
+    int janela = 256;
+
+    /**
+     * Calcula o reembolso de todas as consultas do lote
+     *
+     * Os resultados são entregues ao consumidor na ordem de entrada, assim que
+     * cada item e todos os anteriores estiverem prontos. Um item inválido gera
+     * um resultado de erro sem interromper o restante do lote.
+     *
+     * @param consultas Consultas do lote
+     * @param consumidor Recebe o resultado de cada item, em ordem
+     */
+    public void calcularLote(List<Consulta> consultas, Consumer<ItemLoteResponse> consumidor) {
+        Deque<CompletableFuture<ItemLoteResponse>> pendentes = new ArrayDeque<>();
+        int total = consultas.size();
+        int proximo = 0;
+
+        try {
+            while (proximo < total || !pendentes.isEmpty()) {
+                // Mantém a janela de itens em processamento cheia
+                while (proximo < total && pendentes.size() < janela) {
+                    int indice = proximo++;
+                    Consulta consulta = consultas.get(indice);
+                    pendentes.addLast(CompletableFuture.supplyAsync(() -> calcularItem(indice, consulta), poolLote));
+                }
+
+                consumidor.accept(pendentes.removeFirst().join());
+            }
+        } finally {
+            // Se o consumidor falhar (ex: cliente desconectado) descarta o restante
+            pendentes.forEach(pendente -> pendente.cancel(false));
+        }
+    }
+
+    private ItemLoteResponse calcularItem(int indice, Consulta consulta) {
+        try {
+            // Itens inválidos ou negados voltam sem exceção, com a mensagem pré-alocada
+            ResultadoReembolso resultado = reembolsoService.tentarCalcularReembolso(consulta);
+            if (!resultado.isSucesso()) {
+                return new ItemLoteResponse(indice, null, resultado.getMensagem(), "erro");
+            }
+
+            ReembolsoResponse reembolso = new ReembolsoResponse(
+                    consulta.getValor(),
+                    consulta.getPercentualCobertura(),
+                    resultado.getValor(),
+                    "sucesso"
+            );
+            return new ItemLoteResponse(indice, reembolso, null, "sucesso");
+        } catch (RuntimeException e) {
+            return new ItemLoteResponse(indice, null, e.getMessage(), "erro");
+        }
+    }
+}
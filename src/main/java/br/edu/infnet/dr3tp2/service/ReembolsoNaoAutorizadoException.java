@@ -0,0 +1,22 @@
+package br.edu.infnet.dr3tp2.service;
+
+/**
+ * Exceção lançada quando o autorizador nega o reembolso de uma consulta - EX8
+ */
+public class ReembolsoNaoAutorizadoException extends SecurityException {
+
+    private final transient DecisaoAutorizacao decisao;
+
+    public ReembolsoNaoAutorizadoException(DecisaoAutorizacao decisao) {
+        super(decisao.getMotivo().getMensagemNegacao());
+        this.decisao = decisao;
+    }
+
+    public DecisaoAutorizacao getDecisao() {
+        return decisao;
+    }
+
+    public MotivoNegacao getMotivo() {
+        return decisao.getMotivo();
+    }
+}
@@ -0,0 +1,185 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Versão reativa do ReembolsoService
+ *
+ * Mesmo fluxo (autorizar, auditar, calcular, gravar), mas auditoria e
+ * histórico são acessados pelos adaptadores não bloqueantes. Autorização e
+ * cálculo são apenas CPU e rodam direto na thread do assinante.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReembolsoReativoService {
+
+    @Autowired
+    private CalculadoraReembolso calculadoraReembolso;
+
+    @Autowired
+    private HistoricoConsultasReativo historicoConsultas;
+
+    @Autowired
+    private AuditoriaReativa auditoria;
+
+    @Autowired(required = false)
+    AutorizadorReembolso autorizadorReembolso;
+
+    @Autowired(required = false)
+    MetricasReembolso metricas = MetricasReembolso.DESATIVADA;
+
+    @Autowired(required = false)
+    TetoAnualPaciente tetoAnual;
+
+    @Autowired(required = false)
+    RegistroPacientes registroPacientes = new RegistroPacientes();
+
+    /**
+     * Calcula o valor de reembolso de uma consulta médica
+     *
+     * Com o teto anual habilitado o reembolso pode sair parcial; a reserva é
+     * devolvida se a gravação no histórico falhar.
+     *
+     * @param consulta Consulta com valor e percentual de cobertura
+     * @return Valor do reembolso, ou erro IllegalArgumentException / ReembolsoNaoAutorizadoException
+     */
+    public Mono<BigDecimal> calcularReembolso(Consulta consulta) {
+        return Mono.defer(() -> {
+            Paciente paciente = normalizarPaciente(consulta);
+
+            return Mono.fromRunnable(() -> verificarAutorizacao(consulta, paciente, null))
+                    .then(registrarAuditoria(consulta)
+                            .then(Mono.fromSupplier(() -> calcular(consulta, paciente)))
+                            .flatMap(valorCalculado -> {
+                                ReservaTetoAnual reserva = reservarTetoAnual(paciente, valorCalculado);
+                                BigDecimal valorReembolso = reserva != null && reserva.valor().compareTo(valorCalculado) < 0
+                                        ? reserva.valor()
+                                        : valorCalculado;
+                                return Mono.defer(() -> {
+                                    long inicio = System.nanoTime();
+                                    return historicoConsultas.salvarComReembolso(consulta, paciente, valorReembolso)
+                                            .doOnSuccess(ignorado -> metricas.registrarEtapa(MetricasReembolso.Etapa.PERSISTIR, inicio));
+                                }).doOnError(e -> {
+                                    if (reserva != null) {
+                                        tetoAnual.liberar(reserva);
+                                    }
+                                }).thenReturn(valorReembolso);
+                            })
+                            // Falhas depois da autorização devolvem a consulta às janelas de frequência
+                            .doOnError(e -> liberarAutorizacao(consulta, paciente, null)));
+        });
+    }
+
+    /**
+     * Calcula o valor de reembolso usando plano de saúde (não grava no histórico)
+     *
+     * @param consulta Consulta com valor
+     * @param planoSaude Plano que define percentual de cobertura
+     * @return Valor do reembolso, ou erro IllegalArgumentException / ReembolsoNaoAutorizadoException
+     */
+    public Mono<BigDecimal> calcularReembolsoComPlano(Consulta consulta, PlanoSaude planoSaude) {
+        return Mono.defer(() -> {
+            Paciente paciente = normalizarPaciente(consulta);
+
+            return Mono.fromRunnable(() -> verificarAutorizacao(consulta, paciente, planoSaude))
+                    .then(registrarAuditoria(consulta)
+                            .then(Mono.fromSupplier(() -> calcularComPlano(consulta, planoSaude)))
+                            .doOnError(e -> liberarAutorizacao(consulta, paciente, planoSaude)));
+        });
+    }
+
+    public Flux<HistoricoResponse> buscarHistorico() {
+        return historicoConsultas.buscarHistorico();
+    }
+
+    public Flux<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
+        return historicoConsultas.buscarHistoricoPorPaciente(CodificadorCpf.canonico(cpf));
+    }
+
+    public Mono<ResumoPacienteResponse> buscarResumoPorPaciente(String cpf) {
+        return historicoConsultas.buscarResumoPorPaciente(CodificadorCpf.canonico(cpf));
+    }
+
+    private Mono<Void> registrarAuditoria(Consulta consulta) {
+        return Mono.defer(() -> {
+            long inicio = System.nanoTime();
+            return auditoria.registrarConsulta(consulta)
+                    .doOnSuccess(ignorado -> metricas.registrarEtapa(MetricasReembolso.Etapa.AUDITAR, inicio));
+        });
+    }
+
+    private Paciente normalizarPaciente(Consulta consulta) {
+        try {
+            return registroPacientes.normalizar(consulta == null ? null : consulta.getPaciente());
+        } catch (IllegalArgumentException e) {
+            metricas.registrarErroValidacao();
+            throw e;
+        }
+    }
+
+    private ReservaTetoAnual reservarTetoAnual(Paciente paciente, BigDecimal valorReembolso) {
+        if (tetoAnual == null) {
+            return null;
+        }
+        ReservaTetoAnual reserva = tetoAnual.reservar(paciente.getCpf(), valorReembolso);
+        if (reserva.centavos() == 0 && valorReembolso.signum() > 0) {
+            metricas.registrarNegacao(MotivoNegacao.TETO_ANUAL_ATINGIDO);
+            throw new ReembolsoNaoAutorizadoException(DecisaoAutorizacao.negada(MotivoNegacao.TETO_ANUAL_ATINGIDO));
+        }
+        return reserva;
+    }
+
+    private BigDecimal calcular(Consulta consulta, Paciente paciente) {
+        long inicio = System.nanoTime();
+        try {
+            BigDecimal valorReembolso = calculadoraReembolso.calcular(consulta, paciente);
+            metricas.registrarEtapa(MetricasReembolso.Etapa.CALCULAR, inicio);
+            return valorReembolso;
+        } catch (IllegalArgumentException e) {
+            metricas.registrarErroValidacao();
+            throw e;
+        }
+    }
+
+    private BigDecimal calcularComPlano(Consulta consulta, PlanoSaude planoSaude) {
+        long inicio = System.nanoTime();
+        try {
+            BigDecimal valorReembolso = calculadoraReembolso.calcularComPlano(consulta, planoSaude);
+            metricas.registrarEtapa(MetricasReembolso.Etapa.CALCULAR, inicio);
+            return valorReembolso;
+        } catch (IllegalArgumentException e) {
+            metricas.registrarErroValidacao();
+            throw e;
+        }
+    }
+
+    private void liberarAutorizacao(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+        if (autorizadorReembolso != null) {
+            autorizadorReembolso.liberar(consulta, paciente, planoSaude);
+        }
+    }
+
+    private void verificarAutorizacao(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+        if (autorizadorReembolso != null) {
+            long inicio = System.nanoTime();
+            DecisaoAutorizacao decisao = planoSaude != null && autorizadorReembolso instanceof AutorizadorReembolsoComPlano comPlano
+                    ? comPlano.avaliar(consulta, paciente, planoSaude)
+                    : autorizadorReembolso.avaliar(consulta, paciente);
+            metricas.registrarEtapa(MetricasReembolso.Etapa.AUTORIZAR, inicio);
+            if (!decisao.isAutorizado()) {
+                metricas.registrarNegacao(decisao.getMotivo());
+                throw new ReembolsoNaoAutorizadoException(decisao);
+            }
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package br.edu.infnet.dr3tp2.service;
 
 import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
 import br.edu.infnet.dr3tp2.model.Consulta;
 import br.edu.infnet.dr3tp2.model.Paciente;
+import io.micrometer.tracing.Span;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Classe Service responsável por calcular reembolsos de consultas médicas
@@ -28,42 +32,127 @@ public class ReembolsoService {
     @Autowired(required = false)
     AutorizadorReembolso autorizadorReembolso;
 
+    @Autowired(required = false)
+    MetricasReembolso metricas = MetricasReembolso.DESATIVADA;
+
+    @Autowired(required = false)
+    TetoAnualPaciente tetoAnual;
+
+    @Autowired(required = false)
+    RegistroPacientes registroPacientes = new RegistroPacientes();
+
+    @Autowired(required = false)
+    RastreamentoReembolso rastreamento = RastreamentoReembolso.DESATIVADO;
+
     /**
      * Calcula o valor de reembolso de uma consulta médica
      *
+     * Com o teto anual habilitado, o reembolso é reservado no saldo do
+     * paciente antes de ir para o histórico: pode sair parcial quando o saldo
+     * não cobre o valor todo, e a reserva é devolvida se a gravação falhar.
+     *
      * @param consulta Consulta com valor e percentual de cobertura
      * @return Valor do reembolso calculado
      * @throws IllegalArgumentException para dados inválidos
-     * @throws SecurityException para consultas não autorizadas - EX8
+     * @throws ReembolsoNaoAutorizadoException para consultas não autorizadas (EX8) ou teto anual atingido
      */
     public BigDecimal calcularReembolso(Consulta consulta) {
-        Paciente pacienteDummy = new Paciente("Dummy", "000.000.000-00");
+        return tentarCalcularReembolso(consulta).obterValor();
+    }
+
+    /**
+     * Calcula o reembolso sem lançar exceção para dados inválidos ou
+     * consultas não autorizadas
+     *
+     * Mesmo fluxo de calcularReembolso, mas essas falhas voltam como
+     * ResultadoReembolso pré-alocado. Falhas de infraestrutura (auditoria,
+     * histórico) continuam sendo exceções.
+     *
+     * @param consulta Consulta com valor e percentual de cobertura
+     * @return Valor do reembolso ou o código da falha
+     */
+    public ResultadoReembolso tentarCalcularReembolso(Consulta consulta) {
+        ResultadoReembolso falha = validarPaciente(consulta);
+        if (falha != null) {
+            return falha;
+        }
+        Paciente paciente = registroPacientes.normalizar(consulta == null ? null : consulta.getPaciente());
 
         // EX8 - Verificar autorização antes do cálculo
-        if (autorizadorReembolso != null) {
-            if (!autorizadorReembolso.isAutorizado(consulta, pacienteDummy)) {
-                String motivo = autorizadorReembolso.getMotivoNegacao();
-                throw new SecurityException("Consulta não autorizada para reembolso" +
-                        (motivo != null ? ": " + motivo : ""));
-            }
+        falha = avaliarAutorizacao(consulta, paciente, null);
+        if (falha != null) {
+            return falha;
         }
 
-        // EX7 - Registra auditoria
-        if (auditoria != null) {
-            auditoria.registrarConsulta(consulta);
+        // Falhas depois da autorização devolvem a consulta às janelas de frequência
+        ResultadoReembolso resultado;
+        try {
+            resultado = calcularAutorizado(consulta, paciente);
+        } catch (RuntimeException e) {
+            liberarAutorizacao(consulta, paciente, null);
+            throw e;
         }
+        if (!resultado.isSucesso()) {
+            liberarAutorizacao(consulta, paciente, null);
+        }
+        return resultado;
+    }
+
+    private ResultadoReembolso calcularAutorizado(Consulta consulta, Paciente paciente) {
+        // EX7 - Registra auditoria
+        registrarAuditoria(consulta);
 
         // Calcular reembolso
-        BigDecimal valorReembolso = calculadoraReembolso.calcular(consulta, pacienteDummy);
+        long inicio = System.nanoTime();
+        Span trecho = rastreamento.iniciarEtapa(MetricasReembolso.Etapa.CALCULAR);
+        BigDecimal valorReembolso;
+        try {
+            // A validação vem antes para a falha voltar sem exceção; calcular
+            // repete as mesmas comparações, bem mais baratas que uma exceção
+            CodigoErro erro = calculadoraReembolso.validar(consulta);
+            if (erro != null) {
+                return falhaValidacao(trecho, erro);
+            }
+            valorReembolso = calculadoraReembolso.calcular(consulta, paciente);
+        } catch (RuntimeException e) {
+            registrarErroCalculo(trecho, e);
+            throw e;
+        } finally {
+            rastreamento.finalizarEtapa(trecho);
+        }
+        metricas.registrarEtapa(MetricasReembolso.Etapa.CALCULAR, inicio);
+
+        // Reservar no teto anual do paciente (reembolso parcial se o saldo não cobrir)
+        ReservaTetoAnual reserva = reservarTetoAnual(paciente, valorReembolso);
+        if (reserva != null && reserva.centavos() == 0 && valorReembolso.signum() > 0) {
+            metricas.registrarNegacao(MotivoNegacao.TETO_ANUAL_ATINGIDO);
+            return ResultadoReembolso.negado(MotivoNegacao.TETO_ANUAL_ATINGIDO);
+        }
+        if (reserva != null && reserva.valor().compareTo(valorReembolso) < 0) {
+            valorReembolso = reserva.valor();
+        }
 
-        // Salvar no fake histórico
-        if (historicoConsultas instanceof HistoricoConsultasFake) {
-            ((HistoricoConsultasFake) historicoConsultas).salvarComReembolso(consulta, pacienteDummy, valorReembolso);
-        } else {
-            historicoConsultas.salvar(consulta, pacienteDummy);
+        // Salvar no histórico
+        inicio = System.nanoTime();
+        trecho = rastreamento.iniciarEtapa(MetricasReembolso.Etapa.PERSISTIR);
+        try {
+            if (historicoConsultas instanceof HistoricoConsultasComReembolso historico) {
+                historico.salvarComReembolso(consulta, paciente, valorReembolso);
+            } else if (historicoConsultas != null) {
+                historicoConsultas.salvar(consulta, paciente);
+            }
+        } catch (RuntimeException e) {
+            rastreamento.registrarErro(trecho, e);
+            if (reserva != null) {
+                tetoAnual.liberar(reserva);
+            }
+            throw e;
+        } finally {
+            rastreamento.finalizarEtapa(trecho);
         }
+        metricas.registrarEtapa(MetricasReembolso.Etapa.PERSISTIR, inicio);
 
-        return valorReembolso;
+        return ResultadoReembolso.sucesso(valorReembolso);
     }
 
     /**
@@ -73,26 +162,144 @@ public class ReembolsoService {
      * @param planoSaude Plano que define percentual de cobertura
      * @return Valor do reembolso calculado
      * @throws IllegalArgumentException para dados inválidos
-     * @throws SecurityException para consultas não autorizadas - EX8
+     * @throws ReembolsoNaoAutorizadoException para consultas não autorizadas - EX8
      */
     public BigDecimal calcularReembolsoComPlano(Consulta consulta, PlanoSaude planoSaude) {
-        Paciente pacienteDummy = new Paciente("Dummy", "000.000.000-00");
+        return tentarCalcularReembolsoComPlano(consulta, planoSaude).obterValor();
+    }
+
+    /**
+     * Calcula o reembolso com plano sem lançar exceção para dados inválidos
+     * ou consultas não autorizadas
+     *
+     * @param consulta Consulta com valor
+     * @param planoSaude Plano que define percentual de cobertura
+     * @return Valor do reembolso ou o código da falha
+     */
+    public ResultadoReembolso tentarCalcularReembolsoComPlano(Consulta consulta, PlanoSaude planoSaude) {
+        ResultadoReembolso falha = validarPaciente(consulta);
+        if (falha != null) {
+            return falha;
+        }
+        Paciente paciente = registroPacientes.normalizar(consulta == null ? null : consulta.getPaciente());
 
         // EX8 - Verificar autorização antes do cálculo
-        if (autorizadorReembolso != null) {
-            if (!autorizadorReembolso.isAutorizado(consulta, pacienteDummy)) {
-                String motivo = autorizadorReembolso.getMotivoNegacao();
-                throw new SecurityException("Consulta não autorizada para reembolso" +
-                        (motivo != null ? ": " + motivo : ""));
-            }
+        falha = avaliarAutorizacao(consulta, paciente, planoSaude);
+        if (falha != null) {
+            return falha;
         }
 
+        ResultadoReembolso resultado;
+        try {
+            resultado = calcularAutorizadoComPlano(consulta, planoSaude);
+        } catch (RuntimeException e) {
+            liberarAutorizacao(consulta, paciente, planoSaude);
+            throw e;
+        }
+        if (!resultado.isSucesso()) {
+            liberarAutorizacao(consulta, paciente, planoSaude);
+        }
+        return resultado;
+    }
+
+    private ResultadoReembolso calcularAutorizadoComPlano(Consulta consulta, PlanoSaude planoSaude) {
         // EX7 - Registra auditoria
+        registrarAuditoria(consulta);
+
+        long inicio = System.nanoTime();
+        Span trecho = rastreamento.iniciarEtapa(MetricasReembolso.Etapa.CALCULAR);
+        BigDecimal valorReembolso;
+        try {
+            CodigoErro erro = calculadoraReembolso.validarComPlano(consulta, planoSaude);
+            if (erro != null) {
+                return falhaValidacao(trecho, erro);
+            }
+            valorReembolso = calculadoraReembolso.calcularComPlano(consulta, planoSaude);
+        } catch (RuntimeException e) {
+            registrarErroCalculo(trecho, e);
+            throw e;
+        } finally {
+            rastreamento.finalizarEtapa(trecho);
+        }
+        metricas.registrarEtapa(MetricasReembolso.Etapa.CALCULAR, inicio);
+
+        return ResultadoReembolso.sucesso(valorReembolso);
+    }
+
+    private void liberarAutorizacao(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+        if (autorizadorReembolso != null) {
+            autorizadorReembolso.liberar(consulta, paciente, planoSaude);
+        }
+    }
+
+    private void registrarAuditoria(Consulta consulta) {
         if (auditoria != null) {
-            auditoria.registrarConsulta(consulta);
+            long inicio = System.nanoTime();
+            Span trecho = rastreamento.iniciarEtapa(MetricasReembolso.Etapa.AUDITAR);
+            try {
+                auditoria.registrarConsulta(consulta);
+            } catch (RuntimeException e) {
+                rastreamento.registrarErro(trecho, e);
+                throw e;
+            } finally {
+                rastreamento.finalizarEtapa(trecho);
+            }
+            metricas.registrarEtapa(MetricasReembolso.Etapa.AUDITAR, inicio);
         }
+    }
 
-        return calculadoraReembolso.calcularComPlano(consulta, planoSaude);
+    private ResultadoReembolso validarPaciente(Consulta consulta) {
+        CodigoErro erro = registroPacientes.validar(consulta == null ? null : consulta.getPaciente());
+        if (erro == null) {
+            return null;
+        }
+        metricas.registrarErroValidacao();
+        return ResultadoReembolso.invalido(erro);
+    }
+
+    private ResultadoReembolso falhaValidacao(Span trecho, CodigoErro erro) {
+        metricas.registrarErroValidacao();
+        ResultadoReembolso falha = ResultadoReembolso.invalido(erro);
+        rastreamento.registrarFalha(trecho, falha);
+        return falha;
+    }
+
+    private void registrarErroCalculo(Span trecho, RuntimeException e) {
+        if (e instanceof IllegalArgumentException) {
+            metricas.registrarErroValidacao();
+        }
+        rastreamento.registrarErro(trecho, e);
+    }
+
+    private ReservaTetoAnual reservarTetoAnual(Paciente paciente, BigDecimal valorReembolso) {
+        return tetoAnual == null ? null : tetoAnual.reservar(paciente.getCpf(), valorReembolso);
+    }
+
+    // EX8 - Uma única chamada retorna a decisão e o motivo, sem estado compartilhado
+    private ResultadoReembolso avaliarAutorizacao(Consulta consulta, Paciente paciente, PlanoSaude planoSaude) {
+        if (autorizadorReembolso == null) {
+            return null;
+        }
+        long inicio = System.nanoTime();
+        Span trecho = rastreamento.iniciarEtapa(MetricasReembolso.Etapa.AUTORIZAR);
+        try {
+            DecisaoAutorizacao decisao = planoSaude != null && autorizadorReembolso instanceof AutorizadorReembolsoComPlano comPlano
+                    ? comPlano.avaliar(consulta, paciente, planoSaude)
+                    : autorizadorReembolso.avaliar(consulta, paciente);
+            metricas.registrarEtapa(MetricasReembolso.Etapa.AUTORIZAR, inicio);
+            if (decisao.isAutorizado()) {
+                return null;
+            }
+            metricas.registrarNegacao(decisao.getMotivo());
+            ResultadoReembolso negado = ResultadoReembolso.negado(decisao.getMotivo());
+            rastreamento.registrarFalha(trecho, negado);
+            return negado;
+        } catch (RuntimeException e) {
+            rastreamento.registrarErro(trecho, e);
+            throw e;
+        } finally {
+            rastreamento.finalizarEtapa(trecho);
+        }
     }
 
     /**
@@ -111,6 +318,48 @@ public class ReembolsoService {
      * @return Lista de histórico do paciente
      */
     public List<HistoricoResponse> buscarHistoricoPorPaciente(String cpf) {
-        return historicoConsultas.buscarHistoricoPorPaciente(cpf);
+        return historicoConsultas.buscarHistoricoPorPaciente(CodificadorCpf.canonico(cpf));
+    }
+
+    /**
+     * Busca uma página do histórico completo
+     *
+     * @param apos Cursor do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico e cursor da próxima página
+     */
+    public PaginaHistoricoResponse buscarHistorico(long apos, int limite) {
+        return historicoConsultas.buscarHistorico(apos, limite);
+    }
+
+    /**
+     * Busca uma página do histórico de um paciente
+     *
+     * @param cpf CPF do paciente
+     * @param apos Cursor do último item já lido (0 para a primeira página)
+     * @param limite Quantidade máxima de itens
+     * @return Página do histórico do paciente e cursor da próxima página
+     */
+    public PaginaHistoricoResponse buscarHistoricoPorPaciente(String cpf, long apos, int limite) {
+        return historicoConsultas.buscarHistoricoPorPaciente(CodificadorCpf.canonico(cpf), apos, limite);
+    }
+
+    /**
+     * Percorre o histórico completo para exportação, um item por vez
+     *
+     * @param consumidor Recebe cada item do histórico em ordem de gravação
+     */
+    public void exportarHistorico(Consumer<? super HistoricoResponse> consumidor) {
+        historicoConsultas.percorrerHistorico(consumidor);
+    }
+
+    /**
+     * Busca o resumo dos reembolsos de um paciente
+     *
+     * @param cpf CPF do paciente
+     * @return Quantidade de consultas, totais e consultas que atingiram o teto
+     */
+    public ResumoPacienteResponse buscarResumoPorPaciente(String cpf) {
+        return historicoConsultas.buscarResumoPorPaciente(CodificadorCpf.canonico(cpf));
     }
 }
@@ -0,0 +1,38 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.model.Paciente;
+
+import java.math.BigDecimal;
+
+/**
+ * Registro imutável de uma consulta no histórico
+ *
+ * Guarda uma cópia dos valores da consulta no momento em que foi salva.
+ */
+record RegistroHistorico(
+        long sequencia,
+        BigDecimal valor,
+        BigDecimal percentualCobertura,
+        BigDecimal valorReembolso,
+        Paciente paciente
+) {
+
+    /**
+     * Indica se o registro já tem reembolso calculado e pode ser exibido
+     */
+    boolean temReembolso() {
+        return valorReembolso != null;
+    }
+
+    HistoricoResponse paraResponse() {
+        ReembolsoResponse reembolso = new ReembolsoResponse(
+                valor,
+                percentualCobertura,
+                valorReembolso,
+                "sucesso"
+        );
+        return new HistoricoResponse(reembolso, paciente);
+    }
+}
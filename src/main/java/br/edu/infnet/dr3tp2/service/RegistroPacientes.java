@@ -0,0 +1,195 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de pacientes: uma única instância de Paciente por CPF
+ *
+ * Cada CPF recebe, na primeira vez que aparece, um id inteiro sequencial e
+ * a instância que fica valendo para ele (a primeira informada; o CPF é a
+ * identidade do paciente). Consultas seguintes do mesmo CPF reaproveitam
+ * essa instância, e os históricos podem guardar só o id.
+ *
+ * O CPF é normalizado uma vez, na entrada, para a forma canônica
+ * (CodificadorCpf.canonico): "123.456.789-09" e "12345678909" são o mesmo
+ * paciente, e a instância registrada sempre traz o CPF formatado.
+ *
+ * A busca por CPF é uma leitura no ConcurrentHashMap, sem lock. Registrar
+ * um CPF novo usa o lock do próprio mapa para a chave e, para o array de
+ * ids, um lock curto do registro.
+ *
+ * Só registram os armazenamentos que guardam o id ou a instância por CPF
+ * (o registro cresce com eles). O cálculo do reembolso usa normalizar, que
+ * valida e põe o CPF na forma canônica sem registrar: CPFs de requisições
+ * não ficam retidos aqui.
+ *
+ * Por padrão (reembolso.pacientes.exigir-formato-cpf=true) o CPF precisa
+ * estar num dos formatos do CodificadorCpf; com reembolso.pacientes.validar-cpf=true
+ * também os dígitos verificadores. O nome é limitado a
+ * reembolso.pacientes.tamanho-maximo-nome caracteres (0 = sem limite). O
+ * paciente anônimo é aceito sempre.
+ */
+@Component
+public class RegistroPacientes {
+
+    /**
+     * Paciente das consultas que chegam sem paciente informado
+     */
+    public static final Paciente ANONIMO = new Paciente("Dummy", "000.000.000-00");
+
+    private final ConcurrentHashMap<String, Registrado> porCpf = new ConcurrentHashMap<>();
+    private volatile Paciente[] porId = new Paciente[1024];
+    private int quantidade;
+
+    private final boolean validarCpf;
+    private final boolean exigirFormato;
+    private final int tamanhoMaximoNome;
+
+    public RegistroPacientes() {
+        this(false);
+    }
+
+    public RegistroPacientes(boolean validarCpf) {
+        this(validarCpf, false, 0);
+    }
+
+    @Autowired
+    public RegistroPacientes(
+            @Value("${reembolso.pacientes.validar-cpf:false}") boolean validarCpf,
+            @Value("${reembolso.pacientes.exigir-formato-cpf:true}") boolean exigirFormato,
+            @Value("${reembolso.pacientes.tamanho-maximo-nome:120}") int tamanhoMaximoNome) {
+        if (tamanhoMaximoNome < 0) {
+            throw new IllegalArgumentException("Tamanho máximo do nome inválido: " + tamanhoMaximoNome);
+        }
+        this.validarCpf = validarCpf;
+        this.exigirFormato = exigirFormato;
+        this.tamanhoMaximoNome = tamanhoMaximoNome;
+    }
+
+    /**
+     * Devolve a instância registrada para o CPF do paciente informado
+     *
+     * @param informado Paciente vindo da requisição (null para o paciente anônimo)
+     * @return Instância única do paciente
+     * @throws IllegalArgumentException se o paciente for informado sem CPF
+     */
+    public Paciente resolver(Paciente informado) {
+        if (informado == null) {
+            informado = ANONIMO;
+        }
+        return registrado(informado).paciente();
+    }
+
+    /**
+     * Paciente validado e com o CPF na forma canônica, sem registrá-lo
+     *
+     * @param informado Paciente vindo da requisição (null para o paciente anônimo)
+     * @return O próprio paciente, ou uma cópia se o CPF mudou de grafia
+     * @throws IllegalArgumentException se validar recusar o paciente
+     */
+    public Paciente normalizar(Paciente informado) {
+        if (informado == null) {
+            return ANONIMO;
+        }
+        CodigoErro erro = validar(informado);
+        if (erro != null) {
+            throw new IllegalArgumentException(erro.getMensagem());
+        }
+        String cpf = CodificadorCpf.canonico(informado.getCpf());
+        return cpf.equals(informado.getCpf()) ? informado : new Paciente(informado.getNome(), cpf);
+    }
+
+    /**
+     * Valida o paciente informado sem registrá-lo
+     *
+     * @param informado Paciente vindo da requisição (null para o paciente anônimo)
+     * @return null se resolver aceitar o paciente, senão o erro encontrado
+     */
+    public CodigoErro validar(Paciente informado) {
+        if (informado == null) {
+            return null;
+        }
+        String cpf = informado.getCpf();
+        if (cpf == null || cpf.isBlank()) {
+            return CodigoErro.CPF_OBRIGATORIO;
+        }
+        if (tamanhoMaximoNome > 0 && informado.getNome() != null && informado.getNome().length() > tamanhoMaximoNome) {
+            return CodigoErro.NOME_MUITO_LONGO;
+        }
+        if ((validarCpf || exigirFormato) && !cpf.equals(ANONIMO.getCpf())
+                && !porCpf.containsKey(CodificadorCpf.canonico(cpf))) {
+            long codificado = validarCpf ? CodificadorCpf.codificarValido(cpf) : CodificadorCpf.codificar(cpf);
+            if (codificado == CodificadorCpf.INVALIDO) {
+                return CodigoErro.CPF_INVALIDO;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Id do paciente, registrando o CPF se ainda não existir
+     *
+     * @param paciente Paciente com CPF
+     * @return Id sequencial do CPF (começa em 0)
+     */
+    public int registrar(Paciente paciente) {
+        return registrado(paciente).id();
+    }
+
+    /**
+     * Id de um CPF já registrado
+     *
+     * @param cpf CPF do paciente, em qualquer das grafias aceitas
+     * @return Id do CPF ou -1 se não estiver registrado
+     */
+    public int buscarId(String cpf) {
+        Registrado registrado = cpf == null ? null : porCpf.get(CodificadorCpf.canonico(cpf));
+        return registrado == null ? -1 : registrado.id();
+    }
+
+    /**
+     * Paciente de um id devolvido por registrar
+     */
+    public Paciente buscar(int id) {
+        return porId[id];
+    }
+
+    public int getQuantidade() {
+        return porCpf.size();
+    }
+
+    private Registrado registrado(Paciente paciente) {
+        String cpf = CodificadorCpf.canonico(paciente.getCpf());
+        Registrado registrado = cpf == null ? null : porCpf.get(cpf);
+        if (registrado != null) {
+            return registrado;
+        }
+        CodigoErro erro = validar(paciente);
+        if (erro != null) {
+            throw new IllegalArgumentException(erro.getMensagem());
+        }
+        Paciente canonico = cpf.equals(paciente.getCpf()) ? paciente : new Paciente(paciente.getNome(), cpf);
+        return porCpf.computeIfAbsent(cpf, chave -> new Registrado(proximoId(canonico), canonico));
+    }
+
+    private synchronized int proximoId(Paciente paciente) {
+        int id = quantidade;
+        Paciente[] tabela = porId;
+        if (id == tabela.length) {
+            tabela = Arrays.copyOf(tabela, tabela.length * 2);
+        }
+        tabela[id] = paciente;
+        // Escrita volátil publica a posição junto com o array
+        porId = tabela;
+        quantidade = id + 1;
+        return id;
+    }
+
+    private record Registrado(int id, Paciente paciente) {}
+}
@@ -0,0 +1,139 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro dos planos de saúde configurados
+ *
+ * Os planos são lidos de "reembolso.planos.&lt;codigo&gt;.nome" e
+ * "reembolso.planos.&lt;codigo&gt;.cobertura" e ficam em uma tabela imutável.
+ * A busca pelo código ignora maiúsculas/minúsculas sem criar objetos. A
+ * recarga monta uma tabela nova e troca a referência de uma vez: requisições
+ * em andamento continuam com os planos que já resolveram.
+ */
+@Component
+public class RegistroPlanosSaude {
+
+    static final String PREFIXO = "reembolso.planos";
+
+    private final Environment environment;
+    private volatile TabelaPlanos tabela;
+
+    public RegistroPlanosSaude(Environment environment) {
+        this.environment = environment;
+        recarregar();
+    }
+
+    /**
+     * Busca o plano pelo código, sem diferenciar maiúsculas/minúsculas
+     *
+     * @param codigo Código do plano
+     * @return Plano configurado ou null se não existir
+     */
+    public PlanoConfigurado resolver(String codigo) {
+        return codigo == null ? null : tabela.buscar(codigo);
+    }
+
+    /**
+     * Planos atualmente carregados
+     */
+    public List<PlanoConfigurado> getPlanos() {
+        return tabela.listar();
+    }
+
+    /**
+     * Recarrega os planos a partir da configuração atual do Environment
+     *
+     * @throws IllegalArgumentException se algum plano for inválido (os planos atuais são mantidos)
+     */
+    public void recarregar() {
+        Map<String, DefinicaoPlano> definicoes = Binder.get(environment)
+                .bind(PREFIXO, Bindable.mapOf(String.class, DefinicaoPlano.class))
+                .orElse(Map.of());
+
+        List<PlanoConfigurado> planos = new ArrayList<>(definicoes.size());
+        definicoes.forEach((codigo, definicao) ->
+                planos.add(new PlanoConfigurado(codigo, definicao.nome(), definicao.cobertura())));
+        recarregar(planos);
+    }
+
+    /**
+     * Substitui todos os planos de uma vez
+     *
+     * @param planos Novos planos
+     * @throws IllegalArgumentException para códigos repetidos (os planos atuais são mantidos)
+     */
+    public void recarregar(Collection<PlanoConfigurado> planos) {
+        tabela = new TabelaPlanos(planos);
+    }
+
+    /**
+     * Hash de código de plano que ignora maiúsculas/minúsculas, sem criar objetos
+     */
+    static int hashIgnorandoCaixa(String codigo) {
+        int hash = 0;
+        for (int i = 0; i < codigo.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(codigo.charAt(i)));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Definição de um plano na configuração
+     */
+    record DefinicaoPlano(String nome, BigDecimal cobertura) {}
+
+    /**
+     * Tabela hash de endereçamento aberto com hash que ignora maiúsculas
+     */
+    private static final class TabelaPlanos {
+
+        private final PlanoConfigurado[] planos;
+        private final int mascara;
+        private final List<PlanoConfigurado> lista;
+
+        TabelaPlanos(Collection<PlanoConfigurado> origem) {
+            int capacidade = Integer.highestOneBit(Math.max(origem.size(), 1) * 4 - 1) << 1;
+            this.planos = new PlanoConfigurado[capacidade];
+            this.mascara = capacidade - 1;
+
+            for (PlanoConfigurado plano : origem) {
+                if (buscar(plano.getCodigo()) != null) {
+                    throw new IllegalArgumentException("Código de plano repetido: " + plano.getCodigo());
+                }
+                int indice = hashIgnorandoCaixa(plano.getCodigo()) & mascara;
+                while (planos[indice] != null) {
+                    indice = (indice + 1) & mascara;
+                }
+                planos[indice] = plano;
+            }
+            this.lista = List.copyOf(origem);
+        }
+
+        PlanoConfigurado buscar(String codigo) {
+            int indice = hashIgnorandoCaixa(codigo) & mascara;
+            PlanoConfigurado plano;
+            while ((plano = planos[indice]) != null) {
+                String atual = plano.getCodigo();
+                if (atual.length() == codigo.length() && atual.regionMatches(true, 0, codigo, 0, codigo.length())) {
+                    return plano;
+                }
+                indice = (indice + 1) & mascara;
+            }
+            return null;
+        }
+
+        List<PlanoConfigurado> listar() {
+            return lista;
+        }
+    }
+}
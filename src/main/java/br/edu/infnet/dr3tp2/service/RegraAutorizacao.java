@@ -0,0 +1,64 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Definição de uma regra de autorização, como lida da configuração
+ *
+ * Exemplo ("reembolso.autorizacao.regras[i]"):
+ * <pre>
+ * tipo=LIMITE_VALOR, plano=basico, valor-maximo=1000.00
+ * tipo=CPF_BLOQUEADO, cpfs=111.111.111-11,222.222.222-22
+ * tipo=COBERTURA, cobertura-minima=0.10, cobertura-maxima=0.90
+ * tipo=FREQUENCIA, maximo=5, janela=24h
+ * </pre>
+ *
+ * @param tipo Tipo da regra
+ * @param plano Código do plano ao qual a regra se aplica (null para todos)
+ * @param valorMaximo Valor máximo da consulta (LIMITE_VALOR)
+ * @param cpfs CPFs bloqueados (CPF_BLOQUEADO)
+ * @param coberturaMinima Cobertura mínima, inclusive (COBERTURA, opcional)
+ * @param coberturaMaxima Cobertura máxima, inclusive (COBERTURA, opcional)
+ * @param maximo Consultas permitidas por CPF dentro da janela (FREQUENCIA)
+ * @param janela Duração da janela deslizante (FREQUENCIA)
+ * @param capacidade CPFs acompanhados ao mesmo tempo (FREQUENCIA, opcional)
+ * @param motivo Motivo informado na negação (null usa o motivo padrão do tipo)
+ */
+public record RegraAutorizacao(
+        Tipo tipo,
+        String plano,
+        BigDecimal valorMaximo,
+        List<String> cpfs,
+        BigDecimal coberturaMinima,
+        BigDecimal coberturaMaxima,
+        Integer maximo,
+        Duration janela,
+        Integer capacidade,
+        MotivoNegacao motivo
+) {
+
+    public enum Tipo {
+        LIMITE_VALOR,
+        CPF_BLOQUEADO,
+        COBERTURA,
+        FREQUENCIA
+    }
+
+    public static RegraAutorizacao limiteValor(String plano, BigDecimal valorMaximo) {
+        return new RegraAutorizacao(Tipo.LIMITE_VALOR, plano, valorMaximo, null, null, null, null, null, null, null);
+    }
+
+    public static RegraAutorizacao cpfsBloqueados(List<String> cpfs) {
+        return new RegraAutorizacao(Tipo.CPF_BLOQUEADO, null, null, cpfs, null, null, null, null, null, null);
+    }
+
+    public static RegraAutorizacao cobertura(String plano, BigDecimal minima, BigDecimal maxima) {
+        return new RegraAutorizacao(Tipo.COBERTURA, plano, null, null, minima, maxima, null, null, null, null);
+    }
+
+    public static RegraAutorizacao frequencia(String plano, int maximo, Duration janela) {
+        return new RegraAutorizacao(Tipo.FREQUENCIA, plano, null, null, null, null, maximo, janela, null, null);
+    }
+}
@@ -0,0 +1,20 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Parte do teto anual reservada para uma consulta
+ *
+ * @param cpf CPF do paciente
+ * @param ano Ano do saldo em que a reserva foi feita
+ * @param centavos Valor concedido em centavos (zero quando o teto foi atingido)
+ */
+public record ReservaTetoAnual(String cpf, int ano, long centavos) {
+
+    /**
+     * Valor concedido em reais
+     */
+    public BigDecimal valor() {
+        return CalculoPontoFixo.paraReais(centavos);
+    }
+}
@@ -0,0 +1,135 @@
+package br.edu.infnet.dr3tp2.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de um cálculo de reembolso sem exceções
+ *
+ * Ou traz o valor do reembolso, ou o motivo da falha: um CodigoErro para
+ * dados inválidos ou um MotivoNegacao para consultas não autorizadas. Todas
+ * as falhas são pré-alocadas, como em DecisaoAutorizacao; só o sucesso cria
+ * um objeto, com o valor.
+ */
+public final class ResultadoReembolso {
+
+    private static final ResultadoReembolso[] INVALIDOS = criarInvalidos();
+    private static final ResultadoReembolso[] NEGADOS = criarNegados();
+
+    private final BigDecimal valor;
+    private final CodigoErro erro;
+    private final MotivoNegacao motivo;
+
+    private ResultadoReembolso(BigDecimal valor, CodigoErro erro, MotivoNegacao motivo) {
+        this.valor = valor;
+        this.erro = erro;
+        this.motivo = motivo;
+    }
+
+    public static ResultadoReembolso sucesso(BigDecimal valor) {
+        return new ResultadoReembolso(valor, null, null);
+    }
+
+    /**
+     * Falha pré-alocada para dados inválidos
+     */
+    public static ResultadoReembolso invalido(CodigoErro erro) {
+        return INVALIDOS[erro.ordinal()];
+    }
+
+    /**
+     * Falha pré-alocada para consulta não autorizada
+     */
+    public static ResultadoReembolso negado(MotivoNegacao motivo) {
+        return NEGADOS[motivo.ordinal()];
+    }
+
+    /**
+     * Todas as falhas possíveis, para quem quiser pré-montar respostas
+     */
+    public static List<ResultadoReembolso> falhas() {
+        List<ResultadoReembolso> falhas = new ArrayList<>(INVALIDOS.length + NEGADOS.length);
+        falhas.addAll(List.of(INVALIDOS));
+        falhas.addAll(List.of(NEGADOS));
+        return falhas;
+    }
+
+    public boolean isSucesso() {
+        return erro == null && motivo == null;
+    }
+
+    /**
+     * @return Valor do reembolso ou null se houve falha
+     */
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    /**
+     * @return Erro de validação ou null
+     */
+    public CodigoErro getErro() {
+        return erro;
+    }
+
+    /**
+     * @return Motivo da negação ou null
+     */
+    public MotivoNegacao getMotivo() {
+        return motivo;
+    }
+
+    /**
+     * Código estável da falha (CodigoErro ou MotivoNegacao), null no sucesso
+     */
+    public String getCodigo() {
+        return erro != null ? erro.getCodigo() : motivo != null ? motivo.getCodigo() : null;
+    }
+
+    /**
+     * Mensagem da falha, a mesma das exceções do caminho tradicional
+     */
+    public String getMensagem() {
+        return erro != null ? erro.getMensagem() : motivo != null ? motivo.getMensagemNegacao() : null;
+    }
+
+    /**
+     * Valor do reembolso, ou a exceção equivalente à falha
+     *
+     * @throws IllegalArgumentException para dados inválidos
+     * @throws ReembolsoNaoAutorizadoException para consultas não autorizadas
+     */
+    public BigDecimal obterValor() {
+        if (erro != null) {
+            throw new IllegalArgumentException(erro.getMensagem());
+        }
+        if (motivo != null) {
+            throw new ReembolsoNaoAutorizadoException(DecisaoAutorizacao.negada(motivo));
+        }
+        return valor;
+    }
+
+    private static ResultadoReembolso[] criarInvalidos() {
+        CodigoErro[] erros = CodigoErro.values();
+        ResultadoReembolso[] invalidos = new ResultadoReembolso[erros.length];
+        for (CodigoErro erro : erros) {
+            invalidos[erro.ordinal()] = new ResultadoReembolso(null, erro, null);
+        }
+        return invalidos;
+    }
+
+    private static ResultadoReembolso[] criarNegados() {
+        MotivoNegacao[] motivos = MotivoNegacao.values();
+        ResultadoReembolso[] negados = new ResultadoReembolso[motivos.length];
+        for (MotivoNegacao motivo : motivos) {
+            negados[motivo.ordinal()] = new ResultadoReembolso(null, null, motivo);
+        }
+        return negados;
+    }
+
+    @Override
+    public String toString() {
+        return isSucesso() ? "SUCESSO(" + valor + ")" : "FALHA(" + getCodigo() + ")";
+    }
+}
@@ -0,0 +1,84 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totais de reembolso de um paciente, atualizados a cada consulta salva
+ *
+ * Valores com até 2 casas são somados em centavos com LongAdder; os demais
+ * (raros) vão para um acumulador BigDecimal. Assim o resumo é lido em O(1),
+ * sem percorrer o histórico.
+ */
+final class ResumoPaciente {
+
+    private static final BigDecimal TETO_REEMBOLSO = BigDecimal.valueOf(CalculoPontoFixo.TETO_CENTAVOS, 2);
+
+    private final LongAdder quantidade = new LongAdder();
+    private final LongAdder reembolsosNoTeto = new LongAdder();
+    private final LongAdder valorCentavos = new LongAdder();
+    private final LongAdder reembolsoCentavos = new LongAdder();
+    private final AtomicReference<BigDecimal> valorRestante = new AtomicReference<>(BigDecimal.ZERO);
+    private final AtomicReference<BigDecimal> reembolsoRestante = new AtomicReference<>(BigDecimal.ZERO);
+
+    /**
+     * Soma uma consulta reembolsada aos totais
+     *
+     * @param valor Valor da consulta
+     * @param valorReembolso Valor do reembolso calculado
+     */
+    void registrar(BigDecimal valor, BigDecimal valorReembolso) {
+        quantidade.increment();
+        somar(valor, valorCentavos, valorRestante);
+
+        long centavos = somar(valorReembolso, reembolsoCentavos, reembolsoRestante);
+        if (centavos == CalculoPontoFixo.TETO_CENTAVOS
+                || (centavos == CalculoPontoFixo.NAO_REPRESENTAVEL && valorReembolso != null
+                && valorReembolso.compareTo(TETO_REEMBOLSO) == 0)) {
+            reembolsosNoTeto.increment();
+        }
+    }
+
+    /**
+     * Soma os totais de outro resumo a este (usado ao reconstruir índices)
+     */
+    void combinar(ResumoPaciente outro) {
+        quantidade.add(outro.quantidade.sum());
+        reembolsosNoTeto.add(outro.reembolsosNoTeto.sum());
+        valorCentavos.add(outro.valorCentavos.sum());
+        reembolsoCentavos.add(outro.reembolsoCentavos.sum());
+        valorRestante.accumulateAndGet(outro.valorRestante.get(), BigDecimal::add);
+        reembolsoRestante.accumulateAndGet(outro.reembolsoRestante.get(), BigDecimal::add);
+    }
+
+    ResumoPacienteResponse paraResponse(String cpf) {
+        return new ResumoPacienteResponse(
+                cpf,
+                quantidade.sum(),
+                BigDecimal.valueOf(valorCentavos.sum(), 2).add(valorRestante.get()),
+                BigDecimal.valueOf(reembolsoCentavos.sum(), 2).add(reembolsoRestante.get()),
+                reembolsosNoTeto.sum()
+        );
+    }
+
+    static ResumoPacienteResponse vazio(String cpf) {
+        return new ResumoPacienteResponse(cpf, 0, BigDecimal.ZERO.setScale(2), BigDecimal.ZERO.setScale(2), 0);
+    }
+
+    private static long somar(BigDecimal valor, LongAdder centavos, AtomicReference<BigDecimal> restante) {
+        if (valor == null) {
+            return CalculoPontoFixo.NAO_REPRESENTAVEL;
+        }
+
+        long emCentavos = CalculoPontoFixo.paraCentavos(valor);
+        if (emCentavos != CalculoPontoFixo.NAO_REPRESENTAVEL) {
+            centavos.add(emCentavos);
+        } else {
+            restante.accumulateAndGet(valor, BigDecimal::add);
+        }
+        return emCentavos;
+    }
+}
@@ -0,0 +1,268 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Paciente;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Arquivo de segmento do histórico mapeado em memória
+ *
+ * O segmento é um array de registros binários de tamanho fixo. Cada registro
+ * termina com o CRC32 dos bytes anteriores, o que permite identificar
+ * registros incompletos (gravação interrompida) na recuperação.
+ *
+ * Layout do registro (128 bytes, big-endian):
+ * <pre>
+ *   0  long  sequência (posição global + 1; 0 = posição vazia)
+ *   8  long  instante da gravação (epoch em ms)
+ *  16  long  valor da consulta (unscaled)
+ *  24  long  percentual de cobertura (unscaled)
+ *  32  long  valor do reembolso (unscaled)
+ *  40  byte  escala do valor
+ *  41  byte  escala do percentual
+ *  42  byte  escala do reembolso
+ *  43  byte  flags (valor, percentual e reembolso presentes)
+ *  44  byte  tamanho do CPF
+ *  45  byte  tamanho do nome
+ *  48  16 bytes CPF (ASCII)
+ *  64  60 bytes nome do paciente (UTF-8)
+ * 124  int   CRC32 dos bytes 0..123
+ * </pre>
+ *
+ * Gravações usam apenas operações absolutas no buffer, então threads
+ * diferentes podem gravar posições diferentes ao mesmo tempo.
+ */
+final class SegmentoHistorico implements AutoCloseable {
+
+    static final int TAMANHO_REGISTRO = 128;
+
+    private static final int SEQUENCIA = 0;
+    private static final int INSTANTE = 8;
+    private static final int VALOR = 16;
+    private static final int PERCENTUAL = 24;
+    private static final int REEMBOLSO = 32;
+    private static final int ESCALA_VALOR = 40;
+    private static final int ESCALA_PERCENTUAL = 41;
+    private static final int ESCALA_REEMBOLSO = 42;
+    private static final int FLAGS = 43;
+    private static final int TAMANHO_CPF = 44;
+    private static final int TAMANHO_NOME = 45;
+    private static final int CPF = 48;
+    private static final int NOME = 64;
+    private static final int CHECKSUM = 124;
+
+    static final int MAXIMO_BYTES_CPF = NOME - CPF;
+    static final int MAXIMO_BYTES_NOME = CHECKSUM - NOME;
+
+    private static final int TEM_VALOR = 1;
+    private static final int TEM_PERCENTUAL = 2;
+    private static final int TEM_REEMBOLSO = 4;
+
+    // CRC32 e cópia dos bytes do registro reaproveitados por thread: o buffer
+    // é compartilhado, então a leitura usa só o get absoluto, sem slice
+    private static final ThreadLocal<Checksum> CHECKSUM_POR_THREAD = ThreadLocal.withInitial(Checksum::new);
+
+    private final FileChannel canal;
+    private final MappedByteBuffer buffer;
+    private final int capacidade;
+
+    private SegmentoHistorico(FileChannel canal, MappedByteBuffer buffer, int capacidade) {
+        this.canal = canal;
+        this.buffer = buffer;
+        this.capacidade = capacidade;
+    }
+
+    /**
+     * Abre (ou cria) o arquivo do segmento e mapeia toda a sua capacidade
+     *
+     * @param arquivo Caminho do arquivo do segmento
+     * @param capacidade Quantidade de registros do segmento
+     */
+    static SegmentoHistorico abrir(Path arquivo, int capacidade) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long tamanho = (long) capacidade * TAMANHO_REGISTRO;
+            if (canal.size() != 0 && canal.size() != tamanho) {
+                throw new IOException("Segmento " + arquivo + " não corresponde a " + capacidade + " registros");
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+            return new SegmentoHistorico(canal, buffer, capacidade);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    int capacidade() {
+        return capacidade;
+    }
+
+    /**
+     * Grava o registro na posição indicada, com o checksum por último
+     */
+    void gravar(int posicao, long sequencia, long instante, BigDecimal valor, BigDecimal percentualCobertura,
+                BigDecimal valorReembolso, byte[] cpf, byte[] nome) {
+        int inicio = posicao * TAMANHO_REGISTRO;
+        int flags = 0;
+
+        buffer.putLong(inicio + SEQUENCIA, sequencia);
+        buffer.putLong(inicio + INSTANTE, instante);
+        if (valor != null) {
+            gravarDecimal(inicio + VALOR, inicio + ESCALA_VALOR, valor);
+            flags |= TEM_VALOR;
+        }
+        if (percentualCobertura != null) {
+            gravarDecimal(inicio + PERCENTUAL, inicio + ESCALA_PERCENTUAL, percentualCobertura);
+            flags |= TEM_PERCENTUAL;
+        }
+        if (valorReembolso != null) {
+            gravarDecimal(inicio + REEMBOLSO, inicio + ESCALA_REEMBOLSO, valorReembolso);
+            flags |= TEM_REEMBOLSO;
+        }
+        buffer.put(inicio + FLAGS, (byte) flags);
+        buffer.put(inicio + TAMANHO_CPF, (byte) cpf.length);
+        buffer.put(inicio + TAMANHO_NOME, (byte) nome.length);
+        buffer.put(inicio + CPF, cpf);
+        buffer.put(inicio + NOME, nome);
+
+        buffer.putInt(inicio + CHECKSUM, checksum(inicio));
+    }
+
+    /**
+     * Lê o registro da posição indicada
+     */
+    RegistroHistorico ler(int posicao) {
+        int inicio = posicao * TAMANHO_REGISTRO;
+        int flags = buffer.get(inicio + FLAGS);
+
+        byte[] cpf = new byte[buffer.get(inicio + TAMANHO_CPF)];
+        buffer.get(inicio + CPF, cpf);
+        byte[] nome = new byte[buffer.get(inicio + TAMANHO_NOME)];
+        buffer.get(inicio + NOME, nome);
+
+        return new RegistroHistorico(
+                buffer.getLong(inicio + SEQUENCIA),
+                (flags & TEM_VALOR) != 0 ? lerDecimal(inicio + VALOR, inicio + ESCALA_VALOR) : null,
+                (flags & TEM_PERCENTUAL) != 0 ? lerDecimal(inicio + PERCENTUAL, inicio + ESCALA_PERCENTUAL) : null,
+                (flags & TEM_REEMBOLSO) != 0 ? lerDecimal(inicio + REEMBOLSO, inicio + ESCALA_REEMBOLSO) : null,
+                new Paciente(new String(nome, StandardCharsets.UTF_8), new String(cpf, StandardCharsets.US_ASCII))
+        );
+    }
+
+    /**
+     * CPF gravado na posição, sem decodificar o restante do registro
+     */
+    String lerCpf(int posicao) {
+        int inicio = posicao * TAMANHO_REGISTRO;
+        byte[] cpf = new byte[buffer.get(inicio + TAMANHO_CPF)];
+        buffer.get(inicio + CPF, cpf);
+        return new String(cpf, StandardCharsets.US_ASCII);
+    }
+
+    long lerInstante(int posicao) {
+        return buffer.getLong(posicao * TAMANHO_REGISTRO + INSTANTE);
+    }
+
+    long lerSequencia(int posicao) {
+        return buffer.getLong(posicao * TAMANHO_REGISTRO + SEQUENCIA);
+    }
+
+    boolean temReembolso(int posicao) {
+        return (buffer.get(posicao * TAMANHO_REGISTRO + FLAGS) & TEM_REEMBOLSO) != 0;
+    }
+
+    /**
+     * Indica se a posição nunca foi gravada (todos os bytes zerados)
+     */
+    boolean isVazio(int posicao) {
+        int inicio = posicao * TAMANHO_REGISTRO;
+        for (int i = 0; i < TAMANHO_REGISTRO; i += Long.BYTES) {
+            if (buffer.getLong(inicio + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica se o registro está completo: checksum confere e a sequência
+     * corresponde à posição esperada
+     */
+    boolean isValido(int posicao, long sequenciaEsperada) {
+        int inicio = posicao * TAMANHO_REGISTRO;
+        return buffer.getLong(inicio + SEQUENCIA) == sequenciaEsperada
+                && buffer.getInt(inicio + CHECKSUM) == checksum(inicio);
+    }
+
+    /**
+     * Zera a posição, descartando um registro incompleto
+     */
+    void zerar(int posicao) {
+        int inicio = posicao * TAMANHO_REGISTRO;
+        for (int i = 0; i < TAMANHO_REGISTRO; i += Long.BYTES) {
+            buffer.putLong(inicio + i, 0L);
+        }
+    }
+
+    /**
+     * Força a gravação das páginas alteradas no disco (fsync)
+     */
+    void forcar() {
+        buffer.force();
+    }
+
+    /**
+     * Força a gravação no disco apenas das posições indicadas
+     *
+     * @param primeira Primeira posição alterada
+     * @param quantidade Quantidade de posições a partir da primeira
+     */
+    void forcar(int primeira, int quantidade) {
+        buffer.force(primeira * TAMANHO_REGISTRO, quantidade * TAMANHO_REGISTRO);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        canal.close();
+    }
+
+    private void gravarDecimal(int indice, int indiceEscala, BigDecimal valor) {
+        buffer.putLong(indice, valor.unscaledValue().longValueExact());
+        buffer.put(indiceEscala, (byte) valor.scale());
+    }
+
+    private BigDecimal lerDecimal(int indice, int indiceEscala) {
+        return BigDecimal.valueOf(buffer.getLong(indice), buffer.get(indiceEscala));
+    }
+
+    private int checksum(int inicio) {
+        Checksum checksum = CHECKSUM_POR_THREAD.get();
+        buffer.get(inicio, checksum.bytes);
+        checksum.crc.reset();
+        checksum.crc.update(checksum.bytes, 0, CHECKSUM);
+        return (int) checksum.crc.getValue();
+    }
+
+    private static final class Checksum {
+        private final CRC32 crc = new CRC32();
+        private final byte[] bytes = new byte[CHECKSUM];
+    }
+
+    /**
+     * Verifica se o valor cabe no layout (unscaled em long, escala em byte)
+     */
+    static boolean isRepresentavel(BigDecimal valor) {
+        return valor == null
+                || (valor.scale() >= Byte.MIN_VALUE && valor.scale() <= Byte.MAX_VALUE
+                && valor.unscaledValue().bitLength() < Long.SIZE);
+    }
+}
@@ -0,0 +1,195 @@
+package br.edu.infnet.dr3tp2.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teto anual de reembolso acumulado por CPF
+ *
+ * Cada CPF tem um AtomicLong com o ano e os centavos já reservados no ano
+ * empacotados no mesmo valor: reservar é um laço de compare-and-set, sem
+ * lock global nem lock por paciente. Duas requisições simultâneas do mesmo
+ * CPF nunca reservam juntas mais que o saldo. A virada do ano é preguiçosa:
+ * a primeira reserva do ano novo encontra o ano antigo e começa do zero.
+ * O saldo é indexado pelo CPF canônico: as duas grafias dividem o mesmo teto.
+ *
+ * O acumulado fica só em memória e é reconstruído do histórico na
+ * inicialização (reembolsos gravados desde o início do ano), para que
+ * reiniciar a aplicação não devolva o teto inteiro a quem já o usou.
+ */
+@Component
+@ConditionalOnProperty(name = "reembolso.teto-anual.habilitado", havingValue = "true")
+public class TetoAnualPaciente {
+
+    private static final int BITS_CENTAVOS = 48;
+    private static final long MASCARA_CENTAVOS = (1L << BITS_CENTAVOS) - 1;
+
+    private final long tetoCentavos;
+    private final ZoneId fuso;
+    private final ConcurrentHashMap<String, AtomicLong> reservadoPorPaciente = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    HistoricoConsultas historicoConsultas;
+
+    Clock relogio;
+
+    // Limites do ano corrente em epoch millis, recalculados só na virada
+    private volatile AnoCorrente anoCorrente;
+
+    @Autowired
+    public TetoAnualPaciente(
+            @Value("${reembolso.teto-anual.valor:5000.00}") BigDecimal teto,
+            @Value("${reembolso.teto-anual.fuso:America/Sao_Paulo}") ZoneId fuso) {
+        long centavos = CalculoPontoFixo.paraCentavos(teto);
+        if (centavos == CalculoPontoFixo.NAO_REPRESENTAVEL || centavos > MASCARA_CENTAVOS) {
+            throw new IllegalArgumentException("Teto anual inválido: " + teto);
+        }
+
+        this.tetoCentavos = centavos;
+        this.fuso = fuso;
+        this.relogio = Clock.system(fuso);
+    }
+
+    /**
+     * Soma ao saldo os reembolsos do ano corrente já gravados no histórico
+     */
+    @PostConstruct
+    public void reconstruir() {
+        if (historicoConsultas == null) {
+            return;
+        }
+        int ano = anoAtual();
+        historicoConsultas.percorrerHistoricoDesde(anoCorrente.inicio(), item -> {
+            BigDecimal valor = item.reembolso().valorReembolso();
+            long centavos = CalculoPontoFixo.paraCentavos(
+                    valor != null && valor.scale() > 2 ? valor.setScale(2, RoundingMode.UP) : valor);
+            if (centavos == CalculoPontoFixo.NAO_REPRESENTAVEL || centavos == 0) {
+                return;
+            }
+            String cpf = CodificadorCpf.canonico(item.paciente().getCpf());
+            reservadoPorPaciente.computeIfAbsent(cpf, chave -> new AtomicLong()).updateAndGet(atual ->
+                    empacotar(ano, Math.min(usadosNoAno(atual, ano) + centavos, MASCARA_CENTAVOS)));
+        });
+    }
+
+    /**
+     * Reserva o reembolso no saldo anual do paciente
+     *
+     * @param cpf CPF do paciente
+     * @param valorReembolso Reembolso calculado para a consulta
+     * @return Reserva com o valor concedido: o pedido inteiro, o saldo restante
+     * (reembolso parcial) ou zero quando o teto já foi atingido
+     */
+    public ReservaTetoAnual reservar(String cpf, BigDecimal valorReembolso) {
+        if (cpf == null) {
+            throw new IllegalArgumentException("CPF do paciente não pode ser nulo");
+        }
+        long pedido = CalculoPontoFixo.paraCentavos(valorReembolso);
+        if (pedido == CalculoPontoFixo.NAO_REPRESENTAVEL) {
+            throw new IllegalArgumentException("Valor de reembolso inválido: " + valorReembolso);
+        }
+
+        cpf = CodificadorCpf.canonico(cpf);
+        int ano = anoAtual();
+        AtomicLong reservado = reservadoPorPaciente.computeIfAbsent(cpf, chave -> new AtomicLong());
+        while (true) {
+            long atual = reservado.get();
+            long usados = usadosNoAno(atual, ano);
+            long concedido = Math.min(pedido, Math.max(tetoCentavos - usados, 0));
+            if (concedido == 0 && (atual >>> BITS_CENTAVOS) == ano) {
+                return new ReservaTetoAnual(cpf, ano, 0);
+            }
+            if (reservado.compareAndSet(atual, empacotar(ano, usados + concedido))) {
+                return new ReservaTetoAnual(cpf, ano, concedido);
+            }
+        }
+    }
+
+    /**
+     * Devolve uma reserva ao saldo (etapa posterior falhou)
+     *
+     * Reservas de um ano que já virou não são devolvidas: o saldo novo já
+     * começou do zero.
+     *
+     * @param reserva Reserva obtida em reservar
+     */
+    public void liberar(ReservaTetoAnual reserva) {
+        if (reserva == null || reserva.centavos() == 0) {
+            return;
+        }
+        AtomicLong reservado = reservadoPorPaciente.get(reserva.cpf());
+        if (reservado == null) {
+            return;
+        }
+        while (true) {
+            long atual = reservado.get();
+            if ((atual >>> BITS_CENTAVOS) != reserva.ano()) {
+                return;
+            }
+            long usados = atual & MASCARA_CENTAVOS;
+            long novo = empacotar(reserva.ano(), Math.max(usados - reserva.centavos(), 0));
+            if (reservado.compareAndSet(atual, novo)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Saldo anual ainda disponível para o paciente
+     *
+     * @param cpf CPF do paciente
+     * @return Saldo em reais
+     */
+    public BigDecimal consultarSaldo(String cpf) {
+        AtomicLong reservado = cpf == null ? null : reservadoPorPaciente.get(CodificadorCpf.canonico(cpf));
+        long usados = reservado == null ? 0 : usadosNoAno(reservado.get(), anoAtual());
+        return CalculoPontoFixo.paraReais(Math.max(tetoCentavos - usados, 0));
+    }
+
+    public BigDecimal getTeto() {
+        return CalculoPontoFixo.paraReais(tetoCentavos);
+    }
+
+    private int anoAtual() {
+        long agora = relogio.millis();
+        AnoCorrente corrente = anoCorrente;
+        if (corrente == null || agora < corrente.inicio() || agora >= corrente.fim()) {
+            corrente = AnoCorrente.de(agora, fuso);
+            anoCorrente = corrente;
+        }
+        return corrente.ano();
+    }
+
+    private static long usadosNoAno(long empacotado, int ano) {
+        return (empacotado >>> BITS_CENTAVOS) == ano ? empacotado & MASCARA_CENTAVOS : 0;
+    }
+
+    private static long empacotar(int ano, long centavos) {
+        return ((long) ano << BITS_CENTAVOS) | centavos;
+    }
+
+    /**
+     * Ano civil no fuso configurado, com início e fim em epoch millis
+     */
+    private record AnoCorrente(int ano, long inicio, long fim) {
+
+        static AnoCorrente de(long agora, ZoneId fuso) {
+            ZonedDateTime data = Instant.ofEpochMilli(agora).atZone(fuso);
+            ZonedDateTime inicio = data.withDayOfYear(1).toLocalDate().atStartOfDay(fuso);
+            return new AnoCorrente(data.getYear(), inicio.toInstant().toEpochMilli(),
+                    inicio.plusYears(1).toInstant().toEpochMilli());
+        }
+    }
+}
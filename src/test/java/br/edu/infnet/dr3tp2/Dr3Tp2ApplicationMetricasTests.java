@@ -0,0 +1,39 @@
+package br.edu.infnet.dr3tp2;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"reembolso.auditoria.habilitada=false", "reembolso.grpc.porta=0"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class Dr3Tp2ApplicationMetricasTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheusExpoeMetricasDoReembolso() throws Exception {
+        mockMvc.perform(post("/api/reembolso/calcular")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"valor\": 2500.00, \"percentualCobertura\": 0.70}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("reembolso_negacoes_total{motivo=\"VALOR_ACIMA_LIMITE\"")))
+                .andExpect(content().string(containsString("reembolso_etapa_seconds_bucket{etapa=\"autorizar\"")))
+                .andExpect(content().string(containsString("reembolso_historico_registros")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")));
+    }
+}
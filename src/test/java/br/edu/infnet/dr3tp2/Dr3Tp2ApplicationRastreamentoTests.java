@@ -0,0 +1,66 @@
+package br.edu.infnet.dr3tp2;
+
+import br.edu.infnet.dr3tp2.dto.RastroLentoResponse;
+import br.edu.infnet.dr3tp2.dto.TrechoRastroResponse;
+import br.edu.infnet.dr3tp2.service.ExportadorRastrosLentos;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "reembolso.auditoria.habilitada=false",
+        "reembolso.grpc.porta=0",
+        "management.tracing.sampling.probability=1.0",
+        "management.tracing.opentelemetry.export.schedule-delay=20ms",
+        "reembolso.rastreamento.limite-lento=0ms"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(metrics = false)
+class Dr3Tp2ApplicationRastreamentoTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExportadorRastrosLentos exportador;
+
+    @Test
+    void etapasDoCalculoFicamDentroDoSpanDaRequisicao() throws Exception {
+        mockMvc.perform(post("/api/reembolso/calcular")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"valor\": 200.00, \"percentualCobertura\": 0.70}"))
+                .andExpect(status().isOk());
+
+        // O BatchSpanProcessor exporta em segundo plano
+        long limite = System.currentTimeMillis() + 5_000;
+        while (exportador.getRastrosRetidos().isEmpty() && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+
+        RastroLentoResponse rastro = exportador.getRastrosRetidos().get(0);
+        List<String> nomes = rastro.trechos().stream().map(TrechoRastroResponse::nome).toList();
+        assertTrue(nomes.containsAll(List.of("reembolso.autorizar", "reembolso.calcular", "reembolso.persistir")), nomes.toString());
+
+        String idRequisicao = rastro.trechos().get(rastro.trechos().size() - 1).spanId();
+        rastro.trechos().stream()
+                .filter(trecho -> trecho.nome().startsWith("reembolso."))
+                .forEach(trecho -> assertEquals(idRequisicao, trecho.spanPai()));
+
+        mockMvc.perform(get("/actuator/rastros"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].trechos[*].nome", hasItem("reembolso.calcular")));
+    }
+}
@@ -0,0 +1,23 @@
+package br.edu.infnet.dr3tp2;
+
+import br.edu.infnet.dr3tp2.controller.ReembolsoController;
+import br.edu.infnet.dr3tp2.controller.ReembolsoReativoController;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"spring.main.web-application-type=reactive", "reembolso.grpc.porta=0"})
+class Dr3Tp2ApplicationReativaTests {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void contextLoadsComPilhaReativa() {
+        assertEquals(1, context.getBeanNamesForType(ReembolsoReativoController.class).length);
+        assertEquals(0, context.getBeanNamesForType(ReembolsoController.class).length);
+    }
+}
@@ -0,0 +1,96 @@
+package br.edu.infnet.dr3tp2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"reembolso.auditoria.habilitada=false", "reembolso.grpc.porta=0"})
+@AutoConfigureMockMvc
+class Dr3Tp2ApplicationRecargaTests {
+
+    private static final String FONTE = "recarga-teste";
+    private static final String CONSULTA = "{\"valor\": 100.00, \"percentualCobertura\": 0.70}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ConfigurableEnvironment environment;
+
+    private final Map<String, Object> propriedades = new HashMap<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        environment.getPropertySources().remove(FONTE);
+        mockMvc.perform(post("/actuator/recarga")).andExpect(status().isOk());
+    }
+
+    @Test
+    void recargaAplicaPlanosAlteradosNoEnvironment() throws Exception {
+        // Plano novo ainda não carregado
+        mockMvc.perform(post("/api/reembolso/calcular-com-plano").param("tipoPlano", "ouro")
+                        .contentType(MediaType.APPLICATION_JSON).content(CONSULTA))
+                .andExpect(status().isBadRequest());
+
+        propriedades.put("reembolso.planos.ouro.nome", "Plano Ouro");
+        propriedades.put("reembolso.planos.ouro.cobertura", "0.95");
+        environment.getPropertySources().addFirst(new MapPropertySource(FONTE, propriedades));
+
+        mockMvc.perform(post("/actuator/recarga"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.planos").value(3));
+
+        mockMvc.perform(post("/api/reembolso/calcular-com-plano").param("tipoPlano", "ouro")
+                        .contentType(MediaType.APPLICATION_JSON).content(CONSULTA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valorReembolso").value(95.00));
+    }
+
+    @Test
+    void recargaInvalidaMantemPlanosAtuais() throws Exception {
+        propriedades.put("reembolso.planos.basico.cobertura", "1.50");
+        environment.getPropertySources().addFirst(new MapPropertySource(FONTE, propriedades));
+
+        mockMvc.perform(post("/actuator/recarga"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("erro"));
+
+        mockMvc.perform(post("/api/reembolso/calcular-com-plano").param("tipoPlano", "basico")
+                        .contentType(MediaType.APPLICATION_JSON).content(CONSULTA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valorReembolso").value(50.00));
+    }
+
+    @Test
+    void recargaAplicaRegrasDeAutorizacaoAlteradas() throws Exception {
+        String consulta = "{\"valor\": 1500.00, \"percentualCobertura\": 0.10}";
+        mockMvc.perform(post("/api/reembolso/calcular").contentType(MediaType.APPLICATION_JSON).content(consulta))
+                .andExpect(status().isOk());
+
+        // Listas são lidas inteiras da fonte de maior prioridade
+        propriedades.put("reembolso.autorizacao.regras[0].tipo", "LIMITE_VALOR");
+        propriedades.put("reembolso.autorizacao.regras[0].valor-maximo", "1000.00");
+        environment.getPropertySources().addFirst(new MapPropertySource(FONTE, propriedades));
+
+        mockMvc.perform(post("/actuator/recarga"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.regras").value(1));
+
+        mockMvc.perform(post("/api/reembolso/calcular").contentType(MediaType.APPLICATION_JSON).content(consulta))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.codigo").value("VALOR_ACIMA_LIMITE"));
+    }
+}
@@ -1,13 +1,26 @@
 package br.edu.infnet.dr3tp2;
 
+import br.edu.infnet.dr3tp2.controller.ServidorGrpc;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "reembolso.grpc.porta=0")
 class Dr3Tp2ApplicationTests {
 
+    @Autowired
+    private ServidorGrpc servidorGrpc;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void deveSubirServidorGrpcEmPortaPropria() {
+        assertTrue(servidorGrpc.isRunning());
+        assertTrue(servidorGrpc.getPorta() > 0);
+    }
+
 }
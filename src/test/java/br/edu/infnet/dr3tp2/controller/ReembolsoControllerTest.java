@@ -1,26 +1,56 @@
 package br.edu.infnet.dr3tp2.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import br.edu.infnet.dr3tp2.config.ReembolsoConfig;
 import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ItemLoteResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
 import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
 import br.edu.infnet.dr3tp2.model.Consulta;
 import br.edu.infnet.dr3tp2.model.Paciente;
+import br.edu.infnet.dr3tp2.service.CacheIdempotencia;
+import br.edu.infnet.dr3tp2.service.CodigoErro;
+import br.edu.infnet.dr3tp2.service.DecisaoAutorizacao;
+import br.edu.infnet.dr3tp2.service.MotivoNegacao;
+import br.edu.infnet.dr3tp2.service.ReembolsoLoteService;
+import br.edu.infnet.dr3tp2.service.ReembolsoNaoAutorizadoException;
 import br.edu.infnet.dr3tp2.service.ReembolsoService;
+import br.edu.infnet.dr3tp2.service.ResultadoReembolso;
+import br.edu.infnet.dr3tp2.service.RegistroPlanosSaude;
 import br.edu.infnet.dr3tp2.service.PlanoSaude;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,6 +62,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * @MockitoBean para simular dependências (dublês de teste)
  */
 @WebMvcTest(ReembolsoController.class)
+@Import({ReembolsoConfig.class, ReembolsoLoteService.class, RegistroPlanosSaude.class, CacheIdempotencia.class})
 class ReembolsoControllerTest {
 
     @Autowired
@@ -40,9 +71,34 @@ class ReembolsoControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CacheIdempotencia cacheIdempotencia;
+
     @MockitoBean
     private ReembolsoService reembolsoService;
 
+    @Test
+    @DisplayName("Deve repassar ao serviço o paciente informado na requisição")
+    void deveRepassarPacienteInformado() throws Exception {
+        // Arrange
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("140.00")));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/reembolso/calcular")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"valor":200.00,"percentualCobertura":0.70,
+                                 "paciente":{"nome":"Maria","cpf":"111.111.111-11"}}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valorReembolso").value(140.00));
+        verify(reembolsoService).tentarCalcularReembolso(argThat(consulta ->
+                consulta.getPaciente() != null
+                        && "Maria".equals(consulta.getPaciente().getNome())
+                        && "111.111.111-11".equals(consulta.getPaciente().getCpf())));
+    }
+
     @Test
     @DisplayName("Deve calcular reembolso via API - R$ 200 com 70% = R$ 140")
     void deveCalcularReembolsoViaAPI() throws Exception {
@@ -51,8 +107,8 @@ class ReembolsoControllerTest {
         BigDecimal reembolsoEsperado = new BigDecimal("140.00");
 
         // Configura o comportamento do mock
-        when(reembolsoService.calcularReembolso(any(Consulta.class)))
-                .thenReturn(reembolsoEsperado);
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
+                .thenReturn(ResultadoReembolso.sucesso(reembolsoEsperado));
 
         // Act & Assert - Executar requisição e verificar a resposta da request
         mockMvc.perform(post("/api/reembolso/calcular")
@@ -69,7 +125,7 @@ class ReembolsoControllerTest {
     @DisplayName("Deve retornar erro para dados inválidos")
     void deveRetornarErroParaDadosInvalidos() throws Exception {
         // Arrange - Mock configurado para lançar exceção
-        when(reembolsoService.calcularReembolso(any(Consulta.class)))
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
                 .thenThrow(new IllegalArgumentException("Percentual inválido"));
 
         Consulta consultaInvalida = new Consulta(new BigDecimal("200.00"), new BigDecimal("1.50"));
@@ -151,8 +207,7 @@ class ReembolsoControllerTest {
         );
 
         // Configura o comportamento do mock
-        when(reembolsoService.buscarHistoricoPorPaciente(anyString()))
-                .thenReturn(historicoEsperado);
+        when(reembolsoService.buscarHistoricoPorPaciente("123.456.789-00")).thenReturn(historicoEsperado);
 
         // Act & Assert - Executar requisição e verificar a resposta da request
         mockMvc.perform(get("/api/reembolso/historico/paciente/123.456.789-00"))
@@ -169,8 +224,7 @@ class ReembolsoControllerTest {
     @DisplayName("Deve retornar lista vazia para paciente sem histórico")
     void deveRetornarListaVaziaParaPacienteSemHistorico() throws Exception {
         // Arrange
-        when(reembolsoService.buscarHistoricoPorPaciente(anyString()))
-                .thenReturn(Arrays.asList());
+        when(reembolsoService.buscarHistoricoPorPaciente(anyString())).thenReturn(Arrays.asList());
 
         // Act & Assert
         mockMvc.perform(get("/api/reembolso/historico/paciente/999.999.999-99"))
@@ -179,6 +233,92 @@ class ReembolsoControllerTest {
                 .andExpect(jsonPath("$.length()").value(0));
     }
 
+    @Test
+    @DisplayName("Deve paginar histórico por cursor informando o próximo cursor")
+    void devePaginarHistoricoPorCursor() throws Exception {
+        // Arrange
+        ReembolsoResponse reembolso = new ReembolsoResponse(
+                new BigDecimal("200.00"),
+                new BigDecimal("0.70"),
+                new BigDecimal("140.00"),
+                "sucesso"
+        );
+        Paciente paciente = new Paciente("João Silva", "123.456.789-00");
+
+        when(reembolsoService.buscarHistorico(10L, 1))
+                .thenReturn(new PaginaHistoricoResponse(List.of(new HistoricoResponse(reembolso, paciente)), 11L));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/reembolso/historico").param("limit", "1").param("after", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Proximo-Cursor", "11"))
+                .andExpect(jsonPath("$.proximoCursor").value(11))
+                .andExpect(jsonPath("$.itens.length()").value(1))
+                .andExpect(jsonPath("$.itens[0].paciente.cpf").value("123.456.789-00"));
+    }
+
+    @Test
+    @DisplayName("Deve omitir o próximo cursor na última página")
+    void deveOmitirProximoCursorNaUltimaPagina() throws Exception {
+        // Arrange
+        when(reembolsoService.buscarHistoricoPorPaciente("123.456.789-00", 5L, 20))
+                .thenReturn(new PaginaHistoricoResponse(List.of(), null));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/reembolso/historico/paciente/123.456.789-00")
+                        .param("limit", "20").param("after", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Proximo-Cursor"))
+                .andExpect(jsonPath("$.proximoCursor").doesNotExist())
+                .andExpect(jsonPath("$.itens.length()").value(0));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar limite de página inválido")
+    void deveRejeitarLimiteDePaginaInvalido() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/reembolso/historico").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.erro").value("Parâmetro limit deve estar entre 1 e 1000"));
+
+        mockMvc.perform(get("/api/reembolso/historico").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+
+        verify(reembolsoService, never()).buscarHistorico(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Deve paginar com o limite padrão quando só o cursor for informado")
+    void devePaginarComLimitePadraoQuandoSoCursorInformado() throws Exception {
+        // Arrange
+        when(reembolsoService.buscarHistorico(0L, 100))
+                .thenReturn(new PaginaHistoricoResponse(List.of(), null));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/reembolso/historico").param("after", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens").isArray());
+
+        verify(reembolsoService, never()).buscarHistorico();
+    }
+
+    @Test
+    @DisplayName("Deve consultar resumo de reembolsos do paciente via API")
+    void deveConsultarResumoDoPacienteViaAPI() throws Exception {
+        // Arrange
+        when(reembolsoService.buscarResumoPorPaciente("123.456.789-00")).thenReturn(new ResumoPacienteResponse(
+                "123.456.789-00", 3, new BigDecimal("900.00"), new BigDecimal("440.00"), 2));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/reembolso/historico/paciente/123.456.789-00/resumo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cpf").value("123.456.789-00"))
+                .andExpect(jsonPath("$.quantidadeConsultas").value(3))
+                .andExpect(jsonPath("$.totalValorConsultas").value(900.00))
+                .andExpect(jsonPath("$.totalReembolsado").value(440.00))
+                .andExpect(jsonPath("$.reembolsosNoTeto").value(2));
+    }
+
     @Test
     @DisplayName("Deve calcular reembolso com plano básico via API")
     void deveCalcularReembolsoComPlanoBasicoViaAPI() throws Exception {
@@ -187,8 +327,8 @@ class ReembolsoControllerTest {
         BigDecimal reembolsoEsperado = new BigDecimal("100.00");
 
         // Mock
-        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
-                .thenReturn(reembolsoEsperado);
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+                .thenReturn(ResultadoReembolso.sucesso(reembolsoEsperado));
 
         // Act & Assert
         mockMvc.perform(post("/api/reembolso/calcular-com-plano")
@@ -210,8 +350,8 @@ class ReembolsoControllerTest {
         BigDecimal reembolsoEsperado = new BigDecimal("160.00");
 
         // Mock
-        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
-                .thenReturn(reembolsoEsperado);
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+                .thenReturn(ResultadoReembolso.sucesso(reembolsoEsperado));
 
         // Act & Assert
         mockMvc.perform(post("/api/reembolso/calcular-com-plano")
@@ -238,7 +378,10 @@ class ReembolsoControllerTest {
                         .content(objectMapper.writeValueAsString(consulta)))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.erro").value("Tipo de plano inválido: inexistente"))
+                .andExpect(jsonPath("$.codigo").value("PLANO_INVALIDO"))
                 .andExpect(jsonPath("$.status").value("erro"));
+
+        verify(reembolsoService, never()).tentarCalcularReembolsoComPlano(any(), any());
     }
 
     @Test
@@ -248,8 +391,8 @@ class ReembolsoControllerTest {
         Consulta consulta = new Consulta(new BigDecimal("-100.00"), null);
 
         // Mock
-        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
-                .thenThrow(new IllegalArgumentException("Valor da consulta deve ser maior ou igual a zero"));
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+                .thenReturn(ResultadoReembolso.invalido(CodigoErro.VALOR_INVALIDO));
 
         // Act & Assert
         mockMvc.perform(post("/api/reembolso/calcular-com-plano")
@@ -258,6 +401,7 @@ class ReembolsoControllerTest {
                         .content(objectMapper.writeValueAsString(consulta)))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.erro").value("Valor da consulta deve ser maior ou igual a zero"))
+                .andExpect(jsonPath("$.codigo").value("VALOR_INVALIDO"))
                 .andExpect(jsonPath("$.status").value("erro"));
     }
 
@@ -268,9 +412,9 @@ class ReembolsoControllerTest {
         Consulta consulta1 = new Consulta(new BigDecimal("100.00"), null);
         Consulta consulta2 = new Consulta(new BigDecimal("300.00"), null);
 
-        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
-                .thenReturn(new BigDecimal("50.00"))
-                .thenReturn(new BigDecimal("150.00"));
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("50.00")))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("150.00")));
 
         // Act & Assert
         mockMvc.perform(post("/api/reembolso/calcular-com-plano")
@@ -291,15 +435,34 @@ class ReembolsoControllerTest {
                 .andExpect(jsonPath("$.percentualCobertura").value(0.50));
     }
 
+    @Test
+    @DisplayName("Deve resolver o plano configurado sem diferenciar maiúsculas")
+    void deveResolverPlanoSemDiferenciarMaiusculas() throws Exception {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), null);
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class),
+                argThat(plano -> plano != null && "Plano Premium".equals(plano.getNome()))))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("80.00")));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/reembolso/calcular-com-plano")
+                        .param("tipoPlano", "PREMIUM")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(consulta)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.valorReembolso").value(80.00))
+                .andExpect(jsonPath("$.percentualCobertura").value(0.80));
+    }
+
     @Test
     @DisplayName("Deve comparar diferentes planos via API")
     void deveCompararDiferentesPlanosViaAPI() throws Exception {
         // Arrange
         Consulta consulta = new Consulta(new BigDecimal("1000.00"), null);
 
-        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
-                .thenReturn(new BigDecimal("500.00"))
-                .thenReturn(new BigDecimal("800.00"));
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("500.00")))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("800.00")));
 
         // Act & Assert - Plano Básico
         mockMvc.perform(post("/api/reembolso/calcular-com-plano")
@@ -326,7 +489,7 @@ class ReembolsoControllerTest {
         // Arrange
         Consulta consulta = new Consulta(new BigDecimal("-100.00"), null);
 
-        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
                 .thenThrow(new IllegalArgumentException("Valor inválido"));
 
         // Act & Assert
@@ -348,7 +511,7 @@ class ReembolsoControllerTest {
         Consulta consulta = new Consulta(new BigDecimal("2500.00"), new BigDecimal("0.70"));
 
         // Mock configurado para lançar SecurityException
-        when(reembolsoService.calcularReembolso(any(Consulta.class)))
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
                 .thenThrow(new SecurityException("Consulta não autorizada para reembolso: Valor da consulta excede o limite de R$ 2.000,00 para reembolso"));
 
         // Act & Assert
@@ -367,7 +530,7 @@ class ReembolsoControllerTest {
         Consulta consulta = new Consulta(new BigDecimal("3000.00"), null);
 
         // Mock configurado para lançar SecurityException
-        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
                 .thenThrow(new SecurityException("Consulta não autorizada para reembolso: Valor da consulta excede o limite de R$ 2.000,00 para reembolso"));
 
         // Act & Assert
@@ -380,6 +543,25 @@ class ReembolsoControllerTest {
                 .andExpect(jsonPath("$.status").value("erro"));
     }
 
+    @Test
+    @DisplayName("Deve retornar código do motivo quando autorizador nega a consulta")
+    void deveRetornarCodigoDoMotivoQuandoNegada() throws Exception {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("2500.00"), new BigDecimal("0.70"));
+
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
+                .thenReturn(ResultadoReembolso.negado(MotivoNegacao.VALOR_ACIMA_LIMITE));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/reembolso/calcular")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(consulta)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.erro").value(MotivoNegacao.VALOR_ACIMA_LIMITE.getMensagemNegacao()))
+                .andExpect(jsonPath("$.codigo").value("VALOR_ACIMA_LIMITE"))
+                .andExpect(jsonPath("$.status").value("erro"));
+    }
+
     @Test
     @DisplayName("Deve calcular reembolso autorizado abaixo do limite - R$ 1.500")
     void deveCalcularReembolsoAutorizadoAbaixoLimite() throws Exception {
@@ -388,8 +570,8 @@ class ReembolsoControllerTest {
         BigDecimal reembolsoEsperado = new BigDecimal("1050.00");
 
         // Configurar comportamento do mock
-        when(reembolsoService.calcularReembolso(any(Consulta.class)))
-                .thenReturn(reembolsoEsperado);
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
+                .thenReturn(ResultadoReembolso.sucesso(reembolsoEsperado));
 
         // Act & Assert - Executar requisição e verificar resposta
         mockMvc.perform(post("/api/reembolso/calcular")
@@ -410,8 +592,8 @@ class ReembolsoControllerTest {
         BigDecimal reembolsoEsperado = new BigDecimal("1600.00");
 
         // Configurar Mock
-        when(reembolsoService.calcularReembolso(any(Consulta.class)))
-                .thenReturn(reembolsoEsperado);
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
+                .thenReturn(ResultadoReembolso.sucesso(reembolsoEsperado));
 
         // Act & Assert - Executar requisição e verificar resposta
         mockMvc.perform(post("/api/reembolso/calcular")
@@ -423,4 +605,426 @@ class ReembolsoControllerTest {
                 .andExpect(jsonPath("$.valorReembolso").value(1600.00))
                 .andExpect(jsonPath("$.status").value("sucesso"));
     }
+
+    // Cálculo em lote
+
+    @Test
+    @DisplayName("Deve calcular lote via API mantendo a ordem de entrada")
+    void deveCalcularLoteViaAPIMantendoOrdem() throws Exception {
+        // Arrange
+        List<Consulta> lote = List.of(
+                new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70")),
+                new Consulta(new BigDecimal("100.00"), new BigDecimal("0.50"))
+        );
+
+        when(reembolsoService.tentarCalcularReembolso(argThat(c -> c != null && c.getValor().compareTo(new BigDecimal("200.00")) == 0)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("140.00")));
+        when(reembolsoService.tentarCalcularReembolso(argThat(c -> c != null && c.getValor().compareTo(new BigDecimal("100.00")) == 0)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("50.00")));
+
+        // Act
+        MvcResult resultado = mockMvc.perform(post("/api/reembolso/calcular/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lote)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].indice").value(0))
+                .andExpect(jsonPath("$[0].reembolso.valorReembolso").value(140.00))
+                .andExpect(jsonPath("$[0].status").value("sucesso"))
+                .andExpect(jsonPath("$[1].indice").value(1))
+                .andExpect(jsonPath("$[1].reembolso.valorReembolso").value(50.00))
+                .andExpect(jsonPath("$[1].status").value("sucesso"));
+    }
+
+    @Test
+    @DisplayName("Deve isolar item inválido sem falhar o lote inteiro")
+    void deveIsolarItemInvalidoSemFalharLote() throws Exception {
+        // Arrange
+        List<Consulta> lote = List.of(
+                new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70")),
+                new Consulta(new BigDecimal("2500.00"), new BigDecimal("0.70"))
+        );
+
+        when(reembolsoService.tentarCalcularReembolso(argThat(c -> c != null && c.getValor().compareTo(new BigDecimal("200.00")) == 0)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("140.00")));
+        when(reembolsoService.tentarCalcularReembolso(argThat(c -> c != null && c.getValor().compareTo(new BigDecimal("2500.00")) == 0)))
+                .thenThrow(new SecurityException("Consulta não autorizada para reembolso"));
+
+        // Act
+        MvcResult resultado = mockMvc.perform(post("/api/reembolso/calcular/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lote)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("sucesso"))
+                .andExpect(jsonPath("$[1].status").value("erro"))
+                .andExpect(jsonPath("$[1].erro").value("Consulta não autorizada para reembolso"));
+    }
+
+    // Exportação NDJSON
+
+    private void configurarExportacao() {
+        Paciente paciente = new Paciente("João Silva", "123.456.789-00");
+        List<HistoricoResponse> historico = List.of(
+                new HistoricoResponse(new ReembolsoResponse(new BigDecimal("200.00"), new BigDecimal("0.70"), new BigDecimal("140.00"), "sucesso"), paciente),
+                new HistoricoResponse(new ReembolsoResponse(new BigDecimal("150.00"), new BigDecimal("0.80"), new BigDecimal("120.00"), "sucesso"), paciente)
+        );
+
+        doAnswer(invocation -> {
+            Consumer<HistoricoResponse> consumidor = invocation.getArgument(0);
+            historico.forEach(consumidor);
+            return null;
+        }).when(reembolsoService).exportarHistorico(any());
+    }
+
+    @Test
+    @DisplayName("Deve exportar histórico em NDJSON com um item por linha")
+    void deveExportarHistoricoEmNdjson() throws Exception {
+        // Arrange
+        configurarExportacao();
+
+        // Act
+        MvcResult resultado = mockMvc.perform(get("/api/reembolso/historico/exportar"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] linhas = corpo.split("\n");
+        assertEquals(2, linhas.length);
+        assertTrue(corpo.endsWith("\n"));
+        HistoricoResponse primeira = objectMapper.readValue(linhas[0], HistoricoResponse.class);
+        assertEquals(new BigDecimal("140.00"), primeira.reembolso().valorReembolso());
+        assertEquals("João Silva", primeira.paciente().getNome());
+        assertEquals(new BigDecimal("150.00"), objectMapper.readValue(linhas[1], HistoricoResponse.class).reembolso().valorConsulta());
+    }
+
+    @Test
+    @DisplayName("Deve comprimir a exportação quando o cliente aceitar gzip")
+    void deveComprimirExportacaoComGzip() throws Exception {
+        // Arrange
+        configurarExportacao();
+
+        // Act
+        MvcResult resultado = mockMvc.perform(get("/api/reembolso/historico/exportar")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        byte[] comprimido = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(comprimido))) {
+            String corpo = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(2, corpo.split("\n").length);
+        }
+    }
+
+    @Test
+    @DisplayName("Não deve comprimir a exportação quando gzip vier com q=0")
+    void naoDeveComprimirExportacaoComGzipRecusado() throws Exception {
+        // Arrange
+        configurarExportacao();
+
+        // Act
+        MvcResult resultado = mockMvc.perform(get("/api/reembolso/historico/exportar")
+                        .header("Accept-Encoding", "gzip;q=0, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertEquals(2, corpo.split("\n").length);
+    }
+
+    @Test
+    @DisplayName("Deve interpretar os q-values do Accept-Encoding")
+    void deveInterpretarQValuesDoAcceptEncoding() {
+        assertTrue(ReembolsoController.aceitaGzip("gzip"));
+        assertTrue(ReembolsoController.aceitaGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ReembolsoController.aceitaGzip("*"));
+        assertTrue(ReembolsoController.aceitaGzip("x-gzip ; q=1.0"));
+        assertFalse(ReembolsoController.aceitaGzip("gzip;q=0"));
+        assertFalse(ReembolsoController.aceitaGzip("gzip;q=0.0, *;q=1"));
+        assertFalse(ReembolsoController.aceitaGzip("*;q=0"));
+        assertFalse(ReembolsoController.aceitaGzip("deflate, br"));
+        assertFalse(ReembolsoController.aceitaGzip("gzipped"));
+        assertFalse(ReembolsoController.aceitaGzip(null));
+    }
+
+    // Formatos binários (CBOR e Smile)
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private final CBORMapper cbor = new CBORMapper();
+    private final SmileMapper smile = new SmileMapper();
+
+    @Test
+    @DisplayName("Deve receber e responder em CBOR com valores em ponto fixo")
+    void deveCalcularReembolsoEmCbor() throws Exception {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("140.00")));
+
+        // Act
+        byte[] corpo = mockMvc.perform(post("/api/reembolso/calcular")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(consulta)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert - a requisição chegou com a escala original e a resposta mantém a escala
+        verify(reembolsoService).tentarCalcularReembolso(argThat(recebida ->
+                new BigDecimal("0.70").equals(recebida.getPercentualCobertura())));
+        ReembolsoResponse resposta = cbor.readValue(corpo, ReembolsoResponse.class);
+        assertEquals(new BigDecimal("140.00"), resposta.valorReembolso());
+        assertEquals(new BigDecimal("200.00"), resposta.valorConsulta());
+        // 140.00 como fração decimal (tag 4): [-2, 14000], sem texto
+        assertTrue(contem(corpo, new byte[]{(byte) 0xC4, (byte) 0x82, 0x21, 0x19, 0x36, (byte) 0xB0}));
+    }
+
+    @Test
+    @DisplayName("Deve responder o histórico em Smile")
+    void deveConsultarHistoricoEmSmile() throws Exception {
+        // Arrange
+        Paciente paciente = new Paciente("João Silva", "123.456.789-00");
+        List<HistoricoResponse> historico = List.of(
+                new HistoricoResponse(new ReembolsoResponse(new BigDecimal("200.00"), new BigDecimal("0.70"), new BigDecimal("140.00"), "sucesso"), paciente),
+                new HistoricoResponse(new ReembolsoResponse(new BigDecimal("150.00"), new BigDecimal("0.80"), new BigDecimal("120.00"), "sucesso"), paciente)
+        );
+        when(reembolsoService.buscarHistorico()).thenReturn(historico);
+
+        // Act
+        byte[] corpo = mockMvc.perform(get("/api/reembolso/historico").accept(APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        HistoricoResponse[] itens = smile.readValue(corpo, HistoricoResponse[].class);
+        assertEquals(2, itens.length);
+        assertEquals(new BigDecimal("120.00"), itens[1].reembolso().valorReembolso());
+        assertEquals("João Silva", itens[1].paciente().getNome());
+        assertTrue(corpo.length < objectMapper.writeValueAsBytes(historico).length);
+    }
+
+    @Test
+    @DisplayName("Deve processar lote em CBOR quando o cliente aceitar CBOR")
+    void deveCalcularLoteEmCbor() throws Exception {
+        // Arrange
+        List<Consulta> lote = List.of(
+                new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70")),
+                new Consulta(new BigDecimal("100.00"), new BigDecimal("0.50"))
+        );
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("140.00")))
+                .thenReturn(ResultadoReembolso.invalido(CodigoErro.VALOR_INVALIDO));
+
+        // Act
+        MvcResult resultado = mockMvc.perform(post("/api/reembolso/calcular/lote")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(lote)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        byte[] corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        ItemLoteResponse[] itens = cbor.readValue(corpo, ItemLoteResponse[].class);
+        assertEquals(2, itens.length);
+        assertEquals(new BigDecimal("140.00"), itens[0].reembolso().valorReembolso());
+        assertEquals("erro", itens[1].status());
+    }
+
+    @Test
+    @DisplayName("Deve exportar o histórico como array Smile")
+    void deveExportarHistoricoEmSmile() throws Exception {
+        // Arrange
+        configurarExportacao();
+
+        // Act
+        MvcResult resultado = mockMvc.perform(get("/api/reembolso/historico/exportar").accept(APPLICATION_SMILE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        byte[] corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        HistoricoResponse[] itens = smile.readValue(corpo, HistoricoResponse[].class);
+        assertEquals(2, itens.length);
+        assertEquals(new BigDecimal("150.00"), itens[1].reembolso().valorConsulta());
+    }
+
+    @Test
+    @DisplayName("Deve escolher o formato da exportação pelo q-value do Accept")
+    void deveEscolherFormatoPeloQValue() throws Exception {
+        // Arrange
+        configurarExportacao();
+
+        // Act & Assert - Smile preferido mesmo listado depois do JSON
+        MvcResult preferido = mockMvc.perform(get("/api/reembolso/historico/exportar")
+                        .header("Accept", "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(preferido))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_SMILE));
+
+        // CBOR recusado com q=0
+        MvcResult recusado = mockMvc.perform(get("/api/reembolso/historico/exportar")
+                        .header("Accept", "application/cbor;q=0, application/json;q=0.1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(recusado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+    }
+
+    private static boolean contem(byte[] corpo, byte[] trecho) {
+        for (int i = 0; i + trecho.length <= corpo.length; i++) {
+            if (Arrays.equals(corpo, i, i + trecho.length, trecho, 0, trecho.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Idempotency-Key
+
+    @Test
+    @DisplayName("Deve calcular uma única vez requisições repetidas com a mesma Idempotency-Key")
+    void deveCalcularUmaVezComMesmaChaveDeIdempotencia() throws Exception {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class))).thenReturn(ResultadoReembolso.sucesso(new BigDecimal("140.00")));
+        // O cache é compartilhado pelo contexto dos testes: compara com os valores iniciais
+        long acertosAntes = cacheIdempotencia.getAcertos();
+        long falhasAntes = cacheIdempotencia.getFalhas();
+
+        // Act & Assert - Repetição da mesma chave, e a mesma chave em outro endpoint
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/reembolso/calcular")
+                            .header("Idempotency-Key", "pedido-123")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(consulta)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.valorReembolso").value(140.00));
+        }
+        mockMvc.perform(post("/api/reembolso/calcular")
+                        .header("Idempotency-Key", "pedido-456")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(consulta)))
+                .andExpect(status().isOk());
+
+        verify(reembolsoService, times(2)).tentarCalcularReembolso(any(Consulta.class));
+
+        mockMvc.perform(get("/api/reembolso/idempotencia/estatisticas"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.acertos").value(acertosAntes + 2))
+                .andExpect(jsonPath("$.falhas").value(falhasAntes + 2))
+                .andExpect(jsonPath("$.tamanho").value(cacheIdempotencia.getTamanho()));
+    }
+
+    @Test
+    @DisplayName("Deve reaproveitar resposta de erro e ignorar chave em outro endpoint")
+    void deveReaproveitarRespostaDeErroPorEndpoint() throws Exception {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), null);
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+                .thenThrow(new IllegalArgumentException("Valor inválido"));
+        when(reembolsoService.tentarCalcularReembolso(any(Consulta.class))).thenReturn(ResultadoReembolso.sucesso(new BigDecimal("0.00")));
+
+        // Act & Assert
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/reembolso/calcular-com-plano")
+                            .param("tipoPlano", "basico")
+                            .header("Idempotency-Key", "chave-erro")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(consulta)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.erro").value("Valor inválido"));
+        }
+        mockMvc.perform(post("/api/reembolso/calcular")
+                        .header("Idempotency-Key", "chave-erro")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(consulta)))
+                .andExpect(status().isOk());
+
+        verify(reembolsoService, times(1)).tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class));
+        verify(reembolsoService, times(1)).tentarCalcularReembolso(any(Consulta.class));
+    }
+
+    @Test
+    @DisplayName("Deve responder 422 para a mesma Idempotency-Key com outro corpo ou plano")
+    void deveRejeitarMesmaChaveDeIdempotenciaComOutraRequisicao() throws Exception {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+        Consulta outra = new Consulta(new BigDecimal("300.00"), new BigDecimal("0.70"));
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class)))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("100.00")));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/reembolso/calcular-com-plano")
+                        .param("tipoPlano", "basico")
+                        .header("Idempotency-Key", "pedido-conflito")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(consulta)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/reembolso/calcular-com-plano")
+                        .param("tipoPlano", "basico")
+                        .header("Idempotency-Key", "pedido-conflito")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(outra)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.erro").value("Idempotency-Key já usada com outra requisição"));
+        mockMvc.perform(post("/api/reembolso/calcular-com-plano")
+                        .param("tipoPlano", "premium")
+                        .header("Idempotency-Key", "pedido-conflito")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(consulta)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(reembolsoService, times(1)).tentarCalcularReembolsoComPlano(any(Consulta.class), any(PlanoSaude.class));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar Idempotency-Key vazia")
+    void deveRejeitarChaveDeIdempotenciaVazia() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/reembolso/calcular")
+                        .header("Idempotency-Key", " ")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"valor\": 100.00, \"percentualCobertura\": 0.70}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.erro").value("Idempotency-Key deve ter entre 1 e 255 caracteres"));
+
+        verify(reembolsoService, never()).tentarCalcularReembolso(any(Consulta.class));
+    }
 }
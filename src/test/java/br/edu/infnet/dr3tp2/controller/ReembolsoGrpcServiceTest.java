@@ -0,0 +1,270 @@
+package br.edu.infnet.dr3tp2.controller;
+
+import br.edu.infnet.dr3tp2.grpc.ConsultaRequest;
+import br.edu.infnet.dr3tp2.grpc.Decimal;
+import br.edu.infnet.dr3tp2.grpc.Paciente;
+import br.edu.infnet.dr3tp2.grpc.ReembolsoGrpc;
+import br.edu.infnet.dr3tp2.grpc.ReembolsoReply;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.service.CodigoErro;
+import br.edu.infnet.dr3tp2.service.MotivoNegacao;
+import br.edu.infnet.dr3tp2.service.PlanoSaude;
+import br.edu.infnet.dr3tp2.service.ReembolsoService;
+import br.edu.infnet.dr3tp2.service.RegistroPlanosSaude;
+import br.edu.infnet.dr3tp2.service.ResultadoReembolso;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes do ReembolsoGrpcService pelo transporte gRPC em processo (sem rede)
+ */
+class ReembolsoGrpcServiceTest {
+
+    @Mock
+    private ReembolsoService reembolsoService;
+
+    private ReembolsoGrpcService servico;
+    private ForkJoinPool pool;
+    private Server servidor;
+    private ManagedChannel canal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        pool = new ForkJoinPool(8);
+        servico = new ReembolsoGrpcService();
+        servico.reembolsoService = reembolsoService;
+        servico.registroPlanosSaude = new RegistroPlanosSaude(new MockEnvironment()
+                .withProperty("reembolso.planos.basico.nome", "Plano Básico")
+                .withProperty("reembolso.planos.basico.cobertura", "0.50"));
+        servico.executor = pool;
+        servico.janela = 8;
+
+        String nome = InProcessServerBuilder.generateName();
+        servidor = InProcessServerBuilder.forName(nome).directExecutor().addService(servico).build().start();
+        canal = InProcessChannelBuilder.forName(nome).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        canal.shutdownNow();
+        servidor.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve responder cada consulta do fluxo com a sequência enviada")
+    void deveResponderCadaConsultaDoFluxo() throws Exception {
+        // Arrange - Itens pares demoram mais, então chegam fora de ordem
+        when(reembolsoService.tentarCalcularReembolso(any())).thenAnswer(invocation -> {
+            Consulta consulta = invocation.getArgument(0);
+            if (consulta.getValor().intValue() % 2 == 0) {
+                Thread.sleep(2);
+            }
+            return ResultadoReembolso.sucesso(consulta.getValor().multiply(consulta.getPercentualCobertura()));
+        });
+
+        // Act
+        Respostas respostas = new Respostas();
+        StreamObserver<ConsultaRequest> envio = ReembolsoGrpc.newStub(canal).calcularFluxo(respostas);
+        for (int i = 0; i < 50; i++) {
+            envio.onNext(consulta(i, new BigDecimal(i + ".00"), new BigDecimal("0.50")));
+        }
+        envio.onCompleted();
+
+        // Assert
+        assertTrue(respostas.aguardar());
+        assertNull(respostas.erro);
+        assertEquals(50, respostas.itens.size());
+        Map<Long, ReembolsoReply> porSequencia = respostas.porSequencia();
+        for (int i = 0; i < 50; i++) {
+            ReembolsoReply resposta = porSequencia.get((long) i);
+            assertEquals(ReembolsoGrpcService.SUCESSO, resposta.getStatus());
+            assertEquals(0, new BigDecimal(i).multiply(new BigDecimal("0.50"))
+                    .compareTo(ReembolsoGrpcService.paraBigDecimal(resposta.getValorReembolso())));
+        }
+        verify(reembolsoService, times(50)).tentarCalcularReembolso(any());
+    }
+
+    @Test
+    @DisplayName("Deve responder erro no item inválido sem encerrar o fluxo")
+    void deveResponderErroSemEncerrarFluxo() throws Exception {
+        // Arrange
+        when(reembolsoService.tentarCalcularReembolso(any())).thenAnswer(invocation -> {
+            Consulta consulta = invocation.getArgument(0);
+            if (consulta.getValor().signum() < 0) {
+                return ResultadoReembolso.invalido(CodigoErro.VALOR_INVALIDO);
+            }
+            if (consulta.getValor().compareTo(new BigDecimal("2000")) > 0) {
+                return ResultadoReembolso.negado(MotivoNegacao.VALOR_ACIMA_LIMITE);
+            }
+            if (consulta.getValor().compareTo(new BigDecimal("999")) == 0) {
+                throw new IllegalStateException("detalhe interno /var/dados");
+            }
+            return ResultadoReembolso.sucesso(consulta.getValor());
+        });
+
+        // Act
+        Respostas respostas = new Respostas();
+        StreamObserver<ConsultaRequest> envio = ReembolsoGrpc.newStub(canal).calcularFluxo(respostas);
+        envio.onNext(consulta(1, new BigDecimal("-1.00"), new BigDecimal("0.50")));
+        envio.onNext(consulta(2, new BigDecimal("2500.00"), new BigDecimal("0.50")));
+        envio.onNext(consulta(3, new BigDecimal("100.00"), new BigDecimal("0.50")).toBuilder().setPlano("ouro").build());
+        envio.onNext(consulta(4, new BigDecimal("100.00"), new BigDecimal("1.00")));
+        envio.onNext(consulta(5, new BigDecimal("999.00"), new BigDecimal("0.50")));
+        envio.onCompleted();
+
+        // Assert
+        assertTrue(respostas.aguardar());
+        assertNull(respostas.erro);
+        Map<Long, ReembolsoReply> porSequencia = respostas.porSequencia();
+        assertEquals(CodigoErro.VALOR_INVALIDO.getCodigo(), porSequencia.get(1L).getCodigo());
+        assertEquals(CodigoErro.VALOR_INVALIDO.getMensagem(), porSequencia.get(1L).getErro());
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE.getCodigo(), porSequencia.get(2L).getCodigo());
+        assertEquals(CodigoErro.PLANO_INVALIDO.getCodigo(), porSequencia.get(3L).getCodigo());
+        assertEquals("Tipo de plano inválido: ouro", porSequencia.get(3L).getErro());
+        assertEquals(ReembolsoGrpcService.ERRO, porSequencia.get(3L).getStatus());
+        assertFalse(porSequencia.get(3L).hasValorReembolso());
+        assertEquals(ReembolsoGrpcService.SUCESSO, porSequencia.get(4L).getStatus());
+        assertEquals(ReembolsoGrpcService.ERRO_INTERNO, porSequencia.get(5L).getCodigo());
+        assertEquals(ReembolsoGrpcService.MENSAGEM_ERRO_INTERNO, porSequencia.get(5L).getErro());
+    }
+
+    @Test
+    @DisplayName("Deve calcular com o plano configurado e repassar o paciente")
+    void deveCalcularComPlano() throws Exception {
+        // Arrange
+        when(reembolsoService.tentarCalcularReembolsoComPlano(any(), any()))
+                .thenReturn(ResultadoReembolso.sucesso(new BigDecimal("100.00")));
+
+        // Act
+        Respostas respostas = new Respostas();
+        StreamObserver<ConsultaRequest> envio = ReembolsoGrpc.newStub(canal).calcularFluxo(respostas);
+        envio.onNext(consulta(7, new BigDecimal("200.00"), new BigDecimal("0"))
+                .toBuilder()
+                .setPlano("BASICO")
+                .setPaciente(Paciente.newBuilder().setNome("Maria").setCpf("123.456.789-09"))
+                .build());
+        envio.onCompleted();
+
+        // Assert
+        assertTrue(respostas.aguardar());
+        ReembolsoReply resposta = respostas.itens.get(0);
+        assertEquals(7, resposta.getSequencia());
+        assertEquals(Decimal.newBuilder().setUnscaled(10000).setScale(2).build(), resposta.getValorReembolso());
+        verify(reembolsoService).tentarCalcularReembolsoComPlano(
+                argThat(consulta -> "123.456.789-09".equals(consulta.getPaciente().getCpf())),
+                argThat((PlanoSaude plano) -> new BigDecimal("0.50").compareTo(plano.getPercentualCobertura()) == 0));
+    }
+
+    @Test
+    @DisplayName("Deve manter no máximo a janela de consultas em processamento")
+    void deveLimitarConsultasEmProcessamentoPelaJanela() throws Exception {
+        // Arrange - O cálculo fica bloqueado até a liberação
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger emProcessamento = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        when(reembolsoService.tentarCalcularReembolso(any())).thenAnswer(invocation -> {
+            maximo.accumulateAndGet(emProcessamento.incrementAndGet(), Math::max);
+            liberar.await(5, TimeUnit.SECONDS);
+            emProcessamento.decrementAndGet();
+            return ResultadoReembolso.sucesso(BigDecimal.ONE);
+        });
+
+        // Act - O cliente envia bem mais que a janela de uma vez
+        Respostas respostas = new Respostas();
+        StreamObserver<ConsultaRequest> envio = ReembolsoGrpc.newStub(canal).calcularFluxo(respostas);
+        for (int i = 0; i < 40; i++) {
+            envio.onNext(consulta(i, new BigDecimal("10.00"), new BigDecimal("0.50")));
+        }
+        envio.onCompleted();
+        Thread.sleep(100);
+        int chamadasAntesDeLiberar = mockingDetails(reembolsoService).getInvocations().size();
+        liberar.countDown();
+
+        // Assert
+        assertEquals(8, chamadasAntesDeLiberar);
+        assertTrue(respostas.aguardar());
+        assertEquals(40, respostas.itens.size());
+        assertTrue(maximo.get() <= 8, "em processamento: " + maximo.get());
+    }
+
+    @Test
+    @DisplayName("Deve converter valores monetários em ponto fixo mantendo a escala")
+    void deveConverterDecimalMantendoEscala() {
+        Decimal decimal = ReembolsoGrpcService.paraDecimal(new BigDecimal("140.00"));
+
+        assertEquals(14000, decimal.getUnscaled());
+        assertEquals(2, decimal.getScale());
+        assertEquals(new BigDecimal("140.00"), ReembolsoGrpcService.paraBigDecimal(decimal));
+        assertThrows(ArithmeticException.class,
+                () -> ReembolsoGrpcService.paraDecimal(new BigDecimal("1e30").setScale(2)));
+    }
+
+    private static ConsultaRequest consulta(long sequencia, BigDecimal valor, BigDecimal percentual) {
+        return ConsultaRequest.newBuilder()
+                .setSequencia(sequencia)
+                .setValor(ReembolsoGrpcService.paraDecimal(valor))
+                .setPercentualCobertura(ReembolsoGrpcService.paraDecimal(percentual))
+                .build();
+    }
+
+    private static class Respostas implements StreamObserver<ReembolsoReply> {
+
+        final List<ReembolsoReply> itens = new CopyOnWriteArrayList<>();
+        final CountDownLatch concluido = new CountDownLatch(1);
+        volatile Throwable erro;
+
+        @Override
+        public void onNext(ReembolsoReply resposta) {
+            itens.add(resposta);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            erro = t;
+            concluido.countDown();
+        }
+
+        @Override
+        public void onCompleted() {
+            concluido.countDown();
+        }
+
+        boolean aguardar() throws InterruptedException {
+            return concluido.await(10, TimeUnit.SECONDS);
+        }
+
+        Map<Long, ReembolsoReply> porSequencia() {
+            Map<Long, ReembolsoReply> mapa = new ConcurrentHashMap<>();
+            itens.forEach(resposta -> mapa.put(resposta.getSequencia(), resposta));
+            return mapa;
+        }
+    }
+}
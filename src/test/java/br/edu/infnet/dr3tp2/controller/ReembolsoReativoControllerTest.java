@@ -0,0 +1,214 @@
+package br.edu.infnet.dr3tp2.controller;
+
+import br.edu.infnet.dr3tp2.config.ReembolsoConfig;
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ReembolsoResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import br.edu.infnet.dr3tp2.service.DecisaoAutorizacao;
+import br.edu.infnet.dr3tp2.service.MotivoNegacao;
+import br.edu.infnet.dr3tp2.service.PlanoSaude;
+import br.edu.infnet.dr3tp2.service.ReembolsoNaoAutorizadoException;
+import br.edu.infnet.dr3tp2.service.ReembolsoReativoService;
+import br.edu.infnet.dr3tp2.service.RegistroPlanosSaude;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes da camada web reativa usando WebTestClient
+ */
+@WebFluxTest(ReembolsoReativoController.class)
+@Import({RegistroPlanosSaude.class, ReembolsoConfig.class})
+class ReembolsoReativoControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReembolsoReativoService reembolsoService;
+
+    private HistoricoResponse item(String valor, String reembolso) {
+        return new HistoricoResponse(
+                new ReembolsoResponse(new BigDecimal(valor), new BigDecimal("0.70"), new BigDecimal(reembolso), "sucesso"),
+                new Paciente("João Silva", "123.456.789-00"));
+    }
+
+    @Test
+    @DisplayName("Deve calcular reembolso via API reativa")
+    void deveCalcularReembolso() {
+        // Arrange
+        when(reembolsoService.calcularReembolso(any(Consulta.class))).thenReturn(Mono.just(new BigDecimal("140.00")));
+
+        // Act & Assert
+        webTestClient.post().uri("/api/reembolso/calcular")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.valorConsulta").isEqualTo(200.00)
+                .jsonPath("$.valorReembolso").isEqualTo(140.00)
+                .jsonPath("$.status").isEqualTo("sucesso");
+    }
+
+    @Test
+    @DisplayName("Deve retornar 400 com código do motivo para consulta não autorizada")
+    void deveRetornarErroParaConsultaNaoAutorizada() {
+        // Arrange
+        when(reembolsoService.calcularReembolso(any(Consulta.class))).thenReturn(Mono.error(
+                new ReembolsoNaoAutorizadoException(DecisaoAutorizacao.negada(MotivoNegacao.VALOR_ACIMA_LIMITE))));
+
+        // Act & Assert
+        webTestClient.post().uri("/api/reembolso/calcular")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Consulta(new BigDecimal("2500.00"), new BigDecimal("0.70")))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.codigo").isEqualTo("VALOR_ACIMA_LIMITE")
+                .jsonPath("$.status").isEqualTo("erro");
+    }
+
+    @Test
+    @DisplayName("Deve calcular com plano configurado e rejeitar plano inexistente")
+    void deveCalcularComPlano() {
+        // Arrange
+        when(reembolsoService.calcularReembolsoComPlano(any(Consulta.class),
+                argThat((PlanoSaude plano) -> plano != null && "Plano Premium".equals(plano.getNome()))))
+                .thenReturn(Mono.just(new BigDecimal("80.00")));
+
+        // Act & Assert
+        webTestClient.post().uri("/api/reembolso/calcular-com-plano?tipoPlano=Premium")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Consulta(new BigDecimal("100.00"), null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.percentualCobertura").isEqualTo(0.80)
+                .jsonPath("$.valorReembolso").isEqualTo(80.00);
+
+        webTestClient.post().uri("/api/reembolso/calcular-com-plano?tipoPlano=ouro")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Consulta(new BigDecimal("100.00"), null))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.erro").isEqualTo("Tipo de plano inválido: ouro")
+                .jsonPath("$.codigo").isEqualTo("PLANO_INVALIDO");
+    }
+
+    @Test
+    @DisplayName("Deve emitir o histórico como JSON array e como NDJSON")
+    void deveEmitirHistorico() {
+        // Arrange
+        when(reembolsoService.buscarHistorico()).thenAnswer(invocation ->
+                Flux.just(item("200.00", "140.00"), item("100.00", "70.00")));
+
+        // Act & Assert - JSON array
+        webTestClient.get().uri("/api/reembolso/historico")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].reembolso.valorReembolso").isEqualTo(70.00);
+
+        // Act & Assert - NDJSON, um item por vez
+        List<HistoricoResponse> itens = webTestClient.get().uri("/api/reembolso/historico")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(HistoricoResponse.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(2, itens.size());
+        assertEquals(new BigDecimal("140.00"), itens.get(0).reembolso().valorReembolso());
+    }
+
+    // Formatos binários (CBOR e Smile)
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private final CBORMapper cbor = new CBORMapper();
+    private final SmileMapper smile = new SmileMapper();
+
+    @Test
+    @DisplayName("Deve receber e responder em CBOR na API reativa")
+    void deveCalcularReembolsoEmCbor() throws Exception {
+        // Arrange
+        when(reembolsoService.calcularReembolso(argThat(consulta ->
+                consulta != null && new BigDecimal("0.70").equals(consulta.getPercentualCobertura()))))
+                .thenReturn(Mono.just(new BigDecimal("140.00")));
+
+        // Act
+        byte[] corpo = webTestClient.post().uri("/api/reembolso/calcular")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .bodyValue(cbor.writeValueAsBytes(new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        // Assert
+        ReembolsoResponse resposta = cbor.readValue(corpo, ReembolsoResponse.class);
+        assertEquals(new BigDecimal("140.00"), resposta.valorReembolso());
+        assertEquals(new BigDecimal("200.00"), resposta.valorConsulta());
+    }
+
+    @Test
+    @DisplayName("Deve emitir o histórico em CBOR e em Smile")
+    void deveEmitirHistoricoEmFormatosBinarios() throws Exception {
+        // Arrange
+        when(reembolsoService.buscarHistorico()).thenAnswer(invocation ->
+                Flux.just(item("200.00", "140.00"), item("100.00", "70.00")));
+        when(reembolsoService.buscarHistoricoPorPaciente(eq("123.456.789-00"))).thenAnswer(invocation ->
+                Flux.just(item("100.00", "70.00")));
+
+        // Act
+        byte[] emCbor = webTestClient.get().uri("/api/reembolso/historico")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+        byte[] emSmile = webTestClient.get().uri("/api/reembolso/historico/paciente/123.456.789-00")
+                .accept(APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        // Assert
+        HistoricoResponse[] itensCbor = cbor.readValue(emCbor, HistoricoResponse[].class);
+        assertEquals(2, itensCbor.length);
+        assertEquals(new BigDecimal("70.00"), itensCbor[1].reembolso().valorReembolso());
+        HistoricoResponse[] itensSmile = smile.readValue(emSmile, HistoricoResponse[].class);
+        assertEquals(1, itensSmile.length);
+        assertEquals("João Silva", itensSmile[0].paciente().getNome());
+    }
+}
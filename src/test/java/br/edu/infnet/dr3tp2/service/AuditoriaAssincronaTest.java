@@ -0,0 +1,187 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes da AuditoriaAssincrona gravando em diretório temporário
+ */
+class AuditoriaAssincronaTest {
+
+    @TempDir
+    Path diretorio;
+
+    private AuditoriaAssincrona criar(int capacidade, long tamanhoMaximoArquivo, PoliticaBufferCheio politica) {
+        return new AuditoriaAssincrona(diretorio, capacidade, 16, tamanhoMaximoArquivo, politica);
+    }
+
+    private Consulta consulta(int valor) {
+        return new Consulta(new BigDecimal(valor), new BigDecimal("0.70"));
+    }
+
+    private List<String> lerLinhas() throws IOException {
+        List<String> linhas = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : arquivos.sorted().toList()) {
+                linhas.addAll(Files.readAllLines(arquivo));
+            }
+        }
+        return linhas;
+    }
+
+    private long contarArquivos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve gravar todos os registros pendentes ao encerrar")
+    void deveGravarRegistrosPendentesAoEncerrar() throws IOException {
+        // Arrange
+        AuditoriaAssincrona auditoria = criar(1024, 1 << 20, PoliticaBufferCheio.BLOQUEAR);
+        auditoria.iniciar();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            auditoria.registrarConsulta(consulta(i));
+        }
+        auditoria.encerrar();
+
+        // Assert
+        List<String> linhas = lerLinhas();
+        assertEquals(100, linhas.size());
+        assertTrue(linhas.get(0).endsWith(";0;0.70"));
+        assertTrue(linhas.get(99).endsWith(";99;0.70"));
+        assertEquals(100, auditoria.getGravados());
+        assertEquals(0, auditoria.getPendentes());
+    }
+
+    @Test
+    @DisplayName("Deve rotacionar o arquivo ao atingir o tamanho máximo")
+    void deveRotacionarArquivo() throws IOException {
+        // Arrange - Cada linha tem cerca de 35 bytes, lotes de até 16 registros
+        AuditoriaAssincrona auditoria = criar(1024, 700, PoliticaBufferCheio.BLOQUEAR);
+        auditoria.iniciar();
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            auditoria.registrarConsulta(consulta(i));
+        }
+        auditoria.encerrar();
+
+        // Assert
+        assertTrue(contarArquivos() > 1);
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : arquivos.toList()) {
+                assertTrue(Files.size(arquivo) <= 700);
+            }
+        }
+        assertEquals(200, lerLinhas().size());
+    }
+
+    @Test
+    @DisplayName("Política DESCARTAR deve contabilizar registros descartados com buffer cheio")
+    void politicaDescartarDeveContabilizar() throws IOException {
+        // Arrange - Sem consumidor iniciado o buffer enche
+        AuditoriaAssincrona auditoria = criar(4, 1 << 20, PoliticaBufferCheio.DESCARTAR);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            auditoria.registrarConsulta(consulta(i));
+        }
+
+        // Assert
+        assertEquals(6, auditoria.getDescartados());
+        assertEquals(4, auditoria.getPendentes());
+
+        // Os registros aceitos são gravados quando o consumidor roda
+        auditoria.iniciar();
+        auditoria.encerrar();
+        assertEquals(4, lerLinhas().size());
+    }
+
+    @Test
+    @DisplayName("Política FALHAR deve rejeitar a requisição com buffer cheio")
+    void politicaFalharDeveRejeitar() {
+        // Arrange
+        AuditoriaAssincrona auditoria = criar(2, 1 << 20, PoliticaBufferCheio.FALHAR);
+        auditoria.registrarConsulta(consulta(1));
+        auditoria.registrarConsulta(consulta(2));
+
+        // Act & Assert
+        AuditoriaIndisponivelException exception = assertThrows(
+                AuditoriaIndisponivelException.class,
+                () -> auditoria.registrarConsulta(consulta(3))
+        );
+        assertEquals("Buffer de auditoria cheio", exception.getMessage());
+        assertEquals(1, auditoria.getRejeitados());
+    }
+
+    @Test
+    @DisplayName("Política BLOQUEAR deve aguardar espaço sem perder registros")
+    void politicaBloquearNaoDevePerderRegistros() throws Exception {
+        // Arrange - Buffer pequeno com vários produtores concorrentes
+        AuditoriaAssincrona auditoria = criar(8, 1 << 20, PoliticaBufferCheio.BLOQUEAR);
+        auditoria.iniciar();
+
+        // Act
+        List<Thread> produtores = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread produtor = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    auditoria.registrarConsulta(consulta(i));
+                }
+            });
+            produtores.add(produtor);
+            produtor.start();
+        }
+        for (Thread produtor : produtores) {
+            produtor.join();
+        }
+        auditoria.encerrar();
+
+        // Assert
+        assertEquals(2000, lerLinhas().size());
+        assertEquals(2000, auditoria.getGravados());
+        assertEquals(0, auditoria.getDescartados());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar registros depois de encerrada em vez de perdê-los")
+    void deveRejeitarRegistrosDepoisDeEncerrada() throws IOException {
+        // Arrange
+        AuditoriaAssincrona auditoria = criar(1024, 1 << 20, PoliticaBufferCheio.DESCARTAR);
+        auditoria.iniciar();
+        auditoria.registrarConsulta(consulta(1));
+        auditoria.encerrar();
+
+        // Act & Assert
+        AuditoriaIndisponivelException exception = assertThrows(
+                AuditoriaIndisponivelException.class,
+                () -> auditoria.registrarConsulta(consulta(2))
+        );
+        assertEquals("Auditoria encerrada", exception.getMessage());
+        assertEquals(1, auditoria.getRejeitados());
+        assertEquals(0, auditoria.getPendentes());
+        assertEquals(1, lerLinhas().size());
+    }
+
+    @Test
+    @DisplayName("Buffer circular deve exigir capacidade potência de 2")
+    void bufferDeveExigirPotenciaDeDois() {
+        assertThrows(IllegalArgumentException.class, () -> new BufferCircular<String>(6));
+    }
+}
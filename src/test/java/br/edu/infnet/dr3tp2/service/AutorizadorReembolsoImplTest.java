@@ -0,0 +1,98 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.helper.ConsultaTestHelper;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe de testes para AutorizadorReembolsoImpl - EX8
+ */
+class AutorizadorReembolsoImplTest {
+
+    private AutorizadorReembolsoImpl autorizador;
+    private Paciente pacienteDummy;
+
+    @BeforeEach
+    void setUp() {
+        autorizador = new AutorizadorReembolsoImpl();
+        pacienteDummy = new Paciente("Dummy", "000.000.000-00");
+    }
+
+    @Test
+    @DisplayName("Deve autorizar consulta até R$ 2.000")
+    void deveAutorizarConsultaAteLimite() {
+        // Act
+        DecisaoAutorizacao decisao = autorizador.avaliar(ConsultaTestHelper.criarConsultaAutorizada(), pacienteDummy);
+        DecisaoAutorizacao noLimite = autorizador.avaliar(
+                ConsultaTestHelper.criarConsultaComValor(new BigDecimal("2000.00")), pacienteDummy);
+
+        // Assert
+        assertSame(DecisaoAutorizacao.AUTORIZADA, decisao);
+        assertSame(DecisaoAutorizacao.AUTORIZADA, noLimite);
+        assertNull(decisao.getMotivo());
+        assertTrue(autorizador.isAutorizado(ConsultaTestHelper.criarConsultaAutorizada(), pacienteDummy));
+    }
+
+    @Test
+    @DisplayName("Deve negar consulta acima de R$ 2.000 com motivo na própria decisão")
+    void deveNegarConsultaAcimaDoLimite() {
+        // Act
+        DecisaoAutorizacao decisao = autorizador.avaliar(ConsultaTestHelper.criarConsultaNaoAutorizada(), pacienteDummy);
+
+        // Assert
+        assertFalse(decisao.isAutorizado());
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE, decisao.getMotivo());
+        assertEquals("VALOR_ACIMA_LIMITE", decisao.getMotivo().getCodigo());
+        assertSame(DecisaoAutorizacao.negada(MotivoNegacao.VALOR_ACIMA_LIMITE), decisao);
+    }
+
+    @Test
+    @DisplayName("Deve negar consulta sem dados")
+    void deveNegarConsultaSemDados() {
+        // Act & Assert
+        assertEquals(MotivoNegacao.DADOS_INVALIDOS, autorizador.avaliar(null, pacienteDummy).getMotivo());
+        assertEquals(MotivoNegacao.DADOS_INVALIDOS,
+                autorizador.avaliar(new Consulta(null, new BigDecimal("0.70")), pacienteDummy).getMotivo());
+    }
+
+    @Test
+    @DisplayName("Não deve misturar motivos de requisições simultâneas")
+    void naoDeveMisturarMotivosDeRequisicoesSimultaneas() throws Exception {
+        // Arrange - Metade das threads avalia consultas negadas e metade dados inválidos
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> resultados = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < 8; t++) {
+            boolean acimaDoLimite = t % 2 == 0;
+            resultados.add(executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    Consulta consulta = acimaDoLimite ? ConsultaTestHelper.criarConsultaNaoAutorizada() : null;
+                    MotivoNegacao esperado = acimaDoLimite ? MotivoNegacao.VALOR_ACIMA_LIMITE : MotivoNegacao.DADOS_INVALIDOS;
+                    if (autorizador.avaliar(consulta, pacienteDummy).getMotivo() != esperado) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+
+        // Assert
+        for (Future<Boolean> resultado : resultados) {
+            assertTrue(resultado.get());
+        }
+        executor.shutdown();
+    }
+}
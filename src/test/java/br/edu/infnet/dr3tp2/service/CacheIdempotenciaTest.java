@@ -0,0 +1,183 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do CacheIdempotencia com relógio controlado pelo teste
+ */
+class CacheIdempotenciaTest {
+
+    private final AtomicLong agora = new AtomicLong();
+    private final AtomicInteger execucoes = new AtomicInteger();
+    private CacheIdempotencia cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = criar(100, Duration.ofSeconds(10));
+    }
+
+    private CacheIdempotencia criar(int maximoEntradas, Duration ttl) {
+        CacheIdempotencia criado = new CacheIdempotencia(maximoEntradas, ttl);
+        criado.relogio = agora::get;
+        return criado;
+    }
+
+    private String calcular(String resposta) {
+        execucoes.incrementAndGet();
+        return resposta;
+    }
+
+    @Test
+    @DisplayName("Deve reaproveitar a resposta para a mesma chave")
+    void deveReaproveitarRespostaParaMesmaChave() {
+        // Act
+        String primeira = cache.executar("a", () -> calcular("resposta 1"));
+        String segunda = cache.executar("a", () -> calcular("resposta 2"));
+        String outraChave = cache.executar("b", () -> calcular("resposta 3"));
+
+        // Assert
+        assertEquals("resposta 1", primeira);
+        assertEquals("resposta 1", segunda);
+        assertEquals("resposta 3", outraChave);
+        assertEquals(2, execucoes.get());
+        assertEquals(2, cache.getTamanho());
+        assertEquals(1, cache.getAcertos());
+        assertEquals(2, cache.getFalhas());
+        assertEquals(1.0 / 3, cache.getTaxaAcerto(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar a mesma chave com outra impressão da requisição")
+    void deveRejeitarMesmaChaveComOutraImpressao() {
+        // Act
+        String primeira = cache.executar("a", "corpo 1", () -> calcular("resposta 1"));
+        String repetida = cache.executar("a", "corpo 1", () -> calcular("resposta 2"));
+
+        // Assert
+        assertEquals("resposta 1", primeira);
+        assertEquals("resposta 1", repetida);
+        assertThrows(IdempotenciaConflitanteException.class,
+                () -> cache.executar("a", "corpo 2", () -> calcular("resposta 3")));
+        assertEquals(1, execucoes.get());
+        assertEquals(1, cache.getConflitos());
+        assertEquals(1, cache.getAcertos());
+    }
+
+    @Test
+    @DisplayName("Sem chave deve sempre executar o cálculo")
+    void semChaveDeveSempreExecutar() {
+        // Act
+        cache.executar(null, () -> calcular("x"));
+        cache.executar(null, () -> calcular("x"));
+
+        // Assert
+        assertEquals(2, execucoes.get());
+        assertEquals(0, cache.getTamanho());
+        assertEquals(0.0, cache.getTaxaAcerto());
+    }
+
+    @Test
+    @DisplayName("Deve recalcular após o TTL expirar")
+    void deveRecalcularAposTtl() {
+        // Arrange
+        cache.executar("a", () -> calcular("antiga"));
+
+        // Act
+        agora.addAndGet(Duration.ofSeconds(9).toNanos());
+        String antesDoTtl = cache.executar("a", () -> calcular("nova"));
+        agora.addAndGet(Duration.ofSeconds(2).toNanos());
+        String depoisDoTtl = cache.executar("a", () -> calcular("nova"));
+
+        // Assert
+        assertEquals("antiga", antesDoTtl);
+        assertEquals("nova", depoisDoTtl);
+        assertEquals(2, execucoes.get());
+        assertEquals(1, cache.getTamanho());
+    }
+
+    @Test
+    @DisplayName("Deve limitar a quantidade de entradas removendo as mais antigas")
+    void deveLimitarQuantidadeDeEntradas() {
+        // Arrange
+        cache = criar(3, Duration.ofMinutes(10));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            String chave = "chave-" + i;
+            cache.executar(chave, () -> calcular(chave));
+        }
+        cache.executar("chave-9", () -> calcular("recalculada"));
+        String removida = cache.executar("chave-0", () -> calcular("recalculada"));
+
+        // Assert
+        assertTrue(cache.getTamanho() <= 3);
+        assertEquals("recalculada", removida);
+        assertEquals(11, execucoes.get());
+    }
+
+    @Test
+    @DisplayName("Exceção no cálculo não deve ficar no cache")
+    void excecaoNaoDeveFicarNoCache() {
+        // Act
+        assertThrows(IllegalStateException.class, () -> cache.executar("a", () -> {
+            throw new IllegalStateException("falhou");
+        }));
+        String novaTentativa = cache.executar("a", () -> calcular("ok"));
+
+        // Assert
+        assertEquals("ok", novaTentativa);
+        assertEquals(1, cache.getTamanho());
+    }
+
+    @Test
+    @DisplayName("Requisições concorrentes com a mesma chave devem aguardar o primeiro cálculo")
+    void requisicoesConcorrentesDevemAguardarPrimeiroCalculo() throws Exception {
+        // Arrange
+        CountDownLatch calculoIniciado = new CountDownLatch(1);
+        CountDownLatch liberarCalculo = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        Future<String> primeira = executor.submit(() -> cache.executar("a", () -> {
+            calculoIniciado.countDown();
+            try {
+                liberarCalculo.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return calcular("unica");
+        }));
+        assertTrue(calculoIniciado.await(5, TimeUnit.SECONDS));
+
+        // Act - Duplicatas chegam enquanto o primeiro cálculo está em andamento
+        List<Future<String>> duplicatas = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            duplicatas.add(executor.submit(() -> cache.executar("a", () -> calcular("duplicada"))));
+        }
+        Thread.sleep(50);
+        liberarCalculo.countDown();
+
+        // Assert
+        assertEquals("unica", primeira.get(5, TimeUnit.SECONDS));
+        for (Future<String> duplicata : duplicatas) {
+            assertEquals("unica", duplicata.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, execucoes.get());
+        assertEquals(7, cache.getAcertos());
+        executor.shutdown();
+    }
+}
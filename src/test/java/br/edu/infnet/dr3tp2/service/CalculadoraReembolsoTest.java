@@ -214,4 +214,46 @@ class CalculadoraReembolsoTest {
         assertEqualsComMargem(reembolsoEsperado, reembolsoCalculado,
                 "Reembolso de R$ 150,00 deve manter o valor (no teto)");
     }
+
+    @Test
+    @DisplayName("Validar deve devolver o código do erro sem lançar exceção")
+    void validarDeveDevolverCodigoDoErro() {
+        // Act & Assert
+        assertNull(calculadora.validar(ConsultaTestHelper.criarConsultaPadrao()));
+        assertEquals(CodigoErro.CONSULTA_NULA, calculadora.validar(null));
+        assertEquals(CodigoErro.VALOR_INVALIDO,
+                calculadora.validar(new Consulta(new BigDecimal("-1.00"), new BigDecimal("0.70"))));
+        assertEquals(CodigoErro.PERCENTUAL_INVALIDO,
+                calculadora.validar(new Consulta(new BigDecimal("100.00"), new BigDecimal("1.50"))));
+        assertEquals(CodigoErro.PLANO_NULO,
+                calculadora.validarComPlano(ConsultaTestHelper.criarConsultaPadrao(), null));
+    }
+
+    @Test
+    @DisplayName("TentarCalcular deve devolver valor ou falha pré-alocada")
+    void tentarCalcularDeveDevolverValorOuFalha() {
+        // Act
+        ResultadoReembolso sucesso = calculadora.tentarCalcular(ConsultaTestHelper.criarConsultaPadrao(), pacienteDummy);
+        ResultadoReembolso falha = calculadora.tentarCalcular(
+                new Consulta(new BigDecimal("100.00"), new BigDecimal("-0.10")), pacienteDummy);
+        ResultadoReembolso comPlano = calculadora.tentarCalcularComPlano(
+                new Consulta(null, null), new PlanoSaudeStubBasico());
+
+        // Assert
+        assertTrue(sucesso.isSucesso());
+        assertEquals(new BigDecimal("140.00"), sucesso.getValor());
+        assertSame(ResultadoReembolso.invalido(CodigoErro.PERCENTUAL_INVALIDO), falha);
+        assertEquals("PERCENTUAL_INVALIDO", falha.getCodigo());
+        assertNull(falha.getValor());
+        assertSame(ResultadoReembolso.invalido(CodigoErro.VALOR_INVALIDO), comPlano);
+    }
+
+    @Test
+    @DisplayName("Calcular deve lançar a exceção com a mensagem do código de erro")
+    void calcularDeveLancarExcecaoComMensagemDoCodigo() {
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> calculadora.calcular(new Consulta(new BigDecimal("100.00"), null), pacienteDummy));
+        assertEquals(CodigoErro.PERCENTUAL_INVALIDO.getMensagem(), exception.getMessage());
+    }
 }
@@ -0,0 +1,110 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes de propriedade: o motor em ponto fixo deve produzir exatamente o
+ * mesmo resultado (valor e escala) que o cálculo original com BigDecimal
+ */
+class CalculoPontoFixoTest {
+
+    private static final long SEMENTE = 20240517L;
+
+    private CalculadoraReembolso calculadora;
+    private Paciente pacienteDummy;
+
+    @BeforeEach
+    void setUp() {
+        calculadora = new CalculadoraReembolso();
+        pacienteDummy = new Paciente("João Silva", "123.456.789-00");
+    }
+
+    private void assertMesmoResultado(BigDecimal valor, BigDecimal percentual) {
+        BigDecimal esperado = calculadora.calcularComBigDecimal(valor, percentual);
+        BigDecimal atual = calculadora.calcular(new Consulta(valor, percentual), pacienteDummy);
+        assertEquals(esperado, atual, () -> "Divergência para valor " + valor + " e percentual " + percentual);
+    }
+
+    @Test
+    @DisplayName("Deve coincidir com BigDecimal para todos os percentuais em valores de fronteira")
+    void deveCoincidirParaTodosPercentuaisEmValoresDeFronteira() {
+        // Valores próximos do teto, de arredondamento e extremos do intervalo válido
+        String[] valores = {"0", "0.01", "0.05", "1.99", "149.99", "150.00", "150.01",
+                "187.50", "214.29", "300.00", "2000.00", "999999999999.99"};
+
+        for (String valor : valores) {
+            for (int pontosBase = 0; pontosBase <= CalculoPontoFixo.PONTOS_BASE_TOTAL; pontosBase++) {
+                assertMesmoResultado(new BigDecimal(valor), BigDecimal.valueOf(pontosBase, 4));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve coincidir com BigDecimal para entradas aleatórias em todas as escalas")
+    void deveCoincidirParaEntradasAleatorias() {
+        Random aleatorio = new Random(SEMENTE);
+
+        for (int i = 0; i < 200_000; i++) {
+            // Valores de 0 a 12 dígitos inteiros com 0 a 2 casas decimais
+            int escalaValor = aleatorio.nextInt(3);
+            long unidades = (long) (Math.pow(10, aleatorio.nextInt(15)) * aleatorio.nextDouble());
+            BigDecimal valor = BigDecimal.valueOf(unidades, escalaValor);
+
+            // Percentuais de 0% a 100% com 0 a 4 casas decimais
+            int escalaPercentual = aleatorio.nextInt(5);
+            long maximo = (long) Math.pow(10, escalaPercentual);
+            BigDecimal percentual = BigDecimal.valueOf((long) (aleatorio.nextDouble() * (maximo + 1)), escalaPercentual);
+
+            assertMesmoResultado(valor, percentual);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve recorrer ao BigDecimal para valores fora do ponto fixo")
+    void deveRecorrerAoBigDecimalParaValoresForaDoPontoFixo() {
+        // Mais casas decimais que o ponto fixo suporta ou valores grandes demais
+        assertMesmoResultado(new BigDecimal("200.005"), new BigDecimal("0.70"));
+        assertMesmoResultado(new BigDecimal("200.00"), new BigDecimal("0.123456"));
+        assertMesmoResultado(new BigDecimal("99999999999999999.99"), new BigDecimal("0.0001"));
+        assertMesmoResultado(new BigDecimal("1E+3"), new BigDecimal("0.5"));
+
+        assertEquals(CalculoPontoFixo.NAO_REPRESENTAVEL, CalculoPontoFixo.paraCentavos(new BigDecimal("200.005")));
+        assertEquals(CalculoPontoFixo.NAO_REPRESENTAVEL, CalculoPontoFixo.paraPontosBase(new BigDecimal("0.123456")));
+    }
+
+    @Test
+    @DisplayName("Deve coincidir com BigDecimal no cálculo com plano")
+    void deveCoincidirNoCalculoComPlano() {
+        PlanoSaude planoBasico = new PlanoSaudeStubBasico();
+        PlanoSaude planoPremium = new PlanoSaudeStubPremium();
+
+        for (int centavos = 0; centavos <= 40_000; centavos++) {
+            Consulta consulta = new Consulta(BigDecimal.valueOf(centavos, 2), null);
+
+            assertEquals(calculadora.calcularComBigDecimal(consulta.getValor(), planoBasico.getPercentualCobertura()),
+                    calculadora.calcularComPlano(consulta, planoBasico));
+            assertEquals(calculadora.calcularComBigDecimal(consulta.getValor(), planoPremium.getPercentualCobertura()),
+                    calculadora.calcularComPlano(consulta, planoPremium));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve arredondar meio centavo para cima como HALF_UP")
+    void deveArredondarMeioCentavoParaCima() {
+        // R$ 0,01 com 50% = 0,005 -> 0,01
+        assertEquals(1L, CalculoPontoFixo.calcularCentavos(1L, 5_000));
+        // R$ 0,01 com 49,99% = 0,004999 -> 0,00
+        assertEquals(0L, CalculoPontoFixo.calcularCentavos(1L, 4_999));
+        // Teto de R$ 150,00
+        assertEquals(CalculoPontoFixo.TETO_CENTAVOS, CalculoPontoFixo.calcularCentavos(100_000L, 10_000));
+    }
+}
@@ -0,0 +1,61 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes da codificação de CPF em long
+ */
+class CodificadorCpfTest {
+
+    @Test
+    @DisplayName("Deve codificar CPF formatado e só com dígitos no mesmo long")
+    void deveCodificarCpf() {
+        // Act & Assert
+        assertEquals(12_345_678_909L, CodificadorCpf.codificar("123.456.789-09"));
+        assertEquals(12_345_678_909L, CodificadorCpf.codificar("12345678909"));
+        assertEquals(0L, CodificadorCpf.codificar("000.000.000-00"));
+        assertEquals(CodificadorCpf.MAXIMO, CodificadorCpf.codificar("999.999.999-99"));
+    }
+
+    @Test
+    @DisplayName("Deve recusar texto fora dos formatos de CPF")
+    void deveRecusarFormatoInvalido() {
+        // Act & Assert
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificar(null));
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificar(""));
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificar("1"));
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificar("123.456.789/09"));
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificar("123.456.78a-09"));
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificar("1234567890a"));
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificar("123.456.789-00-000000"));
+    }
+
+    @Test
+    @DisplayName("Formatar deve reconstruir o CPF codificado")
+    void formatarDeveReconstruirCpf() {
+        // Act & Assert
+        assertEquals("123.456.789-09", CodificadorCpf.formatar(CodificadorCpf.codificar("12345678909")));
+        assertEquals("000.000.000-00", CodificadorCpf.formatar(0L));
+        assertEquals("001.002.003-04", CodificadorCpf.formatar(CodificadorCpf.codificar("001.002.003-04")));
+        assertThrows(IllegalArgumentException.class, () -> CodificadorCpf.formatar(-1L));
+    }
+
+    @Test
+    @DisplayName("Deve conferir os dígitos verificadores")
+    void deveConferirDigitosVerificadores() {
+        // Act & Assert
+        assertTrue(CodificadorCpf.digitosVerificadoresValidos(CodificadorCpf.codificar("123.456.789-09")));
+        assertTrue(CodificadorCpf.digitosVerificadoresValidos(CodificadorCpf.codificar("529.982.247-25")));
+        assertFalse(CodificadorCpf.digitosVerificadoresValidos(CodificadorCpf.codificar("123.456.789-00")));
+        assertFalse(CodificadorCpf.digitosVerificadoresValidos(CodificadorCpf.codificar("529.982.247-52")));
+        // Dígitos repetidos passam no módulo 11 mas não são CPFs emitidos
+        assertFalse(CodificadorCpf.digitosVerificadoresValidos(CodificadorCpf.codificar("111.111.111-11")));
+        assertFalse(CodificadorCpf.digitosVerificadoresValidos(CodificadorCpf.INVALIDO));
+
+        assertEquals(52_998_224_725L, CodificadorCpf.codificarValido("529.982.247-25"));
+        assertEquals(CodificadorCpf.INVALIDO, CodificadorCpf.codificarValido("987.654.321-01"));
+    }
+}
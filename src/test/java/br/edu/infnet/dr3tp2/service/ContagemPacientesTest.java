@@ -0,0 +1,73 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes da contagem de pacientes distintos por partição
+ */
+class ContagemPacientesTest {
+
+    private ContagemPacientes contagem;
+
+    @BeforeEach
+    void setUp() {
+        contagem = new ContagemPacientes();
+    }
+
+    @Test
+    @DisplayName("CPF deve sair da contagem só quando a última partição com ele for descartada")
+    void deveContarPorParticao() {
+        // Arrange - Um CPF em duas partições, outro em uma e um fora do formato
+        contagem.adicionar("123.456.789-09");
+        contagem.adicionar("123.456.789-09");
+        contagem.adicionar("987.654.321-00");
+        contagem.adicionar("sem formato");
+
+        // Act & Assert
+        assertEquals(3, contagem.quantidade());
+        contagem.remover("123.456.789-09");
+        assertEquals(3, contagem.quantidade());
+        contagem.remover("123.456.789-09");
+        contagem.remover("sem formato");
+        assertEquals(1, contagem.quantidade());
+        contagem.remover("111.111.111-11");
+        assertEquals(1, contagem.quantidade());
+    }
+
+    @Test
+    @DisplayName("Deve manter a contagem igual à de um mapa ao crescer e remover")
+    void deveAcompanharMapaAoRemover() {
+        // Arrange - CPFs vizinhos, muitas colisões de sondagem e remoções no meio delas
+        Random aleatorio = new Random(42);
+        Map<Long, Integer> esperado = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 50_000; i++) {
+            long cpf = aleatorio.nextInt(2_000);
+            if (aleatorio.nextInt(3) == 0 && esperado.containsKey(cpf)) {
+                contagem.remover(cpf);
+                esperado.computeIfPresent(cpf, (chave, total) -> total > 1 ? total - 1 : null);
+            } else {
+                contagem.adicionar(cpf);
+                esperado.merge(cpf, 1, Integer::sum);
+            }
+            assertEquals(esperado.size(), contagem.quantidade(), "passo " + i);
+        }
+
+        // Assert - Removendo tudo a contagem volta a zero
+        esperado.forEach((cpf, total) -> {
+            for (int i = 0; i < total; i++) {
+                contagem.remover(cpf);
+            }
+        });
+        assertEquals(0, contagem.quantidade());
+    }
+}
@@ -0,0 +1,140 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.RastroLentoResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes da amostragem de cauda e da exportação OTLP/JSON
+ */
+class ExportadorRastrosLentosTest {
+
+    private static final long INICIO = 1_700_000_000_000_000_000L;
+    private static final long MS = 1_000_000L;
+
+    private SdkTracerProvider provedor;
+
+    private Tracer criarTracer(ExportadorRastrosLentos exportador) {
+        provedor = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exportador))
+                .build();
+        return provedor.get("teste");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (provedor != null) {
+            provedor.close();
+        }
+    }
+
+    /**
+     * Requisição com uma etapa; duração total em milissegundos
+     */
+    private void rastrear(Tracer tracer, String nome, long duracaoMs, boolean erro) {
+        Span raiz = tracer.spanBuilder(nome).setStartTimestamp(INICIO, TimeUnit.NANOSECONDS).startSpan();
+        Span etapa = tracer.spanBuilder("reembolso.calcular")
+                .setParent(Context.root().with(raiz))
+                .setStartTimestamp(INICIO + MS, TimeUnit.NANOSECONDS)
+                .setAttribute("reembolso.etapa", "calcular")
+                .startSpan();
+        if (erro) {
+            etapa.setStatus(StatusCode.ERROR, "falha");
+        }
+        etapa.end(INICIO + 2 * MS, TimeUnit.NANOSECONDS);
+        raiz.end(INICIO + duracaoMs * MS, TimeUnit.NANOSECONDS);
+    }
+
+    @Test
+    @DisplayName("Deve reter só traces lentos ou com erro")
+    void deveReterLentosEComErro() {
+        // Arrange
+        ExportadorRastrosLentos exportador = new ExportadorRastrosLentos(Duration.ofMillis(50), 16, 16, "");
+        Tracer tracer = criarTracer(exportador);
+
+        // Act
+        rastrear(tracer, "rapido", 10, false);
+        rastrear(tracer, "lento", 80, false);
+        rastrear(tracer, "com-erro", 5, true);
+
+        // Assert
+        List<RastroLentoResponse> retidos = exportador.getRastrosRetidos();
+        assertEquals(List.of("lento", "com-erro"), retidos.stream().map(RastroLentoResponse::nome).toList());
+        assertEquals(80_000, retidos.get(0).duracaoMicros());
+        assertEquals(1_000, retidos.get(0).trechos().get(0).inicioMicros());
+        assertTrue(retidos.get(1).erro());
+        assertEquals(3, exportador.getAvaliados());
+        assertEquals(2, exportador.getTotalRetidos());
+    }
+
+    @Test
+    @DisplayName("Coletor em memória e spans pendentes devem ter tamanho limitado")
+    void deveLimitarRetidosEPendentes() {
+        // Arrange
+        ExportadorRastrosLentos exportador = new ExportadorRastrosLentos(Duration.ZERO, 2, 2, "");
+        Tracer tracer = criarTracer(exportador);
+
+        // Act - Três traces completos e três spans órfãos (raiz nunca termina)
+        for (int i = 0; i < 3; i++) {
+            rastrear(tracer, "rastro-" + i, 1, false);
+            Span raizAberta = tracer.spanBuilder("aberta").startSpan();
+            tracer.spanBuilder("orfao").setParent(Context.root().with(raizAberta)).startSpan().end();
+        }
+
+        // Assert
+        assertEquals(List.of("rastro-1", "rastro-2"),
+                exportador.getRastrosRetidos().stream().map(RastroLentoResponse::nome).toList());
+        assertEquals(1, exportador.getIncompletos());
+    }
+
+    @Test
+    @DisplayName("Deve gravar os traces retidos em OTLP/JSON, um por linha")
+    void deveGravarOtlpJsonLines(@TempDir Path diretorio) throws Exception {
+        // Arrange
+        Path arquivo = diretorio.resolve("rastros/lentos.jsonl");
+        ExportadorRastrosLentos exportador = new ExportadorRastrosLentos(Duration.ofMillis(50), 16, 16, arquivo.toString());
+        Tracer tracer = criarTracer(exportador);
+
+        // Act
+        rastrear(tracer, "lento", 60, false);
+        rastrear(tracer, "rapido", 1, false);
+        rastrear(tracer, "outro-lento", 70, false);
+        exportador.flush();
+
+        // Assert
+        List<String> linhas = Files.readAllLines(arquivo);
+        assertEquals(2, linhas.size());
+
+        JsonNode spans = new ObjectMapper().readTree(linhas.get(0))
+                .at("/resourceSpans/0/scopeSpans/0/spans");
+        assertEquals(2, spans.size());
+        JsonNode etapa = spans.get(0);
+        JsonNode raiz = spans.get(1);
+        assertEquals("reembolso.calcular", etapa.get("name").asText());
+        assertEquals(raiz.get("spanId").asText(), etapa.get("parentSpanId").asText());
+        assertEquals(raiz.get("traceId").asText(), etapa.get("traceId").asText());
+        assertFalse(raiz.has("parentSpanId"));
+        assertEquals(Long.toString(INICIO), raiz.get("startTimeUnixNano").asText());
+        assertEquals("reembolso.etapa", etapa.at("/attributes/0/key").asText());
+        assertEquals("calcular", etapa.at("/attributes/0/value/stringValue").asText());
+        assertEquals(1, raiz.get("kind").asInt());
+    }
+}
@@ -0,0 +1,322 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe de testes para HistoricoConsultasConcorrente, incluindo teste de
+ * estresse com gravações e leituras simultâneas
+ */
+class HistoricoConsultasConcorrenteTest {
+
+    private static final int THREADS_ESCRITA = 8;
+    private static final int GRAVACOES_POR_THREAD = 20_000;
+    private static final int PACIENTES = 64;
+
+    private HistoricoConsultasConcorrente historico;
+    private Paciente paciente1;
+    private Paciente paciente2;
+
+    @BeforeEach
+    void setUp() {
+        historico = new HistoricoConsultasConcorrente();
+        paciente1 = new Paciente("João Silva", "123.456.789-00");
+        paciente2 = new Paciente("Maria Santos", "987.654.321-00");
+    }
+
+    @Test
+    @DisplayName("Deve salvar e buscar histórico completo e por paciente")
+    void deveSalvarEBuscarHistorico() {
+        // Arrange
+        Consulta consulta1 = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+        Consulta consulta2 = new Consulta(new BigDecimal("150.00"), new BigDecimal("0.80"));
+
+        // Act
+        historico.salvarComReembolso(consulta1, paciente1, new BigDecimal("140.00"));
+        historico.salvarComReembolso(consulta2, paciente2, new BigDecimal("120.00"));
+
+        // Assert
+        List<HistoricoResponse> completo = historico.buscarHistorico();
+        assertEquals(2, completo.size());
+        assertEquals(new BigDecimal("200.00"), completo.get(0).reembolso().valorConsulta());
+        assertEquals(new BigDecimal("150.00"), completo.get(1).reembolso().valorConsulta());
+
+        List<HistoricoResponse> doPaciente2 = historico.buscarHistoricoPorPaciente("987.654.321-00");
+        assertEquals(1, doPaciente2.size());
+        assertEquals("Maria Santos", doPaciente2.get(0).paciente().getNome());
+        assertEquals(new BigDecimal("120.00"), doPaciente2.get(0).reembolso().valorReembolso());
+    }
+
+    @Test
+    @DisplayName("Deve percorrer o histórico completo por cursor sem repetir itens")
+    void devePaginarHistoricoCompletoPorCursor() {
+        // Arrange - Consultas sem reembolso no meio não aparecem nas páginas
+        for (int i = 1; i <= 10; i++) {
+            Consulta consulta = new Consulta(new BigDecimal(i), new BigDecimal("1.00"));
+            if (i % 4 == 0) {
+                historico.salvar(consulta, paciente1);
+            } else {
+                historico.salvarComReembolso(consulta, paciente1, new BigDecimal(i));
+            }
+        }
+
+        // Act
+        List<Integer> valores = new ArrayList<>();
+        List<Long> cursores = new ArrayList<>();
+        long cursor = 0;
+        while (true) {
+            PaginaHistoricoResponse pagina = historico.buscarHistorico(cursor, 3);
+            pagina.itens().forEach(item -> valores.add(item.reembolso().valorConsulta().intValue()));
+            if (pagina.proximoCursor() == null) {
+                break;
+            }
+            cursor = pagina.proximoCursor();
+            cursores.add(cursor);
+        }
+
+        // Assert
+        assertEquals(List.of(1, 2, 3, 5, 6, 7, 9, 10), valores);
+        assertEquals(List.of(3L, 7L), cursores);
+    }
+
+    @Test
+    @DisplayName("Deve paginar histórico do paciente a partir da sequência global")
+    void devePaginarHistoricoDoPacientePorCursor() {
+        // Arrange - Pacientes intercalados: sequências 1..6, paciente2 fica com 2, 4 e 6
+        for (int i = 1; i <= 6; i++) {
+            Paciente paciente = i % 2 == 0 ? paciente2 : paciente1;
+            historico.salvarComReembolso(new Consulta(new BigDecimal(i), new BigDecimal("1.00")), paciente, new BigDecimal(i));
+        }
+
+        // Act
+        PaginaHistoricoResponse primeira = historico.buscarHistoricoPorPaciente("987.654.321-00", 0, 2);
+        PaginaHistoricoResponse segunda = historico.buscarHistoricoPorPaciente("987.654.321-00", primeira.proximoCursor(), 2);
+        PaginaHistoricoResponse aposCursorDeOutroPaciente = historico.buscarHistoricoPorPaciente("987.654.321-00", 3, 10);
+
+        // Assert
+        assertEquals(2, primeira.itens().size());
+        assertEquals(4L, primeira.proximoCursor());
+        assertEquals(1, segunda.itens().size());
+        assertEquals(new BigDecimal(6), segunda.itens().get(0).reembolso().valorConsulta());
+        assertNull(segunda.proximoCursor());
+        assertEquals(2, aposCursorDeOutroPaciente.itens().size());
+        assertEquals(new BigDecimal(4), aposCursorDeOutroPaciente.itens().get(0).reembolso().valorConsulta());
+        assertTrue(historico.buscarHistoricoPorPaciente("000.000.000-00", 0, 10).itens().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Exportação deve percorrer o retrato do início sem incluir gravações posteriores")
+    void exportacaoDevePercorrerRetratoDoInicio() {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            historico.salvarComReembolso(new Consulta(new BigDecimal(i), new BigDecimal("1.00")), paciente1, new BigDecimal(i));
+        }
+
+        // Act - Cada item lido provoca uma nova gravação durante a exportação
+        List<Integer> exportados = new ArrayList<>();
+        historico.percorrerHistorico(item -> {
+            exportados.add(item.reembolso().valorConsulta().intValue());
+            historico.salvarComReembolso(new Consulta(new BigDecimal(100), new BigDecimal("1.00")), paciente2, new BigDecimal(100));
+        });
+
+        // Assert
+        assertEquals(List.of(1, 2, 3, 4, 5), exportados);
+        assertEquals(10, historico.buscarHistorico().size());
+    }
+
+    @Test
+    @DisplayName("Deve manter resumo do paciente a cada gravação")
+    void deveManterResumoDoPaciente() {
+        // Arrange
+        historico.salvarComReembolso(new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70")), paciente1, new BigDecimal("140.00"));
+        historico.salvarComReembolso(new Consulta(new BigDecimal("500.00"), new BigDecimal("0.80")), paciente1, new BigDecimal("150.00"));
+        historico.salvarComReembolso(new Consulta(new BigDecimal("1000.005"), new BigDecimal("0.50")), paciente1, new BigDecimal("150.00"));
+        historico.salvar(new Consulta(new BigDecimal("90.00"), new BigDecimal("0.50")), paciente1);
+        historico.salvarComReembolso(new Consulta(new BigDecimal("100.00"), new BigDecimal("0.50")), paciente2, new BigDecimal("50.00"));
+
+        // Act
+        ResumoPacienteResponse resumo = historico.buscarResumoPorPaciente("123.456.789-00");
+
+        // Assert
+        assertEquals("123.456.789-00", resumo.cpf());
+        assertEquals(3, resumo.quantidadeConsultas());
+        assertEquals(new BigDecimal("1700.005"), resumo.totalValorConsultas());
+        assertEquals(new BigDecimal("440.00"), resumo.totalReembolsado());
+        assertEquals(2, resumo.reembolsosNoTeto());
+        assertEquals(0, historico.buscarResumoPorPaciente("000.000.000-00").quantidadeConsultas());
+        assertEquals(new BigDecimal("0.00"), historico.buscarResumoPorPaciente("000.000.000-00").totalReembolsado());
+    }
+
+    @Test
+    @DisplayName("Resumo deve somar gravações concorrentes do mesmo paciente")
+    void resumoDeveSomarGravacoesConcorrentes() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        // Act - 4 threads x 1000 consultas de R$ 100,00 com reembolso de R$ 70,00
+        for (int t = 0; t < 4; t++) {
+            tarefas.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    historico.salvarComReembolso(new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70")), paciente1, new BigDecimal("70.00"));
+                }
+            }));
+        }
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        ResumoPacienteResponse resumo = historico.buscarResumoPorPaciente("123.456.789-00");
+        assertEquals(4000, resumo.quantidadeConsultas());
+        assertEquals(new BigDecimal("400000.00"), resumo.totalValorConsultas());
+        assertEquals(new BigDecimal("280000.00"), resumo.totalReembolsado());
+        assertEquals(0, resumo.reembolsosNoTeto());
+    }
+
+    @Test
+    @DisplayName("Página que para numa gravação em andamento deve devolver cursor para continuar")
+    void paginaQueParaEmLacunaDeveDevolverCursor() {
+        // Arrange - Posição 2 reservada e ainda não gravada, com gravações depois dela
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"));
+        historico.salvarComReembolso(consulta, paciente1, new BigDecimal("70.00"));
+        historico.salvarComReembolso(consulta, paciente2, new BigDecimal("70.00"));
+        long lacuna = historico.todasConsultas.reservar();
+        historico.salvarComReembolso(consulta, paciente1, new BigDecimal("70.00"));
+
+        // Act
+        PaginaHistoricoResponse primeira = historico.buscarHistorico(0, 10);
+        PaginaHistoricoResponse naLacuna = historico.buscarHistorico(2, 10);
+
+        // Assert - O cursor retoma depois do último item entregue (ou do próprio cursor)
+        assertEquals(2, primeira.itens().size());
+        assertEquals(2L, primeira.proximoCursor());
+        assertTrue(naLacuna.itens().isEmpty());
+        assertEquals(2L, naLacuna.proximoCursor());
+
+        // Act & Assert - Gravada a posição, a próxima página continua do cursor
+        historico.todasConsultas.gravar(lacuna, new RegistroHistorico(lacuna + 1, consulta.getValor(),
+                consulta.getPercentualCobertura(), new BigDecimal("70.00"), paciente2));
+        PaginaHistoricoResponse continuacao = historico.buscarHistorico(primeira.proximoCursor(), 10);
+        assertEquals(2, continuacao.itens().size());
+        assertNull(continuacao.proximoCursor());
+    }
+
+    @Test
+    @DisplayName("Não deve exibir consultas salvas sem reembolso")
+    void naoDeveExibirConsultasSemReembolso() {
+        // Act
+        historico.salvar(new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70")), paciente1);
+
+        // Assert
+        assertTrue(historico.buscarHistorico().isEmpty());
+        assertTrue(historico.buscarHistoricoPorPaciente("123.456.789-00").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve validar entradas nulas")
+    void deveValidarEntradasNulas() {
+        Consulta consulta = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+
+        assertThrows(IllegalArgumentException.class, () -> historico.salvar(null, paciente1));
+        assertThrows(IllegalArgumentException.class, () -> historico.salvar(consulta, null));
+        assertTrue(historico.buscarHistoricoPorPaciente(null).isEmpty());
+        assertTrue(historico.buscarHistoricoPorPaciente("000.000.000-00").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Não deve perder gravações com várias threads salvando e lendo ao mesmo tempo")
+    void naoDevePerderGravacoesComAcessoConcorrente() throws Exception {
+        // Arrange
+        Paciente[] pacientes = new Paciente[PACIENTES];
+        for (int i = 0; i < PACIENTES; i++) {
+            pacientes[i] = new Paciente("Paciente " + i, String.format("%011d", i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_ESCRITA + 2);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicBoolean gravando = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Throwable> falhasLeitura = new ConcurrentLinkedQueue<>();
+
+        List<Future<?>> escritores = new ArrayList<>();
+        for (int t = 0; t < THREADS_ESCRITA; t++) {
+            int thread = t;
+            escritores.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < GRAVACOES_POR_THREAD; i++) {
+                    Paciente paciente = pacientes[(thread * GRAVACOES_POR_THREAD + i) % PACIENTES];
+                    BigDecimal valor = BigDecimal.valueOf(thread * GRAVACOES_POR_THREAD + i, 2);
+                    historico.salvarComReembolso(new Consulta(valor, BigDecimal.ONE), paciente, valor);
+                }
+                return null;
+            }));
+        }
+
+        // Leitores verificam que o tamanho visível nunca diminui
+        for (int r = 0; r < 2; r++) {
+            executor.submit(() -> {
+                try {
+                    largada.await();
+                    int anterior = 0;
+                    while (gravando.get()) {
+                        int atual = historico.buscarHistoricoPorPaciente(pacientes[0].getCpf()).size();
+                        assertTrue(atual >= anterior, "Prefixo visível não pode diminuir");
+                        anterior = atual;
+                        historico.buscarHistorico();
+                    }
+                } catch (Throwable e) {
+                    falhasLeitura.add(e);
+                }
+            });
+        }
+
+        // Act
+        largada.countDown();
+        for (Future<?> escritor : escritores) {
+            escritor.get(60, TimeUnit.SECONDS);
+        }
+        gravando.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert - Nenhuma gravação perdida nem duplicada
+        assertTrue(falhasLeitura.isEmpty(), () -> "Falhas na leitura: " + falhasLeitura);
+
+        List<HistoricoResponse> completo = historico.buscarHistorico();
+        assertEquals(THREADS_ESCRITA * GRAVACOES_POR_THREAD, completo.size());
+
+        Set<BigDecimal> valores = new HashSet<>();
+        completo.forEach(item -> valores.add(item.reembolso().valorConsulta()));
+        assertEquals(THREADS_ESCRITA * GRAVACOES_POR_THREAD, valores.size());
+
+        int totalPorPaciente = 0;
+        for (Paciente paciente : pacientes) {
+            List<HistoricoResponse> doPaciente = historico.buscarHistoricoPorPaciente(paciente.getCpf());
+            doPaciente.forEach(item -> assertEquals(CodificadorCpf.canonico(paciente.getCpf()), item.paciente().getCpf()));
+            totalPorPaciente += doPaciente.size();
+        }
+        assertEquals(THREADS_ESCRITA * GRAVACOES_POR_THREAD, totalPorPaciente);
+    }
+}
@@ -9,6 +9,9 @@ import org.junit.jupiter.api.DisplayName;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -163,4 +166,56 @@ class HistoricoConsultasFakeTest {
         // Assert
         assertTrue(historico.isEmpty());
     }
+
+    @Test
+    @DisplayName("Deve encontrar o paciente pelo CPF com ou sem pontuação")
+    void deveBuscarPorCpfComOuSemPontuacao() {
+        // Arrange
+        historico.salvarComReembolso(consulta1, paciente1, new BigDecimal("140.00"));
+        historico.salvarComReembolso(consulta2, paciente2, new BigDecimal("120.00"));
+
+        // Act
+        List<HistoricoResponse> formatado = historico.buscarHistoricoPorPaciente("123.456.789-00");
+        List<HistoricoResponse> digitos = historico.buscarHistoricoPorPaciente("12345678900");
+
+        // Assert
+        assertEquals(1, formatado.size());
+        assertEquals(1, digitos.size());
+        assertEquals(consulta1.getValor(), digitos.get(0).reembolso().valorConsulta());
+    }
+
+    @Test
+    @DisplayName("Deve manter o histórico de CPFs fora do formato")
+    void deveManterCpfForaDoFormato() {
+        // Arrange
+        Paciente semFormato = new Paciente("Teste", "1");
+        historico.salvarComReembolso(consulta1, semFormato, new BigDecimal("140.00"));
+        historico.salvarComReembolso(consulta2, paciente1, new BigDecimal("120.00"));
+
+        // Act & Assert
+        assertEquals(1, historico.buscarHistoricoPorPaciente("1").size());
+        assertEquals(1, historico.buscarHistoricoPorPaciente("123.456.789-00").size());
+        assertTrue(historico.buscarHistoricoPorPaciente("2").isEmpty());
+        assertEquals(2, historico.buscarHistorico().size());
+    }
+
+    @Test
+    @DisplayName("Deve aceitar gravações paralelas sem perder consultas")
+    void deveAceitarGravacoesParalelas() throws InterruptedException {
+        // Arrange - Como o lote grava pelo pool de threads
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        int total = 2000;
+
+        // Act
+        for (int i = 0; i < total; i++) {
+            Paciente paciente = i % 2 == 0 ? paciente1 : paciente2;
+            pool.execute(() -> historico.salvarComReembolso(consulta1, paciente, new BigDecimal("140.00")));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(total, historico.buscarHistorico().size());
+        assertEquals(total / 2, historico.buscarHistoricoPorPaciente(paciente1.getCpf()).size());
+    }
 }
@@ -0,0 +1,300 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do HistoricoConsultasMapeado, incluindo reabertura e recuperação
+ * de registros incompletos
+ */
+class HistoricoConsultasMapeadoTest {
+
+    private static final int REGISTROS_POR_SEGMENTO = 4;
+
+    @TempDir
+    Path diretorio;
+
+    private HistoricoConsultasMapeado historico;
+    private final Paciente paciente1 = new Paciente("João Silva", "123.456.789-00");
+    private final Paciente paciente2 = new Paciente("Maria Santos", "987.654.321-00");
+
+    private HistoricoConsultasMapeado abrir() throws IOException {
+        return abrir(REGISTROS_POR_SEGMENTO, 1, 0);
+    }
+
+    private HistoricoConsultasMapeado abrir(int registrosPorSegmento, int fsyncLote, long fsyncIntervaloMs) throws IOException {
+        HistoricoConsultasMapeado aberto = new HistoricoConsultasMapeado(diretorio, registrosPorSegmento, fsyncLote, fsyncIntervaloMs);
+        aberto.abrir();
+        return aberto;
+    }
+
+    private void reabrir() throws IOException {
+        historico.fechar();
+        historico = abrir();
+    }
+
+    private void salvar(int valor, Paciente paciente) {
+        historico.salvarComReembolso(new Consulta(new BigDecimal(valor + ".00"), new BigDecimal("0.70")),
+                paciente, new BigDecimal(valor).multiply(new BigDecimal("0.70")));
+    }
+
+    private List<Integer> valores(List<HistoricoResponse> itens) {
+        List<Integer> valores = new ArrayList<>();
+        itens.forEach(item -> valores.add(item.reembolso().valorConsulta().intValue()));
+        return valores;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (historico != null) {
+            historico.fechar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve gravar nomes longos truncados num limite de caractere")
+    void deveTruncarNomesLongos() throws IOException {
+        // Arrange - 59 bytes ASCII seguidos de caracteres de 2 bytes
+        String nome = "M".repeat(59) + "ãããã";
+        historico = abrir();
+
+        // Act
+        salvar(100, new Paciente(nome, "111.444.777-35"));
+        reabrir();
+
+        // Assert - O "ã" que não cabe inteiro fica de fora
+        assertEquals("M".repeat(59), historico.buscarHistorico().get(0).paciente().getNome());
+        assertEquals("Maria", new String(HistoricoConsultasMapeado.truncarNome("Maria"), StandardCharsets.UTF_8));
+        assertEquals(0, HistoricoConsultasMapeado.truncarNome(null).length);
+    }
+
+    @Test
+    @DisplayName("Deve percorrer só o que foi gravado a partir do instante")
+    void devePercorrerHistoricoDesdeInstante() throws IOException {
+        // Arrange
+        historico = abrir();
+        salvar(200, paciente1);
+        salvar(150, paciente2);
+        reabrir();
+
+        // Act
+        List<HistoricoResponse> todos = new ArrayList<>();
+        historico.percorrerHistoricoDesde(0, todos::add);
+        List<HistoricoResponse> futuros = new ArrayList<>();
+        historico.percorrerHistoricoDesde(System.currentTimeMillis() + 60_000, futuros::add);
+
+        // Assert
+        assertEquals(List.of(200, 150), valores(todos));
+        assertTrue(futuros.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve manter o histórico após reabrir os arquivos")
+    void deveManterHistoricoAposReabrir() throws IOException {
+        // Arrange
+        historico = abrir();
+        salvar(200, paciente1);
+        salvar(150, paciente2);
+        historico.salvar(new Consulta(new BigDecimal("90.00"), new BigDecimal("0.50")), paciente1);
+
+        // Act
+        reabrir();
+
+        // Assert
+        List<HistoricoResponse> completo = historico.buscarHistorico();
+        assertEquals(2, completo.size());
+        assertEquals(new BigDecimal("200.00"), completo.get(0).reembolso().valorConsulta());
+        assertEquals(new BigDecimal("0.70"), completo.get(0).reembolso().percentualCobertura());
+        assertEquals(new BigDecimal("140.00"), completo.get(0).reembolso().valorReembolso());
+        assertEquals("João Silva", completo.get(0).paciente().getNome());
+        assertEquals("123.456.789-00", completo.get(0).paciente().getCpf());
+
+        List<HistoricoResponse> doPaciente2 = historico.buscarHistoricoPorPaciente("987.654.321-00");
+        assertEquals(1, doPaciente2.size());
+        assertEquals("Maria Santos", doPaciente2.get(0).paciente().getNome());
+        assertEquals(3, historico.getRegistrosRecuperados());
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir o índice por CPF varrendo vários segmentos")
+    void deveReconstruirIndiceComVariosSegmentos() throws IOException {
+        // Arrange - 10 registros ocupam 3 segmentos de 4 posições
+        historico = abrir();
+        for (int i = 1; i <= 10; i++) {
+            salvar(i, i % 3 == 0 ? paciente2 : paciente1);
+        }
+
+        // Act
+        reabrir();
+        salvar(11, paciente2);
+
+        // Assert
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), valores(historico.buscarHistorico()));
+        assertEquals(List.of(3, 6, 9, 11), valores(historico.buscarHistoricoPorPaciente("987.654.321-00")));
+        assertEquals(List.of(1, 2, 4, 5, 7, 8, 10), valores(historico.buscarHistoricoPorPaciente("123.456.789-00")));
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir o resumo do paciente ao reabrir")
+    void deveReconstruirResumoAoReabrir() throws IOException {
+        // Arrange - 300 * 0.70 = 210, limitado ao teto de 150
+        historico = abrir();
+        salvar(200, paciente1);
+        salvar(100, paciente1);
+        historico.salvarComReembolso(new Consulta(new BigDecimal("300.00"), new BigDecimal("0.70")), paciente1, new BigDecimal("150.00"));
+
+        // Act
+        reabrir();
+        salvar(10, paciente1);
+
+        // Assert
+        ResumoPacienteResponse resumo = historico.buscarResumoPorPaciente("123.456.789-00");
+        assertEquals(4, resumo.quantidadeConsultas());
+        assertEquals(new BigDecimal("610.00"), resumo.totalValorConsultas());
+        assertEquals(new BigDecimal("367.00"), resumo.totalReembolsado());
+        assertEquals(1, resumo.reembolsosNoTeto());
+    }
+
+    @Test
+    @DisplayName("Deve descartar registro incompleto no final e continuar gravando")
+    void deveDescartarRegistroIncompletoNoFinal() throws IOException {
+        // Arrange
+        historico = abrir();
+        for (int i = 1; i <= 6; i++) {
+            salvar(i, paciente1);
+        }
+        historico.fechar();
+
+        // Simula gravação interrompida: corrompe o valor do último registro (posição 1 do segundo segmento)
+        try (FileChannel canal = FileChannel.open(diretorio.resolve("historico-000001.seg"), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{0x7f}), SegmentoHistorico.TAMANHO_REGISTRO + 20);
+        }
+
+        // Act
+        historico = abrir();
+        salvar(7, paciente1);
+        reabrir();
+
+        // Assert
+        assertEquals(0, historico.getRegistrosDescartados());
+        assertEquals(List.of(1, 2, 3, 4, 5, 7), valores(historico.buscarHistorico()));
+        assertEquals(List.of(1, 2, 3, 4, 5, 7), valores(historico.buscarHistoricoPorPaciente("123.456.789-00")));
+    }
+
+    @Test
+    @DisplayName("Deve informar registros descartados na recuperação")
+    void deveInformarRegistrosDescartados() throws IOException {
+        // Arrange
+        historico = abrir();
+        salvar(1, paciente1);
+        salvar(2, paciente1);
+        historico.fechar();
+
+        try (FileChannel canal = FileChannel.open(diretorio.resolve("historico-000000.seg"), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{0x7f}), SegmentoHistorico.TAMANHO_REGISTRO + 20);
+        }
+
+        // Act
+        historico = abrir();
+
+        // Assert
+        assertEquals(1, historico.getRegistrosRecuperados());
+        assertEquals(1, historico.getRegistrosDescartados());
+        assertEquals(1, historico.getTotalRegistros());
+    }
+
+    @Test
+    @DisplayName("Deve paginar por cursor usando a sequência persistida")
+    void devePaginarPorCursor() throws IOException {
+        // Arrange
+        historico = abrir();
+        for (int i = 1; i <= 6; i++) {
+            salvar(i, i % 2 == 0 ? paciente2 : paciente1);
+        }
+        reabrir();
+
+        // Act
+        PaginaHistoricoResponse primeira = historico.buscarHistorico(0, 4);
+        PaginaHistoricoResponse segunda = historico.buscarHistorico(primeira.proximoCursor(), 4);
+        PaginaHistoricoResponse doPaciente = historico.buscarHistoricoPorPaciente("987.654.321-00", 2, 1);
+
+        // Assert
+        assertEquals(List.of(1, 2, 3, 4), valores(primeira.itens()));
+        assertEquals(4L, primeira.proximoCursor());
+        assertEquals(List.of(5, 6), valores(segunda.itens()));
+        assertNull(segunda.proximoCursor());
+        assertEquals(List.of(4), valores(doPaciente.itens()));
+        assertEquals(4L, doPaciente.proximoCursor());
+    }
+
+    @Test
+    @DisplayName("Deve persistir gravações concorrentes sem perder registros")
+    void devePersistirGravacoesConcorrentes() throws Exception {
+        // Arrange
+        historico = abrir(1024, 64, 10);
+
+        // Act
+        List<Thread> escritores = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Paciente paciente = new Paciente("Paciente " + t, String.format("000.000.000-%02d", t));
+            Thread escritor = new Thread(() -> {
+                for (int i = 1; i <= 2000; i++) {
+                    salvar(i, paciente);
+                }
+            });
+            escritores.add(escritor);
+            escritor.start();
+        }
+        for (Thread escritor : escritores) {
+            escritor.join();
+        }
+        historico.fechar();
+        historico = abrir(1024, 64, 10);
+
+        // Assert
+        assertEquals(8000, historico.buscarHistorico().size());
+        for (int t = 0; t < 4; t++) {
+            List<Integer> doPaciente = valores(historico.buscarHistoricoPorPaciente(String.format("000.000.000-%02d", t)));
+            assertEquals(2000, doPaciente.size());
+            for (int i = 0; i < doPaciente.size(); i++) {
+                assertEquals(i + 1, doPaciente.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar dados que não cabem no registro")
+    void deveRejeitarDadosQueNaoCabemNoRegistro() throws IOException {
+        // Arrange
+        historico = abrir();
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> historico.salvarComReembolso(consulta, new Paciente("João", "123.456.789-00-000000"), BigDecimal.TEN));
+        assertThrows(IllegalArgumentException.class,
+                () -> historico.salvarComReembolso(new Consulta(new BigDecimal("123456789012345678901234.56"), BigDecimal.ONE), paciente1, BigDecimal.TEN));
+        assertThrows(IllegalArgumentException.class,
+                () -> historico.salvarComReembolso(null, paciente1, BigDecimal.TEN));
+        assertEquals(0, historico.getTotalRegistros());
+    }
+}
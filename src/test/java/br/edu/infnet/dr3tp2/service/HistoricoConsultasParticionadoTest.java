@@ -0,0 +1,346 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.HistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.PaginaHistoricoResponse;
+import br.edu.infnet.dr3tp2.dto.ResumoPacienteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do HistoricoConsultasParticionado: camadas quente e selada,
+ * retenção, limite de memória e reabertura
+ */
+class HistoricoConsultasParticionadoTest {
+
+    private static final Instant DIA_ZERO = Instant.parse("2026-01-01T10:00:00Z");
+
+    @TempDir
+    Path diretorio;
+
+    private HistoricoConsultasParticionado historico;
+    private final Paciente paciente1 = new Paciente("João Silva", "123.456.789-09");
+    private final Paciente paciente2 = new Paciente("Maria Santos", "987.654.321-00");
+    private final Paciente paciente3 = new Paciente("Ana Souza", "529.982.247-25");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        historico = abrir(DataSize.ofMegabytes(64), Duration.ofDays(30));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (historico != null) {
+            historico.fechar();
+        }
+    }
+
+    private HistoricoConsultasParticionado abrir(DataSize memoriaMaxima, Duration retencao) throws IOException {
+        HistoricoConsultasParticionado aberto = new HistoricoConsultasParticionado(diretorio, Duration.ofDays(1), 2,
+                memoriaMaxima, retencao, 2, Duration.ZERO);
+        aberto.relogio = Clock.fixed(DIA_ZERO, ZoneOffset.UTC);
+        aberto.abrir();
+        return aberto;
+    }
+
+    private void noDia(int dia) {
+        historico.relogio = Clock.fixed(DIA_ZERO.plus(Duration.ofDays(dia)), ZoneOffset.UTC);
+    }
+
+    private void salvar(int valor, Paciente paciente) {
+        historico.salvarComReembolso(new Consulta(new BigDecimal(valor + ".00"), new BigDecimal("0.70")),
+                paciente, new BigDecimal(valor).multiply(new BigDecimal("0.70")));
+    }
+
+    private List<Integer> valores(List<HistoricoResponse> itens) {
+        List<Integer> valores = new ArrayList<>();
+        itens.forEach(item -> valores.add(item.reembolso().valorConsulta().intValue()));
+        return valores;
+    }
+
+    // Paciente não implementa equals: compara pelos campos
+    private List<String> descrever(List<HistoricoResponse> itens) {
+        List<String> descritos = new ArrayList<>();
+        itens.forEach(item -> descritos.add(item.reembolso().valorConsulta() + "|" + item.reembolso().percentualCobertura()
+                + "|" + item.reembolso().valorReembolso() + "|" + item.paciente().getCpf() + "|" + item.paciente().getNome()));
+        return descritos;
+    }
+
+    private long arquivosSelados() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.filter(arquivo -> arquivo.toString().endsWith(".hist.gz")).count();
+        }
+    }
+
+    // Dias 0, 1 e 2 com consultas; no dia 2 só os dias 1 e 2 ficam em memória
+    private void popularTresDias() {
+        noDia(0);
+        salvar(100, paciente1);
+        salvar(200, paciente2);
+        salvar(300, paciente1);
+        noDia(1);
+        salvar(400, paciente2);
+        salvar(500, paciente1);
+        noDia(2);
+        salvar(600, paciente1);
+        historico.manutencao();
+    }
+
+    @Test
+    @DisplayName("Deve selar partições antigas e buscar em todas as camadas em ordem")
+    void deveSelarParticoesAntigasEBuscarEmTodasAsCamadas() throws IOException {
+        // Act
+        popularTresDias();
+
+        // Assert
+        assertEquals(1, historico.getParticoesSeladas());
+        assertEquals(2, historico.getParticoesQuentes());
+        assertEquals(1, arquivosSelados());
+        assertEquals(List.of(100, 200, 300, 400, 500, 600), valores(historico.buscarHistorico()));
+        assertEquals(List.of(100, 300, 500, 600), valores(historico.buscarHistoricoPorPaciente(paciente1.getCpf())));
+        assertEquals(List.of(200, 400), valores(historico.buscarHistoricoPorPaciente(paciente2.getCpf())));
+        assertEquals(6, historico.contarRegistros());
+        assertEquals(2, historico.contarPacientes());
+
+        ResumoPacienteResponse resumo = historico.buscarResumoPorPaciente(paciente1.getCpf());
+        assertEquals(4, resumo.quantidadeConsultas());
+        assertEquals(0, new BigDecimal("1500.00").compareTo(resumo.totalValorConsultas()));
+    }
+
+    @Test
+    @DisplayName("Deve paginar pelo cursor atravessando partições seladas e quentes")
+    void devePaginarAtravessandoCamadas() {
+        // Arrange
+        popularTresDias();
+
+        // Act
+        List<Integer> lidos = new ArrayList<>();
+        int paginas = 0;
+        long cursor = 0;
+        do {
+            PaginaHistoricoResponse pagina = historico.buscarHistorico(cursor, 2);
+            lidos.addAll(valores(pagina.itens()));
+            paginas++;
+            cursor = pagina.proximoCursor() == null ? -1 : pagina.proximoCursor();
+        } while (cursor >= 0);
+
+        PaginaHistoricoResponse primeira = historico.buscarHistoricoPorPaciente(paciente1.getCpf(), 0, 3);
+        PaginaHistoricoResponse segunda = historico.buscarHistoricoPorPaciente(paciente1.getCpf(),
+                primeira.proximoCursor(), 3);
+
+        // Assert
+        assertEquals(List.of(100, 200, 300, 400, 500, 600), lidos);
+        assertEquals(3, paginas);
+        assertEquals(List.of(100, 300, 500), valores(primeira.itens()));
+        assertEquals(List.of(600), valores(segunda.itens()));
+        assertNull(segunda.proximoCursor());
+    }
+
+    @Test
+    @DisplayName("Deve ler a partição selada só quando a busca precisar dela")
+    void deveCarregarParticaoSeladaSobDemanda() {
+        // Arrange - paciente3 só tem consultas na camada quente
+        popularTresDias();
+        salvar(700, paciente3);
+
+        // Act / Assert
+        assertEquals(0, historico.getCarregamentos());
+        assertEquals(List.of(700), valores(historico.buscarHistoricoPorPaciente(paciente3.getCpf())));
+        assertEquals(0, historico.getCarregamentos());
+
+        // Página que começa depois da partição selada não a lê
+        assertEquals(List.of(400, 500, 600, 700), valores(historico.buscarHistorico(3, 10).itens()));
+        assertEquals(0, historico.getCarregamentos());
+
+        assertEquals(List.of(100, 300, 500, 600), valores(historico.buscarHistoricoPorPaciente(paciente1.getCpf())));
+        assertEquals(List.of(200, 400), valores(historico.buscarHistoricoPorPaciente(paciente2.getCpf())));
+        assertEquals(1, historico.getCarregamentos());
+    }
+
+    @Test
+    @DisplayName("Deve descartar partições fora da janela de retenção")
+    void deveDescartarParticoesForaDaRetencao() throws IOException {
+        // Arrange
+        historico.fechar();
+        historico = abrir(DataSize.ofMegabytes(64), Duration.ofDays(3));
+        popularTresDias();
+
+        // Act - No dia 4 só o dia 0 terminou há mais de 3 dias
+        noDia(4);
+        historico.manutencao();
+
+        // Assert
+        assertEquals(List.of(400, 500, 600), valores(historico.buscarHistorico()));
+        assertEquals(List.of(500, 600), valores(historico.buscarHistoricoPorPaciente(paciente1.getCpf())));
+        assertEquals(0, historico.getParticoesQuentes());
+        assertEquals(2, arquivosSelados());
+
+        // Act - Tudo expira; gravações novas continuam a sequência
+        noDia(10);
+        historico.manutencao();
+        salvar(800, paciente2);
+
+        // Assert
+        assertEquals(0, arquivosSelados());
+        assertEquals(List.of(800), valores(historico.buscarHistorico()));
+        assertEquals(1, historico.contarRegistros());
+        assertEquals(1, historico.contarPacientes());
+        assertNull(historico.buscarHistorico(6, 10).proximoCursor());
+        assertEquals(List.of(800), valores(historico.buscarHistorico(6, 10).itens()));
+    }
+
+    @Test
+    @DisplayName("Deve selar a camada quente quando passar do limite de memória")
+    void deveRespeitarLimiteDeMemoria() throws IOException {
+        // Arrange - Limite para cerca de 10 consultas
+        historico.fechar();
+        long limite = 10 * ParticaoHistorico.BYTES_POR_REGISTRO + 3 * ParticaoHistorico.BYTES_POR_PACIENTE;
+        historico = abrir(DataSize.ofBytes(limite), Duration.ofDays(30));
+
+        // Act - Todas no mesmo dia
+        List<Integer> esperados = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            salvar(i, i % 2 == 0 ? paciente1 : paciente2);
+            esperados.add(i);
+            if (i % 10 == 0) {
+                historico.manutencao();
+            }
+        }
+        historico.manutencao();
+
+        // Assert
+        assertTrue(historico.getBytesQuentes() <= limite, "camada quente: " + historico.getBytesQuentes());
+        assertTrue(historico.getParticoesSeladas() >= 4, "seladas: " + historico.getParticoesSeladas());
+        assertEquals(esperados, valores(historico.buscarHistorico()));
+        assertEquals(50, historico.buscarHistoricoPorPaciente(paciente1.getCpf()).size());
+        assertEquals(100, historico.contarRegistros());
+    }
+
+    @Test
+    @DisplayName("Pacientes devem ser identificados por partição, com o CPF canônico")
+    void deveIdentificarPacientesPorParticao() throws IOException {
+        // Arrange - Mesmo CPF nas duas grafias, em dois dias
+        noDia(0);
+        salvar(100, paciente1);
+        salvar(200, new Paciente("João S.", "12345678909"));
+        noDia(1);
+        salvar(300, new Paciente("João S.", "12345678909"));
+
+        // Act
+        List<HistoricoResponse> itens = historico.buscarHistoricoPorPaciente("12345678909");
+
+        // Assert - Na partição vale a primeira instância; a outra partição tem a sua
+        assertEquals(List.of(100, 200, 300), valores(itens));
+        assertSame(itens.get(0).paciente(), itens.get(1).paciente());
+        assertEquals("123.456.789-09", itens.get(2).paciente().getCpf());
+        assertEquals("João S.", itens.get(2).paciente().getNome());
+        assertEquals(1, historico.contarPacientes());
+
+        // Reabrir conta de novo a partir das tabelas de pacientes dos arquivos
+        salvar(400, paciente2);
+        historico.fechar();
+        historico = abrir(DataSize.ofMegabytes(64), Duration.ofDays(30));
+        assertEquals(2, historico.contarPacientes());
+    }
+
+    @Test
+    @DisplayName("Deve selar e reabrir nomes acima do limite de 64 KB do writeUTF")
+    void deveSelarNomesLongos() throws IOException {
+        // Arrange - 70.000 caracteres de 2 bytes em UTF-8
+        String nome = "ã".repeat(70_000);
+        salvar(100, new Paciente(nome, "111.444.777-35"));
+
+        // Act
+        historico.fechar();
+        historico = abrir(DataSize.ofMegabytes(64), Duration.ofDays(30));
+
+        // Assert
+        assertEquals(1, historico.getParticoesSeladas());
+        assertEquals(nome, historico.buscarHistorico().get(0).paciente().getNome());
+    }
+
+    @Test
+    @DisplayName("Selagem que falha deve remover o temporário e ser tentada de novo na manutenção seguinte")
+    void deveTentarSelarDeNovoDepoisDeFalha() throws IOException {
+        // Arrange - Um diretório com o nome final do arquivo impede o rename
+        Path bloqueio = diretorio.resolve(String.format("particao-%d-%019d.hist.gz",
+                DIA_ZERO.toEpochMilli() / Duration.ofDays(1).toMillis(), 1));
+        Files.createDirectory(bloqueio);
+        noDia(0);
+        salvar(100, paciente1);
+        salvar(200, paciente2);
+        noDia(1);
+        salvar(300, paciente1);
+
+        // Act
+        noDia(3);
+        historico.manutencao();
+
+        // Assert - Continua em memória, sem temporário no diretório
+        assertEquals(1, historico.getFalhasSelagem());
+        assertEquals(0, historico.getParticoesSeladas());
+        assertEquals(2, historico.getParticoesQuentes());
+        assertEquals(List.of(100, 200, 300), valores(historico.buscarHistorico()));
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            assertTrue(arquivos.noneMatch(arquivo -> arquivo.toString().endsWith(".tmp")));
+        }
+
+        // Act - A causa some; a próxima manutenção sela as duas em ordem
+        Files.delete(bloqueio);
+        historico.manutencao();
+
+        // Assert
+        assertEquals(2, historico.getParticoesSeladas());
+        assertEquals(0, historico.getParticoesQuentes());
+        assertEquals(List.of(100, 200, 300), valores(historico.buscarHistorico()));
+        assertEquals(List.of(100, 300), valores(historico.buscarHistoricoPorPaciente(paciente1.getCpf())));
+    }
+
+    @Test
+    @DisplayName("Deve selar a camada quente ao fechar e reabrir com os mesmos dados")
+    void deveReabrirParticoesSeladas() throws IOException {
+        // Arrange - Escala, valores fora do ponto fixo, nome nulo e consulta sem reembolso
+        popularTresDias();
+        historico.salvarComReembolso(new Consulta(new BigDecimal("123.4567"), new BigDecimal("0.5")),
+                new Paciente(null, "111.444.777-35"), new BigDecimal("61.72835"));
+        historico.salvar(new Consulta(new BigDecimal("50.00"), new BigDecimal("0.70")), paciente1);
+        List<HistoricoResponse> antes = historico.buscarHistorico();
+
+        // Act
+        historico.fechar();
+        historico = abrir(DataSize.ofMegabytes(64), Duration.ofDays(30));
+        noDia(2);
+        salvar(900, paciente1);
+
+        // Assert
+        List<HistoricoResponse> depois = historico.buscarHistorico();
+        assertEquals(descrever(antes), descrever(depois.subList(0, antes.size())));
+        assertEquals(new BigDecimal("123.4567"), depois.get(6).reembolso().valorConsulta());
+        assertEquals(new BigDecimal("61.72835"), depois.get(6).reembolso().valorReembolso());
+        assertNull(depois.get(6).paciente().getNome());
+        assertEquals(900, depois.get(7).reembolso().valorConsulta().intValue());
+        assertEquals(List.of(100, 300, 500, 600, 900), valores(historico.buscarHistoricoPorPaciente(paciente1.getCpf())));
+
+        // A sequência continua depois da última gravada (8 consultas antes de reabrir)
+        assertEquals(List.of(900), valores(historico.buscarHistorico(8, 10).itens()));
+    }
+}
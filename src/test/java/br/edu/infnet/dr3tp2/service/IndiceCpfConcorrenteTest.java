@@ -0,0 +1,94 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do mapa de CPF codificado com leitura sem lock
+ */
+class IndiceCpfConcorrenteTest {
+
+    @Test
+    @DisplayName("Deve criar o valor uma vez por CPF e encontrá-lo depois de dobrar a tabela")
+    void deveCriarUmaVezPorCpf() {
+        // Arrange
+        IndiceCpfConcorrente<StringBuilder> indice = new IndiceCpfConcorrente<>();
+        AtomicInteger criados = new AtomicInteger();
+
+        // Act - Bem mais CPFs que a capacidade inicial
+        for (long cpf = 0; cpf < 1000; cpf++) {
+            long chave = cpf * 7919;
+            indice.buscarOuCriar(chave, () -> {
+                criados.incrementAndGet();
+                return new StringBuilder(CodificadorCpf.formatar(chave));
+            });
+        }
+        StringBuilder repetido = indice.buscarOuCriar(7919, () -> new StringBuilder("novo"));
+
+        // Assert
+        assertEquals(1000, criados.get());
+        assertEquals(1000, indice.quantidade());
+        assertEquals("000.000.079-19", repetido.toString());
+        assertSame(repetido, indice.buscar(7919));
+        assertEquals(CodificadorCpf.formatar(999L * 7919), indice.buscar(999L * 7919).toString());
+        assertNull(indice.buscar(1));
+        assertNull(indice.buscar(CodificadorCpf.INVALIDO));
+        assertThrows(IllegalArgumentException.class, () -> indice.buscarOuCriar(CodificadorCpf.MAXIMO + 1, StringBuilder::new));
+    }
+
+    @Test
+    @DisplayName("Leitores sem lock devem enxergar todo CPF já inserido enquanto a tabela cresce")
+    void leitoresDevemEnxergarCpfsInseridos() throws Exception {
+        // Arrange
+        IndiceCpfConcorrente<Long> indice = new IndiceCpfConcorrente<>();
+        int total = 20_000;
+        AtomicInteger inseridos = new AtomicInteger();
+        CountDownLatch inicio = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try {
+            // Act - Um escritor e dois leitores conferindo o prefixo já publicado
+            Future<?> escritor = executor.submit(() -> {
+                inicio.await();
+                for (long cpf = 0; cpf < total; cpf++) {
+                    long chave = cpf;
+                    indice.buscarOuCriar(chave, () -> chave);
+                    inseridos.set((int) cpf + 1);
+                }
+                return null;
+            });
+            Future<?>[] leitores = new Future<?>[2];
+            for (int i = 0; i < leitores.length; i++) {
+                leitores[i] = executor.submit(() -> {
+                    inicio.await();
+                    while (inseridos.get() < total) {
+                        int visiveis = inseridos.get();
+                        for (long cpf = Math.max(0, visiveis - 64); cpf < visiveis; cpf++) {
+                            assertEquals(cpf, indice.buscar(cpf));
+                        }
+                    }
+                    return null;
+                });
+            }
+            inicio.countDown();
+
+            // Assert
+            escritor.get(30, TimeUnit.SECONDS);
+            for (Future<?> leitor : leitores) {
+                leitor.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(total, indice.quantidade());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do índice de posições por CPF codificado
+ */
+class IndiceCpfTest {
+
+    private IndiceCpf indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceCpf();
+    }
+
+    @Test
+    @DisplayName("Deve devolver as posições de cada CPF em ordem")
+    void deveDevolverPosicoesEmOrdem() {
+        // Arrange
+        indice.adicionar(10L, 0);
+        indice.adicionar(20L, 1);
+        indice.adicionar(10L, 2);
+        indice.adicionar(0L, 3);
+        indice.adicionar(10L, 4);
+
+        // Act & Assert
+        assertEquals(List.of(0, 2, 4), posicoes(10L));
+        assertEquals(List.of(1), posicoes(20L));
+        assertEquals(List.of(3), posicoes(0L));
+        assertEquals(3, indice.quantidade(10L));
+        assertEquals(3, indice.getCpfs());
+    }
+
+    @Test
+    @DisplayName("CPF ausente ou inválido não deve ter posições")
+    void cpfAusenteNaoDeveTerPosicoes() {
+        // Arrange
+        indice.adicionar(10L, 0);
+
+        // Act & Assert
+        assertEquals(IndiceCpf.NENHUMA, indice.primeira(11L));
+        assertEquals(IndiceCpf.NENHUMA, indice.primeira(CodificadorCpf.INVALIDO));
+        assertEquals(0, indice.quantidade(11L));
+        assertThrows(IllegalArgumentException.class, () -> indice.adicionar(CodificadorCpf.INVALIDO, 1));
+    }
+
+    @Test
+    @DisplayName("Deve manter as posições ao crescer a tabela")
+    void deveManterPosicoesAoCrescer() {
+        // Arrange - 10 mil CPFs vizinhos, 3 consultas cada, intercaladas
+        int cpfs = 10_000;
+        for (int rodada = 0; rodada < 3; rodada++) {
+            for (int i = 0; i < cpfs; i++) {
+                indice.adicionar(52_998_224_700L + i, rodada * cpfs + i);
+            }
+        }
+
+        // Act & Assert
+        assertEquals(cpfs, indice.getCpfs());
+        for (int i = 0; i < cpfs; i += 997) {
+            assertEquals(List.of(i, cpfs + i, 2 * cpfs + i), posicoes(52_998_224_700L + i));
+        }
+    }
+
+    private List<Integer> posicoes(long cpf) {
+        List<Integer> posicoes = new ArrayList<>();
+        for (int p = indice.primeira(cpf); p != IndiceCpf.NENHUMA; p = indice.proxima(p)) {
+            posicoes.add(p);
+        }
+        return posicoes;
+    }
+}
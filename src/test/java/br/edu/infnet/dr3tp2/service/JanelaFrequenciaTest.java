@@ -0,0 +1,163 @@
+package br.edu.infnet.dr3tp2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do contador de janela deslizante por CPF
+ */
+class JanelaFrequenciaTest {
+
+    private static final long HORA = 3_600_000L;
+    private static final long JANELA = 24 * HORA;
+
+    private final AtomicLong agora = new AtomicLong(1_000 * JANELA);
+    private JanelaFrequencia janela;
+
+    @BeforeEach
+    void setUp() {
+        janela = new JanelaFrequencia(5, JANELA, 1024);
+        janela.relogio = agora::get;
+    }
+
+    private boolean registrar(String cpf) {
+        return janela.registrar(cpf, MotorRegrasAutorizacao.hashCpf(cpf));
+    }
+
+    @Test
+    @DisplayName("Deve aceitar até o máximo por CPF e negar o excedente")
+    void deveLimitarPorCpf() {
+        // Act & Assert
+        for (int i = 0; i < 5; i++) {
+            assertTrue(registrar("111.111.111-11"));
+            agora.addAndGet(HORA);
+        }
+        assertFalse(registrar("111.111.111-11"));
+        assertTrue(registrar("222.222.222-22"), "Outro CPF tem a própria janela");
+        assertEquals(5, janela.contar("111.111.111-11", MotorRegrasAutorizacao.hashCpf("111.111.111-11")));
+    }
+
+    @Test
+    @DisplayName("Registro liberado deve voltar a caber na janela")
+    void registroLiberadoDeveVoltarACaber() {
+        // Arrange
+        String cpf = "111.111.111-11";
+        int hash = MotorRegrasAutorizacao.hashCpf(cpf);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(registrar(cpf));
+            agora.addAndGet(HORA);
+        }
+
+        // Act & Assert - Libera um registro de horas atrás
+        assertFalse(registrar(cpf));
+        janela.liberar(cpf, hash);
+        assertEquals(4, janela.contar(cpf, hash));
+        assertTrue(registrar(cpf));
+        assertFalse(registrar(cpf));
+
+        // Liberar além do registrado ou CPF desconhecido não faz nada
+        for (int i = 0; i < 10; i++) {
+            janela.liberar(cpf, hash);
+        }
+        janela.liberar("222.222.222-22", MotorRegrasAutorizacao.hashCpf("222.222.222-22"));
+        assertEquals(0, janela.contar(cpf, hash));
+    }
+
+    @Test
+    @DisplayName("Registros devem sair da janela só depois da duração inteira")
+    void registrosDevemExpirarDepoisDaJanela() {
+        // Arrange - Cinco consultas no mesmo instante
+        for (int i = 0; i < 5; i++) {
+            assertTrue(registrar("111.111.111-11"));
+        }
+
+        // Act & Assert - Ainda bloqueado logo antes de completar 24h
+        agora.addAndGet(JANELA - 1);
+        assertFalse(registrar("111.111.111-11"));
+
+        // No máximo uma subjanela depois da janela o CPF volta a ser aceito
+        agora.addAndGet(JANELA / (JanelaFrequencia.SUBJANELAS - 1) + 1);
+        assertTrue(registrar("111.111.111-11"));
+    }
+
+    @Test
+    @DisplayName("Requisições simultâneas do mesmo CPF nunca devem passar do máximo")
+    void requisicoesSimultaneasNaoDevemPassarDoMaximo() throws Exception {
+        // Arrange
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Integer>> resultados = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                int aceitas = 0;
+                for (int i = 0; i < 1_000; i++) {
+                    if (registrar("333.333.333-33")) {
+                        aceitas++;
+                    }
+                }
+                return aceitas;
+            }));
+        }
+        largada.countDown();
+        int total = 0;
+        for (Future<Integer> resultado : resultados) {
+            total += resultado.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertTrue(total <= 5, "Aceitas: " + total);
+        assertTrue(total >= 1);
+    }
+
+    @Test
+    @DisplayName("Memória limitada: CPFs ociosos devem ser reaproveitados e a tabela cheia não deve crescer")
+    void deveReaproveitarCpfsOciosos() {
+        // Arrange - Capacidade mínima (uma posição por faixa)
+        JanelaFrequencia pequena = new JanelaFrequencia(1, JANELA, 1);
+        pequena.relogio = agora::get;
+        List<String> cpfs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            cpfs.add(String.format("%03d.000.000-00", i));
+        }
+
+        // Act - Mais CPFs que posições: os excedentes são aceitos sem contagem
+        for (String cpf : cpfs) {
+            pequena.registrar(cpf, MotorRegrasAutorizacao.hashCpf(cpf));
+        }
+        long saturacoes = pequena.getSaturacoes();
+
+        // Depois da janela todos estão ociosos e as posições voltam a ser usadas
+        agora.addAndGet(2 * JANELA);
+        String cpf = cpfs.get(0);
+        assertTrue(pequena.registrar(cpf, MotorRegrasAutorizacao.hashCpf(cpf)));
+        assertFalse(pequena.registrar(cpf, MotorRegrasAutorizacao.hashCpf(cpf)));
+
+        // Assert
+        assertTrue(saturacoes > 0);
+        assertEquals(saturacoes, pequena.getSaturacoes());
+    }
+
+    @Test
+    @DisplayName("Parâmetros inválidos devem ser rejeitados")
+    void parametrosInvalidosDevemSerRejeitados() {
+        assertThrows(IllegalArgumentException.class, () -> new JanelaFrequencia(0, JANELA, 10));
+        assertThrows(IllegalArgumentException.class, () -> new JanelaFrequencia(5, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new JanelaFrequencia(5, JANELA, 0));
+    }
+}
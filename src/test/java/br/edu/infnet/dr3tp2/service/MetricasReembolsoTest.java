@@ -0,0 +1,114 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes das métricas do fluxo de reembolso com registro em memória
+ */
+class MetricasReembolsoTest {
+
+    private SimpleMeterRegistry registro;
+    private HistoricoConsultasConcorrente historico;
+    private ReembolsoService reembolsoService;
+
+    @BeforeEach
+    void setUp() {
+        registro = new SimpleMeterRegistry();
+        historico = new HistoricoConsultasConcorrente();
+        MetricasReembolso metricas = new MetricasReembolso(registro);
+        metricas.monitorarHistorico(historico);
+
+        CalculadoraReembolso calculadora = new CalculadoraReembolso();
+        calculadora.metricas = metricas;
+
+        reembolsoService = new ReembolsoService();
+        ReflectionTestUtils.setField(reembolsoService, "calculadoraReembolso", calculadora);
+        ReflectionTestUtils.setField(reembolsoService, "historicoConsultas", historico);
+        reembolsoService.auditoria = new AuditoriaSpy();
+        reembolsoService.autorizadorReembolso = new AutorizadorReembolsoImpl();
+        reembolsoService.metricas = metricas;
+    }
+
+    private long contagemEtapa(String etapa) {
+        return registro.get("reembolso.etapa").tag("etapa", etapa).timer().count();
+    }
+
+    @Test
+    @DisplayName("Cada etapa de um cálculo bem-sucedido deve ser cronometrada")
+    void deveCronometrarEtapas() {
+        // Act
+        reembolsoService.calcularReembolso(new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70")));
+        reembolsoService.calcularReembolso(new Consulta(new BigDecimal("50.00"), new BigDecimal("0.70")));
+
+        // Assert
+        assertEquals(2, contagemEtapa("autorizar"));
+        assertEquals(2, contagemEtapa("auditar"));
+        assertEquals(2, contagemEtapa("calcular"));
+        assertEquals(2, contagemEtapa("persistir"));
+    }
+
+    @Test
+    @DisplayName("Negações devem ser contadas por motivo e não chegar ao cálculo")
+    void deveContarNegacoesPorMotivo() {
+        // Act
+        assertThrows(ReembolsoNaoAutorizadoException.class, () ->
+                reembolsoService.calcularReembolso(new Consulta(new BigDecimal("2500.00"), new BigDecimal("0.70"))));
+        assertThrows(ReembolsoNaoAutorizadoException.class, () ->
+                reembolsoService.calcularReembolso(null));
+
+        // Assert
+        assertEquals(1.0, registro.get("reembolso.negacoes").tag("motivo", "VALOR_ACIMA_LIMITE").counter().count());
+        assertEquals(1.0, registro.get("reembolso.negacoes").tag("motivo", "DADOS_INVALIDOS").counter().count());
+        assertEquals(2, contagemEtapa("autorizar"));
+        assertEquals(0, contagemEtapa("calcular"));
+    }
+
+    @Test
+    @DisplayName("Erros de validação e reembolsos no teto devem ser contados")
+    void deveContarErrosDeValidacaoETeto() {
+        // Act
+        assertThrows(IllegalArgumentException.class, () ->
+                reembolsoService.calcularReembolso(new Consulta(new BigDecimal("100.00"), new BigDecimal("1.50"))));
+        reembolsoService.calcularReembolso(new Consulta(new BigDecimal("1000.00"), new BigDecimal("0.70")));
+        reembolsoService.calcularReembolso(new Consulta(new BigDecimal("1000.001"), new BigDecimal("0.70")));
+        reembolsoService.calcularReembolso(new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70")));
+
+        // Assert - Teto contado no ponto fixo e no fallback BigDecimal
+        assertEquals(1.0, registro.get("reembolso.erros.validacao").counter().count());
+        assertEquals(2.0, registro.get("reembolso.teto.atingido").counter().count());
+    }
+
+    @Test
+    @DisplayName("Gauges devem refletir o tamanho do histórico e do índice por CPF")
+    void gaugesDevemRefletirHistorico() {
+        // Arrange
+        historico.salvarComReembolso(new Consulta(BigDecimal.TEN, BigDecimal.ONE), new Paciente("A", "1"), BigDecimal.TEN);
+        historico.salvarComReembolso(new Consulta(BigDecimal.TEN, BigDecimal.ONE), new Paciente("A", "1"), BigDecimal.TEN);
+        historico.salvarComReembolso(new Consulta(BigDecimal.TEN, BigDecimal.ONE), new Paciente("B", "2"), BigDecimal.TEN);
+
+        // Assert
+        assertEquals(3.0, registro.get("reembolso.historico.registros").gauge().value());
+        assertEquals(2.0, registro.get("reembolso.historico.pacientes").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Instância desativada não deve falhar nem registrar medidores visíveis")
+    void instanciaDesativadaNaoDeveFalhar() {
+        // Act & Assert
+        assertDoesNotThrow(() -> {
+            MetricasReembolso.DESATIVADA.registrarEtapa(MetricasReembolso.Etapa.CALCULAR, System.nanoTime());
+            MetricasReembolso.DESATIVADA.registrarNegacao(MotivoNegacao.DADOS_INVALIDOS);
+            MetricasReembolso.DESATIVADA.registrarTetoAtingido();
+        });
+    }
+}
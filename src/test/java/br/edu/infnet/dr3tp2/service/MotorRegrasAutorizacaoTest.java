@@ -0,0 +1,206 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do MotorRegrasAutorizacao com regras carregadas de um Environment de teste
+ */
+class MotorRegrasAutorizacaoTest {
+
+    private static final String PREFIXO = "reembolso.autorizacao.regras";
+
+    private MockEnvironment environment;
+    private MotorRegrasAutorizacao motor;
+    private Paciente paciente;
+    private PlanoConfigurado basico;
+    private PlanoConfigurado premium;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment()
+                .withProperty(PREFIXO + "[0].tipo", "CPF_BLOQUEADO")
+                .withProperty(PREFIXO + "[0].cpfs", "111.111.111-11, 222.222.222-22")
+                .withProperty(PREFIXO + "[1].tipo", "LIMITE_VALOR")
+                .withProperty(PREFIXO + "[1].plano", "basico")
+                .withProperty(PREFIXO + "[1].valor-maximo", "500.00")
+                .withProperty(PREFIXO + "[2].tipo", "LIMITE_VALOR")
+                .withProperty(PREFIXO + "[2].valor-maximo", "2000.00")
+                .withProperty(PREFIXO + "[3].tipo", "COBERTURA")
+                .withProperty(PREFIXO + "[3].cobertura-minima", "0.10")
+                .withProperty(PREFIXO + "[3].cobertura-maxima", "0.90");
+        motor = new MotorRegrasAutorizacao(environment);
+        paciente = new Paciente("Maria", "123.456.789-00");
+        basico = new PlanoConfigurado("basico", "Plano Básico", new BigDecimal("0.50"));
+        premium = new PlanoConfigurado("premium", "Plano Premium", new BigDecimal("0.80"));
+    }
+
+    private MotivoNegacao motivo(String valor, String cobertura, Paciente paciente, PlanoSaude plano) {
+        Consulta consulta = new Consulta(new BigDecimal(valor), cobertura == null ? null : new BigDecimal(cobertura));
+        return motor.avaliar(consulta, paciente, plano).getMotivo();
+    }
+
+    @Test
+    @DisplayName("Sem regras configuradas deve manter o limite padrão de R$ 2.000")
+    void semRegrasDeveManterLimitePadrao() {
+        // Arrange
+        MotorRegrasAutorizacao padrao = new MotorRegrasAutorizacao(new MockEnvironment());
+        AutorizadorReembolsoImpl fixo = new AutorizadorReembolsoImpl();
+
+        // Act & Assert - Mesmas decisões do autorizador fixo
+        for (String valor : new String[]{"0.00", "1999.99", "2000.00", "2000.001", "2000.01", "1e10"}) {
+            Consulta consulta = new Consulta(new BigDecimal(valor), new BigDecimal("0.70"));
+            assertSame(fixo.avaliar(consulta, paciente), padrao.avaliar(consulta, paciente), valor);
+        }
+        assertEquals(MotivoNegacao.DADOS_INVALIDOS, padrao.avaliar(null, paciente).getMotivo());
+        assertEquals(1, padrao.getQuantidadeRegras());
+    }
+
+    @Test
+    @DisplayName("Limite por plano só deve valer para o plano configurado")
+    void limitePorPlanoDeveValerSoParaOPlano() {
+        // Act & Assert
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE_PLANO, motivo("500.01", null, paciente, basico));
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE_PLANO,
+                motivo("500.01", null, paciente, new PlanoConfigurado("BASICO", "Outro", new BigDecimal("0.50"))));
+        assertNull(motivo("500.00", null, paciente, basico));
+        assertNull(motivo("1500.00", null, paciente, premium));
+        assertNull(motivo("1500.00", "0.70", paciente, null));
+        assertNull(motivo("1500.00", null, paciente, new PlanoSaudeStubBasico()));
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE, motivo("2000.01", null, paciente, premium));
+    }
+
+    @Test
+    @DisplayName("CPF bloqueado deve ser negado antes das demais regras")
+    void cpfBloqueadoDeveSerNegadoPrimeiro() {
+        // Arrange
+        Paciente bloqueado = new Paciente("João", "222.222.222-22");
+
+        // Act & Assert - A primeira regra que nega define o motivo
+        assertEquals(MotivoNegacao.CPF_BLOQUEADO, motivo("100.00", "0.70", bloqueado, null));
+        assertEquals(MotivoNegacao.CPF_BLOQUEADO, motivo("5000.00", "0.99", bloqueado, null));
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE, motivo("5000.00", "0.99", paciente, null));
+        assertNull(motivo("100.00", "0.70", new Paciente("Sem CPF", null), null));
+    }
+
+    @Test
+    @DisplayName("CPF bloqueado deve ser reconhecido em qualquer das grafias")
+    void cpfBloqueadoEmQualquerGrafia() {
+        // Arrange - Bloqueio configurado só com os dígitos
+        environment.setProperty(PREFIXO + "[0].cpfs", "33333333333");
+        motor.recarregar();
+
+        // Act & Assert
+        assertEquals(MotivoNegacao.CPF_BLOQUEADO, motivo("100.00", "0.70", new Paciente("João", "333.333.333-33"), null));
+        assertEquals(MotivoNegacao.CPF_BLOQUEADO, motivo("100.00", "0.70", new Paciente("João", "33333333333"), null));
+        assertNull(motivo("100.00", "0.70", new Paciente("João", "222.222.222-22"), null));
+    }
+
+    @Test
+    @DisplayName("Limites de cobertura devem valer para a consulta e para o plano")
+    void limitesDeCoberturaDevemSerAplicados() {
+        // Act & Assert
+        assertNull(motivo("100.00", "0.10", paciente, null));
+        assertNull(motivo("100.00", "0.90", paciente, null));
+        assertEquals(MotivoNegacao.COBERTURA_FORA_LIMITES, motivo("100.00", "0.0999", paciente, null));
+        assertEquals(MotivoNegacao.COBERTURA_FORA_LIMITES, motivo("100.00", "0.90001", paciente, null));
+        assertEquals(MotivoNegacao.COBERTURA_FORA_LIMITES, motivo("100.00", "1.50", paciente, null));
+        assertEquals(MotivoNegacao.COBERTURA_FORA_LIMITES,
+                motivo("100.00", null, paciente, new PlanoConfigurado("total", "Total", BigDecimal.ONE)));
+        assertNull(motivo("100.00", null, paciente, premium));
+    }
+
+    @Test
+    @DisplayName("Regra inválida deve ser rejeitada mantendo as regras atuais")
+    void regraInvalidaDeveManterRegrasAtuais() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> motor.recarregar(List.of(
+                RegraAutorizacao.limiteValor(null, new BigDecimal("-1")))));
+        assertThrows(IllegalArgumentException.class, () -> motor.recarregar(List.of(
+                RegraAutorizacao.cpfsBloqueados(List.of()))));
+        assertThrows(IllegalArgumentException.class, () -> motor.recarregar(List.of(
+                RegraAutorizacao.cobertura(null, new BigDecimal("0.90"), new BigDecimal("0.10")))));
+        assertEquals(4, motor.getQuantidadeRegras());
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE, motivo("2000.01", "0.70", paciente, null));
+    }
+
+    @Test
+    @DisplayName("Recarga deve aplicar as regras novas da configuração")
+    void recargaDeveAplicarRegrasNovas() {
+        // Arrange
+        environment.setProperty(PREFIXO + "[2].valor-maximo", "3000.00");
+        environment.setProperty(PREFIXO + "[2].motivo", "DADOS_INVALIDOS");
+
+        // Act
+        motor.recarregar();
+
+        // Assert
+        assertNull(motivo("2500.00", "0.70", paciente, null));
+        assertEquals(MotivoNegacao.DADOS_INVALIDOS, motivo("3000.01", "0.70", paciente, null));
+    }
+
+    @Test
+    @DisplayName("Regra de frequência deve limitar consultas por CPF na janela")
+    void regraDeFrequenciaDeveLimitarPorCpf() {
+        // Arrange - Frequência no fim da cadeia: só conta consultas que passaram pelas outras regras
+        AtomicLong agora = new AtomicLong(1_000_000_000L);
+        MotorRegrasAutorizacao comFrequencia = new MotorRegrasAutorizacao(List.of(
+                RegraAutorizacao.limiteValor(null, new BigDecimal("2000.00")),
+                RegraAutorizacao.frequencia(null, 3, Duration.ofHours(24))));
+        comFrequencia.relogio = agora::get;
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"));
+        Paciente outro = new Paciente("João", "987.654.321-00");
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertTrue(comFrequencia.isAutorizado(consulta, paciente));
+        }
+        assertEquals(MotivoNegacao.FREQUENCIA_EXCEDIDA, comFrequencia.avaliar(consulta, paciente).getMotivo());
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE,
+                comFrequencia.avaliar(new Consulta(new BigDecimal("2500.00"), BigDecimal.ONE), outro).getMotivo());
+        assertTrue(comFrequencia.isAutorizado(consulta, outro));
+        assertEquals(MotivoNegacao.FREQUENCIA_EXCEDIDA,
+                comFrequencia.avaliar(consulta, new Paciente("Maria", "12345678900")).getMotivo());
+
+        agora.addAndGet(Duration.ofHours(26).toMillis());
+        assertTrue(comFrequencia.isAutorizado(consulta, paciente));
+    }
+
+    @Test
+    @DisplayName("Recarga deve manter as contagens de regras de frequência iguais")
+    void recargaDeveManterContagensDeFrequencia() {
+        // Arrange
+        environment.setProperty(PREFIXO + "[4].tipo", "FREQUENCIA");
+        environment.setProperty(PREFIXO + "[4].maximo", "2");
+        environment.setProperty(PREFIXO + "[4].janela", "1h");
+        motor.recarregar();
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"));
+        motor.avaliar(consulta, paciente);
+        motor.avaliar(consulta, paciente);
+
+        // Act - Muda outra regra e recarrega
+        environment.setProperty(PREFIXO + "[2].valor-maximo", "3000.00");
+        motor.recarregar();
+
+        // Assert
+        assertEquals(MotivoNegacao.FREQUENCIA_EXCEDIDA, motor.avaliar(consulta, paciente).getMotivo());
+
+        // Definição diferente começa do zero
+        environment.setProperty(PREFIXO + "[4].maximo", "3");
+        motor.recarregar();
+        assertTrue(motor.isAutorizado(consulta, paciente));
+        assertThrows(IllegalArgumentException.class, () -> motor.recarregar(List.of(
+                RegraAutorizacao.frequencia(null, 0, Duration.ofHours(1)))));
+    }
+}
@@ -0,0 +1,94 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.RastroLentoResponse;
+import br.edu.infnet.dr3tp2.dto.TrechoRastroResponse;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes dos spans por etapa sobre o OpenTelemetry SDK
+ */
+class RastreamentoReembolsoTest {
+
+    private final ExportadorRastrosLentos exportador = new ExportadorRastrosLentos(Duration.ZERO, 16, 16, "");
+    private SdkTracerProvider provedor;
+
+    private Tracer criarTracer(Sampler amostragem) {
+        provedor = SdkTracerProvider.builder()
+                .setSampler(amostragem)
+                .addSpanProcessor(SimpleSpanProcessor.create(exportador))
+                .build();
+        return new OtelTracer(provedor.get("teste"), new OtelCurrentTraceContext(), evento -> {});
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (provedor != null) {
+            provedor.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Etapas devem virar spans filhos do span da requisição")
+    void etapasDevemSerFilhasDaRequisicao() {
+        // Arrange
+        Tracer tracer = criarTracer(Sampler.alwaysOn());
+        RastreamentoReembolso rastreamento = new RastreamentoReembolso(tracer);
+        Span requisicao = tracer.nextSpan().name("http post /api/reembolso/calcular").start();
+
+        // Act
+        try (Tracer.SpanInScope escopo = tracer.withSpan(requisicao)) {
+            rastreamento.finalizarEtapa(rastreamento.iniciarEtapa(MetricasReembolso.Etapa.AUTORIZAR));
+            Span calcular = rastreamento.iniciarEtapa(MetricasReembolso.Etapa.CALCULAR);
+            rastreamento.registrarErro(calcular, new IllegalArgumentException("inválido"));
+            rastreamento.finalizarEtapa(calcular);
+        }
+        requisicao.end();
+
+        // Assert
+        List<RastroLentoResponse> rastros = exportador.getRastrosRetidos();
+        assertEquals(1, rastros.size());
+        RastroLentoResponse rastro = rastros.get(0);
+        assertTrue(rastro.erro());
+        assertEquals(List.of("reembolso.autorizar", "reembolso.calcular", "http post /api/reembolso/calcular"),
+                rastro.trechos().stream().map(TrechoRastroResponse::nome).toList());
+
+        String idRequisicao = requisicao.context().spanId();
+        TrechoRastroResponse autorizar = rastro.trechos().get(0);
+        assertEquals(idRequisicao, autorizar.spanPai());
+        assertEquals("autorizar", autorizar.atributos().get("reembolso.etapa"));
+        assertTrue(rastro.trechos().get(1).erro());
+    }
+
+    @Test
+    @DisplayName("Não deve criar spans sem requisição rastreada ou fora da amostragem")
+    void naoDeveCriarSpansSemRequisicaoAmostrada() {
+        // Arrange
+        Tracer tracer = criarTracer(Sampler.alwaysOff());
+        RastreamentoReembolso rastreamento = new RastreamentoReembolso(tracer);
+        Span requisicao = tracer.nextSpan().start();
+
+        // Act & Assert
+        assertNull(rastreamento.iniciarEtapa(MetricasReembolso.Etapa.CALCULAR), "Sem span corrente");
+        try (Tracer.SpanInScope escopo = tracer.withSpan(requisicao)) {
+            assertNull(rastreamento.iniciarEtapa(MetricasReembolso.Etapa.CALCULAR), "Requisição não amostrada");
+        }
+        requisicao.end();
+        assertNull(RastreamentoReembolso.DESATIVADO.iniciarEtapa(MetricasReembolso.Etapa.CALCULAR));
+        assertDoesNotThrow(() -> RastreamentoReembolso.DESATIVADO.finalizarEtapa(null));
+        assertEquals(0, exportador.getAvaliados());
+    }
+}
@@ -0,0 +1,113 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.dto.ItemLoteResponse;
+import br.edu.infnet.dr3tp2.model.Consulta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes do ReembolsoLoteService usando Mock para o ReembolsoService
+ */
+class ReembolsoLoteServiceTest {
+
+    @Mock
+    private ReembolsoService reembolsoService;
+
+    private ReembolsoLoteService reembolsoLoteService;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        pool = new ForkJoinPool(4);
+        reembolsoLoteService = new ReembolsoLoteService();
+        reembolsoLoteService.reembolsoService = reembolsoService;
+        reembolsoLoteService.poolLote = pool;
+        reembolsoLoteService.janela = 8;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve entregar resultados na ordem de entrada mesmo com tempos diferentes")
+    void deveEntregarResultadosNaOrdemDeEntrada() {
+        // Arrange - Itens com índice par demoram mais para terminar
+        List<Consulta> lote = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            lote.add(new Consulta(new BigDecimal(i), new BigDecimal("1.00")));
+        }
+
+        when(reembolsoService.tentarCalcularReembolso(any())).thenAnswer(invocation -> {
+            Consulta consulta = invocation.getArgument(0);
+            if (consulta.getValor().intValue() % 2 == 0) {
+                Thread.sleep(2);
+            }
+            return ResultadoReembolso.sucesso(consulta.getValor());
+        });
+
+        // Act
+        List<ItemLoteResponse> resultados = new ArrayList<>();
+        reembolsoLoteService.calcularLote(lote, resultados::add);
+
+        // Assert
+        assertEquals(50, resultados.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, resultados.get(i).indice());
+            assertEquals(0, new BigDecimal(i).compareTo(resultados.get(i).reembolso().valorReembolso()));
+        }
+        verify(reembolsoService, times(50)).tentarCalcularReembolso(any());
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro apenas no item inválido do lote")
+    void deveRetornarErroApenasNoItemInvalido() {
+        // Arrange
+        Consulta valida = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+        Consulta invalida = new Consulta(new BigDecimal("-1.00"), new BigDecimal("0.70"));
+
+        when(reembolsoService.tentarCalcularReembolso(valida)).thenReturn(ResultadoReembolso.sucesso(new BigDecimal("140.00")));
+        when(reembolsoService.tentarCalcularReembolso(invalida))
+                .thenReturn(ResultadoReembolso.invalido(CodigoErro.VALOR_INVALIDO));
+
+        // Act
+        List<ItemLoteResponse> resultados = new ArrayList<>();
+        reembolsoLoteService.calcularLote(List.of(valida, invalida, valida), resultados::add);
+
+        // Assert
+        assertEquals(3, resultados.size());
+        assertEquals("sucesso", resultados.get(0).status());
+        assertEquals("erro", resultados.get(1).status());
+        assertEquals("Valor da consulta deve ser maior ou igual a zero", resultados.get(1).erro());
+        assertNull(resultados.get(1).reembolso());
+        assertEquals("sucesso", resultados.get(2).status());
+    }
+
+    @Test
+    @DisplayName("Deve processar lote vazio sem chamar o service")
+    void deveProcessarLoteVazio() {
+        // Act
+        List<ItemLoteResponse> resultados = new ArrayList<>();
+        reembolsoLoteService.calcularLote(List.of(), resultados::add);
+
+        // Assert
+        assertTrue(resultados.isEmpty());
+        verify(reembolsoService, never()).tentarCalcularReembolso(any());
+    }
+}
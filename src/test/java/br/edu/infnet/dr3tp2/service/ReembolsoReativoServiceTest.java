@@ -0,0 +1,118 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes do ReembolsoReativoService com histórico real e auditoria mock
+ */
+class ReembolsoReativoServiceTest {
+
+    @Mock
+    private Auditoria auditoria;
+
+    private HistoricoConsultasConcorrente historico;
+    private ReembolsoReativoService reembolsoService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        historico = new HistoricoConsultasConcorrente();
+        reembolsoService = new ReembolsoReativoService();
+        reembolsoService.autorizadorReembolso = new AutorizadorReembolsoImpl();
+        ReflectionTestUtils.setField(reembolsoService, "calculadoraReembolso", new CalculadoraReembolso());
+        ReflectionTestUtils.setField(reembolsoService, "historicoConsultas", new HistoricoConsultasReativo(historico, 2));
+        ReflectionTestUtils.setField(reembolsoService, "auditoria", new AuditoriaReativa(auditoria));
+    }
+
+    @Test
+    @DisplayName("Deve autorizar, auditar, calcular e gravar no histórico")
+    void deveCalcularEGravar() {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70"));
+
+        // Act & Assert
+        StepVerifier.create(reembolsoService.calcularReembolso(consulta))
+                .expectNext(new BigDecimal("140.00"))
+                .verifyComplete();
+
+        verify(auditoria).registrarConsulta(consulta);
+        assertEquals(1, historico.buscarHistorico().size());
+    }
+
+    @Test
+    @DisplayName("Nada deve acontecer antes da assinatura")
+    void nadaDeveAcontecerAntesDaAssinatura() {
+        // Act
+        reembolsoService.calcularReembolso(new Consulta(new BigDecimal("200.00"), new BigDecimal("0.70")));
+
+        // Assert
+        verify(auditoria, never()).registrarConsulta(any());
+        assertTrue(historico.buscarHistorico().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Consulta não autorizada deve terminar em erro sem auditar nem gravar")
+    void consultaNaoAutorizadaDeveTerminarEmErro() {
+        // Act & Assert
+        StepVerifier.create(reembolsoService.calcularReembolso(new Consulta(new BigDecimal("2500.00"), new BigDecimal("0.70"))))
+                .expectErrorSatisfies(erro -> {
+                    assertInstanceOf(ReembolsoNaoAutorizadoException.class, erro);
+                    assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE, ((ReembolsoNaoAutorizadoException) erro).getMotivo());
+                })
+                .verify();
+
+        verify(auditoria, never()).registrarConsulta(any());
+        assertTrue(historico.buscarHistorico().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Cálculo com plano não deve gravar no histórico")
+    void calculoComPlanoNaoDeveGravar() {
+        // Act & Assert
+        StepVerifier.create(reembolsoService.calcularReembolsoComPlano(
+                        new Consulta(new BigDecimal("100.00"), null), new PlanoSaudeStubPremium()))
+                .expectNext(new BigDecimal("80.00"))
+                .verifyComplete();
+
+        assertTrue(historico.buscarHistorico().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Histórico deve ser emitido página a página conforme a demanda")
+    void historicoDeveSerEmitidoSobDemanda() {
+        // Arrange - Páginas de 2 itens
+        for (int i = 1; i <= 5; i++) {
+            historico.salvarComReembolso(new Consulta(new BigDecimal(i), BigDecimal.ONE), new Paciente("P", "1"), new BigDecimal(i));
+        }
+
+        // Act & Assert
+        StepVerifier.create(reembolsoService.buscarHistorico(), 3)
+                .expectNextCount(3)
+                .thenRequest(10)
+                .assertNext(item -> assertEquals(new BigDecimal(4), item.reembolso().valorConsulta()))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        StepVerifier.create(reembolsoService.buscarHistoricoPorPaciente("1"))
+                .expectNextCount(5)
+                .verifyComplete();
+        StepVerifier.create(reembolsoService.buscarResumoPorPaciente("1"))
+                .assertNext(resumo -> assertEquals(5, resumo.quantidadeConsultas()))
+                .verifyComplete();
+    }
+}
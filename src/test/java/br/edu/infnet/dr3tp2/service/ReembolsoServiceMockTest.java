@@ -2,6 +2,7 @@ package br.edu.infnet.dr3tp2.service;
 
 import br.edu.infnet.dr3tp2.helper.ConsultaTestHelper; // EX9 - Import do helper
 import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -10,9 +11,13 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.time.ZoneId;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -50,7 +55,7 @@ class ReembolsoServiceMockTest {
         BigDecimal reembolsoEsperado = new BigDecimal("1050.00");
 
         // Mock configurado para autorizar
-        when(autorizadorReembolso.isAutorizado(any(), any())).thenReturn(true);
+        when(autorizadorReembolso.avaliar(any(), any())).thenReturn(DecisaoAutorizacao.AUTORIZADA);
         when(calculadoraReembolso.calcular(any(), any())).thenReturn(reembolsoEsperado);
 
         // Act
@@ -60,7 +65,7 @@ class ReembolsoServiceMockTest {
         assertEquals(reembolsoEsperado, resultado);
 
         // Verificar interações com os mocks
-        verify(autorizadorReembolso).isAutorizado(any(), any());
+        verify(autorizadorReembolso).avaliar(any(), any());
         verify(calculadoraReembolso).calcular(any(), any());
         verify(historicoConsultas).salvar(any(), any()); // EX9 - Verifica que histórico foi salvo
     }
@@ -72,19 +77,18 @@ class ReembolsoServiceMockTest {
         Consulta consulta = ConsultaTestHelper.criarConsultaNaoAutorizada();
 
         // Mock configurado para negar autorização
-        when(autorizadorReembolso.isAutorizado(any(), any())).thenReturn(false);
-        when(autorizadorReembolso.getMotivoNegacao()).thenReturn("Valor excede limite de R$ 2.000,00");
+        when(autorizadorReembolso.avaliar(any(), any()))
+                .thenReturn(DecisaoAutorizacao.negada(MotivoNegacao.VALOR_ACIMA_LIMITE));
 
         // Act & Assert
         SecurityException exception = assertThrows(SecurityException.class,
                 () -> reembolsoService.calcularReembolso(consulta));
 
         assertTrue(exception.getMessage().contains("Consulta não autorizada"));
-        assertTrue(exception.getMessage().contains("excede limite"));
+        assertTrue(exception.getMessage().contains("excede o limite"));
 
         // Verificar que o cálculo NÃO foi executado
-        verify(autorizadorReembolso).isAutorizado(any(), any());
-        verify(autorizadorReembolso).getMotivoNegacao();
+        verify(autorizadorReembolso).avaliar(any(), any());
         verify(calculadoraReembolso, never()).calcular(any(), any());
         verify(historicoConsultas, never()).salvar(any(), any());
     }
@@ -97,7 +101,7 @@ class ReembolsoServiceMockTest {
         BigDecimal reembolsoEsperado = new BigDecimal("750.00");
 
         // Mocks configurados
-        when(autorizadorReembolso.isAutorizado(any(), any())).thenReturn(true);
+        when(autorizadorReembolso.avaliar(any(), any())).thenReturn(DecisaoAutorizacao.AUTORIZADA);
         when(calculadoraReembolso.calcularComPlano(any(), any())).thenReturn(reembolsoEsperado);
 
         // Act
@@ -105,7 +109,7 @@ class ReembolsoServiceMockTest {
 
         // Assert
         assertEquals(reembolsoEsperado, resultado);
-        verify(autorizadorReembolso).isAutorizado(any(), any());
+        verify(autorizadorReembolso).avaliar(any(), any());
         verify(calculadoraReembolso).calcularComPlano(any(), any());
     }
 
@@ -116,17 +120,17 @@ class ReembolsoServiceMockTest {
         Consulta consulta = new Consulta(new BigDecimal("2500.00"), null);
 
         // Mock configurado para ser negagado a autorização
-        when(autorizadorReembolso.isAutorizado(any(), any())).thenReturn(false);
-        when(autorizadorReembolso.getMotivoNegacao()).thenReturn("Valor excede limite de R$ 2.000,00");
+        when(autorizadorReembolso.avaliar(any(), any()))
+                .thenReturn(DecisaoAutorizacao.negada(MotivoNegacao.VALOR_ACIMA_LIMITE));
 
         // Act & Assert
         SecurityException exception = assertThrows(SecurityException.class,
                 () -> reembolsoService.calcularReembolsoComPlano(consulta, planoBasico));
 
-        assertTrue(exception.getMessage().contains("excede limite"));
+        assertTrue(exception.getMessage().contains("excede o limite"));
 
         // Verificar interações
-        verify(autorizadorReembolso).isAutorizado(any(), any());
+        verify(autorizadorReembolso).avaliar(any(), any());
         verify(calculadoraReembolso, never()).calcularComPlano(any(), any());
     }
 
@@ -145,4 +149,145 @@ class ReembolsoServiceMockTest {
         verify(calculadoraReembolso).calcular(any(), any());
         verify(historicoConsultas).salvar(any(), any());
     }
+
+    @Test
+    @DisplayName("Deve reembolsar só o saldo do teto anual e negar quando esgotado")
+    void deveAplicarTetoAnual() {
+        // Arrange - Teto de R$ 1.000,00 e reembolsos de R$ 700,00
+        TetoAnualPaciente tetoAnual = new TetoAnualPaciente(new BigDecimal("1000.00"), ZoneId.of("UTC"));
+        reembolsoService.tetoAnual = tetoAnual;
+        Consulta consulta = ConsultaTestHelper.criarConsultaAutorizada();
+        when(autorizadorReembolso.avaliar(any(), any())).thenReturn(DecisaoAutorizacao.AUTORIZADA);
+        when(calculadoraReembolso.calcular(any(), any())).thenReturn(new BigDecimal("700.00"));
+
+        // Act & Assert
+        assertEquals(new BigDecimal("700.00"), reembolsoService.calcularReembolso(consulta));
+        assertEquals(new BigDecimal("300.00"), reembolsoService.calcularReembolso(consulta));
+        ReembolsoNaoAutorizadoException exception = assertThrows(ReembolsoNaoAutorizadoException.class,
+                () -> reembolsoService.calcularReembolso(consulta));
+        assertEquals(MotivoNegacao.TETO_ANUAL_ATINGIDO, exception.getDecisao().getMotivo());
+        verify(historicoConsultas, times(2)).salvar(any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve devolver a reserva do teto anual quando o histórico falhar")
+    void deveDevolverTetoAnualQuandoHistoricoFalhar() {
+        // Arrange
+        TetoAnualPaciente tetoAnual = new TetoAnualPaciente(new BigDecimal("1000.00"), ZoneId.of("UTC"));
+        reembolsoService.tetoAnual = tetoAnual;
+        Consulta consulta = ConsultaTestHelper.criarConsultaAutorizada();
+        when(autorizadorReembolso.avaliar(any(), any())).thenReturn(DecisaoAutorizacao.AUTORIZADA);
+        when(calculadoraReembolso.calcular(any(), any())).thenReturn(new BigDecimal("700.00"));
+        doThrow(new IllegalStateException("falha")).when(historicoConsultas).salvar(any(), any());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> reembolsoService.calcularReembolso(consulta));
+        assertEquals(new BigDecimal("1000.00"), tetoAnual.consultarSaldo("000.000.000-00"));
+    }
+
+    @Test
+    @DisplayName("Deve gravar o paciente com o CPF canônico sem retê-lo no registro")
+    void deveGravarPacienteNormalizadoSemRegistrar() {
+        // Arrange - CPF só com os dígitos
+        when(autorizadorReembolso.avaliar(any(), any())).thenReturn(DecisaoAutorizacao.AUTORIZADA);
+        when(calculadoraReembolso.calcular(any(), any())).thenReturn(new BigDecimal("70.00"));
+
+        // Act
+        reembolsoService.calcularReembolso(new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"),
+                new Paciente("Maria", "11111111111")));
+
+        // Assert
+        verify(historicoConsultas).salvar(any(), argThat(paciente -> "111.111.111-11".equals(paciente.getCpf())
+                && "Maria".equals(paciente.getNome())));
+        assertEquals(0, reembolsoService.registroPacientes.getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar CPF fora do formato e nome longo demais sem efeitos")
+    void deveRejeitarCpfForaDoFormatoENomeLongo() {
+        // Arrange - Mesma configuração padrão da aplicação
+        reembolsoService.registroPacientes = new RegistroPacientes(false, true, 120);
+
+        // Act
+        ResultadoReembolso cpf = reembolsoService.tentarCalcularReembolso(new Consulta(new BigDecimal("100.00"),
+                new BigDecimal("0.70"), new Paciente("Maria", "qualquer-coisa")));
+        ResultadoReembolso nome = reembolsoService.tentarCalcularReembolso(new Consulta(new BigDecimal("100.00"),
+                new BigDecimal("0.70"), new Paciente("M".repeat(121), "111.111.111-11")));
+
+        // Assert
+        assertSame(ResultadoReembolso.invalido(CodigoErro.CPF_INVALIDO), cpf);
+        assertSame(ResultadoReembolso.invalido(CodigoErro.NOME_MUITO_LONGO), nome);
+        verifyNoInteractions(autorizadorReembolso, historicoConsultas);
+    }
+
+    @Test
+    @DisplayName("Falha depois da autorização deve devolver a consulta à janela de frequência")
+    void falhaDepoisDaAutorizacaoDeveLiberarFrequencia() {
+        // Arrange - Uma consulta por dia; auditoria e histórico falham nas primeiras tentativas
+        reembolsoService.autorizadorReembolso = new MotorRegrasAutorizacao(List.of(
+                RegraAutorizacao.frequencia(null, 1, Duration.ofHours(24))));
+        Auditoria auditoria = mock(Auditoria.class);
+        doThrow(new AuditoriaIndisponivelException("Fila cheia")).doNothing().when(auditoria).registrarConsulta(any());
+        reembolsoService.auditoria = auditoria;
+        doThrow(new IllegalStateException("Disco cheio")).doNothing().when(historicoConsultas).salvar(any(), any());
+        when(calculadoraReembolso.calcular(any(), any())).thenReturn(new BigDecimal("70.00"));
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"),
+                new Paciente("Maria", "111.111.111-11"));
+
+        // Act & Assert - As tentativas que falharam não contam
+        assertThrows(AuditoriaIndisponivelException.class, () -> reembolsoService.calcularReembolso(consulta));
+        assertThrows(IllegalStateException.class, () -> reembolsoService.calcularReembolso(consulta));
+        assertEquals(new BigDecimal("70.00"), reembolsoService.calcularReembolso(consulta));
+        assertEquals(MotivoNegacao.FREQUENCIA_EXCEDIDA, reembolsoService.tentarCalcularReembolso(consulta).getMotivo());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar paciente informado sem CPF")
+    void deveRejeitarPacienteSemCpf() {
+        // Arrange
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"), new Paciente("Maria", ""));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> reembolsoService.calcularReembolso(consulta));
+        verify(historicoConsultas, never()).salvar(any(), any());
+    }
+
+    @Test
+    @DisplayName("TentarCalcularReembolso deve devolver a negação sem lançar exceção")
+    void tentarCalcularDeveDevolverNegacao() {
+        // Arrange
+        when(autorizadorReembolso.avaliar(any(), any()))
+                .thenReturn(DecisaoAutorizacao.negada(MotivoNegacao.VALOR_ACIMA_LIMITE));
+
+        // Act
+        ResultadoReembolso resultado = reembolsoService.tentarCalcularReembolso(
+                ConsultaTestHelper.criarConsultaNaoAutorizada());
+
+        // Assert
+        assertFalse(resultado.isSucesso());
+        assertSame(ResultadoReembolso.negado(MotivoNegacao.VALOR_ACIMA_LIMITE), resultado);
+        assertEquals(MotivoNegacao.VALOR_ACIMA_LIMITE.getMensagemNegacao(), resultado.getMensagem());
+        verify(calculadoraReembolso, never()).calcular(any(), any());
+        verify(historicoConsultas, never()).salvar(any(), any());
+    }
+
+    @Test
+    @DisplayName("TentarCalcularReembolso deve devolver erro de validação sem calcular")
+    void tentarCalcularDeveDevolverErroDeValidacao() {
+        // Arrange
+        when(autorizadorReembolso.avaliar(any(), any())).thenReturn(DecisaoAutorizacao.AUTORIZADA);
+        when(calculadoraReembolso.validar(any())).thenReturn(CodigoErro.VALOR_INVALIDO);
+
+        // Act
+        ResultadoReembolso resultado = reembolsoService.tentarCalcularReembolso(
+                new Consulta(new BigDecimal("-1.00"), new BigDecimal("0.70")));
+        ResultadoReembolso semCpf = reembolsoService.tentarCalcularReembolso(
+                new Consulta(new BigDecimal("100.00"), new BigDecimal("0.70"), new Paciente("Maria", null)));
+
+        // Assert
+        assertSame(ResultadoReembolso.invalido(CodigoErro.VALOR_INVALIDO), resultado);
+        assertSame(ResultadoReembolso.invalido(CodigoErro.CPF_OBRIGATORIO), semCpf);
+        verify(calculadoraReembolso, never()).calcular(any(), any());
+        verify(historicoConsultas, never()).salvar(any(), any());
+    }
 }
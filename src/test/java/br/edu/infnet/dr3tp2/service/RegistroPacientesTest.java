@@ -0,0 +1,152 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do registro de pacientes por CPF
+ */
+class RegistroPacientesTest {
+
+    private RegistroPacientes registro;
+
+    @BeforeEach
+    void setUp() {
+        registro = new RegistroPacientes();
+    }
+
+    @Test
+    @DisplayName("Mesmo CPF deve resolver para a mesma instância e o mesmo id")
+    void mesmoCpfDeveResolverParaMesmaInstancia() {
+        // Arrange
+        Paciente primeiro = new Paciente("Maria", "111.111.111-11");
+        Paciente segundo = new Paciente("Maria Silva", "111.111.111-11");
+
+        // Act
+        Paciente resolvido = registro.resolver(primeiro);
+
+        // Assert - o primeiro nome informado para o CPF é o que fica
+        assertSame(primeiro, resolvido);
+        assertSame(primeiro, registro.resolver(segundo));
+        assertEquals(registro.registrar(primeiro), registro.registrar(segundo));
+        assertEquals(1, registro.getQuantidade());
+    }
+
+    @Test
+    @DisplayName("As duas grafias do CPF devem resolver para o mesmo paciente, com o CPF formatado")
+    void grafiasDoCpfDevemResolverParaMesmoPaciente() {
+        // Arrange
+        Paciente soDigitos = new Paciente("Maria", "12345678909");
+        Paciente formatado = new Paciente("Maria Silva", "123.456.789-09");
+
+        // Act
+        Paciente resolvido = registro.resolver(soDigitos);
+
+        // Assert
+        assertEquals("123.456.789-09", resolvido.getCpf());
+        assertEquals("Maria", resolvido.getNome());
+        assertSame(resolvido, registro.resolver(formatado));
+        assertEquals(registro.registrar(soDigitos), registro.buscarId("123.456.789-09"));
+        assertEquals(1, registro.getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Consulta sem paciente deve resolver para o paciente anônimo")
+    void semPacienteDeveResolverParaAnonimo() {
+        // Act & Assert
+        assertSame(RegistroPacientes.ANONIMO, registro.resolver(null));
+        assertSame(RegistroPacientes.ANONIMO, registro.resolver(new Paciente("Dummy", "000.000.000-00")));
+    }
+
+    @Test
+    @DisplayName("Paciente sem CPF deve ser rejeitado")
+    void pacienteSemCpfDeveSerRejeitado() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> registro.resolver(new Paciente("Maria", null)));
+        assertThrows(IllegalArgumentException.class, () -> registro.resolver(new Paciente("Maria", "  ")));
+        assertEquals(0, registro.getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Com validação ligada deve recusar CPF com dígitos verificadores inválidos")
+    void deveRecusarCpfInvalidoComValidacao() {
+        // Arrange
+        RegistroPacientes validando = new RegistroPacientes(true);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> validando.resolver(new Paciente("Maria", "123.456.789-00")));
+        assertThrows(IllegalArgumentException.class, () -> validando.resolver(new Paciente("Maria", "1")));
+        assertEquals("123.456.789-09", validando.resolver(new Paciente("Maria", "123.456.789-09")).getCpf());
+        assertSame(RegistroPacientes.ANONIMO, validando.resolver(null));
+        // Sem validação o CPF é aceito como veio
+        assertEquals("123.456.789-00", registro.resolver(new Paciente("Maria", "123.456.789-00")).getCpf());
+    }
+
+    @Test
+    @DisplayName("Ids devem ser sequenciais e buscar deve devolver o paciente do id")
+    void idsDevemSerSequenciais() {
+        // Act
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(i, registro.registrar(new Paciente("Paciente " + i, String.format("%011d", i))));
+        }
+
+        // Assert - passa do tamanho inicial do array de ids
+        assertEquals(3000, registro.getQuantidade());
+        assertEquals("Paciente 2999", registro.buscar(2999).getNome());
+        assertEquals(1500, registro.buscarId(String.format("%011d", 1500)));
+        assertEquals(-1, registro.buscarId("999.999.999-99"));
+        assertEquals(-1, registro.buscarId(null));
+    }
+
+    @Test
+    @DisplayName("Registro concorrente do mesmo CPF deve gerar um único id")
+    void registroConcorrenteDeveGerarIdUnico() throws Exception {
+        // Arrange
+        int threads = 8;
+        int cpfs = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<int[]>> resultados = new ArrayList<>();
+
+        // Act - todas as threads registram os mesmos CPFs
+        for (int t = 0; t < threads; t++) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                int[] ids = new int[cpfs];
+                for (int i = 0; i < cpfs; i++) {
+                    ids[i] = registro.registrar(new Paciente("Paciente " + i, String.format("%011d", i)));
+                }
+                return ids;
+            }));
+        }
+        largada.countDown();
+
+        // Assert
+        int[] esperado = resultados.get(0).get();
+        for (Future<int[]> resultado : resultados) {
+            assertArrayEquals(esperado, resultado.get());
+        }
+        executor.shutdown();
+
+        Set<Integer> distintos = new HashSet<>();
+        for (int i = 0; i < cpfs; i++) {
+            distintos.add(esperado[i]);
+            assertEquals(CodificadorCpf.canonico(String.format("%011d", i)), registro.buscar(esperado[i]).getCpf());
+        }
+        assertEquals(cpfs, distintos.size());
+        assertEquals(cpfs, registro.getQuantidade());
+    }
+}
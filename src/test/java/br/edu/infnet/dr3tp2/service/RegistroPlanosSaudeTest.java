@@ -0,0 +1,103 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do RegistroPlanosSaude carregando planos de um Environment de teste
+ */
+class RegistroPlanosSaudeTest {
+
+    private MockEnvironment environment;
+    private RegistroPlanosSaude registro;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment()
+                .withProperty("reembolso.planos.basico.nome", "Plano Básico")
+                .withProperty("reembolso.planos.basico.cobertura", "0.50")
+                .withProperty("reembolso.planos.premium.nome", "Plano Premium")
+                .withProperty("reembolso.planos.premium.cobertura", "0.80")
+                .withProperty("reembolso.planos.executivo.nome", "Plano Executivo")
+                .withProperty("reembolso.planos.executivo.cobertura", "0.9125");
+        registro = new RegistroPlanosSaude(environment);
+    }
+
+    @Test
+    @DisplayName("Deve carregar todos os planos da configuração com cobertura pré-calculada")
+    void deveCarregarPlanosDaConfiguracao() {
+        // Act
+        PlanoConfigurado executivo = registro.resolver("executivo");
+
+        // Assert
+        assertEquals(3, registro.getPlanos().size());
+        assertEquals("Plano Executivo", executivo.getNome());
+        assertEquals(new BigDecimal("0.9125"), executivo.getPercentualCobertura());
+        assertEquals(9125, executivo.getPontosBaseCobertura());
+        assertSame(executivo.getPercentualCobertura(), executivo.getPercentualCobertura());
+    }
+
+    @Test
+    @DisplayName("Deve resolver código sem diferenciar maiúsculas e retornar a mesma instância")
+    void deveResolverSemDiferenciarMaiusculas() {
+        // Act & Assert
+        PlanoConfigurado premium = registro.resolver("premium");
+        assertSame(premium, registro.resolver("PREMIUM"));
+        assertSame(premium, registro.resolver("PreMium"));
+        assertNull(registro.resolver("premium2"));
+        assertNull(registro.resolver("inexistente"));
+        assertNull(registro.resolver(null));
+    }
+
+    @Test
+    @DisplayName("Recarga deve trocar os planos sem alterar instâncias já resolvidas")
+    void recargaDeveTrocarPlanos() {
+        // Arrange
+        PlanoConfigurado basicoAntigo = registro.resolver("basico");
+        environment.setProperty("reembolso.planos.basico.cobertura", "0.60");
+
+        // Act
+        registro.recarregar();
+
+        // Assert
+        assertEquals(new BigDecimal("0.50"), basicoAntigo.getPercentualCobertura());
+        assertEquals(new BigDecimal("0.60"), registro.resolver("basico").getPercentualCobertura());
+        assertEquals(6000, registro.resolver("BASICO").getPontosBaseCobertura());
+    }
+
+    @Test
+    @DisplayName("Recarga inválida deve manter os planos atuais")
+    void recargaInvalidaDeveManterPlanosAtuais() {
+        // Arrange
+        List<PlanoConfigurado> repetidos = List.of(
+                new PlanoConfigurado("ouro", "Ouro", new BigDecimal("0.90")),
+                new PlanoConfigurado("OURO", "Ouro 2", new BigDecimal("0.95"))
+        );
+        environment.setProperty("reembolso.planos.basico.cobertura", "1.50");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> registro.recarregar(repetidos));
+        assertThrows(IllegalArgumentException.class, () -> registro.recarregar());
+        assertEquals(new BigDecimal("0.50"), registro.resolver("basico").getPercentualCobertura());
+    }
+
+    @Test
+    @DisplayName("Cálculo com plano configurado deve usar a cobertura pré-calculada")
+    void calculoDeveUsarCoberturaPreCalculada() {
+        // Arrange
+        CalculadoraReembolso calculadora = new CalculadoraReembolso();
+        Consulta consulta = new Consulta(new BigDecimal("100.00"), null);
+
+        // Act & Assert - 100.00 * 91,25% = 91.25
+        assertEquals(new BigDecimal("91.25"), calculadora.calcularComPlano(consulta, registro.resolver("executivo")));
+        assertEquals(new BigDecimal("50.00"), calculadora.calcularComPlano(consulta, registro.resolver("basico")));
+    }
+}
@@ -0,0 +1,198 @@
+package br.edu.infnet.dr3tp2.service;
+
+import br.edu.infnet.dr3tp2.model.Consulta;
+import br.edu.infnet.dr3tp2.model.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do teto anual de reembolso por CPF
+ */
+class TetoAnualPacienteTest {
+
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+    private static final String CPF = "111.111.111-11";
+
+    private TetoAnualPaciente teto;
+
+    @BeforeEach
+    void setUp() {
+        teto = new TetoAnualPaciente(new BigDecimal("1000.00"), FUSO);
+        teto.relogio = Clock.fixed(Instant.parse("2025-06-15T12:00:00Z"), FUSO);
+    }
+
+    @Test
+    @DisplayName("Deve conceder o valor inteiro enquanto houver saldo")
+    void deveConcederValorInteiro() {
+        // Act
+        ReservaTetoAnual reserva = teto.reservar(CPF, new BigDecimal("400.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("400.00"), reserva.valor());
+        assertEquals(2025, reserva.ano());
+        assertEquals(new BigDecimal("600.00"), teto.consultarSaldo(CPF));
+        assertEquals(new BigDecimal("1000.00"), teto.consultarSaldo("222.222.222-22"));
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir o saldo do ano corrente a partir do histórico persistido")
+    void deveReconstruirSaldoDoHistorico(@TempDir Path diretorio) throws IOException {
+        // Arrange - Uma consulta no ano anterior e duas no corrente, gravadas antes de reiniciar
+        HistoricoConsultasParticionado historico = abrirHistorico(diretorio);
+        historico.relogio = Clock.fixed(Instant.parse("2024-12-31T12:00:00Z"), ZoneOffset.UTC);
+        salvar(historico, "500.00", CPF);
+        historico.relogio = Clock.fixed(Instant.parse("2025-03-01T12:00:00Z"), ZoneOffset.UTC);
+        salvar(historico, "300.00", "11111111111");
+        salvar(historico, "100.00", "222.222.222-22");
+        historico.fechar();
+
+        // Act
+        HistoricoConsultasParticionado reaberto = abrirHistorico(diretorio);
+        teto.historicoConsultas = reaberto;
+        teto.reconstruir();
+        reaberto.fechar();
+
+        // Assert
+        assertEquals(new BigDecimal("700.00"), teto.consultarSaldo(CPF));
+        assertEquals(new BigDecimal("900.00"), teto.consultarSaldo("222.222.222-22"));
+        assertEquals(new BigDecimal("700.00"), teto.reservar(CPF, new BigDecimal("800.00")).valor());
+    }
+
+    private HistoricoConsultasParticionado abrirHistorico(Path diretorio) throws IOException {
+        HistoricoConsultasParticionado historico = new HistoricoConsultasParticionado(diretorio, Duration.ofDays(1), 2,
+                DataSize.ofMegabytes(64), Duration.ofDays(3650), 2, Duration.ZERO);
+        historico.relogio = Clock.fixed(Instant.parse("2025-06-15T12:00:00Z"), ZoneOffset.UTC);
+        historico.abrir();
+        return historico;
+    }
+
+    private void salvar(HistoricoConsultasParticionado historico, String reembolso, String cpf) {
+        historico.salvarComReembolso(new Consulta(new BigDecimal("1000.00"), new BigDecimal("0.70")),
+                new Paciente("Paciente", cpf), new BigDecimal(reembolso));
+    }
+
+    @Test
+    @DisplayName("As duas grafias do CPF devem dividir o mesmo teto")
+    void grafiasDoCpfDevemDividirOTeto() {
+        // Act
+        teto.reservar(CPF, new BigDecimal("600.00"));
+        ReservaTetoAnual parcial = teto.reservar("11111111111", new BigDecimal("600.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("400.00"), parcial.valor());
+        assertEquals(new BigDecimal("0.00"), teto.consultarSaldo("11111111111"));
+        teto.liberar(parcial);
+        assertEquals(new BigDecimal("400.00"), teto.consultarSaldo(CPF));
+    }
+
+    @Test
+    @DisplayName("Deve conceder só o saldo restante e depois negar")
+    void deveConcederParcialENegar() {
+        // Arrange
+        teto.reservar(CPF, new BigDecimal("800.00"));
+
+        // Act
+        ReservaTetoAnual parcial = teto.reservar(CPF, new BigDecimal("350.00"));
+        ReservaTetoAnual negada = teto.reservar(CPF, new BigDecimal("10.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("200.00"), parcial.valor());
+        assertEquals(0, negada.centavos());
+        assertEquals(new BigDecimal("0.00"), teto.consultarSaldo(CPF));
+    }
+
+    @Test
+    @DisplayName("Liberar deve devolver a reserva ao saldo")
+    void liberarDeveDevolverSaldo() {
+        // Arrange
+        ReservaTetoAnual reserva = teto.reservar(CPF, new BigDecimal("700.00"));
+
+        // Act
+        teto.liberar(reserva);
+
+        // Assert
+        assertEquals(new BigDecimal("1000.00"), teto.consultarSaldo(CPF));
+    }
+
+    @Test
+    @DisplayName("Saldo deve recomeçar na virada do ano no fuso configurado")
+    void saldoDeveRecomecarNaViradaDoAno() {
+        // Arrange - 31/12 às 23:59 em São Paulo (02:59 UTC de 01/01)
+        teto.relogio = Clock.fixed(Instant.parse("2026-01-01T02:59:00Z"), FUSO);
+        ReservaTetoAnual reservaAnoVelho = teto.reservar(CPF, new BigDecimal("1000.00"));
+        assertEquals(2025, reservaAnoVelho.ano());
+        assertEquals(0, teto.reservar(CPF, new BigDecimal("1.00")).centavos());
+
+        // Act - Um minuto depois da meia-noite local
+        teto.relogio = Clock.fixed(Instant.parse("2026-01-01T03:01:00Z"), FUSO);
+        ReservaTetoAnual reservaAnoNovo = teto.reservar(CPF, new BigDecimal("300.00"));
+        teto.liberar(reservaAnoVelho);
+
+        // Assert - Reserva do ano anterior não devolve saldo no ano novo
+        assertEquals(2026, reservaAnoNovo.ano());
+        assertEquals(new BigDecimal("300.00"), reservaAnoNovo.valor());
+        assertEquals(new BigDecimal("700.00"), teto.consultarSaldo(CPF));
+    }
+
+    @Test
+    @DisplayName("Reservas simultâneas do mesmo CPF nunca devem passar do teto")
+    void reservasSimultaneasNaoDevemPassarDoTeto() throws Exception {
+        // Arrange
+        int threads = 8;
+        int porThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Long>> resultados = new ArrayList<>();
+
+        // Act - 4.000 pedidos de R$ 0,37 disputando R$ 1.000,00
+        for (int t = 0; t < threads; t++) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                long concedido = 0;
+                for (int i = 0; i < porThread; i++) {
+                    concedido += teto.reservar(CPF, new BigDecimal("0.37")).centavos();
+                }
+                return concedido;
+            }));
+        }
+        largada.countDown();
+        long total = 0;
+        for (Future<Long> resultado : resultados) {
+            total += resultado.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(100_000, total);
+        assertEquals(new BigDecimal("0.00"), teto.consultarSaldo(CPF));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar valores inválidos")
+    void deveRejeitarValoresInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> teto.reservar(null, BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class, () -> teto.reservar(CPF, new BigDecimal("-1.00")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TetoAnualPaciente(new BigDecimal("-5.00"), FUSO));
+    }
+}